@@ -0,0 +1,64 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.mvstore.cache.CacheLongKeyLIRS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures cache hits and misses of the CacheLongKeyLIRS, using a skewed
+ * access pattern where the working set is larger than the cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CacheLongKeyLIRSBenchmark {
+
+    private static final int CACHE_SIZE = 10000;
+
+    private CacheLongKeyLIRS<Object> cache;
+    private Random random;
+    private final Object value = new Object();
+
+    /**
+     * Create and fill the cache.
+     */
+    @Setup
+    public void setup() {
+        cache = new CacheLongKeyLIRS<Object>(CACHE_SIZE, 16, 8);
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            cache.put(i, value, 1);
+        }
+        random = new Random(1);
+    }
+
+    /**
+     * Get an entry, and add it if it is missing.
+     *
+     * @return the entry
+     */
+    @Benchmark
+    public Object getOrPut() {
+        int r = random.nextInt(CACHE_SIZE * 4);
+        // about half of the accesses go to 10% of the keys
+        long key = (r & 1) == 0 ? r % (CACHE_SIZE / 10) : r;
+        Object x = cache.get(key);
+        if (x == null) {
+            cache.put(key, value, 1);
+        }
+        return x;
+    }
+
+}
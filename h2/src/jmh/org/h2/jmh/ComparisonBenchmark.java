@@ -0,0 +1,90 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.jmh;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.engine.Session;
+import org.h2.expression.Comparison;
+import org.h2.expression.Parameter;
+import org.h2.expression.ValueExpression;
+import org.h2.jdbc.JdbcConnection;
+import org.h2.value.Value;
+import org.h2.value.ValueInt;
+import org.h2.value.ValueString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures Comparison.getValue for INT and VARCHAR operands.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ComparisonBenchmark {
+
+    private Connection conn;
+    private Session session;
+    private Parameter intParam, stringParam;
+    private Comparison intCompare, stringCompare;
+    private int counter;
+
+    /**
+     * Create the expressions.
+     */
+    @Setup
+    public void setup() throws SQLException {
+        org.h2.Driver.load();
+        conn = DriverManager.getConnection("jdbc:h2:mem:");
+        session = (Session) ((JdbcConnection) conn).getSession();
+        intParam = new Parameter(0);
+        intCompare = new Comparison(session, Comparison.SMALLER, intParam,
+                ValueExpression.get(ValueInt.get(500)));
+        stringParam = new Parameter(1);
+        stringCompare = new Comparison(session, Comparison.EQUAL, stringParam,
+                ValueExpression.get(ValueString.get("Hello 500")));
+        stringParam.setValue(ValueString.get("Hello 400"));
+    }
+
+    /**
+     * Close the connection.
+     */
+    @TearDown
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    /**
+     * Compare two INT values.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public Value compareInt() {
+        intParam.setValue(ValueInt.get(counter++ & 1023));
+        return intCompare.getValue(session);
+    }
+
+    /**
+     * Compare two VARCHAR values.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public Value compareString() {
+        return stringCompare.getValue(session);
+    }
+
+}
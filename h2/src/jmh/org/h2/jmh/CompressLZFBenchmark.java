@@ -0,0 +1,75 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.compress.CompressLZF;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures LZF compression and decompression of a 4 KB page of
+ * semi-compressible data.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CompressLZFBenchmark {
+
+    private static final int LEN = 4096;
+
+    private final CompressLZF compress = new CompressLZF();
+    private byte[] data;
+    private byte[] compressed;
+    private int compressedLen;
+    private byte[] expanded;
+
+    /**
+     * Create the test data.
+     */
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        StringBuilder buff = new StringBuilder();
+        while (buff.length() < LEN) {
+            buff.append("row ").append(random.nextInt(1000)).
+                    append(" name ").append(random.nextInt(50)).append(';');
+        }
+        data = buff.substring(0, LEN).getBytes();
+        compressed = new byte[LEN * 2];
+        compressedLen = compress.compress(data, LEN, compressed, 0);
+        expanded = new byte[LEN];
+    }
+
+    /**
+     * Compress the data.
+     *
+     * @return the compressed length
+     */
+    @Benchmark
+    public int compress() {
+        return compress.compress(data, LEN, compressed, 0);
+    }
+
+    /**
+     * Expand the compressed data.
+     *
+     * @return the expanded data
+     */
+    @Benchmark
+    public byte[] expand() {
+        compress.expand(compressed, 0, compressedLen, expanded, 0, LEN);
+        return expanded;
+    }
+
+}
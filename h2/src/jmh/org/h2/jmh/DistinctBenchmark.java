@@ -0,0 +1,94 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.jmh;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures SELECT DISTINCT and lookups in an in-memory hash index.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DistinctBenchmark {
+
+    private static final int SIZE = 10000;
+
+    private Connection conn;
+    private PreparedStatement distinct;
+    private PreparedStatement lookup;
+    private Random random;
+
+    /**
+     * Create and fill the table.
+     */
+    @Setup
+    public void setup() throws SQLException {
+        org.h2.Driver.load();
+        conn = DriverManager.getConnection("jdbc:h2:mem:");
+        Statement stat = conn.createStatement();
+        stat.execute("CREATE MEMORY TABLE TEST(ID INT, NAME VARCHAR) " +
+                "AS SELECT X, 'Hello ' || MOD(X, 1000) " +
+                "FROM SYSTEM_RANGE(1, " + SIZE + ")");
+        stat.execute("CREATE UNIQUE HASH INDEX ON TEST(ID)");
+        distinct = conn.prepareStatement(
+                "SELECT DISTINCT ID / 10, NAME FROM TEST");
+        lookup = conn.prepareStatement("SELECT NAME FROM TEST WHERE ID = ?");
+        random = new Random(1);
+    }
+
+    /**
+     * Close the connection.
+     */
+    @TearDown
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    /**
+     * Run a DISTINCT query.
+     *
+     * @return the number of rows
+     */
+    @Benchmark
+    public int distinct() throws SQLException {
+        ResultSet rs = distinct.executeQuery();
+        int count = 0;
+        while (rs.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Look up a row using the hash index.
+     *
+     * @return the value
+     */
+    @Benchmark
+    public String hashIndexLookup() throws SQLException {
+        lookup.setInt(1, random.nextInt(SIZE) + 1);
+        ResultSet rs = lookup.executeQuery();
+        return rs.next() ? rs.getString(1) : null;
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.util.TypedValueHashMap;
+import org.h2.util.ValueArrayHashMap;
+import org.h2.util.ValueHashMap;
+import org.h2.value.Value;
+import org.h2.value.ValueArray;
+import org.h2.value.ValueInt;
+import org.h2.value.ValueString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the ValueHashMap with the specialized TypedValueHashMap (used by
+ * hash indexes) and ValueArrayHashMap (used for DISTINCT and GROUP BY).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HashMapBenchmark {
+
+    /**
+     * The number of entries in the map.
+     */
+    @Param({ "1000", "100000" })
+    int size;
+
+    private Value[][] rowKeys;
+    private ValueHashMap<Long> valueMap;
+    private TypedValueHashMap<Long> typedMap;
+    private ValueHashMap<Value[]> valueArrayMap;
+    private ValueArrayHashMap<Value[]> rowMap;
+    private Random random;
+
+    /**
+     * Create and fill the maps.
+     */
+    @Setup
+    public void setup() {
+        rowKeys = new Value[size][];
+        valueMap = ValueHashMap.newInstance();
+        typedMap = TypedValueHashMap.newInstance(Value.INT);
+        valueArrayMap = ValueHashMap.newInstance();
+        rowMap = ValueArrayHashMap.newInstance();
+        for (int i = 0; i < size; i++) {
+            Value k = ValueInt.get(i);
+            valueMap.put(k, (long) i);
+            typedMap.put(k, (long) i);
+            Value[] row = { k, ValueString.get("Hello " + (i % 100)) };
+            rowKeys[i] = row;
+            valueArrayMap.put(ValueArray.get(row), row);
+            rowMap.put(row, row);
+        }
+        random = new Random(1);
+    }
+
+    /**
+     * Look up an INT key in a ValueHashMap.
+     *
+     * @return the value
+     */
+    @Benchmark
+    public Long getIntValueHashMap() {
+        return valueMap.get(ValueInt.get(random.nextInt(size)));
+    }
+
+    /**
+     * Look up an INT key in a TypedValueHashMap.
+     *
+     * @return the value
+     */
+    @Benchmark
+    public Long getIntTypedValueHashMap() {
+        return typedMap.get(ValueInt.get(random.nextInt(size)));
+    }
+
+    /**
+     * Look up a row in a ValueHashMap, as DISTINCT used to do.
+     *
+     * @return the value
+     */
+    @Benchmark
+    public Value[] getRowValueHashMap() {
+        Value[] row = rowKeys[random.nextInt(size)];
+        return valueArrayMap.get(ValueArray.get(row.clone()));
+    }
+
+    /**
+     * Look up a row in a ValueArrayHashMap.
+     *
+     * @return the value
+     */
+    @Benchmark
+    public Value[] getRowValueArrayHashMap() {
+        Value[] row = rowKeys[random.nextInt(size)];
+        return rowMap.get(row.clone());
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures MVMap.get and MVMap.put on an in-memory store.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MVMapBenchmark {
+
+    /**
+     * The number of entries in the map.
+     */
+    @Param({ "1000", "1000000" })
+    int size;
+
+    private MVStore store;
+    private MVMap<Integer, String> map;
+    private Random random;
+
+    /**
+     * Create and fill the map.
+     */
+    @Setup
+    public void setup() {
+        store = MVStore.open(null);
+        map = store.openMap("data");
+        for (int i = 0; i < size; i++) {
+            map.put(i, "Hello World " + i);
+        }
+        random = new Random(1);
+    }
+
+    /**
+     * Close the store.
+     */
+    @TearDown
+    public void tearDown() {
+        store.close();
+    }
+
+    /**
+     * Read an existing entry.
+     *
+     * @return the value
+     */
+    @Benchmark
+    public String get() {
+        return map.get(random.nextInt(size));
+    }
+
+    /**
+     * Replace an existing entry.
+     *
+     * @return the old value
+     */
+    @Benchmark
+    public String put() {
+        return map.put(random.nextInt(size), "Hello");
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.OffHeapStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures reading and writing MVStore pages. The store is kept off-heap and
+ * the page cache is disabled, so that each lookup reads and de-serializes the
+ * pages from the path, and each commit serializes the changed pages.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PageBenchmark {
+
+    private static final int SIZE = 100000;
+
+    private MVStore store;
+    private MVMap<Integer, String> map;
+    private Random random;
+
+    /**
+     * Create and fill the store.
+     */
+    @Setup
+    public void setup() {
+        store = new MVStore.Builder().
+                fileStore(new OffHeapStore()).
+                cacheSize(0).
+                autoCommitDisabled().
+                open();
+        map = store.openMap("data");
+        for (int i = 0; i < SIZE; i++) {
+            map.put(i, "Hello World " + i);
+        }
+        store.commit();
+        random = new Random(1);
+    }
+
+    /**
+     * Close the store.
+     */
+    @TearDown
+    public void tearDown() {
+        store.close();
+    }
+
+    /**
+     * Read the pages on the path to an entry (Page.read).
+     *
+     * @return the value
+     */
+    @Benchmark
+    public String read() {
+        return map.get(random.nextInt(SIZE));
+    }
+
+    /**
+     * Change an entry and write the changed pages (Page.write).
+     *
+     * @return the version
+     */
+    @Benchmark
+    public long write() {
+        map.put(random.nextInt(SIZE), "Hello");
+        return store.commit();
+    }
+
+}
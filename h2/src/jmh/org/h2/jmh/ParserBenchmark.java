@@ -0,0 +1,82 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.jmh;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.command.Parser;
+import org.h2.command.Prepared;
+import org.h2.engine.Session;
+import org.h2.jdbc.JdbcConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures parsing and preparing statements (without the query cache).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParserBenchmark {
+
+    private static final String[] STATEMENTS = {
+        "SELECT NAME FROM TEST WHERE ID = ?",
+        "SELECT T.ID, COUNT(*) FROM TEST T, TEST U WHERE T.ID = U.ID " +
+                "AND T.NAME LIKE ? GROUP BY T.ID ORDER BY 2 DESC",
+        "INSERT INTO TEST(ID, NAME) VALUES(?, ?)",
+        "UPDATE TEST SET NAME = ? WHERE ID = ?" };
+
+    /**
+     * The index of the statement to parse.
+     */
+    @Param({ "0", "1", "2", "3" })
+    int statement;
+
+    private Connection conn;
+    private Session session;
+
+    /**
+     * Create the table.
+     */
+    @Setup
+    public void setup() throws SQLException {
+        org.h2.Driver.load();
+        conn = DriverManager.getConnection("jdbc:h2:mem:");
+        Statement stat = conn.createStatement();
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, NAME VARCHAR)");
+        session = (Session) ((JdbcConnection) conn).getSession();
+    }
+
+    /**
+     * Close the connection.
+     */
+    @TearDown
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    /**
+     * Parse and prepare the statement.
+     *
+     * @return the prepared statement
+     */
+    @Benchmark
+    public Prepared parse() {
+        return new Parser(session).prepare(STATEMENTS[statement]);
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.jmh;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.value.Transfer;
+import org.h2.value.Value;
+import org.h2.value.ValueDecimal;
+import org.h2.value.ValueInt;
+import org.h2.value.ValueString;
+import org.h2.value.ValueTimestamp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures Transfer.writeValue over a loopback socket. A background thread
+ * reads and discards the data.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransferBenchmark {
+
+    private ServerSocket serverSocket;
+    private Socket socket;
+    private Thread reader;
+    private Transfer transfer;
+    private Value[] row;
+
+    /**
+     * Open the connection.
+     */
+    @Setup
+    public void setup() throws IOException {
+        serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        reader = new Thread("TransferBenchmark reader") {
+            @Override
+            public void run() {
+                try {
+                    Socket s = serverSocket.accept();
+                    InputStream in = s.getInputStream();
+                    byte[] buff = new byte[64 * 1024];
+                    while (in.read(buff) >= 0) {
+                        // ignore
+                    }
+                    s.close();
+                } catch (IOException e) {
+                    // closed
+                }
+            }
+        };
+        reader.setDaemon(true);
+        reader.start();
+        socket = new Socket(InetAddress.getLoopbackAddress(),
+                serverSocket.getLocalPort());
+        transfer = new Transfer(null);
+        transfer.setSocket(socket);
+        transfer.init();
+        row = new Value[] {
+                ValueInt.get(12345),
+                ValueString.get("Hello World"),
+                ValueDecimal.get(new BigDecimal("1234.56")),
+                ValueTimestamp.fromMillis(1400000000000L) };
+    }
+
+    /**
+     * Close the connection.
+     */
+    @TearDown
+    public void tearDown() throws Exception {
+        transfer.close();
+        serverSocket.close();
+        reader.join();
+    }
+
+    /**
+     * Write a row.
+     *
+     * @return the transfer object
+     */
+    @Benchmark
+    public Transfer writeValue() throws IOException {
+        for (Value v : row) {
+            transfer.writeValue(v);
+        }
+        return transfer;
+    }
+
+}
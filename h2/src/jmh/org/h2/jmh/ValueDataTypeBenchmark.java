@@ -0,0 +1,90 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.jmh;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.db.ValueDataType;
+import org.h2.value.CompareMode;
+import org.h2.value.Value;
+import org.h2.value.ValueArray;
+import org.h2.value.ValueDecimal;
+import org.h2.value.ValueDouble;
+import org.h2.value.ValueInt;
+import org.h2.value.ValueLong;
+import org.h2.value.ValueNull;
+import org.h2.value.ValueString;
+import org.h2.value.ValueTimestamp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the serialization of a typical row using the ValueDataType.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ValueDataTypeBenchmark {
+
+    private ValueDataType type;
+    private ValueArray row;
+    private WriteBuffer writeBuffer;
+    private ByteBuffer readBuffer;
+
+    /**
+     * Create the row and serialize it once.
+     */
+    @Setup
+    public void setup() {
+        type = new ValueDataType(CompareMode.getInstance(null, 0), null, null);
+        row = ValueArray.get(new Value[] {
+                ValueInt.get(12345),
+                ValueLong.get(1234567890123L),
+                ValueString.get("Hello World"),
+                ValueDecimal.get(new BigDecimal("1234.56")),
+                ValueDouble.get(3.1415),
+                ValueTimestamp.fromMillis(1400000000000L),
+                ValueNull.INSTANCE });
+        writeBuffer = new WriteBuffer();
+        type.write(writeBuffer, row);
+        ByteBuffer buff = writeBuffer.getBuffer();
+        buff.flip();
+        readBuffer = ByteBuffer.allocate(buff.remaining());
+        readBuffer.put(buff);
+    }
+
+    /**
+     * Serialize the row.
+     *
+     * @return the length
+     */
+    @Benchmark
+    public int write() {
+        writeBuffer.clear();
+        type.write(writeBuffer, row);
+        return writeBuffer.position();
+    }
+
+    /**
+     * De-serialize the row.
+     *
+     * @return the row
+     */
+    @Benchmark
+    public Object read() {
+        readBuffer.rewind();
+        return type.read(readBuffer);
+    }
+
+}
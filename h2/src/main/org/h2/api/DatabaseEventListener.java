@@ -58,6 +58,13 @@ public interface DatabaseEventListener extends EventListener {
      */
     int STATE_STATEMENT_PROGRESS = 7;
 
+    /**
+     * This state is used while the SCRIPT command writes the rows of a table.
+     * The name is the table name, the position is the number of rows written,
+     * and the maximum is the approximate row count of the table.
+     */
+    int STATE_SCRIPT = 8;
+
     /**
      * This method is called just after creating the object.
      * This is done when opening the database if the listener is specified
@@ -33,6 +33,12 @@ public abstract class Command implements CommandInterface {
      */
     protected long startTime;
 
+    /**
+     * The last start time in nanoseconds, if query statistics are enabled,
+     * or 0.
+     */
+    protected long startTimeNanos;
+
     /**
      * The trace module.
      */
@@ -48,7 +54,11 @@ public abstract class Command implements CommandInterface {
     private boolean canReuse;
 
     Command(Parser parser, String sql) {
-        this.session = parser.getSession();
+        this(parser.getSession(), sql);
+    }
+
+    Command(Session session, String sql) {
+        this.session = session;
         this.sql = sql;
         trace = session.getDatabase().getTrace(Trace.COMMAND);
     }
@@ -125,6 +135,12 @@ public abstract class Command implements CommandInterface {
         if (trace.isInfoEnabled()) {
             startTime = System.currentTimeMillis();
         }
+        if (session.getDatabase().getQueryStatistics()) {
+            // 0 means not set
+            startTimeNanos = System.nanoTime() | 1;
+        } else {
+            startTimeNanos = 0;
+        }
     }
 
     void setProgress(int state) {
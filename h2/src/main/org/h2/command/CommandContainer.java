@@ -7,6 +7,9 @@ package org.h2.command;
 
 import java.util.ArrayList;
 import org.h2.api.DatabaseEventListener;
+import org.h2.engine.QueryStatisticsData;
+import org.h2.engine.Session;
+import org.h2.engine.StatementMetrics;
 import org.h2.expression.Parameter;
 import org.h2.expression.ParameterInterface;
 import org.h2.result.ResultInterface;
@@ -23,12 +26,51 @@ class CommandContainer extends Command {
     private boolean readOnlyKnown;
     private boolean readOnly;
 
+    /**
+     * The plan cache to return the prepared statement to when closing, or
+     * null.
+     */
+    private PlanCache planCache;
+    private String planKey;
+
     CommandContainer(Parser parser, String sql, Prepared prepared) {
         super(parser, sql);
         prepared.setCommand(this);
         this.prepared = prepared;
     }
 
+    CommandContainer(Session session, String sql, Prepared prepared) {
+        super(session, sql);
+        prepared.setCommand(this);
+        this.prepared = prepared;
+    }
+
+    Prepared getPrepared() {
+        return prepared;
+    }
+
+    /**
+     * Return the prepared statement to the given plan cache when this command
+     * is closed.
+     *
+     * @param cache the plan cache
+     * @param key the key
+     */
+    void setPlanCache(PlanCache cache, String key) {
+        this.planCache = cache;
+        this.planKey = key;
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (planCache != null) {
+            PlanCache cache = planCache;
+            planCache = null;
+            cache.release(planKey, prepared);
+        }
+    }
+
     @Override
     public ArrayList<? extends ParameterInterface> getParameters() {
         return prepared.getParameters();
@@ -75,8 +117,14 @@ class CommandContainer extends Command {
         start();
         session.setLastScopeIdentity(ValueNull.INSTANCE);
         prepared.checkParameters();
-        int updateCount = prepared.update();
-        prepared.trace(startTime, updateCount);
+        StatementMetrics metrics = startMetrics();
+        int updateCount = -1;
+        try {
+            updateCount = prepared.update();
+        } finally {
+            stopMetrics(metrics, updateCount);
+        }
+        prepared.trace(startTime, startTimeNanos, updateCount);
         setProgress(DatabaseEventListener.STATE_STATEMENT_END);
         return updateCount;
     }
@@ -87,12 +135,49 @@ class CommandContainer extends Command {
         setProgress(DatabaseEventListener.STATE_STATEMENT_START);
         start();
         prepared.checkParameters();
-        ResultInterface result = prepared.query(maxrows);
-        prepared.trace(startTime, result.getRowCount());
+        StatementMetrics metrics = startMetrics();
+        ResultInterface result = null;
+        try {
+            result = prepared.query(maxrows);
+        } finally {
+            stopMetrics(metrics, result == null ? -1 : result.getRowCount());
+        }
+        prepared.trace(startTime, startTimeNanos, result.getRowCount());
         setProgress(DatabaseEventListener.STATE_STATEMENT_END);
         return result;
     }
 
+    /**
+     * Start collecting the metrics of this statement, if query statistics
+     * are enabled and no metrics are collected yet (statements executed by
+     * triggers and functions are included in the outer statement).
+     *
+     * @return the metrics, or null
+     */
+    private StatementMetrics startMetrics() {
+        if (!session.getDatabase().getQueryStatistics() ||
+                session.getStatementMetrics() != null) {
+            return null;
+        }
+        StatementMetrics metrics = new StatementMetrics(session,
+                prepared.getSQL());
+        session.setStatementMetrics(metrics);
+        return metrics;
+    }
+
+    private void stopMetrics(StatementMetrics metrics, int rowCount) {
+        if (metrics == null) {
+            return;
+        }
+        session.setStatementMetrics(null);
+        metrics.stop(rowCount);
+        QueryStatisticsData data =
+                session.getDatabase().getQueryStatisticsData();
+        if (data != null) {
+            data.addRecentStatement(metrics);
+        }
+    }
+
     @Override
     public boolean isReadOnly() {
         if (!readOnlyKnown) {
@@ -113,6 +113,7 @@ import org.h2.expression.Operation;
 import org.h2.expression.Parameter;
 import org.h2.expression.Rownum;
 import org.h2.expression.SequenceValue;
+import org.h2.expression.SpatialDistance;
 import org.h2.expression.Subquery;
 import org.h2.expression.TableFunction;
 import org.h2.expression.ValueExpression;
@@ -125,6 +126,7 @@ import org.h2.schema.Schema;
 import org.h2.schema.Sequence;
 import org.h2.table.Column;
 import org.h2.table.FunctionTable;
+import org.h2.table.Histogram;
 import org.h2.table.IndexColumn;
 import org.h2.table.RangeTable;
 import org.h2.table.Table;
@@ -530,6 +532,10 @@ public class Parser {
         BackupCommand command = new BackupCommand(session);
         read("TO");
         command.setFileName(readExpression());
+        if (readIf("INCREMENTAL")) {
+            read("SINCE");
+            command.setIncrementalSince(readExpression());
+        }
         return command;
     }
 
@@ -2217,6 +2223,8 @@ public class Parser {
         while (true) {
             if (readIf("||")) {
                 r = new Operation(Operation.CONCAT, r, readSum());
+            } else if (readIf("<->")) {
+                r = new SpatialDistance(r, readSum());
             } else if (readIf("~")) {
                 if (readIf("*")) {
                     Function function = Function.getFunction(database, "CAST");
@@ -3201,6 +3209,9 @@ public class Parser {
         case CHAR_SPECIAL_2:
             if (types[i] == CHAR_SPECIAL_2) {
                 i++;
+            } else if (c == '<' && chars[i] == '-' && chars[i + 1] == '>') {
+                // the spatial distance operator
+                i += 2;
             }
             currentToken = sqlCommand.substring(start, i);
             currentTokenType = getSpecialType(currentToken);
@@ -3687,6 +3698,8 @@ public class Parser {
                 }
                 break;
             }
+        } else if ("<->".equals(s)) {
+            return KEYWORD;
         }
         throw getSyntaxError();
     }
@@ -3921,6 +3934,17 @@ public class Parser {
             int value = readPositiveInt();
             column.setSelectivity(value);
         }
+        if (readIf("HISTOGRAM")) {
+            read("(");
+            ArrayList<Value> bounds = New.arrayList();
+            do {
+                Expression expr = readExpression().optimize(session);
+                bounds.add(expr.getValue(session).convertTo(column.getType()));
+            } while (readIf(","));
+            read(")");
+            column.setHistogram(new Histogram(
+                    bounds.toArray(new Value[bounds.size()])));
+        }
         String comment = readCommentIf();
         if (comment != null) {
             column.setComment(comment);
@@ -4198,6 +4222,19 @@ public class Parser {
             command.setComment(readCommentIf());
             read("(");
             command.setIndexColumns(parseIndexColumnList());
+            if (readIf("SELECTIVITY")) {
+                read("(");
+                ArrayList<Integer> list = New.arrayList();
+                do {
+                    list.add(readPositiveInt());
+                } while (readIf(","));
+                read(")");
+                int[] selectivity = new int[list.size()];
+                for (int i = 0; i < selectivity.length; i++) {
+                    selectivity[i] = list.get(i);
+                }
+                command.setColumnGroupSelectivity(selectivity);
+            }
             return command;
         }
     }
@@ -5162,6 +5199,9 @@ public class Parser {
         if (readIf("CHARSET")) {
             command.setCharset(Charset.forName(readString()));
         }
+        if (readIf("PARALLEL")) {
+            command.setParallel(true);
+        }
         return command;
     }
 
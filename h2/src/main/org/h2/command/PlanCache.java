@@ -0,0 +1,172 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.command;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import org.h2.command.dml.Query;
+import org.h2.engine.Database;
+import org.h2.engine.DbObject;
+import org.h2.engine.Session;
+import org.h2.expression.ExpressionVisitor;
+import org.h2.expression.ParameterInterface;
+import org.h2.table.FunctionTable;
+import org.h2.table.Table;
+import org.h2.table.TableView;
+import org.h2.util.New;
+import org.h2.util.SmallLRUCache;
+import org.h2.util.StatementBuilder;
+
+/**
+ * A database wide cache of prepared queries that are currently not in use.
+ * A prepared statement can only be used by one session at a time, so each
+ * entry contains a list of idle prepared statements. A session that prepares
+ * a statement takes one of them (if there is one), and returns it when the
+ * command is closed. The key of an entry contains the SQL statement and
+ * everything else the result of parsing depends on: the user (the access
+ * rights are checked when parsing), the current schema, the schema search
+ * path, and the compatibility mode. All entries are removed when the database
+ * schema is changed.
+ */
+public class PlanCache {
+
+    private final SmallLRUCache<String, ArrayList<Prepared>> idle;
+    private long modificationMetaId = -1;
+
+    public PlanCache(int size) {
+        idle = SmallLRUCache.newInstance(size);
+    }
+
+    /**
+     * Get a command for the given statement that uses an idle prepared
+     * statement from the cache.
+     *
+     * @param session the session
+     * @param sql the SQL statement
+     * @return the command, or null if there is no idle prepared statement
+     */
+    public Command get(Session session, String sql) {
+        String key = getKey(session, sql);
+        Prepared prepared;
+        synchronized (this) {
+            checkModificationMetaId(session.getDatabase());
+            ArrayList<Prepared> list = idle.get(key);
+            if (list == null || list.isEmpty()) {
+                return null;
+            }
+            prepared = list.remove(list.size() - 1);
+        }
+        prepared.setSession(session);
+        CommandContainer command = new CommandContainer(session, sql, prepared);
+        ArrayList<? extends ParameterInterface> parameters =
+                command.getParameters();
+        for (int i = 0, size = parameters.size(); i < size; i++) {
+            parameters.get(i).setValue(null, true);
+        }
+        command.setPlanCache(this, key);
+        return command;
+    }
+
+    /**
+     * Register a newly prepared command, so that its prepared statement is
+     * added to the cache when the command is closed. This is only done for
+     * queries that don't depend on session specific objects.
+     *
+     * @param session the session
+     * @param sql the SQL statement
+     * @param command the command
+     * @return true if the command was registered
+     */
+    public boolean register(Session session, String sql, Command command) {
+        if (!(command instanceof CommandContainer) || !command.isCacheable()) {
+            return false;
+        }
+        CommandContainer c = (CommandContainer) command;
+        Prepared prepared = c.getPrepared();
+        if (!(prepared instanceof Query) || !isShareable((Query) prepared)) {
+            return false;
+        }
+        c.setPlanCache(this, getKey(session, sql));
+        return true;
+    }
+
+    /**
+     * Add a prepared statement that is no longer in use to the cache.
+     *
+     * @param key the key
+     * @param prepared the prepared statement
+     */
+    synchronized void release(String key, Prepared prepared) {
+        checkModificationMetaId(prepared.session.getDatabase());
+        if (prepared.getModificationMetaId() != modificationMetaId) {
+            return;
+        }
+        ArrayList<Prepared> list = idle.get(key);
+        if (list == null) {
+            list = New.arrayList();
+            idle.put(key, list);
+        }
+        list.add(prepared);
+    }
+
+    /**
+     * Clear the cache if the database schema was changed since the cached
+     * statements were prepared.
+     *
+     * @param db the database
+     */
+    private void checkModificationMetaId(Database db) {
+        long id = db.getModificationMetaId();
+        if (id != modificationMetaId) {
+            idle.clear();
+            modificationMetaId = id;
+        }
+    }
+
+    private static String getKey(Session session, String sql) {
+        StatementBuilder buff = new StatementBuilder();
+        buff.append(session.getUser().getName()).append('\n').
+                append(session.getCurrentSchemaName()).append('\n');
+        String[] path = session.getSchemaSearchPath();
+        if (path != null) {
+            for (String s : path) {
+                buff.appendExceptFirst(",");
+                buff.append(s);
+            }
+        }
+        buff.append('\n').append(session.getDatabase().getMode().getName()).
+                append('\n').append(sql);
+        return buff.toString();
+    }
+
+    /**
+     * Check whether the query only uses objects that can be shared between
+     * sessions. Local temporary tables, derived tables, and views are session
+     * specific (views keep the prepared statement per session), and table
+     * functions may be evaluated when parsing.
+     *
+     * @param query the query
+     * @return true if it can be shared
+     */
+    private static boolean isShareable(Query query) {
+        HashSet<DbObject> dependencies = New.hashSet();
+        query.isEverything(
+                ExpressionVisitor.getDependenciesVisitor(dependencies));
+        for (DbObject obj : dependencies) {
+            if (obj instanceof Table) {
+                Table t = (Table) obj;
+                if (t instanceof TableView || t instanceof FunctionTable) {
+                    return false;
+                }
+                if (t.isTemporary() && !t.isGlobalTemporary()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+}
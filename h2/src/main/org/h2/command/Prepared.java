@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import org.h2.api.DatabaseEventListener;
 import org.h2.api.ErrorCode;
 import org.h2.engine.Database;
+import org.h2.engine.QueryStatisticsData;
 import org.h2.engine.Session;
 import org.h2.expression.Expression;
 import org.h2.expression.Parameter;
@@ -303,18 +304,23 @@ public abstract class Prepared {
      * enabled.
      *
      * @param startTime when the statement was started
+     * @param startTimeNanos when the statement was started, in nanoseconds
+     *            (only set if query statistics are enabled)
      * @param rowCount the query or update row count
      */
-    void trace(long startTime, int rowCount) {
+    void trace(long startTime, long startTimeNanos, int rowCount) {
         if (session.getTrace().isInfoEnabled() && startTime > 0) {
             long deltaTime = System.currentTimeMillis() - startTime;
             String params = Trace.formatParams(parameters);
             session.getTrace().infoSQL(sqlStatement, params, rowCount, deltaTime);
         }
-        if (session.getDatabase().getQueryStatistics()) {
-            long deltaTime = System.currentTimeMillis() - startTime;
-            session.getDatabase().getQueryStatisticsData().
-                    update(toString(), deltaTime, rowCount);
+        if (startTimeNanos != 0) {
+            QueryStatisticsData data =
+                    session.getDatabase().getQueryStatisticsData();
+            if (data != null) {
+                long deltaTime = System.nanoTime() - startTimeNanos;
+                data.update(toString(), deltaTime, rowCount);
+            }
         }
     }
 
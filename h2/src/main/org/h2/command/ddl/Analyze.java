@@ -8,14 +8,22 @@ package org.h2.command.ddl;
 import java.util.ArrayList;
 import org.h2.command.CommandInterface;
 import org.h2.command.Prepared;
+import org.h2.engine.Constants;
 import org.h2.engine.Database;
 import org.h2.engine.Right;
 import org.h2.engine.Session;
 import org.h2.expression.Parameter;
+import org.h2.index.Index;
+import org.h2.index.IndexType;
 import org.h2.result.ResultInterface;
 import org.h2.table.Column;
+import org.h2.table.Histogram;
 import org.h2.table.Table;
+import org.h2.util.MathUtils;
+import org.h2.util.New;
 import org.h2.util.StatementBuilder;
+import org.h2.util.ValueArrayHashMap;
+import org.h2.value.CompareMode;
 import org.h2.value.Value;
 import org.h2.value.ValueInt;
 import org.h2.value.ValueNull;
@@ -120,8 +128,12 @@ public class Analyze extends DefineCommand {
                 columns[j].setSelectivity(selectivity);
             }
         }
+        ArrayList<Index> indexes = analyzeIndexes(session, table, sample);
         if (manual) {
             db.updateMeta(session, table);
+            for (Index index : indexes) {
+                db.updateMeta(session, index);
+            }
         } else {
             Session sysSession = db.getSystemSession();
             if (sysSession != session) {
@@ -132,6 +144,9 @@ public class Analyze extends DefineCommand {
                 synchronized (sysSession) {
                     synchronized (db) {
                         db.updateMeta(sysSession, table);
+                        for (Index index : indexes) {
+                            db.updateMeta(sysSession, index);
+                        }
                         sysSession.commit(true);
                     }
                 }
@@ -139,6 +154,117 @@ public class Analyze extends DefineCommand {
         }
     }
 
+    /**
+     * Calculate the histograms of the indexed columns, and the selectivity of
+     * the column groups of multi-column indexes, from a sample of the rows.
+     *
+     * @param session the session
+     * @param table the table
+     * @param sample the number of sample rows
+     * @return the indexes where the column group selectivity was changed
+     */
+    private static ArrayList<Index> analyzeIndexes(Session session,
+            Table table, int sample) {
+        ArrayList<Index> indexes = New.arrayList();
+        ArrayList<Column> columns = New.arrayList();
+        for (Index index : table.getIndexes()) {
+            IndexType type = index.getIndexType();
+            if (type.isScan() || type.isHash() || type.isSpatial()) {
+                continue;
+            }
+            Column[] cols = index.getColumns();
+            for (Column c : cols) {
+                if (!columns.contains(c) && Histogram.isSupported(c.getType())) {
+                    columns.add(c);
+                }
+            }
+            if (cols.length > 1) {
+                indexes.add(index);
+            }
+        }
+        for (Index index : indexes) {
+            for (Column c : index.getColumns()) {
+                if (!columns.contains(c)) {
+                    columns.add(c);
+                }
+            }
+        }
+        if (columns.size() == 0) {
+            return indexes;
+        }
+        StatementBuilder buff = new StatementBuilder("SELECT ");
+        for (Column c : columns) {
+            buff.appendExceptFirst(", ");
+            buff.append(c.getSQL());
+        }
+        buff.append(" FROM ").append(table.getSQL());
+        if (sample > 0) {
+            buff.append(" LIMIT ?");
+        }
+        Prepared command = session.prepare(buff.toString());
+        if (sample > 0) {
+            command.getParameters().get(0).setValue(ValueInt.get(sample));
+        }
+        // reservoir sampling, in case all rows are read
+        int max = sample > 0 ? sample : Constants.SELECTIVITY_DISTINCT_COUNT;
+        ArrayList<Value[]> rows = New.arrayList();
+        ResultInterface result = command.query(0);
+        for (int count = 0; result.next(); count++) {
+            Value[] row = result.currentRow();
+            if (rows.size() < max) {
+                rows.add(row);
+            } else {
+                int i = MathUtils.randomInt(count + 1);
+                if (i < max) {
+                    rows.set(i, row);
+                }
+            }
+        }
+        result.close();
+        CompareMode compareMode = session.getDatabase().getCompareMode();
+        for (int j = 0; j < columns.size(); j++) {
+            Column c = columns.get(j);
+            if (Histogram.isSupported(c.getType())) {
+                ArrayList<Value> values = New.arrayList(rows.size());
+                for (Value[] row : rows) {
+                    values.add(row[j]);
+                }
+                c.setHistogram(Histogram.create(values, compareMode));
+            }
+        }
+        for (Index index : indexes) {
+            index.setColumnGroupSelectivity(
+                    getColumnGroupSelectivity(index, columns, rows));
+        }
+        return indexes;
+    }
+
+    private static int[] getColumnGroupSelectivity(Index index,
+            ArrayList<Column> columns, ArrayList<Value[]> rows) {
+        if (rows.size() == 0) {
+            return null;
+        }
+        Column[] cols = index.getColumns();
+        int[] positions = new int[cols.length];
+        for (int i = 0; i < cols.length; i++) {
+            positions[i] = columns.indexOf(cols[i]);
+        }
+        int[] selectivity = new int[cols.length];
+        for (int i = 0; i < cols.length; i++) {
+            ValueArrayHashMap<Value[]> distinct = ValueArrayHashMap.newInstance();
+            for (Value[] row : rows) {
+                Value[] key = new Value[i + 1];
+                for (int k = 0; k <= i; k++) {
+                    key[k] = row[positions[k]];
+                }
+                distinct.put(key, key);
+            }
+            int s = (int) (100L * distinct.size() / rows.size());
+            selectivity[i] = s <= 0 ? 1 : s > 100 ? 100 : s;
+        }
+        return selectivity;
+    }
+
     public void setTop(int top) {
         this.sampleRows = top;
     }
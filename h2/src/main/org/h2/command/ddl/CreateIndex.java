@@ -11,6 +11,7 @@ import org.h2.engine.Constants;
 import org.h2.engine.Database;
 import org.h2.engine.Right;
 import org.h2.engine.Session;
+import org.h2.index.Index;
 import org.h2.index.IndexType;
 import org.h2.message.DbException;
 import org.h2.schema.Schema;
@@ -29,6 +30,7 @@ public class CreateIndex extends SchemaCommand {
     private boolean primaryKey, unique, hash, spatial;
     private boolean ifNotExists;
     private String comment;
+    private int[] columnGroupSelectivity;
 
     public CreateIndex(Session session, Schema schema) {
         super(session, schema);
@@ -91,8 +93,14 @@ public class CreateIndex extends SchemaCommand {
             indexType = IndexType.createNonUnique(persistent, hash, spatial);
         }
         IndexColumn.mapColumns(indexColumns, table);
-        table.addIndex(session, indexName, id, indexColumns, indexType, create,
-                comment);
+        Index index = table.addIndex(session, indexName, id, indexColumns,
+                indexType, create, comment);
+        if (columnGroupSelectivity != null) {
+            index.setColumnGroupSelectivity(columnGroupSelectivity);
+            if (create) {
+                db.updateMeta(session, index);
+            }
+        }
         return 0;
     }
 
@@ -100,6 +108,10 @@ public class CreateIndex extends SchemaCommand {
         this.primaryKey = b;
     }
 
+    public boolean isPrimaryKey() {
+        return primaryKey;
+    }
+
     public void setUnique(boolean b) {
         this.unique = b;
     }
@@ -116,6 +128,10 @@ public class CreateIndex extends SchemaCommand {
         this.comment = comment;
     }
 
+    public void setColumnGroupSelectivity(int[] selectivity) {
+        this.columnGroupSelectivity = selectivity;
+    }
+
     @Override
     public int getType() {
         return CommandInterface.CREATE_INDEX;
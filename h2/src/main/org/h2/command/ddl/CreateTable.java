@@ -51,6 +51,16 @@ public class CreateTable extends SchemaCommand {
         this.asQuery = query;
     }
 
+    /**
+     * Check whether the table is created from a query
+     * (CREATE TABLE ... AS SELECT).
+     *
+     * @return true if it is
+     */
+    public boolean isFromQuery() {
+        return asQuery != null;
+    }
+
     public void setTemporary(boolean temporary) {
         data.temporary = temporary;
     }
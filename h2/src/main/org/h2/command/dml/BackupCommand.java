@@ -5,9 +5,12 @@
  */
 package org.h2.command.dml;
 
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
@@ -20,6 +23,8 @@ import org.h2.engine.Database;
 import org.h2.engine.Session;
 import org.h2.expression.Expression;
 import org.h2.message.DbException;
+import org.h2.mvstore.Chunk;
+import org.h2.mvstore.DataUtils;
 import org.h2.mvstore.MVStore;
 import org.h2.mvstore.db.MVTableEngine.Store;
 import org.h2.result.ResultInterface;
@@ -35,6 +40,7 @@ import org.h2.util.IOUtils;
 public class BackupCommand extends Prepared {
 
     private Expression fileNameExpr;
+    private Expression sinceExpr;
 
     public BackupCommand(Session session) {
         super(session);
@@ -44,19 +50,33 @@ public class BackupCommand extends Prepared {
         this.fileNameExpr = fileName;
     }
 
+    public void setIncrementalSince(Expression since) {
+        this.sinceExpr = since;
+    }
+
     @Override
     public int update() {
         String name = fileNameExpr.getValue(session).getString();
+        long since = -1;
+        if (sinceExpr != null) {
+            since = sinceExpr.getValue(session).getLong();
+        }
         session.getUser().checkAdmin();
-        backupTo(name);
+        backupTo(name, since);
         return 0;
     }
 
-    private void backupTo(String fileName) {
+    private void backupTo(String fileName, long since) {
         Database db = session.getDatabase();
         if (!db.isPersistent()) {
             throw DbException.get(ErrorCode.DATABASE_IS_NOT_PERSISTENT);
         }
+        if (since >= 0 && (db.getMvStore() == null ||
+                db.getMvStore().getStore().getFileStore().
+                getEncryptedFile() != null)) {
+            throw DbException.getUnsupportedException(
+                    "INCREMENTAL backup of this database");
+        }
         try {
             Store mvStore = db.getMvStore();
             if (mvStore != null) {
@@ -83,7 +103,10 @@ public class BackupCommand extends Prepared {
                     if (n.endsWith(Constants.SUFFIX_LOB_FILE)) {
                         backupFile(out, base, n);
                     }
-                    if (n.endsWith(Constants.SUFFIX_MV_FILE) && mvStore != null) {
+                    if (n.endsWith(Constants.SUFFIX_MV_FILE) && since >= 0) {
+                        backupChunks(out, base, n, mvStore.getStore(), since);
+                    } else if (n.endsWith(Constants.SUFFIX_MV_FILE) &&
+                            mvStore != null) {
                         MVStore s = mvStore.getStore();
                         boolean before = s.getReuseSpace();
                         s.setReuseSpace(false);
@@ -125,6 +148,65 @@ public class BackupCommand extends Prepared {
         out.closeEntry();
     }
 
+    /**
+     * Back up the store header and the chunks that were written or moved
+     * after the given version. The entry contains the version it was
+     * created from, the version of the backup, the file length, the header
+     * blocks, and then the position, length and content of each chunk.
+     */
+    private void backupChunks(ZipOutputStream out, String base, String fn,
+            MVStore s, long since) throws IOException {
+        Database db = session.getDatabase();
+        boolean before;
+        long version, fileLength;
+        ByteBuffer header;
+        ArrayList<Chunk> list;
+        // the chunks, the header and the file length must match
+        synchronized (s) {
+            before = s.getReuseSpace();
+            s.setReuseSpace(false);
+            version = s.getCurrentVersion();
+            list = s.getChunksSince(since);
+            header = s.getStoreHeaderBlocks();
+            fileLength = s.getFileStore().size();
+        }
+        try {
+            String f = getEntryName(base, fn);
+            f = f.substring(0, f.length() - Constants.SUFFIX_MV_FILE.length()) +
+                    Constants.SUFFIX_MV_INCREMENT;
+            out.putNextEntry(new ZipEntry(f));
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeLong(since);
+            data.writeLong(version);
+            data.writeLong(fileLength);
+            data.writeInt(header.remaining());
+            data.write(header.array(), 0, header.remaining());
+            FileChannel file = s.getFileStore().getFile();
+            ByteBuffer buff = ByteBuffer.allocate(Constants.IO_BUFFER_SIZE_COMPRESS);
+            for (int i = 0, size = list.size(); i < size; i++) {
+                Chunk c = list.get(i);
+                long pos = c.block * MVStore.BLOCK_SIZE;
+                long len = c.len * (long) MVStore.BLOCK_SIZE;
+                data.writeLong(pos);
+                data.writeLong(len);
+                for (long p = pos, end = pos + len; p < end;) {
+                    buff.clear();
+                    buff.limit((int) Math.min(buff.capacity(), end - p));
+                    DataUtils.readFully(file, p, buff);
+                    data.write(buff.array(), 0, buff.limit());
+                    p += buff.limit();
+                }
+                db.setProgress(DatabaseEventListener.STATE_BACKUP_FILE,
+                        f, i + 1, size);
+            }
+            data.writeLong(-1);
+            data.flush();
+            out.closeEntry();
+        } finally {
+            s.setReuseSpace(before);
+        }
+    }
+
     private static void backupFile(ZipOutputStream out, String base, String fn)
             throws IOException {
         InputStream in = FileUtils.newInputStream(fn);
@@ -133,16 +215,20 @@ public class BackupCommand extends Prepared {
 
     private static void backupFile(ZipOutputStream out, String base, String fn,
             InputStream in) throws IOException {
+        String f = getEntryName(base, fn);
+        out.putNextEntry(new ZipEntry(f));
+        IOUtils.copyAndCloseInput(in, out);
+        out.closeEntry();
+    }
+
+    private static String getEntryName(String base, String fn) {
         String f = FileUtils.toRealPath(fn);
         base = FileUtils.toRealPath(base);
         if (!f.startsWith(base)) {
             DbException.throwInternalError(f + " does not start with " + base);
         }
         f = f.substring(base.length());
-        f = correctFileName(f);
-        out.putNextEntry(new ZipEntry(f));
-        IOUtils.copyAndCloseInput(in, out);
-        out.closeEntry();
+        return correctFileName(f);
     }
 
     @Override
@@ -12,6 +12,8 @@ import org.h2.command.CommandInterface;
 import org.h2.command.Prepared;
 import org.h2.engine.Database;
 import org.h2.engine.Session;
+import org.h2.engine.StatementMetrics;
+import org.h2.engine.StatementMetrics.FilterMetrics;
 import org.h2.expression.Expression;
 import org.h2.expression.ExpressionColumn;
 import org.h2.mvstore.db.MVTableEngine.Store;
@@ -76,12 +78,27 @@ public class Explain extends Prepared {
                         mvStore.statisticsStart();
                     }
                 }
-                if (command.isQuery()) {
-                    command.query(maxrows);
-                } else {
-                    command.update();
+                StatementMetrics metrics = new StatementMetrics(session,
+                        command.getSQL());
+                StatementMetrics old = session.setStatementMetrics(metrics);
+                int rowCount = -1;
+                try {
+                    if (command.isQuery()) {
+                        rowCount = command.query(maxrows).getRowCount();
+                    } else {
+                        rowCount = command.update();
+                    }
+                } finally {
+                    session.setStatementMetrics(old);
+                    metrics.stop(rowCount);
                 }
                 plan = command.getPlanSQL();
+                StringBuilder buff = new StringBuilder();
+                for (FilterMetrics f : metrics.getFilters()) {
+                    buff.append(f.getName()).
+                        append(" rows: ").append(f.rows).
+                        append(", lookups: ").append(f.lookups).append('\n');
+                }
                 Map<String, Integer> statistics = null;
                 if (store != null) {
                     statistics = store.statisticsEnd();
@@ -95,7 +112,6 @@ public class Explain extends Prepared {
                     }
                     if (total > 0) {
                         statistics = new TreeMap<String, Integer>(statistics);
-                        StringBuilder buff = new StringBuilder();
                         if (statistics.size() > 1) {
                             buff.append("total: ").append(total).append('\n');
                         }
@@ -108,9 +124,22 @@ public class Explain extends Prepared {
                             }
                             buff.append('\n');
                         }
-                        plan += "\n/*\n" + buff.toString() + "*/";
+                        // only listed if something was read, so that the
+                        // plan does not depend on the state of the cache
+                        buff.append("cache hits: ").
+                            append(metrics.getCacheHits()).
+                            append(", misses: ").
+                            append(metrics.getCacheMisses()).append('\n');
+                        buff.append("bytes read: ").
+                            append(metrics.getBytesRead()).append('\n');
                     }
                 }
+                appendTime(buff, "sort", metrics.getSortTime());
+                appendTime(buff, "group", metrics.getGroupTime());
+                appendTime(buff, "spill", metrics.getSpillTime());
+                if (buff.length() > 0) {
+                    plan += "\n/*\n" + buff.toString() + "*/";
+                }
             } else {
                 plan = command.getPlanSQL();
             }
@@ -120,6 +149,15 @@ public class Explain extends Prepared {
         return result;
     }
 
+    private static void appendTime(StringBuilder buff, String name,
+            long nanos) {
+        long millis = nanos / 1000000;
+        if (millis > 0) {
+            buff.append(name).append(" time: ").append(millis).
+                append(" ms\n");
+        }
+    }
+
     private void add(String text) {
         Value[] row = { ValueString.get(text) };
         result.addRow(row);
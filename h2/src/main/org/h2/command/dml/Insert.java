@@ -284,6 +284,52 @@ public class Insert extends Prepared implements ResultTarget {
         }
     }
 
+    public Table getTable() {
+        return table;
+    }
+
+    /**
+     * Check whether all rows are lists of constant values, and the columns
+     * that are not set have a constant default value or are auto-increment
+     * columns. Such a statement does not depend on the session state (for
+     * example variables), and can be executed in another session.
+     *
+     * @return true if the inserted values are constant
+     */
+    public boolean isConstantValues() {
+        if (query != null || list.isEmpty() ||
+                duplicateKeyAssignmentMap != null) {
+            return false;
+        }
+        for (Column c : table.getColumns()) {
+            Expression d = c.getDefaultExpression();
+            if (d != null && !d.isConstant() && c.getSequence() == null) {
+                boolean set = false;
+                for (Column col : columns) {
+                    set |= col == c;
+                }
+                if (!set) {
+                    return false;
+                }
+            }
+        }
+        for (Expression[] expr : list) {
+            for (int i = 0, len = expr.length; i < len; i++) {
+                Expression e = expr[i];
+                if (e == null) {
+                    Expression d = columns[i].getDefaultExpression();
+                    if (d != null && !d.isConstant() &&
+                            columns[i].getSequence() == null) {
+                        return false;
+                    }
+                } else if (!e.isConstant()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     @Override
     public boolean isTransactional() {
         return true;
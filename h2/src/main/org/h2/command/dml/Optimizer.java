@@ -5,13 +5,19 @@
  */
 package org.h2.command.dml;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Random;
 import org.h2.engine.Session;
 import org.h2.expression.Expression;
+import org.h2.expression.ExpressionVisitor;
+import org.h2.index.IndexCondition;
 import org.h2.table.Plan;
 import org.h2.table.PlanItem;
 import org.h2.table.TableFilter;
+import org.h2.table.TableFilter.TableFilterVisitor;
 import org.h2.util.BitField;
+import org.h2.util.New;
 import org.h2.util.Permutations;
 
 /**
@@ -23,6 +29,8 @@ class Optimizer {
     private static final int MAX_BRUTE_FORCE_FILTERS = 7;
     private static final int MAX_BRUTE_FORCE = 2000;
     private static final int MAX_GENETIC = 500;
+    private static final int MAX_DYNAMIC_FILTERS = 16;
+    private static final int MAX_DYNAMIC_MILLIS = 1000;
     private long start;
     private BitField switched;
 
@@ -80,7 +88,8 @@ class Optimizer {
             testPlan(filters);
         } else if (filters.length <= MAX_BRUTE_FORCE_FILTERS) {
             calculateBruteForceAll();
-        } else {
+        } else if (filters.length > MAX_DYNAMIC_FILTERS ||
+                !calculateDynamic()) {
             calculateBruteForceSome();
             random = new Random(0);
             calculateGenetic();
@@ -106,6 +115,106 @@ class Optimizer {
         }
     }
 
+    /**
+     * Find the best plan using dynamic programming: the best plan for a set
+     * of tables is the best plan for the set without one table, followed by
+     * that table. The cost of appending a table only depends on which of the
+     * tables it depends on (in the index conditions and join conditions) are
+     * already evaluatable, so the cost factors are cached. Cross joins are
+     * not excluded, as sometimes they are cheaper (for example for small
+     * tables).
+     *
+     * @return false if the time limit was reached
+     */
+    private boolean calculateDynamic() {
+        int n = filters.length;
+        Plan all = new Plan(filters, n, condition);
+        int[] depends = new int[n];
+        int[] filterCount = new int[n];
+        for (int i = 0; i < n; i++) {
+            final ArrayList<TableFilter> list = New.arrayList();
+            filters[i].visit(new TableFilterVisitor() {
+                @Override
+                public void accept(TableFilter f) {
+                    list.add(f);
+                }
+            });
+            filterCount[i] = list.size();
+            for (int j = 0; j < n; j++) {
+                if (i != j && dependsOn(list, filters[j])) {
+                    depends[i] |= 1 << j;
+                }
+            }
+        }
+        int size = 1 << n;
+        double[] best = new double[size];
+        int[] last = new int[size];
+        int[] level = new int[size];
+        best[0] = 1;
+        level[0] = 1;
+        HashMap<Long, Double> factors = New.hashMap();
+        ArrayList<TableFilter> before = New.arrayList();
+        for (int set = 0; set < size - 1; set++) {
+            if ((set & 1023) == 0 &&
+                    System.currentTimeMillis() - start > MAX_DYNAMIC_MILLIS) {
+                return false;
+            }
+            for (int i = 0; i < n; i++) {
+                int bit = 1 << i;
+                if ((set & bit) != 0) {
+                    continue;
+                }
+                Long key = ((long) (level[set] * n + i) << 32) |
+                        (set & depends[i]);
+                Double factor = factors.get(key);
+                if (factor == null) {
+                    before.clear();
+                    for (int j = 0; j < n; j++) {
+                        if ((set & depends[i] & (1 << j)) != 0) {
+                            before.add(filters[j]);
+                        }
+                    }
+                    factor = all.calculateCostFactor(session, filters[i],
+                            before, level[set]);
+                    factors.put(key, factor);
+                }
+                double costNow = best[set] * factor;
+                int next = set | bit;
+                if (best[next] == 0 || costNow < best[next]) {
+                    best[next] = costNow;
+                    last[next] = i;
+                    level[next] = level[set] + filterCount[i];
+                }
+            }
+        }
+        TableFilter[] list = new TableFilter[n];
+        for (int set = size - 1, i = n - 1; i >= 0; i--) {
+            int f = last[set];
+            list[i] = filters[f];
+            set &= ~(1 << f);
+        }
+        testPlan(list);
+        return true;
+    }
+
+    private static boolean dependsOn(ArrayList<TableFilter> list,
+            TableFilter filter) {
+        ExpressionVisitor visitor =
+                ExpressionVisitor.getNotFromResolverVisitor(filter);
+        for (TableFilter f : list) {
+            for (IndexCondition c : f.getIndexConditions()) {
+                if (!c.isEverything(visitor)) {
+                    return true;
+                }
+            }
+            Expression on = f.getJoinCondition();
+            if (on != null && !on.isEverything(visitor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void calculateBruteForceSome() {
         int bruteForce = getMaxBruteForceFilters(filters.length);
         TableFilter[] list = new TableFilter[filters.length];
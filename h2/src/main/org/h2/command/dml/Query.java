@@ -236,6 +236,17 @@ public abstract class Query extends Prepared {
         return true;
     }
 
+    @Override
+    public void setSession(Session currentSession) {
+        if (currentSession != session) {
+            // the last result may contain uncommitted changes of the old
+            // session; it is not closed, as it may still be in use there
+            lastResult = null;
+            lastParameters = null;
+        }
+        super.setSession(currentSession);
+    }
+
     /**
      * Disable caching of result sets.
      */
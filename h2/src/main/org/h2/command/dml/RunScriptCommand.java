@@ -9,12 +9,27 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.h2.command.CommandInterface;
 import org.h2.command.Prepared;
+import org.h2.command.ddl.CreateIndex;
+import org.h2.command.ddl.CreateTable;
+import org.h2.command.ddl.DefineCommand;
 import org.h2.engine.Constants;
+import org.h2.engine.Database;
 import org.h2.engine.Session;
 import org.h2.message.DbException;
 import org.h2.result.ResultInterface;
+import org.h2.schema.Schema;
+import org.h2.table.Table;
+import org.h2.util.New;
 import org.h2.util.ScriptReader;
 
 /**
@@ -32,6 +47,20 @@ public class RunScriptCommand extends ScriptBase {
 
     private Charset charset = Constants.UTF8;
 
+    private boolean parallel;
+
+    /**
+     * The CREATE INDEX and ALTER TABLE ADD CONSTRAINT statements that are
+     * executed after the data is loaded (only in parallel mode).
+     */
+    private ArrayList<String> deferred;
+
+    /**
+     * The loader for INSERT statements (only in parallel mode, if the
+     * database is multi-threaded).
+     */
+    private Loader loader;
+
     public RunScriptCommand(Session session) {
         super(session);
     }
@@ -40,6 +69,14 @@ public class RunScriptCommand extends ScriptBase {
     public int update() {
         session.getUser().checkAdmin();
         int count = 0;
+        if (parallel) {
+            deferred = New.arrayList();
+            Database db = session.getDatabase();
+            int threads = db.getSettings().runscriptThreads;
+            if (threads > 1 && db.isMultiThreaded()) {
+                loader = new Loader(threads);
+            }
+        }
         try {
             openInput();
             BufferedReader reader = new BufferedReader(new InputStreamReader(in, charset));
@@ -49,6 +86,7 @@ public class RunScriptCommand extends ScriptBase {
                 reader.reset();
             }
             ScriptReader r = new ScriptReader(reader);
+            r.setSkipRemarks(parallel);
             while (true) {
                 String sql = r.readStatement();
                 if (sql == null) {
@@ -60,18 +98,119 @@ public class RunScriptCommand extends ScriptBase {
                     checkCanceled();
                 }
             }
+            if (deferred != null) {
+                executeDeferred();
+            }
             reader.close();
         } catch (IOException e) {
             throw DbException.convertIOException(e, null);
         } finally {
+            if (loader != null) {
+                loader.close();
+                loader = null;
+            }
+            deferred = null;
             closeIO();
         }
         return count;
     }
 
     private void execute(String sql) {
+        Prepared command = prepare(sql);
+        if (loader != null && session.getAutoCommit() &&
+                command instanceof Insert) {
+            // statements that contain a query, variables, sequences, or
+            // functions (including the LOB values written by the SCRIPT
+            // command) depend on the session or on other tables
+            Insert insert = (Insert) command;
+            if (insert.isConstantValues()) {
+                loader.add(insert.getTable(), sql);
+                return;
+            }
+        }
+        boolean createTable = command instanceof CreateTable &&
+                !((CreateTable) command).isFromQuery();
+        if (deferred != null) {
+            if (isDeferred(command)) {
+                deferred.add(sql);
+                return;
+            }
+            if (command instanceof DefineCommand && !createTable &&
+                    command.getType() != CommandInterface.CREATE_ALIAS) {
+                // the statement could depend on the deferred objects
+                executeDeferred();
+            }
+        }
+        if (loader != null && !createTable) {
+            // the statement could read the tables that are loaded
+            loader.waitAll();
+        }
+        execute(sql, command);
+    }
+
+    /**
+     * Check whether the statement creates an index or constraint that can be
+     * created after the data is loaded. Primary keys are not deferred: they
+     * are cheap to create on an empty table, and are then used as the row
+     * key.
+     *
+     * @param command the statement
+     * @return true if the statement should be deferred
+     */
+    private static boolean isDeferred(Prepared command) {
+        switch (command.getType()) {
+        case CommandInterface.CREATE_INDEX:
+            return !((CreateIndex) command).isPrimaryKey();
+        case CommandInterface.ALTER_TABLE_ADD_CONSTRAINT_CHECK:
+        case CommandInterface.ALTER_TABLE_ADD_CONSTRAINT_UNIQUE:
+        case CommandInterface.ALTER_TABLE_ADD_CONSTRAINT_REFERENTIAL:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private Prepared prepare(String sql) {
+        try {
+            return session.prepare(sql);
+        } catch (DbException e) {
+            if (deferred == null || deferred.isEmpty()) {
+                throw e.addSQL(sql);
+            }
+        }
+        // the statement may refer to a deferred index or constraint
+        executeDeferred();
+        try {
+            return session.prepare(sql);
+        } catch (DbException e) {
+            throw e.addSQL(sql);
+        }
+    }
+
+    /**
+     * Wait until all INSERT statements are executed, and then create the
+     * deferred indexes and constraints. The indexes are then built from the
+     * existing rows, which is much faster than updating them row by row.
+     */
+    private void executeDeferred() {
+        if (loader != null) {
+            loader.waitAll();
+        }
+        ArrayList<String> list = New.arrayList(deferred);
+        deferred.clear();
+        for (String sql : list) {
+            Prepared command;
+            try {
+                command = session.prepare(sql);
+            } catch (DbException e) {
+                throw e.addSQL(sql);
+            }
+            execute(sql, command);
+        }
+    }
+
+    private void execute(String sql, Prepared command) {
         try {
-            Prepared command = session.prepare(sql);
             if (command.isQuery()) {
                 command.query(0);
             } else {
@@ -89,6 +228,10 @@ public class RunScriptCommand extends ScriptBase {
         this.charset = charset;
     }
 
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
     @Override
     public ResultInterface queryMeta() {
         return null;
@@ -99,4 +242,191 @@ public class RunScriptCommand extends ScriptBase {
         return CommandInterface.RUNSCRIPT;
     }
 
+    /**
+     * Executes the simple INSERT statements of different tables concurrently,
+     * each table in its own session. The statements of a table are executed
+     * in the original order.
+     */
+    private final class Loader {
+
+        private final ThreadPoolExecutor executor;
+        private final HashMap<Table, TableLoader> tables = New.hashMap();
+        private final ArrayList<Session> sessions = New.arrayList();
+        private final ArrayList<Session> freeSessions = New.arrayList();
+
+        /**
+         * Limits the number of statements that are read but not executed.
+         */
+        private final Semaphore pending;
+
+        private int running;
+        private DbException exception;
+        private boolean closed;
+
+        Loader(int threads) {
+            pending = new Semaphore(threads * 16);
+            executor = new ThreadPoolExecutor(threads, threads,
+                    1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "H2 runscript");
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+            executor.allowCoreThreadTimeOut(true);
+        }
+
+        /**
+         * Add an INSERT statement.
+         *
+         * @param table the table
+         * @param sql the statement
+         */
+        void add(Table table, String sql) {
+            try {
+                pending.acquire();
+            } catch (InterruptedException e) {
+                throw DbException.convert(e);
+            }
+            synchronized (this) {
+                if (exception != null) {
+                    pending.release();
+                    throw exception;
+                }
+                TableLoader t = tables.get(table);
+                if (t == null) {
+                    t = new TableLoader();
+                    tables.put(table, t);
+                }
+                t.statements.add(sql);
+                if (!t.running) {
+                    t.running = true;
+                    t.schema = session.getDatabase().getSchema(
+                            session.getCurrentSchemaName());
+                    t.schemaSearchPath = session.getSchemaSearchPath();
+                    running++;
+                    executor.execute(t);
+                }
+            }
+        }
+
+        /**
+         * Wait until all statements are executed.
+         */
+        synchronized void waitAll() {
+            while (running > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw DbException.convert(e);
+                }
+            }
+            if (exception != null) {
+                throw exception;
+            }
+        }
+
+        /**
+         * Stop executing statements, and close the sessions.
+         */
+        void close() {
+            synchronized (this) {
+                closed = true;
+                while (running > 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // ignore
+                    }
+                }
+            }
+            executor.shutdown();
+            for (Session s : sessions) {
+                s.close();
+            }
+        }
+
+        /**
+         * Get a session that is not used by another table loader.
+         *
+         * @param schema the current schema
+         * @param schemaSearchPath the schema search path
+         * @return the session
+         */
+        synchronized Session getSession(Schema schema,
+                String[] schemaSearchPath) {
+            Session s;
+            if (freeSessions.isEmpty()) {
+                s = session.getDatabase().createSession(session.getUser());
+                sessions.add(s);
+            } else {
+                s = freeSessions.remove(freeSessions.size() - 1);
+            }
+            s.setCurrentSchema(schema);
+            s.setSchemaSearchPath(schemaSearchPath);
+            return s;
+        }
+
+        /**
+         * The INSERT statements of one table.
+         */
+        private final class TableLoader implements Runnable {
+
+            final LinkedList<String> statements = new LinkedList<String>();
+            boolean running;
+            Schema schema;
+            String[] schemaSearchPath;
+
+            @Override
+            public void run() {
+                Session s = null;
+                try {
+                    s = getSession(schema, schemaSearchPath);
+                    while (true) {
+                        String sql;
+                        synchronized (Loader.this) {
+                            sql = closed || exception != null ?
+                                    null : statements.poll();
+                            if (sql == null) {
+                                stop(s);
+                                return;
+                            }
+                        }
+                        try {
+                            s.prepare(sql).update();
+                            s.commit(false);
+                        } catch (DbException e) {
+                            s.rollback();
+                            throw e.addSQL(sql);
+                        } finally {
+                            pending.release();
+                        }
+                    }
+                } catch (Throwable e) {
+                    synchronized (Loader.this) {
+                        if (exception == null) {
+                            exception = DbException.convert(e);
+                        }
+                        stop(s);
+                    }
+                }
+            }
+
+            private void stop(Session s) {
+                pending.release(statements.size());
+                statements.clear();
+                if (s != null) {
+                    freeSessions.add(s);
+                }
+                running = false;
+                Loader.this.running--;
+                Loader.this.notifyAll();
+            }
+
+        }
+
+    }
+
 }
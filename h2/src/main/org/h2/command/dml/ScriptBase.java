@@ -146,7 +146,8 @@ abstract class ScriptBase extends Prepared implements DataHandler {
                 throw DbException.convertIOException(e, null);
             }
             out = new BufferedOutputStream(o, Constants.IO_BUFFER_SIZE);
-            out = CompressTool.wrapOutputStream(out, compressionAlgorithm, SCRIPT_SQL);
+            out = CompressTool.wrapOutputStream(out, compressionAlgorithm,
+                    SCRIPT_SQL, session.getDatabase().getSettings().compressThreads);
         }
     }
 
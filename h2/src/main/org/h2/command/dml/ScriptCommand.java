@@ -21,6 +21,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Set;
 
+import org.h2.api.DatabaseEventListener;
 import org.h2.api.ErrorCode;
 import org.h2.command.CommandInterface;
 import org.h2.command.Parser;
@@ -399,6 +400,10 @@ public class ScriptCommand extends ScriptBase {
         buff.append('(');
         String ins = buff.toString();
         buff = null;
+        Database db = session.getDatabase();
+        String tableName = table.getSQL();
+        int rows = 0;
+        int max = MathUtils.convertLongToInt(table.getRowCountApproximation());
         while (cursor.next()) {
             Row row = cursor.get();
             if (buff == null) {
@@ -431,6 +436,10 @@ public class ScriptCommand extends ScriptBase {
             if ((count & 127) == 0) {
                 checkCanceled();
             }
+            if ((++rows & 1023) == 0) {
+                db.setProgress(DatabaseEventListener.STATE_SCRIPT,
+                        tableName, rows, max);
+            }
             if (simple || buff.length() > Constants.IO_BUFFER_SIZE) {
                 add(buff.toString(), true);
                 buff = null;
@@ -439,6 +448,7 @@ public class ScriptCommand extends ScriptBase {
         if (buff != null) {
             add(buff.toString(), true);
         }
+        db.setProgress(DatabaseEventListener.STATE_SCRIPT, tableName, rows, max);
         return count;
     }
 
@@ -16,17 +16,22 @@ import org.h2.command.CommandInterface;
 import org.h2.engine.Constants;
 import org.h2.engine.Database;
 import org.h2.engine.Session;
+import org.h2.engine.StatementMetrics;
 import org.h2.engine.SysProperties;
 import org.h2.expression.Comparison;
+import org.h2.expression.CompiledCondition;
+import org.h2.expression.CompiledExpression;
 import org.h2.expression.ConditionAndOr;
 import org.h2.expression.Expression;
 import org.h2.expression.ExpressionColumn;
 import org.h2.expression.ExpressionVisitor;
 import org.h2.expression.Parameter;
+import org.h2.expression.SpatialDistance;
 import org.h2.index.Cursor;
 import org.h2.index.Index;
 import org.h2.index.IndexCondition;
 import org.h2.index.IndexType;
+import org.h2.index.SpatialIndex;
 import org.h2.message.DbException;
 import org.h2.result.LocalResult;
 import org.h2.result.ResultInterface;
@@ -42,9 +47,8 @@ import org.h2.table.TableFilter;
 import org.h2.util.New;
 import org.h2.util.StatementBuilder;
 import org.h2.util.StringUtils;
-import org.h2.util.ValueHashMap;
+import org.h2.util.ValueArrayHashMap;
 import org.h2.value.Value;
-import org.h2.value.ValueArray;
 import org.h2.value.ValueNull;
 
 /**
@@ -61,6 +65,13 @@ import org.h2.value.ValueNull;
  * @author Joel Turkel (Group sorted query)
  */
 public class Select extends Query {
+
+    /**
+     * The number of rows that are read at once if the condition is evaluated
+     * for blocks of rows.
+     */
+    private static final int BATCH_SIZE = 256;
+
     private TableFilter topTableFilter;
     private final ArrayList<TableFilter> filters = New.arrayList();
     private final ArrayList<TableFilter> topFilters = New.arrayList();
@@ -83,6 +94,10 @@ public class Select extends Query {
     private boolean sortUsingIndex;
     private SortOrder sort;
     private int currentGroupRowId;
+    private HashSet<Column> usedColumns;
+    private CompiledCondition compiledCondition;
+    private CompiledExpression[] compiledExpressions;
+    private boolean isBatchQuery;
 
     public Select(Session session) {
         super(session);
@@ -164,8 +179,7 @@ public class Select extends Query {
         Value[] previousKeyValues = null;
         while (topTableFilter.next()) {
             setCurrentRowNumber(rowNumber + 1);
-            if (condition == null ||
-                    Boolean.TRUE.equals(condition.getBooleanValue(session))) {
+            if (isConditionMet()) {
                 rowNumber++;
                 Value[] keyValues = new Value[groupIndex.length];
                 // update group
@@ -316,30 +330,28 @@ public class Select extends Query {
     }
 
     private void queryGroup(int columnCount, LocalResult result) {
-        ValueHashMap<HashMap<Expression, Object>> groups =
-                ValueHashMap.newInstance();
+        ValueArrayHashMap<HashMap<Expression, Object>> groups =
+                ValueArrayHashMap.newInstance();
         int rowNumber = 0;
         setCurrentRowNumber(0);
         currentGroup = null;
-        ValueArray defaultGroup = ValueArray.get(new Value[0]);
+        Value[] defaultGroup = new Value[0];
         int sampleSize = getSampleSizeValue(session);
         while (topTableFilter.next()) {
             setCurrentRowNumber(rowNumber + 1);
-            if (condition == null ||
-                    Boolean.TRUE.equals(condition.getBooleanValue(session))) {
-                Value key;
+            if (isConditionMet()) {
+                Value[] key;
                 rowNumber++;
                 if (groupIndex == null) {
                     key = defaultGroup;
                 } else {
-                    Value[] keyValues = new Value[groupIndex.length];
+                    key = new Value[groupIndex.length];
                     // update group
                     for (int i = 0; i < groupIndex.length; i++) {
                         int idx = groupIndex[i];
                         Expression expr = expressions.get(idx);
-                        keyValues[i] = expr.getValue(session);
+                        key[i] = expr.getValue(session);
                     }
-                    key = ValueArray.get(keyValues);
                 }
                 HashMap<Expression, Object> values = groups.get(key);
                 if (values == null) {
@@ -363,11 +375,9 @@ public class Select extends Query {
         if (groupIndex == null && groups.size() == 0) {
             groups.put(defaultGroup, new HashMap<Expression, Object>());
         }
-        ArrayList<Value> keys = groups.keys();
-        for (Value v : keys) {
-            ValueArray key = (ValueArray) v;
-            currentGroup = groups.get(key);
-            Value[] keyValues = key.getList();
+        ArrayList<Value[]> keys = groups.keys();
+        for (Value[] keyValues : keys) {
+            currentGroup = groups.get(keyValues);
             Value[] row = new Value[columnCount];
             for (int j = 0; groupIndex != null && j < groupIndex.length; j++) {
                 row[groupIndex[j]] = keyValues[j];
@@ -387,6 +397,60 @@ public class Select extends Query {
         }
     }
 
+    /**
+     * Check if the rows can be read from a spatial index, nearest first. This
+     * is possible for ORDER BY GEOM <-> X if X does not depend on the row.
+     * This is specially important if only the first few rows are needed
+     * (LIMIT is used), as only the pages near X are then read.
+     *
+     * @return true if the spatial index is used
+     */
+    private boolean prepareNearestSort() {
+        int[] indexes = sort.getQueryColumnIndexes();
+        if (indexes.length != 1 ||
+                (sort.getSortTypes()[0] & SortOrder.DESCENDING) != 0) {
+            return false;
+        }
+        Expression expr = expressions.get(indexes[0]).getNonAliasExpression();
+        if (!(expr instanceof SpatialDistance)) {
+            return false;
+        }
+        SpatialDistance distance = (SpatialDistance) expr;
+        Expression column = distance.getLeft();
+        Expression geometry = distance.getRight();
+        if (!(column instanceof ExpressionColumn)) {
+            column = distance.getRight();
+            geometry = distance.getLeft();
+        }
+        if (!(column instanceof ExpressionColumn) ||
+                ((ExpressionColumn) column).getTableFilter() != topTableFilter) {
+            return false;
+        }
+        if (!geometry.isEverything(ExpressionVisitor.
+                getNotFromResolverVisitor(topTableFilter)) ||
+                !geometry.isEverything(ExpressionVisitor.DETERMINISTIC_VISITOR)) {
+            return false;
+        }
+        Column col = ((ExpressionColumn) column).getColumn();
+        Index current = topTableFilter.getIndex();
+        ArrayList<Index> list = topTableFilter.getTable().getIndexes();
+        if (list != null) {
+            for (int i = 0, size = list.size(); i < size; i++) {
+                Index index = list.get(i);
+                // only replace a scan: a nearest neighbor search ignores
+                // the index conditions, for example of a && window lookup
+                if (index instanceof SpatialIndex &&
+                        index.getIndexColumns()[0].column == col &&
+                        current.getIndexType().isScan()) {
+                    topTableFilter.setIndex(index);
+                    topTableFilter.setNearest(geometry);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Get the index that matches the ORDER BY list, if one exists. This is to
      * avoid running a separate ORDER BY if an index can be used. This is
@@ -570,15 +634,15 @@ public class Select extends Query {
             forUpdateRows = New.arrayList();
         }
         int sampleSize = getSampleSizeValue(session);
+        if (isBatchQuery && sampleSize <= 0 &&
+                (limitRows < 0 || (sort != null && !sortUsingIndex))) {
+            queryFlatBatch(columnCount, result);
+            return;
+        }
         while (topTableFilter.next()) {
             setCurrentRowNumber(rowNumber + 1);
-            if (condition == null ||
-                    Boolean.TRUE.equals(condition.getBooleanValue(session))) {
-                Value[] row = new Value[columnCount];
-                for (int i = 0; i < columnCount; i++) {
-                    Expression expr = expressions.get(i);
-                    row[i] = expr.getValue(session);
-                }
+            if (isConditionMet()) {
+                Value[] row = getRowValues(columnCount);
                 if (isForUpdateMvcc) {
                     topTableFilter.lockRowAdd(forUpdateRows);
                 }
@@ -598,6 +662,58 @@ public class Select extends Query {
         }
     }
 
+    /**
+     * Read the rows of the (single) table in blocks, and evaluate the
+     * condition and the compiled expressions of the select list for each
+     * block.
+     */
+    private void queryFlatBatch(int columnCount, ResultTarget result) {
+        Row[] rows = new Row[BATCH_SIZE];
+        int[] selection = new int[BATCH_SIZE];
+        Value[][] values = new Value[columnCount][];
+        for (int i = 0; i < columnCount; i++) {
+            if (compiledExpressions != null && compiledExpressions[i] != null) {
+                values[i] = new Value[BATCH_SIZE];
+            }
+        }
+        int rowNumber = 0;
+        while (true) {
+            int count = topTableFilter.nextBatch(rows);
+            if (count == 0) {
+                break;
+            }
+            int selected;
+            if (compiledCondition != null) {
+                selected = compiledCondition.select(session, topTableFilter,
+                        rows, count, selection);
+            } else {
+                for (int j = 0; j < count; j++) {
+                    selection[j] = j;
+                }
+                selected = count;
+            }
+            for (int i = 0; i < columnCount; i++) {
+                if (values[i] != null) {
+                    compiledExpressions[i].getValues(session, topTableFilter,
+                            rows, selection, selected, values[i]);
+                }
+            }
+            for (int j = 0; j < selected; j++) {
+                topTableFilter.set(rows[selection[j]]);
+                setCurrentRowNumber(++rowNumber);
+                Value[] row = new Value[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    if (values[i] != null) {
+                        row[i] = values[i][j];
+                    } else {
+                        row[i] = expressions.get(i).getValue(session);
+                    }
+                }
+                result.addRow(row);
+            }
+        }
+    }
+
     private void queryQuick(int columnCount, ResultTarget result) {
         Value[] row = new Value[columnCount];
         for (int i = 0; i < columnCount; i++) {
@@ -674,11 +790,16 @@ public class Select extends Query {
             if (isQuickAggregateQuery) {
                 queryQuick(columnCount, to);
             } else if (isGroupQuery) {
+                StatementMetrics metrics = session.getStatementMetrics();
+                long start = metrics == null ? 0 : System.nanoTime();
                 if (isGroupSortedQuery) {
                     queryGroupSorted(columnCount, to);
                 } else {
                     queryGroup(columnCount, result);
                 }
+                if (metrics != null) {
+                    metrics.addGroupTime(System.nanoTime() - start);
+                }
             } else if (isDistinctQuery) {
                 queryDistinct(to, limitRows);
             } else {
@@ -900,6 +1021,9 @@ public class Select extends Query {
                 isQuickAggregateQuery = isEverything(optimizable);
             }
         }
+        if (!isForUpdate) {
+            usedColumns = collectUsedColumns();
+        }
         cost = preparePlan();
         if (distinct && session.getDatabase().getSettings().optimizeDistinct &&
                 !isGroupQuery && filters.size() == 1 &&
@@ -967,6 +1091,10 @@ public class Select extends Query {
                 }
             }
         }
+        if (sort != null && !sortUsingIndex && !isQuickAggregateQuery &&
+                !isGroupQuery) {
+            sortUsingIndex = prepareNearestSort();
+        }
         if (!isQuickAggregateQuery && isGroupQuery &&
                 getGroupByExpressionCount() > 0) {
             Index index = getGroupSortedIndex();
@@ -979,9 +1107,71 @@ public class Select extends Query {
         }
         expressionArray = new Expression[expressions.size()];
         expressions.toArray(expressionArray);
+        if (session.getDatabase().getSettings().compileExpressions) {
+            if (condition != null) {
+                compiledCondition = CompiledCondition.compile(session,
+                        condition);
+            }
+            if (!isGroupQuery) {
+                compileExpressions();
+            }
+            boolean batch;
+            if (condition == null) {
+                batch = compiledExpressions != null;
+            } else {
+                batch = compiledCondition != null && condition.isEverything(
+                        ExpressionVisitor.DETERMINISTIC_VISITOR);
+            }
+            isBatchQuery = batch && filters.size() == 1 && !isForUpdateMvcc &&
+                    topTableFilter.isBatchPossible();
+        }
         isPrepared = true;
     }
 
+    private void compileExpressions() {
+        int size = expressions.size();
+        CompiledExpression[] list = new CompiledExpression[size];
+        boolean compiled = false;
+        for (int i = 0; i < size; i++) {
+            list[i] = CompiledExpression.compile(expressions.get(i));
+            compiled |= list[i] != null;
+        }
+        compiledExpressions = compiled ? list : null;
+    }
+
+    /**
+     * Calculate the values of the select list for the current row.
+     *
+     * @param columnCount the number of columns
+     * @return the row
+     */
+    private Value[] getRowValues(int columnCount) {
+        Value[] row = new Value[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            CompiledExpression c = compiledExpressions == null ?
+                    null : compiledExpressions[i];
+            if (c != null) {
+                row[i] = c.getValue(session);
+            } else {
+                row[i] = expressions.get(i).getValue(session);
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Check whether the condition is true for the current row.
+     *
+     * @return true if there is no condition, or if it is true
+     */
+    private boolean isConditionMet() {
+        if (compiledCondition != null) {
+            return compiledCondition.isTrue(session);
+        }
+        return condition == null ||
+                Boolean.TRUE.equals(condition.getBooleanValue(session));
+    }
+
     @Override
     public double getCost() {
         return cost;
@@ -1004,6 +1194,31 @@ public class Select extends Query {
         }
     }
 
+    private HashSet<Column> collectUsedColumns() {
+        HashSet<Column> columns = New.hashSet();
+        ExpressionVisitor visitor = ExpressionVisitor.getColumnsVisitor(columns);
+        isEverything(visitor);
+        for (TableFilter f : filters) {
+            Expression on = f.getJoinCondition();
+            if (on != null) {
+                on.isEverything(visitor);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Get the set of columns that are used anywhere in this query (in the
+     * select list, the conditions, or the join conditions). Indexes that
+     * contain all used columns of a table can be used without reading the
+     * rows.
+     *
+     * @return the set of columns, or null if not known
+     */
+    public HashSet<Column> getUsedColumns() {
+        return usedColumns;
+    }
+
     private double preparePlan() {
         TableFilter[] topArray = topFilters.toArray(
                 new TableFilter[topFilters.size()]);
@@ -1288,6 +1503,8 @@ public class Select extends Query {
             }
         }
         if (addToCondition) {
+            compiledCondition = null;
+            isBatchQuery = false;
             if (condition == null) {
                 condition = comp;
             } else {
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.compress;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.h2.message.DbException;
+
+/**
+ * An output stream that compresses blocks of data concurrently using LZF.
+ * The data is split into blocks of the same size, each block is compressed by
+ * a pool of threads, and the compressed blocks are written in the original
+ * order. While blocks are compressed, the caller can already produce the next
+ * blocks. The result is the same format as written by the LZFOutputStream.
+ * <p>
+ * There is no such stream for DEFLATE: concatenated zlib streams are not a
+ * valid zlib stream, and a single stream can not be split into blocks without
+ * Deflater.SYNC_FLUSH.
+ */
+public class ParallelCompressOutputStream extends OutputStream {
+
+    /**
+     * The number of uncompressed bytes per block.
+     */
+    static final int BLOCK_SIZE = 1024 * 1024;
+
+    private final OutputStream out;
+    private final ThreadPoolExecutor executor;
+    private final LinkedList<Future<byte[]>> pending =
+            new LinkedList<Future<byte[]>>();
+    private final int maxPending;
+    private byte[] buffer = new byte[BLOCK_SIZE];
+    private int pos;
+    private boolean closed;
+
+    /**
+     * Create a new stream.
+     *
+     * @param out the target stream
+     * @param threads the number of threads
+     */
+    public ParallelCompressOutputStream(OutputStream out, int threads)
+            throws IOException {
+        this.out = out;
+        writeInt(out, LZFOutputStream.MAGIC);
+        maxPending = threads * 2;
+        executor = new ThreadPoolExecutor(threads, threads,
+                1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "H2 compress");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (pos >= buffer.length) {
+            submit();
+        }
+        buffer[pos++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] buff, int off, int len) throws IOException {
+        while (len > 0) {
+            int copy = Math.min(buffer.length - pos, len);
+            System.arraycopy(buff, off, buffer, pos, copy);
+            pos += copy;
+            if (pos >= buffer.length) {
+                submit();
+            }
+            off += copy;
+            len -= copy;
+        }
+    }
+
+    private void submit() throws IOException {
+        if (pos == 0) {
+            return;
+        }
+        final byte[] data = buffer;
+        final int len = pos;
+        buffer = new byte[BLOCK_SIZE];
+        pos = 0;
+        pending.add(executor.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() {
+                return compressLZF(data, len);
+            }
+        }));
+        writeCompleted(false);
+    }
+
+    /**
+     * Write the compressed blocks. Blocks that are not compressed yet are
+     * only waited for if too many blocks are pending, or if all blocks should
+     * be written.
+     *
+     * @param all whether all blocks should be written
+     */
+    private void writeCompleted(boolean all) throws IOException {
+        while (!pending.isEmpty()) {
+            Future<byte[]> f = pending.getFirst();
+            if (!all && !f.isDone() && pending.size() < maxPending) {
+                break;
+            }
+            byte[] compressed;
+            try {
+                compressed = f.get();
+            } catch (InterruptedException e) {
+                throw DbException.convertToIOException(e);
+            } catch (ExecutionException e) {
+                throw DbException.convertToIOException(e.getCause());
+            }
+            pending.removeFirst();
+            out.write(compressed);
+        }
+    }
+
+    /**
+     * Compress the data, and write it in the same format as
+     * LZFOutputStream.
+     *
+     * @param data the data
+     * @param len the number of bytes
+     * @return the block
+     */
+    static byte[] compressLZF(byte[] data, int len) {
+        byte[] buff = new byte[8 + (len < 100 ? len + 100 : len) * 2];
+        int compressed = new CompressLZF().compress(data, len, buff, 8);
+        compressed -= 8;
+        if (compressed > len) {
+            byte[] block = new byte[4 + len];
+            writeInt(block, 0, -len);
+            System.arraycopy(data, 0, block, 4, len);
+            return block;
+        }
+        writeInt(buff, 0, compressed);
+        writeInt(buff, 4, len);
+        return Arrays.copyOf(buff, 8 + compressed);
+    }
+
+    private static void writeInt(OutputStream out, int x) throws IOException {
+        byte[] buff = new byte[4];
+        writeInt(buff, 0, x);
+        out.write(buff);
+    }
+
+    private static void writeInt(byte[] buff, int pos, int x) {
+        buff[pos] = (byte) (x >> 24);
+        buff[pos + 1] = (byte) (x >> 16);
+        buff[pos + 2] = (byte) (x >> 8);
+        buff[pos + 3] = (byte) x;
+    }
+
+    /**
+     * Compress and write the buffered data. This ends the current block, so
+     * it should only be called if really needed.
+     */
+    @Override
+    public void flush() throws IOException {
+        submit();
+        writeCompleted(true);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            submit();
+            writeCompleted(true);
+        } finally {
+            for (Future<byte[]> f : pending) {
+                f.cancel(false);
+            }
+            pending.clear();
+            executor.shutdown();
+            out.close();
+        }
+    }
+
+}
@@ -445,6 +445,12 @@ public class Constants {
      */
     public static final String SUFFIX_MV_FILE = ".mv.db";
 
+    /**
+     * The file name suffix of the changed chunks of a MVStore file, as stored
+     * in an incremental backup.
+     */
+    public static final String SUFFIX_MV_INCREMENT = ".mv.inc";
+
     /**
      * The file name suffix of a new MVStore file, used when compacting a store.
      */
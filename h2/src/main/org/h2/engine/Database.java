@@ -18,6 +18,7 @@ import org.h2.api.DatabaseEventListener;
 import org.h2.api.ErrorCode;
 import org.h2.api.JavaObjectSerializer;
 import org.h2.command.CommandInterface;
+import org.h2.command.PlanCache;
 import org.h2.command.ddl.CreateTableData;
 import org.h2.command.dml.SetTypes;
 import org.h2.constraint.Constraint;
@@ -186,13 +187,16 @@ public class Database implements DataHandler {
     private JavaObjectSerializer javaObjectSerializer;
     private String javaObjectSerializerName;
     private volatile boolean javaObjectSerializerInitialized;
-    private boolean queryStatistics;
-    private QueryStatisticsData queryStatisticsData;
+    private volatile boolean queryStatistics;
+    private volatile QueryStatisticsData queryStatisticsData;
+    private final PlanCache planCache;
 
     public Database(ConnectionInfo ci, String cipher) {
         String name = ci.getName();
         this.dbSettings = ci.getDbSettings();
         this.reconnectCheckDelay = dbSettings.reconnectCheckDelay;
+        this.planCache = dbSettings.sharedQueryCacheSize > 0 ?
+                new PlanCache(dbSettings.sharedQueryCacheSize) : null;
         this.compareMode = CompareMode.getInstance(null, 0);
         this.persistent = ci.isPersistent();
         this.filePasswordHash = ci.getFilePasswordHash();
@@ -668,6 +672,10 @@ public class Database implements DataHandler {
             starting = false;
             if (mvStore == null) {
                 writer = WriterThread.create(this, writeDelay);
+                if (writer != null && pageStore != null &&
+                        fileLockMethod != FileLock.LOCK_SERIALIZED) {
+                    pageStore.setCheckpointInBackground(true);
+                }
             } else {
                 setWriteDelay(writeDelay);
             }
@@ -1108,7 +1116,7 @@ public class Database implements DataHandler {
      * @return the session
      * @throws DbException if the database is in exclusive mode
      */
-    synchronized Session createSession(User user) {
+    public synchronized Session createSession(User user) {
         if (exclusiveSession != null) {
             throw DbException.get(ErrorCode.DATABASE_IS_IN_EXCLUSIVE_MODE);
         }
@@ -2004,6 +2012,17 @@ public class Database implements DataHandler {
         }
     }
 
+    /**
+     * Write back the changed pages of the page store if this was requested
+     * when committing. This method is called by the writer thread.
+     */
+    public synchronized void checkpointIfRequested() {
+        if (readOnly || pageStore == null) {
+            return;
+        }
+        pageStore.checkpointIfRequested();
+    }
+
     public void setEventListener(DatabaseEventListener eventListener) {
         this.eventListener = eventListener;
     }
@@ -2269,6 +2288,15 @@ public class Database implements DataHandler {
         this.mode = mode;
     }
 
+    /**
+     * Get the database wide query plan cache.
+     *
+     * @return the cache, or null if it is disabled
+     */
+    public PlanCache getPlanCache() {
+        return planCache;
+    }
+
     public Mode getMode() {
         return mode;
     }
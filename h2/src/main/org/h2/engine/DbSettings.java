@@ -53,6 +53,37 @@ public class DbSettings extends SettingsBase {
      */
     public final int analyzeSample = get("ANALYZE_SAMPLE", 10000);
 
+    /**
+     * Database setting <code>COMPILE_EXPRESSIONS</code> (default: true).<br />
+     * Compile the condition and the select list of queries to specialized
+     * nodes when the query is prepared. Comparisons of columns with constants
+     * and parameters of the same type, and arithmetic operations on INT,
+     * BIGINT and DOUBLE values, are then evaluated using primitive values.
+     * Other expressions are evaluated as usual. No Java classes are generated.
+     */
+    public final boolean compileExpressions = get("COMPILE_EXPRESSIONS", true);
+
+    /**
+     * Database setting <code>CREATE_INDEX_THREADS</code>
+     * (default: the number of processors).<br />
+     * The number of threads used to sort blocks of rows when creating an
+     * index on a large table (MVStore only). The rows are read by the session
+     * thread; the sorted blocks are then merged into the index.
+     */
+    public final int createIndexThreads = get("CREATE_INDEX_THREADS",
+            Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Database setting <code>COMPRESS_THREADS</code>
+     * (default: the number of processors).<br />
+     * The number of threads used to compress the output of the SCRIPT
+     * command if the compression is LZF. The data is split into blocks that
+     * are compressed concurrently. DEFLATE is always compressed in one thread,
+     * so that the result is a single zlib stream.
+     */
+    public final int compressThreads = get("COMPRESS_THREADS",
+            Runtime.getRuntime().availableProcessors());
+
     /**
      * Database setting <code>DATABASE_TO_UPPER</code> (default: true).<br />
      * Database short names are converted to uppercase for the DATABASE()
@@ -267,6 +298,14 @@ public class DbSettings extends SettingsBase {
      */
     public final int queryCacheSize = get("QUERY_CACHE_SIZE", 8);
 
+    /**
+     * Database setting <code>READ_AHEAD_PAGES</code> (default: 0).<br />
+     * The number of pages to read in the background when a table is scanned
+     * sequentially, so that the pages are already in memory when they are
+     * needed. Read-ahead is disabled if set to 0.
+     */
+    public final int readAheadPages = get("READ_AHEAD_PAGES", 0);
+
     /**
      * Database setting <code>RECOMPILE_ALWAYS</code> (default: false).<br />
      * Always recompile prepared statements.
@@ -296,6 +335,16 @@ public class DbSettings extends SettingsBase {
      */
     public final boolean rowId = get("ROWID", true);
 
+    /**
+     * Database setting <code>RUNSCRIPT_THREADS</code>
+     * (default: the number of processors).<br />
+     * The number of threads used to execute the INSERT statements of
+     * different tables concurrently when using RUNSCRIPT ... PARALLEL
+     * (multi-threaded mode only).
+     */
+    public final int runscriptThreads = get("RUNSCRIPT_THREADS",
+            Runtime.getRuntime().availableProcessors());
+
     /**
      * Database setting <code>SELECT_FOR_UPDATE_MVCC</code>
      * (default: true).<br />
@@ -304,6 +353,19 @@ public class DbSettings extends SettingsBase {
      */
     public final boolean selectForUpdateMvcc = get("SELECT_FOR_UPDATE_MVCC", true);
 
+    /**
+     * Database setting <code>SHARED_QUERY_CACHE_SIZE</code>
+     * (default: 0).<br />
+     * The size of the database wide query plan cache, in number of distinct
+     * statements. Prepared SELECT statements that are closed are kept in this
+     * cache, and re-used by other sessions that prepare the same SQL statement
+     * with the same user and schema search path, so that the statement doesn't
+     * need to be parsed and optimized again. Statements of this kind are then
+     * no longer kept in the per-session query cache. The cache is cleared when
+     * the database schema changes. A value of 0 disables the cache.
+     */
+    public final int sharedQueryCacheSize = get("SHARED_QUERY_CACHE_SIZE", 0);
+
     /**
      * Database setting <code>SHARE_LINKED_CONNECTIONS</code>
      * (default: true).<br />
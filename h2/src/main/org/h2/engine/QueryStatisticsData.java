@@ -8,19 +8,46 @@ package org.h2.engine;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
- * Maintains query statistics.
+ * Maintains query statistics. Updating the statistics of a known statement
+ * does not require a global lock: each statement has a number of
+ * independently synchronized stripes, and each thread updates the stripe
+ * selected by its thread id. Only adding a new statement is synchronized.
+ * <p>
+ * At most 100 statements are tracked. If a new statement is added, the
+ * statement with the lowest estimated execution count is removed
+ * (space-saving algorithm), so that frequently executed statements are kept
+ * even if many different statements are executed. The estimated count of a
+ * statement is the number of executions since it was added, plus the
+ * estimated count of the statement it replaced.
  */
 public class QueryStatisticsData {
 
     private static final int MAX_QUERY_ENTRIES = 100;
 
+    private static final int STRIPE_COUNT = getStripeCount();
+
+    /**
+     * The number of sub-buckets per power of two in the latency histogram,
+     * as a power of two. With 4 sub-buckets, the relative error of a
+     * percentile is at most 25%.
+     */
+    private static final int SUB_BUCKET_BITS = 2;
+
+    /**
+     * The largest power of two of the latency (in microseconds) that has its
+     * own histogram buckets (2^35 microseconds is about 9.5 hours).
+     */
+    private static final int MAX_EXPONENT = 35;
+
+    private static final int BUCKET_COUNT =
+            (MAX_EXPONENT - SUB_BUCKET_BITS + 2) << SUB_BUCKET_BITS;
+
     private static final Comparator<QueryEntry> QUERY_ENTRY_COMPARATOR =
             new Comparator<QueryEntry>() {
         @Override
@@ -29,71 +56,288 @@ public class QueryStatisticsData {
         }
     };
 
-    private final HashMap<String, QueryEntry> map =
-            new HashMap<String, QueryEntry>();
+    private final ConcurrentHashMap<String, Accumulator> map =
+            new ConcurrentHashMap<String, Accumulator>();
+
+    private final AtomicReferenceArray<StatementMetrics> recent =
+            new AtomicReferenceArray<StatementMetrics>(MAX_QUERY_ENTRIES);
 
-    public synchronized List<QueryEntry> getQueries() {
-        // return a copy of the map so we don't have to
-        // worry about external synchronization
+    private final AtomicLong recentCount = new AtomicLong();
+
+    private static int getStripeCount() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int count = 1;
+        while (count < processors && count < 8) {
+            count <<= 1;
+        }
+        return count;
+    }
+
+    /**
+     * Get the statistics of the tracked statements.
+     *
+     * @return a snapshot of the statistics, the least recently updated first
+     */
+    public List<QueryEntry> getQueries() {
         ArrayList<QueryEntry> list = new ArrayList<QueryEntry>();
-        list.addAll(map.values());
-        // only return the newest 100 entries
+        for (Accumulator acc : map.values()) {
+            QueryEntry entry = acc.getEntry();
+            if (entry.count > 0) {
+                list.add(entry);
+            }
+        }
         Collections.sort(list, QUERY_ENTRY_COMPARATOR);
-        return list.subList(0, Math.min(list.size(), MAX_QUERY_ENTRIES));
+        return list;
+    }
+
+    /**
+     * Get the metrics of the most recently executed statements.
+     *
+     * @return the metrics, the oldest first
+     */
+    public List<StatementMetrics> getRecentStatements() {
+        long end = recentCount.get();
+        long start = Math.max(0, end - MAX_QUERY_ENTRIES);
+        ArrayList<StatementMetrics> list = new ArrayList<StatementMetrics>();
+        for (long i = start; i < end; i++) {
+            StatementMetrics m = recent.get((int) (i % MAX_QUERY_ENTRIES));
+            if (m != null) {
+                list.add(m);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Add the metrics of a statement that was executed. Only the newest 100
+     * entries are kept.
+     *
+     * @param metrics the metrics
+     */
+    public void addRecentStatement(StatementMetrics metrics) {
+        long i = recentCount.getAndIncrement();
+        recent.set((int) (i % MAX_QUERY_ENTRIES), metrics);
     }
 
     /**
      * Update query statistics.
      *
      * @param sqlStatement the statement being executed
-     * @param executionTime the time in milliseconds the query/update took to
+     * @param executionTime the time in nanoseconds the query/update took to
      *            execute
      * @param rowCount the query or update row count
      */
-    public synchronized void update(String sqlStatement, long executionTime,
-            int rowCount) {
-        QueryEntry entry = map.get(sqlStatement);
-        if (entry == null) {
-            entry = new QueryEntry();
-            entry.sqlStatement = sqlStatement;
-            map.put(sqlStatement, entry);
-        }
-        entry.update(executionTime, rowCount);
-
-        // Age-out the oldest entries if the map gets too big.
-        // Test against 1.5 x max-size so we don't do this too often
-        if (map.size() > MAX_QUERY_ENTRIES * 1.5f) {
-            // Sort the entries by age
-            ArrayList<QueryEntry> list = new ArrayList<QueryEntry>();
-            list.addAll(map.values());
-            Collections.sort(list, QUERY_ENTRY_COMPARATOR);
-            // Create a set of the oldest 1/3 of the entries
-            HashSet<QueryEntry> oldestSet =
-                    new HashSet<QueryEntry>(list.subList(0, list.size() / 3));
-            // Loop over the map using the set and remove
-            // the oldest 1/3 of the entries.
-            for (Iterator<Entry<String, QueryEntry>> it =
-                    map.entrySet().iterator(); it.hasNext();) {
-                Entry<String, QueryEntry> mapEntry = it.next();
-                if (oldestSet.contains(mapEntry.getValue())) {
-                    it.remove();
+    public void update(String sqlStatement, long executionTime, int rowCount) {
+        Accumulator acc = map.get(sqlStatement);
+        if (acc == null) {
+            acc = add(sqlStatement);
+        }
+        acc.update(executionTime, rowCount);
+    }
+
+    private synchronized Accumulator add(String sqlStatement) {
+        Accumulator acc = map.get(sqlStatement);
+        if (acc != null) {
+            return acc;
+        }
+        long error = 0;
+        if (map.size() >= MAX_QUERY_ENTRIES) {
+            Accumulator min = null;
+            long minCount = Long.MAX_VALUE;
+            for (Accumulator a : map.values()) {
+                long c = a.getEstimatedCount();
+                if (c < minCount) {
+                    min = a;
+                    minCount = c;
                 }
             }
+            map.remove(min.sqlStatement);
+            error = minCount;
         }
+        acc = new Accumulator(sqlStatement, error);
+        map.put(sqlStatement, acc);
+        return acc;
     }
 
     /**
-     * The collected statistics for one query.
+     * Get the histogram bucket of a latency.
+     *
+     * @param micros the latency in microseconds
+     * @return the bucket index
+     */
+    static int getBucket(long micros) {
+        if (micros < (1 << SUB_BUCKET_BITS)) {
+            return micros < 0 ? 0 : (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        int sub = (int) (micros >>> shift) & ((1 << SUB_BUCKET_BITS) - 1);
+        return ((shift + 1) << SUB_BUCKET_BITS) + sub;
+    }
+
+    /**
+     * Get the smallest latency of a histogram bucket.
+     *
+     * @param bucket the bucket index
+     * @return the latency in microseconds
+     */
+    static long getBucketStart(int bucket) {
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        if (shift < 0) {
+            return bucket;
+        }
+        int sub = bucket & ((1 << SUB_BUCKET_BITS) - 1);
+        return (long) ((1 << SUB_BUCKET_BITS) + sub) << shift;
+    }
+
+    /**
+     * The accumulated statistics of one statement.
+     */
+    private static final class Accumulator {
+
+        final String sqlStatement;
+
+        /**
+         * The estimated count of the entry that was replaced by this entry.
+         */
+        final long error;
+
+        private final AtomicReferenceArray<Stripe> stripes =
+                new AtomicReferenceArray<Stripe>(STRIPE_COUNT);
+
+        Accumulator(String sqlStatement, long error) {
+            this.sqlStatement = sqlStatement;
+            this.error = error;
+        }
+
+        void update(long time, int rows) {
+            int index = (int) Thread.currentThread().getId() &
+                    (STRIPE_COUNT - 1);
+            Stripe s = stripes.get(index);
+            if (s == null) {
+                stripes.compareAndSet(index, null, new Stripe());
+                s = stripes.get(index);
+            }
+            s.update(time, rows);
+        }
+
+        long getEstimatedCount() {
+            long count = error;
+            for (int i = 0; i < STRIPE_COUNT; i++) {
+                Stripe s = stripes.get(i);
+                if (s != null) {
+                    count += s.count;
+                }
+            }
+            return count;
+        }
+
+        QueryEntry getEntry() {
+            QueryEntry entry = new QueryEntry(sqlStatement);
+            for (int i = 0; i < STRIPE_COUNT; i++) {
+                Stripe s = stripes.get(i);
+                if (s != null) {
+                    s.addTo(entry);
+                }
+            }
+            return entry;
+        }
+
+    }
+
+    /**
+     * The statistics of one statement, as updated by a subset of the threads.
+     * Times are in nanoseconds.
+     */
+    private static final class Stripe {
+
+        private int count;
+        private long lastUpdateTime;
+        private long timeMin, timeMax, timeSum;
+        private int rowsMin, rowsMax;
+        private long rowsSum;
+
+        // Using Welford's method, see also
+        // http://en.wikipedia.org/wiki/Algorithms_for_calculating_variance
+        // http://www.johndcook.com/standard_deviation.html
+
+        private double timeMean, timeM2;
+        private double rowsMean, rowsM2;
+        private final int[] histogram = new int[BUCKET_COUNT];
+
+        synchronized void update(long time, int rows) {
+            if (count++ == 0) {
+                timeMin = timeMax = time;
+                rowsMin = rowsMax = rows;
+            } else {
+                timeMin = Math.min(time, timeMin);
+                timeMax = Math.max(time, timeMax);
+                rowsMin = Math.min(rows, rowsMin);
+                rowsMax = Math.max(rows, rowsMax);
+            }
+            double delta = rows - rowsMean;
+            rowsMean += delta / count;
+            rowsM2 += delta * (rows - rowsMean);
+            delta = time - timeMean;
+            timeMean += delta / count;
+            timeM2 += delta * (time - timeMean);
+            timeSum += time;
+            rowsSum += rows;
+            histogram[getBucket(time / 1000)]++;
+            lastUpdateTime = System.currentTimeMillis();
+        }
+
+        synchronized void addTo(QueryEntry e) {
+            if (count == 0) {
+                return;
+            }
+            if (e.count == 0) {
+                e.timeMin = timeMin;
+                e.timeMax = timeMax;
+                e.rowCountMin = rowsMin;
+                e.rowCountMax = rowsMax;
+            } else {
+                e.timeMin = Math.min(timeMin, e.timeMin);
+                e.timeMax = Math.max(timeMax, e.timeMax);
+                e.rowCountMin = Math.min(rowsMin, e.rowCountMin);
+                e.rowCountMax = Math.max(rowsMax, e.rowCountMax);
+            }
+            // combine the mean and variance of both parts
+            // (Chan et al., see the link above)
+            long n = (long) e.count + count;
+            double delta = timeMean - e.timeMean;
+            e.timeM2 += timeM2 + delta * delta * e.count * count / n;
+            e.timeMean += delta * count / n;
+            delta = rowsMean - e.rowCountMean;
+            e.rowCountM2 += rowsM2 + delta * delta * e.count * count / n;
+            e.rowCountMean += delta * count / n;
+            e.count = (int) n;
+            e.timeSum += timeSum;
+            e.rowCountCumulative += rowsSum;
+            e.lastUpdateTime = Math.max(lastUpdateTime, e.lastUpdateTime);
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                e.histogram[i] += histogram[i];
+            }
+        }
+
+    }
+
+    /**
+     * The collected statistics for one query. This is a snapshot; it is not
+     * updated when the query is executed again.
      */
     public static final class QueryEntry {
 
         /**
          * The SQL statement.
          */
-        public String sqlStatement;
+        public final String sqlStatement;
 
         /**
-         * The number of times the statement was executed.
+         * The number of times the statement was executed since it is tracked.
          */
         public int count;
 
@@ -103,21 +347,6 @@ public class QueryStatisticsData {
          */
         public long lastUpdateTime;
 
-        /**
-         * The minimum execution time, in milliseconds.
-         */
-        public long executionTimeMin;
-
-        /**
-         * The maximum execution time, in milliseconds.
-         */
-        public long executionTimeMax;
-
-        /**
-         * The total execution time.
-         */
-        public long executionTimeCumulative;
-
         /**
          * The minimum number of rows.
          */
@@ -133,53 +362,64 @@ public class QueryStatisticsData {
          */
         public long rowCountCumulative;
 
-        /**
-         * The mean execution time.
-         */
-        public double executionTimeMean;
-
         /**
          * The mean number of rows.
          */
         public double rowCountMean;
 
-        // Using Welford's method, see also
-        // http://en.wikipedia.org/wiki/Algorithms_for_calculating_variance
-        // http://www.johndcook.com/standard_deviation.html
-
-        private double executionTimeM2;
+        private long timeMin, timeMax, timeSum;
+        private double timeMean, timeM2;
         private double rowCountM2;
+        private final int[] histogram = new int[BUCKET_COUNT];
+
+        QueryEntry(String sqlStatement) {
+            this.sqlStatement = sqlStatement;
+        }
 
         /**
-         * Update the statistics entry.
+         * Get the minimum execution time.
          *
-         * @param time the execution time
-         * @param rows the number of rows
+         * @return the time in milliseconds
          */
-        void update(long time, int rows) {
-            count++;
-            executionTimeMin = Math.min(time, executionTimeMin);
-            executionTimeMax = Math.max(time, executionTimeMax);
-            rowCountMin = Math.min(rows, rowCountMin);
-            rowCountMax = Math.max(rows, rowCountMax);
-
-            double delta = rows - rowCountMean;
-            rowCountMean += delta / count;
-            rowCountM2 += delta * (rows - rowCountMean);
-
-            delta = time - executionTimeMean;
-            executionTimeMean += delta / count;
-            executionTimeM2 += delta * (time - executionTimeMean);
-
-            executionTimeCumulative += time;
-            rowCountCumulative += rows;
-            lastUpdateTime = System.currentTimeMillis();
+        public long getExecutionTimeMin() {
+            return timeMin / 1000000;
+        }
 
+        /**
+         * Get the maximum execution time.
+         *
+         * @return the time in milliseconds
+         */
+        public long getExecutionTimeMax() {
+            return timeMax / 1000000;
         }
 
+        /**
+         * Get the total execution time.
+         *
+         * @return the time in milliseconds
+         */
+        public long getExecutionTimeCumulative() {
+            return timeSum / 1000000;
+        }
+
+        /**
+         * Get the mean execution time.
+         *
+         * @return the time in milliseconds
+         */
+        public double getExecutionTimeMean() {
+            return timeMean / 1000000;
+        }
+
+        /**
+         * Get the standard deviation of the execution time.
+         *
+         * @return the time in milliseconds
+         */
         public double getExecutionTimeStandardDeviation() {
             // population standard deviation
-            return Math.sqrt(executionTimeM2 / count);
+            return Math.sqrt(timeM2 / count) / 1000000;
         }
 
         public double getRowCountStandardDeviation() {
@@ -187,6 +427,29 @@ public class QueryStatisticsData {
             return Math.sqrt(rowCountM2 / count);
         }
 
+        /**
+         * Get an execution time percentile. The value is estimated using a
+         * histogram, and is at most 25% lower than the actual value.
+         *
+         * @param percent the percentile (50 for the median)
+         * @return the time in milliseconds
+         */
+        public double getExecutionTimePercentile(double percent) {
+            long rank = (long) Math.ceil(count * percent / 100);
+            long sum = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                sum += histogram[i];
+                if (sum >= Math.max(1, rank)) {
+                    long micros = getBucketStart(i);
+                    // the histogram only has microsecond precision
+                    micros = Math.max(micros, timeMin / 1000);
+                    micros = Math.min(micros, timeMax / 1000);
+                    return micros / 1000.0;
+                }
+            }
+            return timeMax / 1000000.0;
+        }
+
     }
 
 }
@@ -15,6 +15,7 @@ import org.h2.api.ErrorCode;
 import org.h2.command.Command;
 import org.h2.command.CommandInterface;
 import org.h2.command.Parser;
+import org.h2.command.PlanCache;
 import org.h2.command.Prepared;
 import org.h2.command.dml.SetTypes;
 import org.h2.constraint.Constraint;
@@ -97,6 +98,7 @@ public class Session extends SessionWithState {
     private final long sessionStart = System.currentTimeMillis();
     private long transactionStart;
     private long currentCommandStart;
+    private StatementMetrics statementMetrics;
     private HashMap<String, Value> variables;
     private HashSet<LocalResult> temporaryResults;
     private int queryTimeout;
@@ -425,6 +427,13 @@ public class Session extends SessionWithState {
                     "session closed");
         }
         Command command;
+        PlanCache planCache = database.getPlanCache();
+        if (planCache != null) {
+            command = planCache.get(this, sql);
+            if (command != null) {
+                return command;
+            }
+        }
         if (queryCacheSize > 0) {
             if (queryCache == null) {
                 queryCache = SmallLRUCache.newInstance(queryCacheSize);
@@ -444,6 +453,9 @@ public class Session extends SessionWithState {
         }
         Parser parser = new Parser(this);
         command = parser.prepareCommand(sql);
+        if (planCache != null && planCache.register(this, sql, command)) {
+            return command;
+        }
         if (queryCache != null) {
             if (command.isCacheable()) {
                 queryCache.put(sql, command);
@@ -1052,6 +1064,27 @@ public class Session extends SessionWithState {
         return currentCommandStart;
     }
 
+    /**
+     * Get the metrics of the statement that is currently executed.
+     *
+     * @return the metrics, or null if no metrics are collected
+     */
+    public StatementMetrics getStatementMetrics() {
+        return statementMetrics;
+    }
+
+    /**
+     * Set the metrics of the statement that is currently executed.
+     *
+     * @param metrics the metrics, or null to stop collecting metrics
+     * @return the previous metrics
+     */
+    public StatementMetrics setStatementMetrics(StatementMetrics metrics) {
+        StatementMetrics old = statementMetrics;
+        statementMetrics = metrics;
+        return old;
+    }
+
     public boolean getAllowLiterals() {
         return allowLiterals;
     }
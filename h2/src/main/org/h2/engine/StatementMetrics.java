@@ -0,0 +1,258 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.engine;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import org.h2.command.Parser;
+import org.h2.mvstore.FileStore;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.cache.CacheLongKeyLIRS;
+import org.h2.mvstore.db.MVTableEngine.Store;
+import org.h2.store.PageStore;
+import org.h2.table.TableFilter;
+import org.h2.util.New;
+
+/**
+ * The runtime metrics of one statement execution. The metrics are collected
+ * for EXPLAIN ANALYZE, and for all statements if query statistics are
+ * enabled. The store counters are global to the database, so that they
+ * include the work of concurrent statements.
+ */
+public class StatementMetrics {
+
+    private final String sqlStatement;
+    private final int sessionId;
+    private final long startTime;
+    private final long startNanos;
+    private long executionTime;
+    private int rowCount;
+
+    private final ArrayList<FilterMetrics> filters = New.arrayList();
+    private IdentityHashMap<TableFilter, FilterMetrics> filterMap =
+            new IdentityHashMap<TableFilter, FilterMetrics>();
+
+    private final Database database;
+    private long cacheHits, cacheMisses, bytesRead;
+    private long sortTime, groupTime, spillTime;
+
+    /**
+     * Start collecting the metrics of a statement.
+     *
+     * @param session the session
+     * @param sqlStatement the SQL statement
+     */
+    public StatementMetrics(Session session, String sqlStatement) {
+        this.sqlStatement = sqlStatement;
+        this.sessionId = session.getId();
+        this.database = session.getDatabase();
+        startTime = System.currentTimeMillis();
+        startNanos = System.nanoTime();
+        readStoreCounters(-1);
+    }
+
+    /**
+     * Stop collecting the metrics. The store counters are converted to the
+     * difference since the start.
+     *
+     * @param rows the query or update row count, or -1 if the statement
+     *            failed
+     */
+    public void stop(int rows) {
+        if (filterMap == null) {
+            return;
+        }
+        executionTime = System.nanoTime() - startNanos;
+        rowCount = rows;
+        readStoreCounters(1);
+        filterMap = null;
+    }
+
+    private void readStoreCounters(int sign) {
+        if (!database.isPersistent()) {
+            return;
+        }
+        Store mvStore = database.getMvStore();
+        if (mvStore != null) {
+            MVStore s = mvStore.getStore();
+            CacheLongKeyLIRS<?> cache = s.getCache();
+            if (cache != null) {
+                cacheHits += sign * cache.getHits();
+                cacheMisses += sign * cache.getMisses();
+            }
+            FileStore fs = s.getFileStore();
+            if (fs != null) {
+                bytesRead += sign * fs.getReadBytes();
+            }
+            return;
+        }
+        PageStore store = database.getPageStore();
+        if (store != null) {
+            cacheHits += sign * store.getCacheHits();
+            cacheMisses += sign * store.getCacheMisses();
+            bytesRead += sign * store.getReadCount() * store.getPageSize();
+        }
+    }
+
+    /**
+     * Get the metrics of a table filter. Each table filter only has one
+     * entry, even if it is scanned multiple times.
+     *
+     * @param filter the table filter
+     * @return the metrics, or null if the metrics are no longer collected
+     */
+    public FilterMetrics getFilterMetrics(TableFilter filter) {
+        IdentityHashMap<TableFilter, FilterMetrics> map = filterMap;
+        if (map == null) {
+            return null;
+        }
+        FilterMetrics f = map.get(filter);
+        if (f == null) {
+            String name = filter.getTable().getSQL();
+            String alias = filter.getTableAlias();
+            if (alias != null && !alias.equals(filter.getTable().getName())) {
+                name += " " + Parser.quoteIdentifier(alias);
+            }
+            f = new FilterMetrics(name);
+            map.put(filter, f);
+            filters.add(f);
+        }
+        return f;
+    }
+
+    /**
+     * Add the time spent sorting.
+     *
+     * @param nanos the time in nanoseconds
+     */
+    public void addSortTime(long nanos) {
+        sortTime += nanos;
+    }
+
+    /**
+     * Add the time spent grouping.
+     *
+     * @param nanos the time in nanoseconds
+     */
+    public void addGroupTime(long nanos) {
+        groupTime += nanos;
+    }
+
+    /**
+     * Add the time spent writing and reading temporary results to and from
+     * disk.
+     *
+     * @param nanos the time in nanoseconds
+     */
+    public void addSpillTime(long nanos) {
+        spillTime += nanos;
+    }
+
+    public String getSQL() {
+        return sqlStatement;
+    }
+
+    public int getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Get the time the statement was started.
+     *
+     * @return the time in milliseconds since 1970
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Get the execution time.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getExecutionTime() {
+        return executionTime;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public List<FilterMetrics> getFilters() {
+        return filters;
+    }
+
+    /**
+     * Get the total number of index lookups of all table filters.
+     *
+     * @return the number of lookups
+     */
+    public long getIndexLookups() {
+        long x = 0;
+        for (FilterMetrics f : filters) {
+            x += f.lookups;
+        }
+        return x;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getSortTime() {
+        return sortTime;
+    }
+
+    public long getGroupTime() {
+        return groupTime;
+    }
+
+    public long getSpillTime() {
+        return spillTime;
+    }
+
+    /**
+     * The metrics of one table filter.
+     */
+    public static class FilterMetrics {
+
+        /**
+         * The number of rows produced by this table filter.
+         */
+        public long rows;
+
+        /**
+         * The number of index lookups (cursor positioning operations).
+         */
+        public long lookups;
+
+        private final String name;
+
+        FilterMetrics(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Get the table name, followed by the alias if there is one.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+    }
+
+}
@@ -250,15 +250,40 @@ public class CompareLike extends Condition {
         if (invalidPattern) {
             return ValueNull.INSTANCE;
         }
-        String value = l.getString();
-        boolean result;
+        return ValueBoolean.get(isMatch(l.getString()));
+    }
+
+    /**
+     * Check whether a value matches the current pattern.
+     *
+     * @param value the value
+     * @return true if it matches
+     */
+    boolean isMatch(String value) {
         if (regexp) {
-            // result = patternRegexp.matcher(value).matches();
-            result = patternRegexp.matcher(value).find();
-        } else {
-            result = compareAt(value, 0, 0, value.length(), patternChars, patternTypes);
+            // return patternRegexp.matcher(value).matches();
+            return patternRegexp.matcher(value).find();
         }
-        return ValueBoolean.get(result);
+        return compareAt(value, 0, 0, value.length(), patternChars, patternTypes);
+    }
+
+    /**
+     * Check whether the pattern is constant and was already prepared, so that
+     * isMatch can be called for each value.
+     *
+     * @return true if yes
+     */
+    boolean isPatternConstant() {
+        return isInit;
+    }
+
+    /**
+     * Get the expression that is compared with the pattern.
+     *
+     * @return the expression
+     */
+    Expression getLeft() {
+        return left;
     }
 
     private boolean compare(char[] pattern, String s, int pi, int si) {
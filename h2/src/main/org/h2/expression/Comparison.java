@@ -569,6 +569,15 @@ public class Comparison extends Condition {
         return null;
     }
 
+    /**
+     * Get the comparison type.
+     *
+     * @return the comparison type
+     */
+    public int getCompareType() {
+        return compareType;
+    }
+
     /**
      * Get the left or the right sub-expression of this condition.
      *
@@ -0,0 +1,1036 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.expression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import org.h2.engine.Database;
+import org.h2.engine.Session;
+import org.h2.message.DbException;
+import org.h2.result.Row;
+import org.h2.table.Column;
+import org.h2.table.TableFilter;
+import org.h2.util.MathUtils;
+import org.h2.value.CompareMode;
+import org.h2.value.Value;
+import org.h2.value.ValueNull;
+
+/**
+ * A condition that was compiled to a tree of specialized nodes, for faster
+ * evaluation per row. Comparisons of a column of type INT, BIGINT, DOUBLE or
+ * VARCHAR with a constant or parameter of the same type are evaluated using
+ * primitive values, without the type conversion and dispatching of the
+ * generic comparison. The same applies to comparisons of arithmetic
+ * operations (see CompiledExpression). Conditions that can not be compiled
+ * are evaluated as usual. The result is the same as when evaluating the
+ * condition itself.
+ */
+public class CompiledCondition {
+
+    /**
+     * The result TRUE.
+     */
+    static final int TRUE = 1;
+
+    /**
+     * The result FALSE.
+     */
+    static final int FALSE = 0;
+
+    /**
+     * The result NULL (unknown).
+     */
+    static final int UNKNOWN = -1;
+
+    private final Node root;
+
+    private CompiledCondition(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Compile a condition. The condition must already be optimized, and the
+     * columns must be mapped.
+     *
+     * @param session the session
+     * @param condition the condition
+     * @return the compiled condition, or null if no part of the condition
+     *         could be compiled
+     */
+    public static CompiledCondition compile(Session session,
+            Expression condition) {
+        Node root = compileNode(session.getDatabase(), condition);
+        if (root instanceof Generic) {
+            return null;
+        }
+        return new CompiledCondition(root);
+    }
+
+    /**
+     * Evaluate the condition for the current row.
+     *
+     * @param session the session
+     * @return true if the condition is true, false if it is false or NULL
+     */
+    public boolean isTrue(Session session) {
+        return root.evaluate(session) == TRUE;
+    }
+
+    /**
+     * Evaluate the condition for a block of rows of the given table filter.
+     * The selection is filled with the indexes of the rows where the
+     * condition is true, in ascending order.
+     *
+     * @param session the session
+     * @param filter the table filter
+     * @param rows the rows
+     * @param count the number of rows
+     * @param selection the array of selected row indexes
+     * @return the number of selected rows
+     */
+    public int select(Session session, TableFilter filter, Row[] rows,
+            int count, int[] selection) {
+        for (int i = 0; i < count; i++) {
+            selection[i] = i;
+        }
+        return root.select(session, filter, rows, selection, count);
+    }
+
+    private static Node compileNode(Database database, Expression e) {
+        if (e instanceof ConditionAndOr) {
+            ConditionAndOr c = (ConditionAndOr) e;
+            Node left = compileNode(database, c.getExpression(true));
+            Node right = compileNode(database, c.getExpression(false));
+            if (left instanceof Generic && right instanceof Generic) {
+                return new Generic(e);
+            }
+            if (c.getAndOrType() == ConditionAndOr.AND) {
+                return new And(left, right);
+            }
+            return new Or(left, right);
+        } else if (e instanceof Comparison) {
+            Node n = compileComparison(database, (Comparison) e);
+            if (n != null) {
+                return n;
+            }
+        } else if (e instanceof ConditionInConstantSet) {
+            ConditionInConstantSet c = (ConditionInConstantSet) e;
+            Node n = compileIn(database, e, c.getLeft(), c.getValueList());
+            if (n != null) {
+                return n;
+            }
+        } else if (e instanceof ConditionIn) {
+            ConditionIn c = (ConditionIn) e;
+            Node n = compileIn(database, e, c.getLeft(), c.getValueList());
+            if (n != null) {
+                return n;
+            }
+        } else if (e instanceof CompareLike) {
+            CompareLike like = (CompareLike) e;
+            Expression left = like.getLeft();
+            if (like.isPatternConstant() && left instanceof ExpressionColumn) {
+                ExpressionColumn col = (ExpressionColumn) left;
+                if (col.getTableFilter() != null) {
+                    return new Like(like, col, col.getTableFilter());
+                }
+            }
+        }
+        return new Generic(e);
+    }
+
+    private static Node compileIn(Database database, Expression condition,
+            Expression left, ArrayList<Expression> values) {
+        if (!(left instanceof ExpressionColumn)) {
+            return null;
+        }
+        ExpressionColumn col = (ExpressionColumn) left;
+        TableFilter filter = col.getTableFilter();
+        if (filter == null) {
+            return null;
+        }
+        switch (col.getColumn().getType()) {
+        case Value.INT:
+        case Value.LONG:
+        case Value.DOUBLE:
+        case Value.STRING:
+            break;
+        default:
+            return null;
+        }
+        boolean constant = true;
+        for (Expression v : values) {
+            if (v instanceof Parameter) {
+                constant = false;
+            } else if (!(v instanceof ValueExpression)) {
+                return null;
+            }
+        }
+        In in = new In(condition, col, filter, values,
+                database.getCompareMode());
+        if (constant && !in.prepare(null)) {
+            return null;
+        }
+        return in;
+    }
+
+    private static Node compileComparison(Database database, Comparison c) {
+        Expression left = c.getExpression(true);
+        Expression right = c.getExpression(false);
+        if (left instanceof Operation) {
+            return compileOperationComparison(c, left, right);
+        }
+        if (!(left instanceof ExpressionColumn)) {
+            return null;
+        }
+        ExpressionColumn col = (ExpressionColumn) left;
+        TableFilter filter = col.getTableFilter();
+        if (filter == null) {
+            return null;
+        }
+        Column column = col.getColumn();
+        int compareType = c.getCompareType();
+        switch (compareType) {
+        case Comparison.IS_NULL:
+        case Comparison.IS_NOT_NULL:
+            return new IsNull(col, filter, compareType == Comparison.IS_NULL);
+        case Comparison.EQUAL:
+        case Comparison.NOT_EQUAL:
+        case Comparison.BIGGER_EQUAL:
+        case Comparison.BIGGER:
+        case Comparison.SMALLER_EQUAL:
+        case Comparison.SMALLER:
+            break;
+        default:
+            return null;
+        }
+        int type = column.getType();
+        switch (type) {
+        case Value.INT:
+        case Value.LONG:
+        case Value.DOUBLE:
+        case Value.STRING:
+            break;
+        default:
+            return null;
+        }
+        Value constant = null;
+        if (right instanceof ValueExpression) {
+            Value r = right.getValue(null);
+            if (Value.getHigherOrder(type, r.getType()) != type) {
+                return null;
+            }
+            try {
+                constant = r.convertTo(type);
+            } catch (DbException ex) {
+                // the comparison would fail for each row
+                return null;
+            }
+        } else if (!(right instanceof Parameter)) {
+            return null;
+        }
+        return new Compare(c, col, filter, right, constant, compareType, type,
+                database.getCompareMode());
+    }
+
+    private static Node compileOperationComparison(Comparison c,
+            Expression left, Expression right) {
+        switch (c.getCompareType()) {
+        case Comparison.EQUAL:
+        case Comparison.NOT_EQUAL:
+        case Comparison.BIGGER_EQUAL:
+        case Comparison.BIGGER:
+        case Comparison.SMALLER_EQUAL:
+        case Comparison.SMALLER:
+            break;
+        default:
+            return null;
+        }
+        int type = left.getType();
+        CompiledExpression.Operand operand =
+                CompiledExpression.compileOperand(left, type);
+        if (operand == null) {
+            return null;
+        }
+        Value constant = null;
+        if (right instanceof ValueExpression) {
+            Value r = right.getValue(null);
+            if (r == ValueNull.INSTANCE ||
+                    Value.getHigherOrder(type, r.getType()) != type) {
+                return null;
+            }
+            try {
+                constant = r.convertTo(type);
+            } catch (DbException ex) {
+                return null;
+            }
+        } else if (!(right instanceof Parameter)) {
+            return null;
+        }
+        return new CompareOperation(c, operand, right, constant);
+    }
+
+    /**
+     * Check whether the comparison result matches the comparison type.
+     *
+     * @param compareType the comparison type
+     * @param comp the comparison result
+     * @return true if the condition is true
+     */
+    static boolean isMatch(int compareType, int comp) {
+        switch (compareType) {
+        case Comparison.EQUAL:
+            return comp == 0;
+        case Comparison.NOT_EQUAL:
+            return comp != 0;
+        case Comparison.BIGGER_EQUAL:
+            return comp >= 0;
+        case Comparison.BIGGER:
+            return comp > 0;
+        case Comparison.SMALLER_EQUAL:
+            return comp <= 0;
+        default:
+            return comp < 0;
+        }
+    }
+
+    /**
+     * A node of a compiled condition.
+     */
+    abstract static class Node {
+
+        /**
+         * Evaluate the node for the current row.
+         *
+         * @param session the session
+         * @return TRUE, FALSE, or UNKNOWN
+         */
+        abstract int evaluate(Session session);
+
+        /**
+         * Remove the rows from the selection where the condition is not
+         * true. The order of the remaining entries is kept.
+         *
+         * @param session the session
+         * @param filter the table filter of the rows
+         * @param rows the rows
+         * @param sel the indexes of the selected rows
+         * @param count the number of selected rows
+         * @return the new number of selected rows
+         */
+        int select(Session session, TableFilter filter, Row[] rows,
+                int[] sel, int count) {
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                int k = sel[i];
+                filter.set(rows[k]);
+                if (evaluate(session) == TRUE) {
+                    sel[n++] = k;
+                }
+            }
+            return n;
+        }
+
+    }
+
+    /**
+     * A condition that is evaluated as usual.
+     */
+    static final class Generic extends Node {
+
+        private final Expression condition;
+
+        Generic(Expression condition) {
+            this.condition = condition;
+        }
+
+        @Override
+        int evaluate(Session session) {
+            Value v = condition.getValue(session);
+            if (v == ValueNull.INSTANCE) {
+                return UNKNOWN;
+            }
+            return v.getBoolean().booleanValue() ? TRUE : FALSE;
+        }
+
+    }
+
+    /**
+     * An AND condition.
+     */
+    static final class And extends Node {
+
+        private final Node left, right;
+
+        And(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int evaluate(Session session) {
+            int l = left.evaluate(session);
+            if (l == FALSE) {
+                return FALSE;
+            }
+            int r = right.evaluate(session);
+            if (r == FALSE) {
+                return FALSE;
+            }
+            return l == TRUE && r == TRUE ? TRUE : UNKNOWN;
+        }
+
+        @Override
+        int select(Session session, TableFilter filter, Row[] rows,
+                int[] sel, int count) {
+            count = left.select(session, filter, rows, sel, count);
+            return right.select(session, filter, rows, sel, count);
+        }
+
+    }
+
+    /**
+     * An OR condition.
+     */
+    static final class Or extends Node {
+
+        private final Node left, right;
+
+        Or(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int evaluate(Session session) {
+            int l = left.evaluate(session);
+            if (l == TRUE) {
+                return TRUE;
+            }
+            int r = right.evaluate(session);
+            if (r == TRUE) {
+                return TRUE;
+            }
+            return l == FALSE && r == FALSE ? FALSE : UNKNOWN;
+        }
+
+        @Override
+        int select(Session session, TableFilter filter, Row[] rows,
+                int[] sel, int count) {
+            int[] a = new int[count];
+            System.arraycopy(sel, 0, a, 0, count);
+            int na = left.select(session, filter, rows, a, count);
+            // the rows where the left condition is not true
+            int[] b = new int[count - na];
+            int nb = 0;
+            for (int i = 0, j = 0; i < count; i++) {
+                if (j < na && a[j] == sel[i]) {
+                    j++;
+                } else {
+                    b[nb++] = sel[i];
+                }
+            }
+            nb = right.select(session, filter, rows, b, nb);
+            // merge, keeping the order
+            int n = 0;
+            for (int i = 0, j = 0; i < na || j < nb;) {
+                if (j >= nb || (i < na && a[i] < b[j])) {
+                    sel[n++] = a[i++];
+                } else {
+                    sel[n++] = b[j++];
+                }
+            }
+            return n;
+        }
+
+    }
+
+    /**
+     * A node that reads a column of the current row.
+     */
+    abstract static class ColumnNode extends Node {
+
+        private final ExpressionColumn expr;
+        private final TableFilter filter;
+
+        /**
+         * The column.
+         */
+        final Column column;
+
+        ColumnNode(ExpressionColumn expr, TableFilter filter) {
+            this.expr = expr;
+            this.filter = filter;
+            this.column = expr.getColumn();
+        }
+
+        /**
+         * Get the value of the column in the current row.
+         *
+         * @param session the session
+         * @return the value
+         */
+        Value getColumnValue(Session session) {
+            Value v = filter.getValue(column);
+            return v != null ? v : expr.getValue(session);
+        }
+
+        /**
+         * Check whether the values of the column can be read from the rows
+         * of the given table filter directly.
+         *
+         * @param f the table filter of the rows
+         * @return true if yes
+         */
+        boolean isBatchColumn(TableFilter f) {
+            return f == filter && column.getColumnId() >= 0;
+        }
+
+    }
+
+    /**
+     * The condition IS NULL or IS NOT NULL.
+     */
+    static final class IsNull extends ColumnNode {
+
+        private final boolean isNull;
+
+        IsNull(ExpressionColumn expr, TableFilter filter, boolean isNull) {
+            super(expr, filter);
+            this.isNull = isNull;
+        }
+
+        @Override
+        int evaluate(Session session) {
+            boolean result = getColumnValue(session) == ValueNull.INSTANCE;
+            return result == isNull ? TRUE : FALSE;
+        }
+
+        @Override
+        int select(Session session, TableFilter f, Row[] rows, int[] sel,
+                int count) {
+            if (!isBatchColumn(f)) {
+                return super.select(session, f, rows, sel, count);
+            }
+            int id = column.getColumnId();
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                int k = sel[i];
+                if ((rows[k].getValue(id) == ValueNull.INSTANCE) == isNull) {
+                    sel[n++] = k;
+                }
+            }
+            return n;
+        }
+
+    }
+
+    /**
+     * A comparison of a column with a constant or parameter of the same type.
+     */
+    static final class Compare extends ColumnNode {
+
+        private final Comparison comparison;
+        private final Expression right;
+        private final Value constant;
+        private final int compareType;
+        private final int type;
+        private final CompareMode compareMode;
+
+        Compare(Comparison comparison, ExpressionColumn expr,
+                TableFilter filter, Expression right, Value constant,
+                int compareType, int type, CompareMode compareMode) {
+            super(expr, filter);
+            this.comparison = comparison;
+            this.right = right;
+            this.constant = constant;
+            this.compareType = compareType;
+            this.type = type;
+            this.compareMode = compareMode;
+        }
+
+        @Override
+        int evaluate(Session session) {
+            Value l = getColumnValue(session);
+            if (l == ValueNull.INSTANCE) {
+                return UNKNOWN;
+            }
+            Value r = constant != null ? constant : right.getValue(session);
+            if (r == ValueNull.INSTANCE) {
+                return UNKNOWN;
+            }
+            if (l.getType() != type || r.getType() != type) {
+                // for example a parameter of another type
+                Value v = comparison.getValue(session);
+                if (v == ValueNull.INSTANCE) {
+                    return UNKNOWN;
+                }
+                return v.getBoolean().booleanValue() ? TRUE : FALSE;
+            }
+            int comp;
+            switch (type) {
+            case Value.INT:
+                comp = MathUtils.compareInt(l.getInt(), r.getInt());
+                break;
+            case Value.LONG:
+                comp = MathUtils.compareLong(l.getLong(), r.getLong());
+                break;
+            case Value.DOUBLE:
+                comp = Double.compare(l.getDouble(), r.getDouble());
+                break;
+            default:
+                comp = compareMode.compareString(l.getString(),
+                        r.getString(), false);
+            }
+            return isMatch(comp) ? TRUE : FALSE;
+        }
+
+        @Override
+        int select(Session session, TableFilter f, Row[] rows, int[] sel,
+                int count) {
+            if (!isBatchColumn(f)) {
+                return super.select(session, f, rows, sel, count);
+            }
+            Value r = constant != null ? constant : right.getValue(session);
+            if (r == ValueNull.INSTANCE) {
+                return 0;
+            } else if (r.getType() != type) {
+                return super.select(session, f, rows, sel, count);
+            }
+            int id = column.getColumnId();
+            int n = 0;
+            switch (type) {
+            case Value.INT: {
+                int x = r.getInt();
+                for (int i = 0; i < count; i++) {
+                    int k = sel[i];
+                    Value l = rows[k].getValue(id);
+                    if (l.getType() == Value.INT) {
+                        if (isMatch(MathUtils.compareInt(l.getInt(), x))) {
+                            sel[n++] = k;
+                        }
+                    } else if (l != ValueNull.INSTANCE &&
+                            isTrue(session, f, rows[k])) {
+                        sel[n++] = k;
+                    }
+                }
+                break;
+            }
+            case Value.LONG: {
+                long x = r.getLong();
+                for (int i = 0; i < count; i++) {
+                    int k = sel[i];
+                    Value l = rows[k].getValue(id);
+                    if (l.getType() == Value.LONG) {
+                        if (isMatch(MathUtils.compareLong(l.getLong(), x))) {
+                            sel[n++] = k;
+                        }
+                    } else if (l != ValueNull.INSTANCE &&
+                            isTrue(session, f, rows[k])) {
+                        sel[n++] = k;
+                    }
+                }
+                break;
+            }
+            case Value.DOUBLE: {
+                double x = r.getDouble();
+                for (int i = 0; i < count; i++) {
+                    int k = sel[i];
+                    Value l = rows[k].getValue(id);
+                    if (l.getType() == Value.DOUBLE) {
+                        if (isMatch(Double.compare(l.getDouble(), x))) {
+                            sel[n++] = k;
+                        }
+                    } else if (l != ValueNull.INSTANCE &&
+                            isTrue(session, f, rows[k])) {
+                        sel[n++] = k;
+                    }
+                }
+                break;
+            }
+            default: {
+                String x = r.getString();
+                for (int i = 0; i < count; i++) {
+                    int k = sel[i];
+                    Value l = rows[k].getValue(id);
+                    if (l.getType() == Value.STRING) {
+                        if (isMatch(compareMode.compareString(
+                                l.getString(), x, false))) {
+                            sel[n++] = k;
+                        }
+                    } else if (l != ValueNull.INSTANCE &&
+                            isTrue(session, f, rows[k])) {
+                        sel[n++] = k;
+                    }
+                }
+            }
+            }
+            return n;
+        }
+
+        /**
+         * Evaluate the condition for one row (for example if the value is
+         * NULL).
+         */
+        private boolean isTrue(Session session, TableFilter f, Row row) {
+            f.set(row);
+            return evaluate(session) == TRUE;
+        }
+
+        private boolean isMatch(int comp) {
+            return CompiledCondition.isMatch(compareType, comp);
+        }
+
+    }
+
+    /**
+     * A comparison of an arithmetic operation with a constant or parameter
+     * of the same type.
+     */
+    static final class CompareOperation extends Node {
+
+        private final Comparison comparison;
+        private final CompiledExpression.Operand left;
+        private final Expression right;
+        private final Value constant;
+        private final int compareType;
+
+        CompareOperation(Comparison comparison,
+                CompiledExpression.Operand left, Expression right,
+                Value constant) {
+            this.comparison = comparison;
+            this.left = left;
+            this.right = right;
+            this.constant = constant;
+            this.compareType = comparison.getCompareType();
+        }
+
+        @Override
+        int evaluate(Session session) {
+            int l = left.evaluate(session);
+            if (l == CompiledExpression.Operand.FAILED) {
+                return evaluateComparison(session);
+            } else if (l == CompiledExpression.Operand.NULL) {
+                return UNKNOWN;
+            }
+            Value r = constant != null ? constant : right.getValue(session);
+            if (r == ValueNull.INSTANCE) {
+                return UNKNOWN;
+            } else if (r.getType() != left.type) {
+                return evaluateComparison(session);
+            }
+            int comp;
+            switch (left.type) {
+            case Value.INT:
+            case Value.LONG:
+                comp = MathUtils.compareLong(left.longValue, r.getLong());
+                break;
+            default:
+                comp = Double.compare(left.doubleValue, r.getDouble());
+            }
+            return isMatch(compareType, comp) ? TRUE : FALSE;
+        }
+
+        @Override
+        int select(Session session, TableFilter f, Row[] rows, int[] sel,
+                int count) {
+            left.evaluate(session, f, rows, sel, count);
+            byte[] states = left.states;
+            Value r = constant != null ? constant : right.getValue(session);
+            boolean direct = r == ValueNull.INSTANCE || r.getType() == left.type;
+            boolean isNull = r == ValueNull.INSTANCE;
+            int n = 0;
+            if (left.type == Value.DOUBLE) {
+                double x = isNull || !direct ? 0 : r.getDouble();
+                double[] values = left.doubleValues;
+                for (int i = 0; i < count; i++) {
+                    int k = sel[i];
+                    int state = states[i];
+                    if (state == CompiledExpression.Operand.VALUE && direct) {
+                        if (!isNull && isMatch(compareType,
+                                Double.compare(values[i], x))) {
+                            sel[n++] = k;
+                        }
+                    } else if (state != CompiledExpression.Operand.NULL &&
+                            isTrue(session, f, rows[k])) {
+                        sel[n++] = k;
+                    }
+                }
+            } else {
+                long x = isNull || !direct ? 0 : r.getLong();
+                long[] values = left.longValues;
+                for (int i = 0; i < count; i++) {
+                    int k = sel[i];
+                    int state = states[i];
+                    if (state == CompiledExpression.Operand.VALUE && direct) {
+                        if (!isNull && isMatch(compareType,
+                                MathUtils.compareLong(values[i], x))) {
+                            sel[n++] = k;
+                        }
+                    } else if (state != CompiledExpression.Operand.NULL &&
+                            isTrue(session, f, rows[k])) {
+                        sel[n++] = k;
+                    }
+                }
+            }
+            return n;
+        }
+
+        private boolean isTrue(Session session, TableFilter f, Row row) {
+            f.set(row);
+            return evaluateComparison(session) == TRUE;
+        }
+
+        private int evaluateComparison(Session session) {
+            Value v = comparison.getValue(session);
+            if (v == ValueNull.INSTANCE) {
+                return UNKNOWN;
+            }
+            return v.getBoolean().booleanValue() ? TRUE : FALSE;
+        }
+
+    }
+
+    /**
+     * The condition IN(...) on a column, where the list only contains
+     * constants and parameters. The values are kept in a sorted array, so
+     * that each row is checked using a binary search.
+     */
+    static final class In extends ColumnNode {
+
+        private final Expression condition;
+        private final ArrayList<Expression> values;
+        private final boolean constant;
+        private final Comparator<String> stringComparator;
+        private final int type;
+        private boolean hasNull;
+        private long[] longs;
+        private double[] doubles;
+        private String[] strings;
+
+        In(Expression condition, ExpressionColumn expr, TableFilter filter,
+                ArrayList<Expression> values, final CompareMode compareMode) {
+            super(expr, filter);
+            this.condition = condition;
+            this.values = values;
+            this.type = column.getType();
+            boolean c = true;
+            for (Expression v : values) {
+                c &= !(v instanceof Parameter);
+            }
+            this.constant = c;
+            stringComparator = new Comparator<String>() {
+                @Override
+                public int compare(String a, String b) {
+                    return compareMode.compareString(a, b, false);
+                }
+            };
+        }
+
+        /**
+         * Convert the values to the type of the column and sort them.
+         *
+         * @param session the session (may be null if all values are
+         *            constant)
+         * @return false if a value can not be converted
+         */
+        boolean prepare(Session session) {
+            int size = values.size();
+            long[] l = new long[size];
+            double[] d = new double[size];
+            String[] s = new String[size];
+            int n = 0;
+            boolean isNull = false;
+            for (Expression e : values) {
+                Value v = e.getValue(session);
+                if (v == ValueNull.INSTANCE) {
+                    isNull = true;
+                    continue;
+                }
+                try {
+                    v = v.convertTo(type);
+                } catch (DbException ex) {
+                    return false;
+                }
+                switch (type) {
+                case Value.INT:
+                case Value.LONG:
+                    l[n++] = v.getLong();
+                    break;
+                case Value.DOUBLE:
+                    d[n++] = v.getDouble();
+                    break;
+                default:
+                    s[n++] = v.getString();
+                }
+            }
+            hasNull = isNull;
+            switch (type) {
+            case Value.INT:
+            case Value.LONG:
+                longs = new long[n];
+                System.arraycopy(l, 0, longs, 0, n);
+                Arrays.sort(longs);
+                break;
+            case Value.DOUBLE:
+                doubles = new double[n];
+                System.arraycopy(d, 0, doubles, 0, n);
+                Arrays.sort(doubles);
+                break;
+            default:
+                strings = new String[n];
+                System.arraycopy(s, 0, strings, 0, n);
+                Arrays.sort(strings, stringComparator);
+            }
+            return true;
+        }
+
+        @Override
+        int evaluate(Session session) {
+            if (!constant) {
+                return evaluateCondition(session);
+            }
+            Value v = getColumnValue(session);
+            if (v == ValueNull.INSTANCE) {
+                return UNKNOWN;
+            } else if (v.getType() != type) {
+                return evaluateCondition(session);
+            }
+            boolean found;
+            switch (type) {
+            case Value.INT:
+            case Value.LONG:
+                found = Arrays.binarySearch(longs, v.getLong()) >= 0;
+                break;
+            case Value.DOUBLE:
+                found = Arrays.binarySearch(doubles, v.getDouble()) >= 0;
+                break;
+            default:
+                found = Arrays.binarySearch(strings, v.getString(),
+                        stringComparator) >= 0;
+            }
+            return found ? TRUE : hasNull ? UNKNOWN : FALSE;
+        }
+
+        private int evaluateCondition(Session session) {
+            Value v = condition.getValue(session);
+            if (v == ValueNull.INSTANCE) {
+                return UNKNOWN;
+            }
+            return v.getBoolean().booleanValue() ? TRUE : FALSE;
+        }
+
+        @Override
+        int select(Session session, TableFilter f, Row[] rows, int[] sel,
+                int count) {
+            if (!isBatchColumn(f) || (!constant && !prepare(session))) {
+                return super.select(session, f, rows, sel, count);
+            }
+            int id = column.getColumnId();
+            int n = 0;
+            switch (type) {
+            case Value.INT:
+            case Value.LONG: {
+                long[] list = longs;
+                for (int i = 0; i < count; i++) {
+                    int k = sel[i];
+                    Value v = rows[k].getValue(id);
+                    if (v.getType() == type) {
+                        if (Arrays.binarySearch(list, v.getLong()) >= 0) {
+                            sel[n++] = k;
+                        }
+                    } else if (v != ValueNull.INSTANCE &&
+                            isTrue(session, f, rows[k])) {
+                        sel[n++] = k;
+                    }
+                }
+                break;
+            }
+            case Value.DOUBLE: {
+                double[] list = doubles;
+                for (int i = 0; i < count; i++) {
+                    int k = sel[i];
+                    Value v = rows[k].getValue(id);
+                    if (v.getType() == Value.DOUBLE) {
+                        if (Arrays.binarySearch(list, v.getDouble()) >= 0) {
+                            sel[n++] = k;
+                        }
+                    } else if (v != ValueNull.INSTANCE &&
+                            isTrue(session, f, rows[k])) {
+                        sel[n++] = k;
+                    }
+                }
+                break;
+            }
+            default: {
+                String[] list = strings;
+                for (int i = 0; i < count; i++) {
+                    int k = sel[i];
+                    Value v = rows[k].getValue(id);
+                    if (v.getType() == Value.STRING) {
+                        if (Arrays.binarySearch(list, v.getString(),
+                                stringComparator) >= 0) {
+                            sel[n++] = k;
+                        }
+                    } else if (v != ValueNull.INSTANCE &&
+                            isTrue(session, f, rows[k])) {
+                        sel[n++] = k;
+                    }
+                }
+            }
+            }
+            return n;
+        }
+
+        private boolean isTrue(Session session, TableFilter f, Row row) {
+            f.set(row);
+            return evaluateCondition(session) == TRUE;
+        }
+
+    }
+
+    /**
+     * The condition LIKE or REGEXP on a column, with a constant pattern.
+     */
+    static final class Like extends ColumnNode {
+
+        private final CompareLike like;
+
+        Like(CompareLike like, ExpressionColumn expr, TableFilter filter) {
+            super(expr, filter);
+            this.like = like;
+        }
+
+        @Override
+        int evaluate(Session session) {
+            Value v = getColumnValue(session);
+            if (v == ValueNull.INSTANCE) {
+                return UNKNOWN;
+            }
+            return like.isMatch(v.getString()) ? TRUE : FALSE;
+        }
+
+        @Override
+        int select(Session session, TableFilter f, Row[] rows, int[] sel,
+                int count) {
+            if (!isBatchColumn(f)) {
+                return super.select(session, f, rows, sel, count);
+            }
+            int id = column.getColumnId();
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                int k = sel[i];
+                Value v = rows[k].getValue(id);
+                if (v != ValueNull.INSTANCE && like.isMatch(v.getString())) {
+                    sel[n++] = k;
+                }
+            }
+            return n;
+        }
+
+    }
+
+}
@@ -0,0 +1,763 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.expression;
+
+import org.h2.engine.Session;
+import org.h2.result.Row;
+import org.h2.table.Column;
+import org.h2.table.TableFilter;
+import org.h2.value.Value;
+import org.h2.value.ValueDouble;
+import org.h2.value.ValueInt;
+import org.h2.value.ValueLong;
+import org.h2.value.ValueNull;
+
+/**
+ * An arithmetic expression that was compiled to a tree of specialized nodes.
+ * Addition, subtraction, multiplication, division, modulus and negation of
+ * INT, BIGINT and DOUBLE values are calculated using primitive values, without
+ * creating a Value object for each intermediate result. If an operand has an
+ * unexpected data type, or if the operation would overflow or divide by zero,
+ * the expression is evaluated as usual, so that the result (or the exception)
+ * is the same.
+ */
+public class CompiledExpression {
+
+    private final Expression expression;
+    private final Operand root;
+
+    private CompiledExpression(Expression expression, Operand root) {
+        this.expression = expression;
+        this.root = root;
+    }
+
+    /**
+     * Compile an expression. The expression must already be optimized, and
+     * the columns must be mapped.
+     *
+     * @param expression the expression
+     * @return the compiled expression, or null if the expression is not an
+     *         arithmetic operation that can be compiled
+     */
+    public static CompiledExpression compile(Expression expression) {
+        Expression e = expression.getNonAliasExpression();
+        if (!(e instanceof Operation)) {
+            return null;
+        }
+        Operand root = compileOperand(e, e.getType());
+        if (root == null) {
+            return null;
+        }
+        return new CompiledExpression(expression, root);
+    }
+
+    /**
+     * Compile an expression of type INT, BIGINT or DOUBLE.
+     *
+     * @param e the expression
+     * @param type the data type the value is converted to (for parameters)
+     * @return the operand, or null if the expression can not be compiled
+     */
+    static Operand compileOperand(Expression e, int type) {
+        if (e instanceof Operation) {
+            Operation op = (Operation) e;
+            int opType = op.getOperationType();
+            switch (opType) {
+            case Operation.PLUS:
+            case Operation.MINUS:
+            case Operation.MULTIPLY:
+            case Operation.DIVIDE:
+            case Operation.MODULUS:
+            case Operation.NEGATE:
+                break;
+            default:
+                return null;
+            }
+            int dataType = op.getType();
+            if (!isNumeric(dataType)) {
+                return null;
+            }
+            Operand left = compileOperand(op.getExpression(true), dataType);
+            if (left == null) {
+                return null;
+            }
+            Operand right = null;
+            if (opType != Operation.NEGATE) {
+                right = compileOperand(op.getExpression(false), dataType);
+                if (right == null) {
+                    return null;
+                }
+            }
+            return new Arithmetic(opType, dataType, left, right);
+        } else if (e instanceof ExpressionColumn) {
+            ExpressionColumn col = (ExpressionColumn) e;
+            TableFilter filter = col.getTableFilter();
+            if (filter == null || !isNumeric(col.getColumn().getType())) {
+                return null;
+            }
+            return new ColumnOperand(col, filter);
+        } else if (e instanceof ValueExpression) {
+            Value v = e.getValue(null);
+            if (!isNumeric(v.getType())) {
+                return null;
+            }
+            return new Constant(v);
+        } else if (e instanceof Parameter) {
+            if (!isNumeric(type)) {
+                return null;
+            }
+            return new ParameterOperand((Parameter) e, type);
+        }
+        return null;
+    }
+
+    private static boolean isNumeric(int type) {
+        return type == Value.INT || type == Value.LONG || type == Value.DOUBLE;
+    }
+
+    /**
+     * Get the data type of the result.
+     *
+     * @return the data type (INT, BIGINT or DOUBLE)
+     */
+    public int getType() {
+        return root.type;
+    }
+
+    /**
+     * Calculate the value for the current row.
+     *
+     * @param session the session
+     * @return the value
+     */
+    public Value getValue(Session session) {
+        switch (root.evaluate(session)) {
+        case Operand.VALUE:
+            return root.getValue();
+        case Operand.NULL:
+            return ValueNull.INSTANCE;
+        default:
+            return expression.getValue(session);
+        }
+    }
+
+    /**
+     * Calculate the values for a block of rows of the given table filter.
+     *
+     * @param session the session
+     * @param filter the table filter
+     * @param rows the rows
+     * @param sel the indexes of the selected rows
+     * @param count the number of selected rows
+     * @param target the array where the values of the selected rows are
+     *            stored
+     */
+    public void getValues(Session session, TableFilter filter, Row[] rows,
+            int[] sel, int count, Value[] target) {
+        root.evaluate(session, filter, rows, sel, count);
+        byte[] states = root.states;
+        for (int i = 0; i < count; i++) {
+            switch (states[i]) {
+            case Operand.VALUE:
+                target[i] = root.getValue(i);
+                break;
+            case Operand.NULL:
+                target[i] = ValueNull.INSTANCE;
+                break;
+            default:
+                filter.set(rows[sel[i]]);
+                target[i] = expression.getValue(session);
+            }
+        }
+    }
+
+    /**
+     * A node of a compiled expression. After evaluating a node for one row,
+     * the value is available in the field longValue (for INT and BIGINT) or
+     * doubleValue (for DOUBLE). After evaluating a node for a block of rows,
+     * the values are in the arrays longValues or doubleValues, and the
+     * states in the array states.
+     */
+    abstract static class Operand {
+
+        /**
+         * The value was calculated.
+         */
+        static final int VALUE = 0;
+
+        /**
+         * The value is NULL.
+         */
+        static final int NULL = 1;
+
+        /**
+         * The value can not be calculated using primitive values, and the
+         * expression needs to be evaluated as usual.
+         */
+        static final int FAILED = 2;
+
+        /**
+         * The data type (INT, BIGINT or DOUBLE).
+         */
+        final int type;
+
+        /**
+         * The value, if the type is INT or BIGINT.
+         */
+        long longValue;
+
+        /**
+         * The value, if the type is DOUBLE.
+         */
+        double doubleValue;
+
+        /**
+         * The values of a block of rows, if the type is INT or BIGINT.
+         */
+        long[] longValues;
+
+        /**
+         * The values of a block of rows, if the type is DOUBLE.
+         */
+        double[] doubleValues;
+
+        /**
+         * The states (VALUE, NULL, or FAILED) of a block of rows.
+         */
+        byte[] states;
+
+        Operand(int type) {
+            this.type = type;
+        }
+
+        /**
+         * Calculate the value for the current row.
+         *
+         * @param session the session
+         * @return VALUE, NULL, or FAILED
+         */
+        abstract int evaluate(Session session);
+
+        /**
+         * Calculate the values for a block of rows.
+         *
+         * @param session the session
+         * @param filter the table filter of the rows
+         * @param rows the rows
+         * @param sel the indexes of the selected rows
+         * @param count the number of selected rows
+         */
+        abstract void evaluate(Session session, TableFilter filter,
+                Row[] rows, int[] sel, int count);
+
+        /**
+         * Make sure the arrays for the values of a block of rows are large
+         * enough.
+         *
+         * @param count the number of rows
+         */
+        void init(int count) {
+            if (states == null || states.length < count) {
+                states = new byte[count];
+                if (type == Value.DOUBLE) {
+                    doubleValues = new double[count];
+                } else {
+                    longValues = new long[count];
+                }
+            }
+        }
+
+        /**
+         * Store the value that was calculated for one row in the arrays.
+         *
+         * @param i the index within the block
+         * @param state the state
+         */
+        void store(int i, int state) {
+            states[i] = (byte) state;
+            if (state == VALUE) {
+                if (type == Value.DOUBLE) {
+                    doubleValues[i] = doubleValue;
+                } else {
+                    longValues[i] = longValue;
+                }
+            }
+        }
+
+        /**
+         * Calculate the values for a block of rows one row at a time.
+         *
+         * @param session the session
+         * @param filter the table filter of the rows
+         * @param rows the rows
+         * @param sel the indexes of the selected rows
+         * @param count the number of selected rows
+         */
+        void evaluateRows(Session session, TableFilter filter, Row[] rows,
+                int[] sel, int count) {
+            init(count);
+            for (int i = 0; i < count; i++) {
+                filter.set(rows[sel[i]]);
+                store(i, evaluate(session));
+            }
+        }
+
+        /**
+         * Use the current value for all rows of a block.
+         *
+         * @param state the state
+         * @param count the number of rows
+         */
+        void fill(int state, int count) {
+            init(count);
+            for (int i = 0; i < count; i++) {
+                store(i, state);
+            }
+        }
+
+        /**
+         * Get a value of a block of rows as a double.
+         *
+         * @param i the index within the block
+         * @return the value
+         */
+        double getDouble(int i) {
+            return type == Value.DOUBLE ? doubleValues[i] : longValues[i];
+        }
+
+        /**
+         * Get a value of a block of rows.
+         *
+         * @param i the index within the block
+         * @return the value
+         */
+        Value getValue(int i) {
+            switch (type) {
+            case Value.INT:
+                return ValueInt.get((int) longValues[i]);
+            case Value.LONG:
+                return ValueLong.get(longValues[i]);
+            default:
+                return ValueDouble.get(doubleValues[i]);
+            }
+        }
+
+        /**
+         * Get the calculated value as a double.
+         *
+         * @return the value
+         */
+        double getDouble() {
+            return type == Value.DOUBLE ? doubleValue : longValue;
+        }
+
+        /**
+         * Get the calculated value.
+         *
+         * @return the value
+         */
+        Value getValue() {
+            switch (type) {
+            case Value.INT:
+                return ValueInt.get((int) longValue);
+            case Value.LONG:
+                return ValueLong.get(longValue);
+            default:
+                return ValueDouble.get(doubleValue);
+            }
+        }
+
+        /**
+         * Read a value. If it has a lower data type than this operand, it is
+         * converted.
+         *
+         * @param v the value
+         * @return VALUE, NULL, or FAILED
+         */
+        int load(Value v) {
+            if (v == ValueNull.INSTANCE) {
+                return NULL;
+            }
+            int t = v.getType();
+            if (t == Value.DOUBLE) {
+                if (type != Value.DOUBLE) {
+                    return FAILED;
+                }
+                doubleValue = v.getDouble();
+            } else if (t == Value.LONG) {
+                if (type == Value.INT) {
+                    return FAILED;
+                } else if (type == Value.DOUBLE) {
+                    doubleValue = v.getLong();
+                } else {
+                    longValue = v.getLong();
+                }
+            } else if (t == Value.INT) {
+                if (type == Value.DOUBLE) {
+                    doubleValue = v.getInt();
+                } else {
+                    longValue = v.getInt();
+                }
+            } else {
+                return FAILED;
+            }
+            return VALUE;
+        }
+
+    }
+
+    /**
+     * A column of the current row.
+     */
+    static final class ColumnOperand extends Operand {
+
+        private final ExpressionColumn expr;
+
+        /**
+         * The table filter.
+         */
+        final TableFilter filter;
+
+        /**
+         * The column.
+         */
+        final Column column;
+
+        ColumnOperand(ExpressionColumn expr, TableFilter filter) {
+            super(expr.getColumn().getType());
+            this.expr = expr;
+            this.filter = filter;
+            this.column = expr.getColumn();
+        }
+
+        @Override
+        int evaluate(Session session) {
+            Value v = filter.getValue(column);
+            return load(v != null ? v : expr.getValue(session));
+        }
+
+        @Override
+        void evaluate(Session session, TableFilter f, Row[] rows, int[] sel,
+                int count) {
+            int id = column.getColumnId();
+            if (f != filter || id < 0) {
+                evaluateRows(session, f, rows, sel, count);
+                return;
+            }
+            init(count);
+            switch (type) {
+            case Value.INT:
+                for (int i = 0; i < count; i++) {
+                    Value v = rows[sel[i]].getValue(id);
+                    if (v.getType() == Value.INT) {
+                        longValues[i] = v.getInt();
+                        states[i] = VALUE;
+                    } else {
+                        store(i, load(v));
+                    }
+                }
+                break;
+            case Value.LONG:
+                for (int i = 0; i < count; i++) {
+                    Value v = rows[sel[i]].getValue(id);
+                    if (v.getType() == Value.LONG) {
+                        longValues[i] = v.getLong();
+                        states[i] = VALUE;
+                    } else {
+                        store(i, load(v));
+                    }
+                }
+                break;
+            default:
+                for (int i = 0; i < count; i++) {
+                    Value v = rows[sel[i]].getValue(id);
+                    if (v.getType() == Value.DOUBLE) {
+                        doubleValues[i] = v.getDouble();
+                        states[i] = VALUE;
+                    } else {
+                        store(i, load(v));
+                    }
+                }
+            }
+        }
+
+    }
+
+    /**
+     * A constant.
+     */
+    static final class Constant extends Operand {
+
+        Constant(Value v) {
+            super(v.getType());
+            load(v);
+        }
+
+        @Override
+        int evaluate(Session session) {
+            return VALUE;
+        }
+
+        @Override
+        void evaluate(Session session, TableFilter filter, Row[] rows,
+                int[] sel, int count) {
+            if (states == null || states.length < count) {
+                fill(VALUE, count);
+            }
+        }
+
+    }
+
+    /**
+     * A parameter. The value is converted to the data type of the operation.
+     */
+    static final class ParameterOperand extends Operand {
+
+        private final Parameter parameter;
+
+        ParameterOperand(Parameter parameter, int type) {
+            super(type);
+            this.parameter = parameter;
+        }
+
+        @Override
+        int evaluate(Session session) {
+            return load(parameter.getValue(session));
+        }
+
+        @Override
+        void evaluate(Session session, TableFilter filter, Row[] rows,
+                int[] sel, int count) {
+            fill(evaluate(session), count);
+        }
+
+    }
+
+    /**
+     * An arithmetic operation.
+     */
+    static final class Arithmetic extends Operand {
+
+        private final int opType;
+        private final Operand left, right;
+
+        Arithmetic(int opType, int type, Operand left, Operand right) {
+            super(type);
+            this.opType = opType;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int evaluate(Session session) {
+            // both operands are evaluated, as in Operation.getValue
+            int l = left.evaluate(session);
+            if (l == FAILED) {
+                return FAILED;
+            }
+            int r = VALUE;
+            if (right != null) {
+                r = right.evaluate(session);
+                if (r == FAILED) {
+                    return FAILED;
+                }
+            }
+            if (l == NULL || r == NULL) {
+                return NULL;
+            }
+            switch (type) {
+            case Value.INT:
+                return calculateInt(left.longValue,
+                        right == null ? 0 : right.longValue);
+            case Value.LONG:
+                return calculateLong(left.longValue,
+                        right == null ? 0 : right.longValue);
+            default:
+                return calculateDouble(left.getDouble(),
+                        right == null ? 0 : right.getDouble());
+            }
+        }
+
+        @Override
+        void evaluate(Session session, TableFilter filter, Row[] rows,
+                int[] sel, int count) {
+            left.evaluate(session, filter, rows, sel, count);
+            if (right != null) {
+                right.evaluate(session, filter, rows, sel, count);
+            }
+            init(count);
+            byte[] ls = left.states;
+            byte[] rs = right == null ? ls : right.states;
+            switch (type) {
+            case Value.INT:
+            case Value.LONG: {
+                boolean isInt = type == Value.INT;
+                long[] a = left.longValues;
+                long[] b = right == null ? a : right.longValues;
+                for (int i = 0; i < count; i++) {
+                    int state = getState(ls[i], rs[i]);
+                    if (state == VALUE) {
+                        state = isInt ? calculateInt(a[i], b[i]) :
+                                calculateLong(a[i], b[i]);
+                    }
+                    states[i] = (byte) state;
+                    longValues[i] = longValue;
+                }
+                break;
+            }
+            default:
+                for (int i = 0; i < count; i++) {
+                    int state = getState(ls[i], rs[i]);
+                    if (state == VALUE) {
+                        state = calculateDouble(left.getDouble(i),
+                                right == null ? 0 : right.getDouble(i));
+                    }
+                    states[i] = (byte) state;
+                    doubleValues[i] = doubleValue;
+                }
+            }
+        }
+
+        private static int getState(int l, int r) {
+            if (l == FAILED || r == FAILED) {
+                return FAILED;
+            }
+            return l == NULL || r == NULL ? NULL : VALUE;
+        }
+
+        /**
+         * Calculate the result of an INT operation, as in ValueInt.
+         *
+         * @param a the left value
+         * @param b the right value
+         * @return VALUE, or FAILED if the result is out of range or the
+         *         divisor is 0
+         */
+        int calculateInt(long a, long b) {
+            long x;
+            switch (opType) {
+            case Operation.PLUS:
+                x = a + b;
+                break;
+            case Operation.MINUS:
+                x = a - b;
+                break;
+            case Operation.MULTIPLY:
+                x = a * b;
+                break;
+            case Operation.DIVIDE:
+                if (b == 0) {
+                    return FAILED;
+                }
+                x = (int) a / (int) b;
+                break;
+            case Operation.MODULUS:
+                if (b == 0) {
+                    return FAILED;
+                }
+                x = (int) a % (int) b;
+                break;
+            default:
+                x = -a;
+            }
+            if (x < Integer.MIN_VALUE || x > Integer.MAX_VALUE) {
+                return FAILED;
+            }
+            longValue = x;
+            return VALUE;
+        }
+
+        /**
+         * Calculate the result of a BIGINT operation, as in ValueLong.
+         *
+         * @param a the left value
+         * @param b the right value
+         * @return VALUE, or FAILED if the result may be out of range or the
+         *         divisor is 0
+         */
+        int calculateLong(long a, long b) {
+            long x;
+            switch (opType) {
+            case Operation.PLUS:
+                x = a + b;
+                if (((a ^ x) & (b ^ x)) < 0) {
+                    return FAILED;
+                }
+                break;
+            case Operation.MINUS:
+                x = a - b;
+                if (b == Long.MIN_VALUE || ((a ^ b) & (a ^ x)) < 0) {
+                    return FAILED;
+                }
+                break;
+            case Operation.MULTIPLY:
+                if ((a != (int) a || b != (int) b) && a != 0 && a != 1 &&
+                        b != 0 && b != 1) {
+                    return FAILED;
+                }
+                x = a * b;
+                break;
+            case Operation.DIVIDE:
+                if (b == 0) {
+                    return FAILED;
+                }
+                x = a / b;
+                break;
+            case Operation.MODULUS:
+                if (b == 0) {
+                    return FAILED;
+                }
+                x = a % b;
+                break;
+            default:
+                if (a == Long.MIN_VALUE) {
+                    return FAILED;
+                }
+                x = -a;
+            }
+            longValue = x;
+            return VALUE;
+        }
+
+        /**
+         * Calculate the result of a DOUBLE operation, as in ValueDouble.
+         *
+         * @param a the left value
+         * @param b the right value
+         * @return VALUE, or FAILED if the divisor is 0
+         */
+        int calculateDouble(double a, double b) {
+            switch (opType) {
+            case Operation.PLUS:
+                doubleValue = a + b;
+                break;
+            case Operation.MINUS:
+                doubleValue = a - b;
+                break;
+            case Operation.MULTIPLY:
+                doubleValue = a * b;
+                break;
+            case Operation.DIVIDE:
+                if (b == 0) {
+                    return FAILED;
+                }
+                doubleValue = a / b;
+                break;
+            case Operation.MODULUS:
+                if (b == 0) {
+                    return FAILED;
+                }
+                doubleValue = a % b;
+                break;
+            default:
+                doubleValue = -a;
+            }
+            return VALUE;
+        }
+
+    }
+
+}
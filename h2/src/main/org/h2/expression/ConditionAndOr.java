@@ -289,6 +289,15 @@ public class ConditionAndOr extends Condition {
         return andOrType == OR || left.isDisjunctive() || right.isDisjunctive();
     }
 
+    /**
+     * Get the condition type.
+     *
+     * @return AND or OR
+     */
+    public int getAndOrType() {
+        return andOrType;
+    }
+
     /**
      * Get the left or the right sub-expression of this condition.
      *
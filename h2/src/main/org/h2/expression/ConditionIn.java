@@ -215,4 +215,22 @@ public class ConditionIn extends Condition {
         }
         return null;
     }
+
+    /**
+     * Get the expression before IN.
+     *
+     * @return the expression
+     */
+    Expression getLeft() {
+        return left;
+    }
+
+    /**
+     * Get the expressions of the IN list.
+     *
+     * @return the list
+     */
+    ArrayList<Expression> getValueList() {
+        return valueList;
+    }
 }
@@ -401,4 +401,25 @@ public class Operation extends Expression {
         return left.getCost() + 1 + (right == null ? 0 : right.getCost());
     }
 
+    /**
+     * Get the operation type.
+     *
+     * @return the operation type
+     */
+    public int getOperationType() {
+        return opType;
+    }
+
+    /**
+     * Get the left or the right sub-expression of this operation.
+     *
+     * @param getLeft true to get the left sub-expression, false to get the
+     *            right sub-expression.
+     * @return the sub-expression (the right sub-expression is null for
+     *         NEGATE)
+     */
+    public Expression getExpression(boolean getLeft) {
+        return getLeft ? this.left : right;
+    }
+
 }
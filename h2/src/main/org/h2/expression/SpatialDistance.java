@@ -0,0 +1,127 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.expression;
+
+import org.h2.engine.Session;
+import org.h2.index.SpatialTreeIndex;
+import org.h2.mvstore.rtree.SpatialDataType;
+import org.h2.mvstore.rtree.SpatialKey;
+import org.h2.table.ColumnResolver;
+import org.h2.table.TableFilter;
+import org.h2.value.Value;
+import org.h2.value.ValueDouble;
+import org.h2.value.ValueNull;
+
+/**
+ * The distance between the bounding boxes of two geometries, as in
+ * A &lt;-&gt; B. The bounding boxes are rounded to single precision, the same
+ * way as in a spatial index, so that a spatial index can return the rows
+ * ordered by this distance.
+ */
+public class SpatialDistance extends Expression {
+
+    private static final SpatialDataType KEY_TYPE = new SpatialDataType(2);
+
+    private Expression left, right;
+
+    public SpatialDistance(Expression left, Expression right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    /**
+     * Get the distance between the bounding boxes of two geometries.
+     *
+     * @param a the first geometry
+     * @param b the second geometry
+     * @return the distance, or NULL if one of the values is NULL
+     */
+    public static Value getDistance(Value a, Value b) {
+        if (a == ValueNull.INSTANCE || b == ValueNull.INSTANCE) {
+            return ValueNull.INSTANCE;
+        }
+        SpatialKey ka = SpatialTreeIndex.getKey(0, a);
+        SpatialKey kb = SpatialTreeIndex.getKey(0, b);
+        return ValueDouble.get(KEY_TYPE.getMinDistance(ka, kb));
+    }
+
+    public Expression getLeft() {
+        return left;
+    }
+
+    public Expression getRight() {
+        return right;
+    }
+
+    @Override
+    public String getSQL() {
+        return "(" + left.getSQL() + " <-> " + right.getSQL() + ")";
+    }
+
+    @Override
+    public Value getValue(Session session) {
+        return getDistance(left.getValue(session), right.getValue(session));
+    }
+
+    @Override
+    public void mapColumns(ColumnResolver resolver, int level) {
+        left.mapColumns(resolver, level);
+        right.mapColumns(resolver, level);
+    }
+
+    @Override
+    public Expression optimize(Session session) {
+        left = left.optimize(session);
+        right = right.optimize(session);
+        if (left.isConstant() && right.isConstant()) {
+            return ValueExpression.get(getValue(session));
+        }
+        return this;
+    }
+
+    @Override
+    public void setEvaluatable(TableFilter tableFilter, boolean b) {
+        left.setEvaluatable(tableFilter, b);
+        right.setEvaluatable(tableFilter, b);
+    }
+
+    @Override
+    public int getType() {
+        return Value.DOUBLE;
+    }
+
+    @Override
+    public int getScale() {
+        return 0;
+    }
+
+    @Override
+    public long getPrecision() {
+        return ValueDouble.PRECISION;
+    }
+
+    @Override
+    public int getDisplaySize() {
+        return ValueDouble.DISPLAY_SIZE;
+    }
+
+    @Override
+    public void updateAggregate(Session session) {
+        left.updateAggregate(session);
+        right.updateAggregate(session);
+    }
+
+    @Override
+    public boolean isEverything(ExpressionVisitor visitor) {
+        return left.isEverything(visitor) && right.isEverything(visitor);
+    }
+
+    @Override
+    public int getCost() {
+        return left.getCost() + right.getCost() + 1;
+    }
+
+}
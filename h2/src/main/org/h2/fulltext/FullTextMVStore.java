@@ -0,0 +1,1088 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.fulltext;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringTokenizer;
+import org.h2.api.Trigger;
+import org.h2.engine.Database;
+import org.h2.engine.Session;
+import org.h2.jdbc.JdbcConnection;
+import org.h2.message.DbException;
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.WriteBuffer;
+import org.h2.mvstore.db.MVTableEngine;
+import org.h2.tools.SimpleResultSet;
+import org.h2.util.New;
+import org.h2.util.StatementBuilder;
+import org.h2.util.StringUtils;
+
+/**
+ * This class implements a native full text search that keeps an inverted
+ * index in MVStore maps. The posting list of each word is stored compressed
+ * in a small number of segments that are merged incrementally, and search
+ * results are ranked using the BM25 formula. If the database uses the
+ * MVStore, the maps are stored in the database file, otherwise in a separate
+ * file. Most methods can be called using SQL statements as well.
+ */
+public class FullTextMVStore extends FullText {
+
+    /**
+     * The file name suffix of the index if the database does not use the
+     * MVStore.
+     */
+    private static final String FILE_SUFFIX = ".ftm.db";
+
+    private static final HashMap<String, IndexStore> INDEX_STORES =
+            New.hashMap();
+    private static final String TRIGGER_PREFIX = "FTM_";
+    private static final String SCHEMA = "FTM";
+
+    /**
+     * The BM25 term frequency saturation parameter.
+     */
+    private static final double K1 = 1.2;
+
+    /**
+     * The BM25 document length normalization parameter.
+     */
+    private static final double B = 0.75;
+
+    /**
+     * Initializes full text search functionality for this database. This adds
+     * the following Java functions to the database:
+     * <ul>
+     * <li>FTM_CREATE_INDEX(schemaNameString, tableNameString,
+     * columnListString)</li>
+     * <li>FTM_SEARCH(queryString, limitInt, offsetInt): result set</li>
+     * <li>FTM_REINDEX()</li>
+     * <li>FTM_DROP_ALL()</li>
+     * </ul>
+     * It also adds a schema FTM to the database where bookkeeping information
+     * is stored. This function may be called from a Java application, or by
+     * using the SQL statements:
+     *
+     * <pre>
+     * CREATE ALIAS IF NOT EXISTS FTM_INIT FOR
+     *      &quot;org.h2.fulltext.FullTextMVStore.init&quot;;
+     * CALL FTM_INIT();
+     * </pre>
+     *
+     * @param conn the connection
+     */
+    public static void init(Connection conn) throws SQLException {
+        Statement stat = conn.createStatement();
+        stat.execute("CREATE SCHEMA IF NOT EXISTS " + SCHEMA);
+        stat.execute("CREATE TABLE IF NOT EXISTS " + SCHEMA +
+                ".INDEXES(ID INT AUTO_INCREMENT PRIMARY KEY, " +
+                "SCHEMA VARCHAR, TABLE VARCHAR, COLUMNS VARCHAR, " +
+                "UNIQUE(SCHEMA, TABLE))");
+        stat.execute("CREATE ALIAS IF NOT EXISTS FTM_CREATE_INDEX FOR \"" +
+                FullTextMVStore.class.getName() + ".createIndex\"");
+        stat.execute("CREATE ALIAS IF NOT EXISTS FTM_DROP_INDEX FOR \"" +
+                FullTextMVStore.class.getName() + ".dropIndex\"");
+        stat.execute("CREATE ALIAS IF NOT EXISTS FTM_SEARCH FOR \"" +
+                FullTextMVStore.class.getName() + ".search\"");
+        stat.execute("CREATE ALIAS IF NOT EXISTS FTM_SEARCH_DATA FOR \"" +
+                FullTextMVStore.class.getName() + ".searchData\"");
+        stat.execute("CREATE ALIAS IF NOT EXISTS FTM_REINDEX FOR \"" +
+                FullTextMVStore.class.getName() + ".reindex\"");
+        stat.execute("CREATE ALIAS IF NOT EXISTS FTM_DROP_ALL FOR \"" +
+                FullTextMVStore.class.getName() + ".dropAll\"");
+        getIndexStore(conn);
+    }
+
+    /**
+     * Create a new full text index for a table and column list. Each table may
+     * only have one index at any time.
+     *
+     * @param conn the connection
+     * @param schema the schema name of the table (case sensitive)
+     * @param table the table name (case sensitive)
+     * @param columnList the column list (null for all columns)
+     */
+    public static void createIndex(Connection conn, String schema,
+            String table, String columnList) throws SQLException {
+        init(conn);
+        PreparedStatement prep = conn.prepareStatement("INSERT INTO " + SCHEMA
+                + ".INDEXES(SCHEMA, TABLE, COLUMNS) VALUES(?, ?, ?)");
+        prep.setString(1, schema);
+        prep.setString(2, table);
+        prep.setString(3, columnList);
+        prep.execute();
+        createTrigger(conn, schema, table);
+        indexExistingRows(conn, schema, table);
+    }
+
+    /**
+     * Drop an existing full text index for a table. This method returns
+     * silently if no index for this table exists. The remaining indexes are
+     * re-created, as the word statistics are shared.
+     *
+     * @param conn the connection
+     * @param schema the schema name of the table (case sensitive)
+     * @param table the table name (case sensitive)
+     */
+    public static void dropIndex(Connection conn, String schema, String table)
+            throws SQLException {
+        init(conn);
+        PreparedStatement prep = conn.prepareStatement("DELETE FROM " + SCHEMA
+                + ".INDEXES WHERE SCHEMA=? AND TABLE=?");
+        prep.setString(1, schema);
+        prep.setString(2, table);
+        int rowCount = prep.executeUpdate();
+        if (rowCount != 0) {
+            createOrDropTrigger(conn, schema, table, false);
+            reindex(conn);
+        }
+    }
+
+    /**
+     * Re-creates the full text index for this database. Calling this method is
+     * usually not needed, as the index is kept up-to-date automatically.
+     *
+     * @param conn the connection
+     */
+    public static void reindex(Connection conn) throws SQLException {
+        init(conn);
+        removeAllTriggers(conn, TRIGGER_PREFIX);
+        getIndexStore(conn).clear();
+        Statement stat = conn.createStatement();
+        ResultSet rs = stat.executeQuery("SELECT * FROM " + SCHEMA + ".INDEXES");
+        while (rs.next()) {
+            String schema = rs.getString("SCHEMA");
+            String table = rs.getString("TABLE");
+            createTrigger(conn, schema, table);
+            indexExistingRows(conn, schema, table);
+        }
+    }
+
+    /**
+     * Drops all full text indexes from the database.
+     *
+     * @param conn the connection
+     */
+    public static void dropAll(Connection conn) throws SQLException {
+        init(conn);
+        Statement stat = conn.createStatement();
+        stat.execute("DROP SCHEMA IF EXISTS " + SCHEMA);
+        removeAllTriggers(conn, TRIGGER_PREFIX);
+        removeIndexStore(conn);
+    }
+
+    /**
+     * Searches from the full text index for this database.
+     * The returned result set has the following column:
+     * <ul><li>QUERY (varchar): the query to use to get the data.
+     * The query does not include 'SELECT * FROM '. Example:
+     * PUBLIC.TEST WHERE ID = 1
+     * </li><li>SCORE (float) the relevance score (BM25).
+     * </li></ul>
+     * All words of the search query need to match. The rows are returned
+     * with the highest score first.
+     *
+     * @param conn the connection
+     * @param text the search query
+     * @param limit the maximum number of rows or 0 for no limit
+     * @param offset the offset or 0 for no offset
+     * @return the result set
+     */
+    public static ResultSet search(Connection conn, String text, int limit,
+            int offset) throws SQLException {
+        try {
+            return search(conn, text, limit, offset, false);
+        } catch (DbException e) {
+            throw DbException.toSQLException(e);
+        }
+    }
+
+    /**
+     * Searches from the full text index for this database. The result contains
+     * the primary key data as an array. The returned result set has the
+     * following columns:
+     * <ul>
+     * <li>SCHEMA (varchar): the schema name. Example: PUBLIC </li>
+     * <li>TABLE (varchar): the table name. Example: TEST </li>
+     * <li>COLUMNS (array of varchar): comma separated list of quoted column
+     * names. The column names are quoted if necessary. Example: (ID) </li>
+     * <li>KEYS (array of values): comma separated list of values. Example: (1)
+     * </li>
+     * <li>SCORE (float) the relevance score (BM25).
+     * </li>
+     * </ul>
+     *
+     * @param conn the connection
+     * @param text the search query
+     * @param limit the maximum number of rows or 0 for no limit
+     * @param offset the offset or 0 for no offset
+     * @return the result set
+     */
+    public static ResultSet searchData(Connection conn, String text, int limit,
+            int offset) throws SQLException {
+        try {
+            return search(conn, text, limit, offset, true);
+        } catch (DbException e) {
+            throw DbException.toSQLException(e);
+        }
+    }
+
+    /**
+     * Create the trigger.
+     *
+     * @param conn the database connection
+     * @param schema the schema name
+     * @param table the table name
+     */
+    protected static void createTrigger(Connection conn, String schema,
+            String table) throws SQLException {
+        createOrDropTrigger(conn, schema, table, true);
+    }
+
+    private static void createOrDropTrigger(Connection conn,
+            String schema, String table, boolean create) throws SQLException {
+        Statement stat = conn.createStatement();
+        String trigger = StringUtils.quoteIdentifier(schema) + "." +
+                StringUtils.quoteIdentifier(TRIGGER_PREFIX + table);
+        stat.execute("DROP TRIGGER IF EXISTS " + trigger);
+        if (create) {
+            StringBuilder buff = new StringBuilder(
+                    "CREATE TRIGGER IF NOT EXISTS ");
+            // the trigger is also called on rollback because transaction
+            // rollback will not undo the changes in the index maps
+            buff.append(trigger).
+                append(" AFTER INSERT, UPDATE, DELETE, ROLLBACK ON ").
+                append(StringUtils.quoteIdentifier(schema)).
+                append('.').
+                append(StringUtils.quoteIdentifier(table)).
+                append(" FOR EACH ROW CALL \"").
+                append(FullTextMVStore.FullTextTrigger.class.getName()).
+                append('\"');
+            stat.execute(buff.toString());
+        }
+    }
+
+    /**
+     * Add the existing data to the index.
+     *
+     * @param conn the database connection
+     * @param schema the schema name
+     * @param table the table name
+     */
+    protected static void indexExistingRows(Connection conn, String schema,
+            String table) throws SQLException {
+        FullTextMVStore.FullTextTrigger existing =
+                new FullTextMVStore.FullTextTrigger();
+        existing.init(conn, schema, null, table, false, Trigger.INSERT);
+        String sql = "SELECT * FROM " + StringUtils.quoteIdentifier(schema) +
+                "." + StringUtils.quoteIdentifier(table);
+        ResultSet rs = conn.createStatement().executeQuery(sql);
+        int columnCount = rs.getMetaData().getColumnCount();
+        while (rs.next()) {
+            Object[] row = new Object[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                row[i] = rs.getObject(i + 1);
+            }
+            existing.insert(row);
+        }
+    }
+
+    /**
+     * Get the index maps for the given connection.
+     *
+     * @param conn the connection
+     * @return the index maps
+     */
+    protected static IndexStore getIndexStore(Connection conn)
+            throws SQLException {
+        String path = FullTextSettings.getIndexPath(conn);
+        synchronized (INDEX_STORES) {
+            IndexStore s = INDEX_STORES.get(path);
+            if (s == null || s.store.isClosed()) {
+                Session session = (Session) ((JdbcConnection) conn).getSession();
+                Database db = session.getDatabase();
+                MVTableEngine.Store mvStore = db.getMvStore();
+                if (mvStore != null) {
+                    s = new IndexStore(mvStore.getStore(), false);
+                } else if (!db.isPersistent()) {
+                    s = new IndexStore(new MVStore.Builder().open(), true);
+                } else {
+                    s = new IndexStore(new MVStore.Builder().
+                            fileName(path + FILE_SUFFIX).open(), true);
+                }
+                INDEX_STORES.put(path, s);
+            }
+            return s;
+        }
+    }
+
+    private static void removeIndexStore(Connection conn) throws SQLException {
+        String path = FullTextSettings.getIndexPath(conn);
+        synchronized (INDEX_STORES) {
+            IndexStore s = INDEX_STORES.remove(path);
+            if (s != null) {
+                s.remove();
+            }
+        }
+    }
+
+    private static void closeIndexStore(IndexStore s) {
+        synchronized (INDEX_STORES) {
+            INDEX_STORES.values().remove(s);
+            s.close();
+        }
+    }
+
+    /**
+     * Do the search.
+     *
+     * @param conn the database connection
+     * @param text the query
+     * @param limit the limit
+     * @param offset the offset
+     * @param data whether the raw data should be returned
+     * @return the result set
+     */
+    protected static ResultSet search(Connection conn, String text, int limit,
+            int offset, boolean data) throws SQLException {
+        SimpleResultSet result = createResultSet(data);
+        if (conn.getMetaData().getURL().startsWith("jdbc:columnlist:")) {
+            // this is just to query the result set columns
+            return result;
+        }
+        if (text == null || text.trim().length() == 0) {
+            return result;
+        }
+        IndexStore s = getIndexStore(conn);
+        HashMap<String, Integer> words = New.hashMap();
+        s.addWords(words, text);
+        ArrayList<Hit> hits = s.search(words.keySet());
+        if (hits.size() == 0) {
+            return result;
+        }
+        HashMap<Integer, String[]> indexes = New.hashMap();
+        ResultSet rs = conn.createStatement().executeQuery(
+                "SELECT ID, SCHEMA, TABLE FROM " + SCHEMA + ".INDEXES");
+        while (rs.next()) {
+            indexes.put(rs.getInt(1),
+                    new String[] { rs.getString(2), rs.getString(3) });
+        }
+        int rowCount = 0;
+        for (int i = offset, size = hits.size(); i < size; i++) {
+            Hit hit = hits.get(i);
+            String[] index = indexes.get(hit.indexId);
+            if (index == null) {
+                continue;
+            }
+            if (data) {
+                Object[][] columnData = parseKey(conn, hit.key);
+                result.addRow(
+                        index[0],
+                        index[1],
+                        columnData[0],
+                        columnData[1],
+                        hit.score);
+            } else {
+                String query = StringUtils.quoteIdentifier(index[0]) +
+                    "." + StringUtils.quoteIdentifier(index[1]) +
+                    " WHERE " + hit.key;
+                result.addRow(query, hit.score);
+            }
+            rowCount++;
+            if (limit > 0 && rowCount >= limit) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Trigger updates the index when a inserting, updating, or deleting a row.
+     */
+    public static class FullTextTrigger implements Trigger {
+
+        protected int indexId;
+        protected int[] keys;
+        protected int[] indexColumns;
+        protected String[] columns;
+        protected int[] columnTypes;
+        protected IndexStore indexStore;
+
+        /**
+         * INTERNAL
+         */
+        @Override
+        public void init(Connection conn, String schemaName, String triggerName,
+                String tableName, boolean before, int type) throws SQLException {
+            indexStore = getIndexStore(conn);
+            ArrayList<String> keyList = New.arrayList();
+            DatabaseMetaData meta = conn.getMetaData();
+            ResultSet rs = meta.getColumns(null,
+                    StringUtils.escapeMetaDataPattern(schemaName),
+                    StringUtils.escapeMetaDataPattern(tableName),
+                    null);
+            ArrayList<String> columnList = New.arrayList();
+            ArrayList<Integer> typeList = New.arrayList();
+            while (rs.next()) {
+                columnList.add(rs.getString("COLUMN_NAME"));
+                typeList.add(rs.getInt("DATA_TYPE"));
+            }
+            columns = new String[columnList.size()];
+            columnList.toArray(columns);
+            columnTypes = new int[typeList.size()];
+            for (int i = 0; i < columnTypes.length; i++) {
+                columnTypes[i] = typeList.get(i);
+            }
+            rs = meta.getPrimaryKeys(null,
+                    StringUtils.escapeMetaDataPattern(schemaName),
+                    tableName);
+            while (rs.next()) {
+                keyList.add(rs.getString("COLUMN_NAME"));
+            }
+            if (keyList.size() == 0) {
+                throw throwException("No primary key for table " + tableName);
+            }
+            ArrayList<String> indexList = New.arrayList();
+            PreparedStatement prep = conn.prepareStatement(
+                    "SELECT ID, COLUMNS FROM " + SCHEMA +
+                    ".INDEXES WHERE SCHEMA=? AND TABLE=?");
+            prep.setString(1, schemaName);
+            prep.setString(2, tableName);
+            rs = prep.executeQuery();
+            if (rs.next()) {
+                indexId = rs.getInt(1);
+                String cols = rs.getString(2);
+                if (cols != null) {
+                    for (String s : StringUtils.arraySplit(cols, ',', true)) {
+                        indexList.add(s);
+                    }
+                }
+            }
+            if (indexList.size() == 0) {
+                indexList.addAll(columnList);
+            }
+            keys = new int[keyList.size()];
+            setColumns(keys, keyList, columnList);
+            indexColumns = new int[indexList.size()];
+            setColumns(indexColumns, indexList, columnList);
+        }
+
+        /**
+         * INTERNAL
+         */
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow)
+                throws SQLException {
+            if (oldRow != null) {
+                if (newRow != null) {
+                    // update
+                    if (hasChanged(oldRow, newRow, indexColumns)) {
+                        delete(oldRow);
+                        insert(newRow);
+                    }
+                } else {
+                    // delete
+                    delete(oldRow);
+                }
+            } else if (newRow != null) {
+                // insert
+                insert(newRow);
+            }
+        }
+
+        /**
+         * INTERNAL
+         */
+        @Override
+        public void close() {
+            if (indexStore != null) {
+                closeIndexStore(indexStore);
+                indexStore = null;
+            }
+        }
+
+        /**
+         * INTERNAL
+         */
+        @Override
+        public void remove() {
+            // ignore
+        }
+
+        /**
+         * Add a row to the index.
+         *
+         * @param row the row
+         */
+        protected void insert(Object[] row) throws SQLException {
+            indexStore.addDocument(indexId, getKey(row), getWords(row));
+        }
+
+        /**
+         * Delete a row from the index.
+         *
+         * @param row the row
+         */
+        protected void delete(Object[] row) throws SQLException {
+            indexStore.removeDocument(indexId, getKey(row), getWords(row));
+        }
+
+        private HashMap<String, Integer> getWords(Object[] row)
+                throws SQLException {
+            HashMap<String, Integer> words = New.hashMap();
+            for (int idx : indexColumns) {
+                Object data = row[idx];
+                if (data != null) {
+                    indexStore.addWords(words, asString(data, columnTypes[idx]));
+                }
+            }
+            return words;
+        }
+
+        private String getKey(Object[] row) throws SQLException {
+            StatementBuilder buff = new StatementBuilder();
+            for (int columnIndex : keys) {
+                buff.appendExceptFirst(" AND ");
+                buff.append(StringUtils.quoteIdentifier(columns[columnIndex]));
+                Object o = row[columnIndex];
+                if (o == null) {
+                    buff.append(" IS NULL");
+                } else {
+                    buff.append('=').append(
+                            quoteSQL(o, columnTypes[columnIndex]));
+                }
+            }
+            return buff.toString();
+        }
+
+    }
+
+    /**
+     * A search result.
+     */
+    static class Hit {
+
+        /**
+         * The index id.
+         */
+        int indexId;
+
+        /**
+         * The primary key condition.
+         */
+        String key;
+
+        /**
+         * The document id.
+         */
+        long docId;
+
+        /**
+         * The relevance score.
+         */
+        float score;
+    }
+
+    /**
+     * A decoded posting list: document ids in ascending order, and the number
+     * of occurrences of the word in each document.
+     */
+    static class Postings {
+
+        /**
+         * The document ids.
+         */
+        long[] docIds = new long[4];
+
+        /**
+         * The word frequencies.
+         */
+        int[] freqs = new int[4];
+
+        /**
+         * The number of entries.
+         */
+        int size;
+
+        /**
+         * Add an entry.
+         *
+         * @param docId the document id
+         * @param freq the word frequency
+         */
+        void add(long docId, int freq) {
+            if (size == docIds.length) {
+                docIds = Arrays.copyOf(docIds, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docIds[size] = docId;
+            freqs[size++] = freq;
+        }
+
+        /**
+         * Decode a segment and append the entries.
+         *
+         * @param data the encoded segment
+         */
+        void read(byte[] data) {
+            ByteBuffer buff = ByteBuffer.wrap(data);
+            long docId = 0;
+            while (buff.hasRemaining()) {
+                docId += DataUtils.readVarLong(buff);
+                add(docId, DataUtils.readVarInt(buff));
+            }
+        }
+
+        /**
+         * Encode the entries: the difference to the previous document id,
+         * followed by the frequency, both as variable size numbers.
+         *
+         * @return the encoded segment
+         */
+        byte[] write() {
+            WriteBuffer buff = new WriteBuffer();
+            long last = 0;
+            for (int i = 0; i < size; i++) {
+                buff.putVarLong(docIds[i] - last);
+                buff.putVarInt(freqs[i]);
+                last = docIds[i];
+            }
+            ByteBuffer b = buff.getBuffer();
+            return Arrays.copyOf(b.array(), b.position());
+        }
+    }
+
+    /**
+     * The maps of the inverted index of a database. All indexed tables of a
+     * database share the same maps, so that the word statistics are global.
+     * <p>
+     * The posting list of a word is split into segments, each segment holds
+     * the postings of consecutive documents. A new document is added as a
+     * segment of its own, and the newest segments are merged as soon as they
+     * are at least as large as the one before. This keeps the number of
+     * segments per word logarithmic, and each posting is re-written only a
+     * logarithmic number of times. Postings of deleted documents are removed
+     * when merging.
+     */
+    static class IndexStore {
+
+        /**
+         * The store.
+         */
+        final MVStore store;
+
+        private final boolean ownStore;
+
+        /**
+         * The words. The value is the number of documents that contain the
+         * word, the next segment number, followed by the segment number and
+         * number of entries of each segment, oldest first.
+         */
+        private final MVMap<String, int[]> words;
+
+        /**
+         * The segments of the posting lists. The key is the word, a zero
+         * character, and the segment number.
+         */
+        private final MVMap<String, byte[]> postings;
+
+        /**
+         * The documents. The value is the index id, the primary key condition,
+         * the number of words in the document, and the distinct words (so
+         * that the document can be removed even if the row has changed).
+         */
+        private final MVMap<Long, Object[]> docs;
+
+        /**
+         * The document ids of each index id and primary key condition. There
+         * can be multiple documents per key while an update shifts the
+         * primary keys (for example ID = ID + 1): the new version of one row
+         * is added before the old version of the next row is removed.
+         */
+        private final MVMap<String, long[]> keys;
+
+        /**
+         * The next document id, the number of documents and the total number
+         * of words.
+         */
+        private final MVMap<String, Long> stats;
+
+        private final FullTextSettings setting = new FullTextSettings();
+
+        IndexStore(MVStore store, boolean ownStore) {
+            this.store = store;
+            this.ownStore = ownStore;
+            words = store.openMap("fulltext.words");
+            postings = store.openMap("fulltext.postings");
+            docs = store.openMap("fulltext.docs");
+            keys = store.openMap("fulltext.keys");
+            stats = store.openMap("fulltext.stats");
+        }
+
+        /**
+         * Add the words of the given text to the map, and count the number of
+         * occurrences.
+         *
+         * @param map the map of words and their frequency
+         * @param text the text
+         */
+        void addWords(HashMap<String, Integer> map, String text) {
+            StringTokenizer tokenizer = new StringTokenizer(text,
+                    setting.getWhitespaceChars());
+            while (tokenizer.hasMoreTokens()) {
+                String word = setting.convertWord(tokenizer.nextToken());
+                if (word != null) {
+                    Integer old = map.get(word);
+                    map.put(word, old == null ? 1 : old + 1);
+                }
+            }
+        }
+
+        /**
+         * Add a document.
+         *
+         * @param indexId the index id
+         * @param key the primary key condition
+         * @param wordMap the words and their frequency
+         */
+        synchronized void addDocument(int indexId, String key,
+                HashMap<String, Integer> wordMap) {
+            long docId = getStat("nextDocId");
+            stats.put("nextDocId", docId + 1);
+            int length = 0;
+            for (int freq : wordMap.values()) {
+                length += freq;
+            }
+            // the document needs to exist before merging the segments
+            String[] docWords = wordMap.keySet().toArray(
+                    new String[wordMap.size()]);
+            docs.put(docId, new Object[] { indexId, key, length, docWords });
+            for (Map.Entry<String, Integer> e : wordMap.entrySet()) {
+                addPosting(e.getKey(), docId, e.getValue());
+            }
+            String k = indexId + " " + key;
+            long[] ids = keys.get(k);
+            if (ids == null) {
+                ids = new long[] { docId };
+            } else {
+                ids = Arrays.copyOf(ids, ids.length + 1);
+                ids[ids.length - 1] = docId;
+            }
+            keys.put(k, ids);
+            stats.put("docCount", getStat("docCount") + 1);
+            stats.put("totalLength", getStat("totalLength") + length);
+        }
+
+        /**
+         * Remove the document of a row. If there are multiple documents for
+         * the primary key, one with the same words is removed; if they have
+         * the same words, it does not matter which one.
+         *
+         * @param indexId the index id
+         * @param key the primary key condition
+         * @param wordMap the words and their frequency in the row
+         */
+        synchronized void removeDocument(int indexId, String key,
+                HashMap<String, Integer> wordMap) {
+            long[] ids = keys.get(indexId + " " + key);
+            if (ids == null) {
+                return;
+            }
+            for (long docId : ids) {
+                Object[] doc = docs.get(docId);
+                if (doc != null && isSameDocument(doc, wordMap)) {
+                    removeDocument(docId);
+                    return;
+                }
+            }
+        }
+
+        private static boolean isSameDocument(Object[] doc,
+                HashMap<String, Integer> wordMap) {
+            String[] docWords = (String[]) doc[3];
+            if (docWords.length != wordMap.size()) {
+                return false;
+            }
+            int length = 0;
+            for (int freq : wordMap.values()) {
+                length += freq;
+            }
+            if (length != (Integer) doc[2]) {
+                return false;
+            }
+            for (String word : docWords) {
+                if (!wordMap.containsKey(word)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void removeDocument(long docId) {
+            Object[] doc = docs.remove(docId);
+            if (doc == null) {
+                return;
+            }
+            String k = doc[0] + " " + doc[1];
+            long[] ids = keys.get(k);
+            if (ids != null) {
+                long[] n = new long[ids.length];
+                int len = 0;
+                for (long id : ids) {
+                    if (id != docId) {
+                        n[len++] = id;
+                    }
+                }
+                if (len == 0) {
+                    keys.remove(k);
+                } else {
+                    keys.put(k, Arrays.copyOf(n, len));
+                }
+            }
+            // the words that were indexed, not the current words of the row
+            for (String word : (String[]) doc[3]) {
+                int[] w = words.get(word);
+                if (w == null) {
+                    continue;
+                }
+                if (w[0] <= 1) {
+                    // no document contains the word any longer
+                    for (int i = 2; i < w.length; i += 2) {
+                        postings.remove(word + '\0' + w[i]);
+                    }
+                    words.remove(word);
+                } else {
+                    w = Arrays.copyOf(w, w.length);
+                    w[0]--;
+                    words.put(word, w);
+                }
+            }
+            stats.put("docCount", getStat("docCount") - 1);
+            stats.put("totalLength",
+                    getStat("totalLength") - (Integer) doc[2]);
+        }
+
+        private void addPosting(String word, long docId, int freq) {
+            int[] w = words.get(word);
+            if (w == null) {
+                w = new int[2];
+            }
+            int segment = w[1];
+            Postings p = new Postings();
+            p.add(docId, freq);
+            postings.put(word + '\0' + segment, p.write());
+            int len = w.length;
+            w = Arrays.copyOf(w, len + 2);
+            w[0]++;
+            w[1]++;
+            w[len] = segment;
+            w[len + 1] = 1;
+            words.put(word, merge(word, w));
+        }
+
+        /**
+         * Merge the newest segments of a word while the newest segment is at
+         * least as large as the one before.
+         *
+         * @param word the word
+         * @param w the word entry
+         * @return the new word entry
+         */
+        private int[] merge(String word, int[] w) {
+            while (w.length >= 6 && w[w.length - 3] <= w[w.length - 1]) {
+                int len = w.length;
+                String olderKey = word + '\0' + w[len - 4];
+                String newerKey = word + '\0' + w[len - 2];
+                Postings all = new Postings();
+                all.read(postings.get(olderKey));
+                all.read(postings.get(newerKey));
+                Postings p = new Postings();
+                for (int i = 0; i < all.size; i++) {
+                    long docId = all.docIds[i];
+                    if (docs.containsKey(docId)) {
+                        p.add(docId, all.freqs[i]);
+                    }
+                }
+                postings.remove(newerKey);
+                len -= 2;
+                if (p.size == 0) {
+                    postings.remove(olderKey);
+                    len -= 2;
+                } else {
+                    postings.put(olderKey, p.write());
+                    w[len - 1] = p.size;
+                }
+                w = Arrays.copyOf(w, len);
+            }
+            return w;
+        }
+
+        private Postings readPostings(String word, int[] w) {
+            Postings p = new Postings();
+            for (int i = 2; i < w.length; i += 2) {
+                p.read(postings.get(word + '\0' + w[i]));
+            }
+            return p;
+        }
+
+        /**
+         * Find the documents that contain all words, and calculate the BM25
+         * score of each document.
+         *
+         * @param wordSet the words
+         * @return the hits, the highest score first
+         */
+        synchronized ArrayList<Hit> search(Set<String> wordSet) {
+            ArrayList<Hit> hits = New.arrayList();
+            int count = wordSet.size();
+            if (count == 0) {
+                return hits;
+            }
+            final HashMap<String, int[]> entries = New.hashMap();
+            for (String word : wordSet) {
+                int[] w = words.get(word);
+                if (w == null) {
+                    return hits;
+                }
+                entries.put(word, w);
+            }
+            // start with the least frequent word
+            String[] list = new String[count];
+            wordSet.toArray(list);
+            Arrays.sort(list, new Comparator<String>() {
+                @Override
+                public int compare(String a, String b) {
+                    int fa = entries.get(a)[0], fb = entries.get(b)[0];
+                    return fa < fb ? -1 : fa > fb ? 1 : 0;
+                }
+            });
+            long docCount = Math.max(1, getStat("docCount"));
+            double avgLength = Math.max(1.0,
+                    (double) getStat("totalLength") / docCount);
+            double[] idf = new double[count];
+            Postings[] lists = new Postings[count];
+            for (int i = 0; i < count; i++) {
+                int df = entries.get(list[i])[0];
+                idf[i] = Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+            }
+            // intersect the posting lists
+            long[] candidates = null;
+            int candidateCount = 0;
+            for (int i = 0; i < count; i++) {
+                Postings p = readPostings(list[i], entries.get(list[i]));
+                lists[i] = p;
+                if (candidates == null) {
+                    candidates = Arrays.copyOf(p.docIds, p.size);
+                    candidateCount = p.size;
+                    continue;
+                }
+                int n = 0;
+                for (int a = 0, b = 0; a < candidateCount && b < p.size;) {
+                    long x = candidates[a], y = p.docIds[b];
+                    if (x < y) {
+                        a++;
+                    } else if (x > y) {
+                        b++;
+                    } else {
+                        candidates[n++] = x;
+                        a++;
+                        b++;
+                    }
+                }
+                candidateCount = n;
+            }
+            int[] pos = new int[count];
+            for (int c = 0; c < candidateCount; c++) {
+                long docId = candidates[c];
+                Object[] doc = docs.get(docId);
+                if (doc == null) {
+                    // deleted
+                    continue;
+                }
+                int length = (Integer) doc[2];
+                double norm = K1 * (1 - B + B * length / avgLength);
+                double score = 0;
+                for (int i = 0; i < count; i++) {
+                    Postings p = lists[i];
+                    while (p.docIds[pos[i]] < docId) {
+                        pos[i]++;
+                    }
+                    int freq = p.freqs[pos[i]];
+                    score += idf[i] * freq * (K1 + 1) / (freq + norm);
+                }
+                Hit hit = new Hit();
+                hit.docId = docId;
+                hit.indexId = (Integer) doc[0];
+                hit.key = (String) doc[1];
+                hit.score = (float) score;
+                hits.add(hit);
+            }
+            Collections.sort(hits, new Comparator<Hit>() {
+                @Override
+                public int compare(Hit a, Hit b) {
+                    if (a.score != b.score) {
+                        return a.score > b.score ? -1 : 1;
+                    }
+                    return a.docId < b.docId ? -1 : a.docId > b.docId ? 1 : 0;
+                }
+            });
+            return hits;
+        }
+
+        private long getStat(String key) {
+            Long x = stats.get(key);
+            return x == null ? 0 : x;
+        }
+
+        /**
+         * Remove all entries.
+         */
+        synchronized void clear() {
+            words.clear();
+            postings.clear();
+            docs.clear();
+            keys.clear();
+            stats.clear();
+        }
+
+        /**
+         * Remove the maps, and close the store if it is not the database
+         * store.
+         */
+        synchronized void remove() {
+            store.removeMap(words);
+            store.removeMap(postings);
+            store.removeMap(docs);
+            store.removeMap(keys);
+            store.removeMap(stats);
+            close();
+        }
+
+        /**
+         * Close the store if it is not the database store.
+         */
+        void close() {
+            if (ownStore && !store.isClosed()) {
+                store.close();
+            }
+        }
+    }
+
+}
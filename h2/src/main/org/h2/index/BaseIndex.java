@@ -17,12 +17,14 @@ import org.h2.result.SearchRow;
 import org.h2.result.SortOrder;
 import org.h2.schema.SchemaObjectBase;
 import org.h2.table.Column;
+import org.h2.table.Histogram;
 import org.h2.table.IndexColumn;
 import org.h2.table.Table;
 import org.h2.table.TableFilter;
 import org.h2.util.MathUtils;
 import org.h2.util.StatementBuilder;
 import org.h2.util.StringUtils;
+import org.h2.value.CompareMode;
 import org.h2.value.Value;
 import org.h2.value.ValueNull;
 
@@ -37,6 +39,7 @@ public abstract class BaseIndex extends SchemaObjectBase implements Index {
     protected Table table;
     protected IndexType indexType;
     protected boolean isMultiVersion;
+    private int[] columnGroupSelectivity;
 
     /**
      * Initialize the base index.
@@ -143,6 +146,72 @@ public abstract class BaseIndex extends SchemaObjectBase implements Index {
         throw DbException.throwInternalError();
     }
 
+    /**
+     * Estimate the fraction of the rows that match the equality condition on
+     * the given column, using the histogram of the column. This is only
+     * possible if the value is a constant that occurs very often.
+     *
+     * @param column the column
+     * @param filter the table filter
+     * @return the fraction, or -1 if not known
+     */
+    private double getEqualityFraction(Column column, TableFilter filter) {
+        Histogram histogram = column.getHistogram();
+        if (histogram == null || filter == null) {
+            return -1;
+        }
+        for (IndexCondition c : filter.getIndexConditionsForColumn(column)) {
+            if (c.isEquality(true)) {
+                Value v = c.getCurrentValue(filter.getSession());
+                if (v.getType() == column.getType()) {
+                    return histogram.getEqualityFraction(v,
+                            database.getCompareMode());
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Estimate the fraction of the rows that match the range conditions on
+     * the given column, using the histogram of the column. This is only
+     * possible if all range conditions compare with constants.
+     *
+     * @param column the column
+     * @param filter the table filter
+     * @return the fraction, or -1 if not known
+     */
+    private double getRangeFraction(Column column, TableFilter filter) {
+        Histogram histogram = column.getHistogram();
+        if (histogram == null || filter == null) {
+            return -1;
+        }
+        Value start = null, end = null;
+        CompareMode compareMode = database.getCompareMode();
+        for (IndexCondition c : filter.getIndexConditionsForColumn(column)) {
+            boolean isStart = c.isStart(), isEnd = c.isEnd();
+            if (!isStart && !isEnd) {
+                continue;
+            }
+            if (!c.isConstant()) {
+                return -1;
+            }
+            Value v = c.getCurrentValue(filter.getSession());
+            if (v.getType() != column.getType()) {
+                return -1;
+            }
+            if (isStart && (start == null ||
+                    v.compareTo(start, compareMode) > 0)) {
+                start = v;
+            }
+            if (isEnd && (end == null ||
+                    v.compareTo(end, compareMode) < 0)) {
+                end = v;
+            }
+        }
+        return histogram.getRangeFraction(start, end, compareMode);
+    }
+
     /**
      * Calculate the cost for the given mask as if this index was a typical
      * b-tree range index. This is the estimated cost required to search one
@@ -172,22 +241,37 @@ public abstract class BaseIndex extends SchemaObjectBase implements Index {
                     cost = 3;
                     break;
                 }
-                totalSelectivity = 100 - ((100 - totalSelectivity) *
-                        (100 - column.getSelectivity()) / 100);
+                if (i > 0 && columnGroupSelectivity != null &&
+                        i < columnGroupSelectivity.length) {
+                    // the columns are often correlated
+                    totalSelectivity = columnGroupSelectivity[i];
+                } else {
+                    totalSelectivity = 100 - ((100 - totalSelectivity) *
+                            (100 - column.getSelectivity()) / 100);
+                }
                 long distinctRows = rowCount * totalSelectivity / 100;
                 if (distinctRows <= 0) {
                     distinctRows = 1;
                 }
                 rows = Math.max(rowCount / distinctRows, 1);
+                if (i == 0) {
+                    double fraction = getEqualityFraction(column, filter);
+                    if (fraction >= 0) {
+                        rows = Math.max((long) (rowCount * fraction), 1);
+                    }
+                }
                 cost = 2 + rows;
             } else if ((mask & IndexCondition.RANGE) == IndexCondition.RANGE) {
-                cost = 2 + rows / 4;
+                double fraction = getRangeFraction(column, filter);
+                cost = 2 + (fraction >= 0 ? (long) (rows * fraction) : rows / 4);
                 break;
             } else if ((mask & IndexCondition.START) == IndexCondition.START) {
-                cost = 2 + rows / 3;
+                double fraction = getRangeFraction(column, filter);
+                cost = 2 + (fraction >= 0 ? (long) (rows * fraction) : rows / 3);
                 break;
             } else if ((mask & IndexCondition.END) == IndexCondition.END) {
-                cost = rows / 3;
+                double fraction = getRangeFraction(column, filter);
+                cost = fraction >= 0 ? 2 + (long) (rows * fraction) : rows / 3;
                 break;
             } else {
                 break;
@@ -360,6 +444,16 @@ public abstract class BaseIndex extends SchemaObjectBase implements Index {
             buff.append(" COMMENT ").append(StringUtils.quoteStringSQL(comment));
         }
         buff.append('(').append(getColumnListSQL()).append(')');
+        if (columnGroupSelectivity != null) {
+            buff.append(" SELECTIVITY(");
+            for (int i = 0; i < columnGroupSelectivity.length; i++) {
+                if (i > 0) {
+                    buff.append(", ");
+                }
+                buff.append(columnGroupSelectivity[i]);
+            }
+            buff.append(')');
+        }
         return buff.toString();
     }
 
@@ -427,4 +521,14 @@ public abstract class BaseIndex extends SchemaObjectBase implements Index {
         // ignore
     }
 
+    @Override
+    public int[] getColumnGroupSelectivity() {
+        return columnGroupSelectivity;
+    }
+
+    @Override
+    public void setColumnGroupSelectivity(int[] selectivity) {
+        this.columnGroupSelectivity = selectivity;
+    }
+
 }
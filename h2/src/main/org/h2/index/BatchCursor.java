@@ -0,0 +1,26 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.index;
+
+import org.h2.result.Row;
+
+/**
+ * A cursor that can return a block of rows at once, so that conditions can be
+ * evaluated for the whole block.
+ */
+public interface BatchCursor extends Cursor {
+
+    /**
+     * Read the next rows. Less rows than the length of the array may be
+     * returned even if there are more rows. Only if no rows are returned,
+     * the cursor is at the end, and must not be used any more.
+     *
+     * @param rows the array to fill
+     * @return the number of rows read
+     */
+    int nextBatch(Row[] rows);
+
+}
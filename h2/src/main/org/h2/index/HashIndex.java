@@ -14,7 +14,7 @@ import org.h2.table.Column;
 import org.h2.table.IndexColumn;
 import org.h2.table.RegularTable;
 import org.h2.table.TableFilter;
-import org.h2.util.ValueHashMap;
+import org.h2.util.TypedValueHashMap;
 import org.h2.value.Value;
 
 /**
@@ -28,7 +28,7 @@ public class HashIndex extends BaseIndex {
     private final int indexColumn;
 
     private final RegularTable tableData;
-    private ValueHashMap<Long> rows;
+    private TypedValueHashMap<Long> rows;
 
     public HashIndex(RegularTable table, int id, String indexName,
             IndexColumn[] columns, IndexType indexType) {
@@ -39,7 +39,8 @@ public class HashIndex extends BaseIndex {
     }
 
     private void reset() {
-        rows = ValueHashMap.newInstance();
+        rows = TypedValueHashMap.newInstance(
+                tableData.getColumn(indexColumn).getType());
     }
 
     @Override
@@ -73,7 +74,7 @@ public class HashIndex extends BaseIndex {
         /*
          * Sometimes the incoming search is a similar, but not the same type
          * e.g. the search value is INT, but the index column is LONG. In which
-         * case we need to convert, otherwise the ValueHashMap will not find the
+         * case we need to convert, otherwise the hash map will not find the
          * result.
          */
         v = v.convertTo(tableData.getColumn(indexColumn).getType());
@@ -256,4 +256,20 @@ public interface Index extends SchemaObject {
      */
     void setSortedInsertMode(boolean sortedInsertMode);
 
+    /**
+     * Get the selectivity of the leading columns of this index, as calculated
+     * by ANALYZE. Entry i is the selectivity of the first i + 1 columns
+     * combined.
+     *
+     * @return the selectivity per column group, or null if not known
+     */
+    int[] getColumnGroupSelectivity();
+
+    /**
+     * Set the selectivity of the leading columns of this index.
+     *
+     * @param selectivity the selectivity per column group, or null
+     */
+    void setColumnGroupSelectivity(int[] selectivity);
+
 }
@@ -349,6 +349,16 @@ public class IndexCondition {
         }
     }
 
+    /**
+     * Check if the value of this condition is a constant (and not for example
+     * a parameter, or a column of another table).
+     *
+     * @return true if it is a constant
+     */
+    public boolean isConstant() {
+        return expression != null && expression.isConstant();
+    }
+
     public int getCompareType() {
         return compareType;
     }
@@ -362,6 +372,27 @@ public class IndexCondition {
         return column;
     }
 
+    /**
+     * Check if all expressions of this condition match the given visitor.
+     *
+     * @param visitor the visitor
+     * @return if the criteria can be fulfilled
+     */
+    public boolean isEverything(ExpressionVisitor visitor) {
+        if (expression != null) {
+            return expression.isEverything(visitor);
+        }
+        if (expressionList != null) {
+            for (Expression e : expressionList) {
+                if (!e.isEverything(visitor)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return expressionQuery.isEverything(visitor);
+    }
+
     /**
      * Check if the expression can be evaluated.
      *
@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import org.h2.engine.Session;
 import org.h2.expression.Comparison;
+import org.h2.expression.Expression;
 import org.h2.message.DbException;
 import org.h2.result.ResultInterface;
 import org.h2.result.Row;
@@ -30,7 +31,7 @@ import org.h2.value.ValueNull;
  * @author Noel Grandin
  * @author Nicolas Fortin, Atelier SIG, IRSTV FR CNRS 24888
  */
-public class IndexCursor implements Cursor {
+public class IndexCursor implements BatchCursor {
 
     private Session session;
     private final TableFilter tableFilter;
@@ -46,6 +47,7 @@ public class IndexCursor implements Cursor {
     private Value[] inList;
     private ResultInterface inResult;
     private HashSet<Value> inResultTested;
+    private Expression nearest;
 
     public IndexCursor(TableFilter filter) {
         this.tableFilter = filter;
@@ -67,6 +69,16 @@ public class IndexCursor implements Cursor {
         }
     }
 
+    /**
+     * Read the rows nearest first from a spatial index, instead of using the
+     * index conditions.
+     *
+     * @param nearest the geometry, or null to use the index conditions
+     */
+    public void setNearest(Expression nearest) {
+        this.nearest = nearest;
+    }
+
     /**
      * Re-evaluate the start and end values of the index search for rows.
      *
@@ -82,6 +94,13 @@ public class IndexCursor implements Cursor {
         inResult = null;
         inResultTested = null;
         intersects = null;
+        if (nearest != null && index instanceof SpatialIndex) {
+            // the rows are read nearest first;
+            // the conditions are checked by the filter
+            cursor = ((SpatialIndex) index).findNearest(tableFilter,
+                    nearest.getValue(s));
+            return;
+        }
         // don't use enhanced for loop to avoid creating objects
         for (int i = 0, size = indexConditions.size(); i < size; i++) {
             IndexCondition condition = indexConditions.get(i);
@@ -281,6 +300,37 @@ public class IndexCursor implements Cursor {
         }
     }
 
+    @Override
+    public int nextBatch(Row[] rows) {
+        while (true) {
+            if (cursor == null) {
+                nextCursor();
+                if (cursor == null) {
+                    return 0;
+                }
+            }
+            int count;
+            if (cursor instanceof BatchCursor) {
+                count = ((BatchCursor) cursor).nextBatch(rows);
+                if (count == 0) {
+                    cursor = null;
+                }
+            } else {
+                count = 0;
+                while (count < rows.length && cursor.next()) {
+                    rows[count++] = cursor.get();
+                }
+                if (count < rows.length) {
+                    // next() returned false
+                    cursor = null;
+                }
+            }
+            if (count > 0) {
+                return count;
+            }
+        }
+    }
+
     private void nextCursor() {
         if (inList != null) {
             while (inListIndex < inList.length) {
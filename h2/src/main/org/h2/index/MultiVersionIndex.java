@@ -387,4 +387,14 @@ public class MultiVersionIndex implements Index {
         delta.setSortedInsertMode(sortedInsertMode);
     }
 
+    @Override
+    public int[] getColumnGroupSelectivity() {
+        return base.getColumnGroupSelectivity();
+    }
+
+    @Override
+    public void setColumnGroupSelectivity(int[] selectivity) {
+        base.setColumnGroupSelectivity(selectivity);
+    }
+
 }
@@ -16,7 +16,7 @@ import org.h2.table.IndexColumn;
 import org.h2.table.RegularTable;
 import org.h2.table.TableFilter;
 import org.h2.util.New;
-import org.h2.util.ValueHashMap;
+import org.h2.util.TypedValueHashMap;
 import org.h2.value.Value;
 
 /**
@@ -30,7 +30,7 @@ public class NonUniqueHashIndex extends BaseIndex {
      * The index of the indexed column.
      */
     private final int indexColumn;
-    private ValueHashMap<ArrayList<Long>> rows;
+    private TypedValueHashMap<ArrayList<Long>> rows;
     private final RegularTable tableData;
     private long rowCount;
 
@@ -43,7 +43,8 @@ public class NonUniqueHashIndex extends BaseIndex {
     }
 
     private void reset() {
-        rows = ValueHashMap.newInstance();
+        rows = TypedValueHashMap.newInstance(
+                tableData.getColumn(indexColumn).getType());
         rowCount = 0;
     }
 
@@ -96,7 +97,7 @@ public class NonUniqueHashIndex extends BaseIndex {
         /*
          * Sometimes the incoming search is a similar, but not the same type
          * e.g. the search value is INT, but the index column is LONG. In which
-         * case we need to convert, otherwise the ValueHashMap will not find the
+         * case we need to convert, otherwise the hash map will not find the
          * result.
          */
         v = v.convertTo(tableData.getColumn(indexColumn).getType());
@@ -14,7 +14,7 @@ import org.h2.result.SearchRow;
 /**
  * The cursor implementation for the page scan index.
  */
-class PageDataCursor implements Cursor {
+class PageDataCursor implements BatchCursor {
 
     private PageDataLeaf current;
     private int idx;
@@ -23,6 +23,7 @@ class PageDataCursor implements Cursor {
     private final boolean multiVersion;
     private final Session session;
     private Iterator<Row> delta;
+    private int leafCount, readAheadRemaining;
 
     PageDataCursor(Session session, PageDataLeaf current, int idx, long maxKey,
             boolean multiVersion) {
@@ -90,6 +91,10 @@ class PageDataCursor implements Cursor {
     }
 
     private void nextRow() {
+        if (current == null) {
+            row = null;
+            return;
+        }
         if (idx >= current.getEntryCount()) {
             current = current.getNextPage();
             idx = 0;
@@ -97,11 +102,33 @@ class PageDataCursor implements Cursor {
                 row = null;
                 return;
             }
+            readAhead();
         }
         row = current.getRowAt(idx);
         idx++;
     }
 
+    /**
+     * Read the next leaf pages in the background if the cursor already
+     * scanned a few pages, as it will then probably continue.
+     */
+    private void readAhead() {
+        int pages = current.index.getPageStore().getReadAheadPages();
+        if (pages > 0 && ++leafCount > 1 &&
+                --readAheadRemaining <= pages / 2) {
+            readAheadRemaining = current.readAhead(pages);
+        }
+    }
+
+    @Override
+    public int nextBatch(Row[] rows) {
+        int count = 0;
+        while (count < rows.length && next()) {
+            rows[count++] = row;
+        }
+        return count;
+    }
+
     @Override
     public boolean previous() {
         throw DbException.throwInternalError();
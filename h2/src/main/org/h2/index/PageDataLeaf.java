@@ -399,6 +399,20 @@ public class PageDataLeaf extends PageData {
         return next.getNextPage(keys[entryCount - 1]);
     }
 
+    /**
+     * Read the leaf pages after this page in the background.
+     *
+     * @param count the maximum number of pages
+     * @return the number of pages that are read
+     */
+    int readAhead(int count) {
+        if (parentPageId == PageData.ROOT || entryCount == 0) {
+            return 0;
+        }
+        PageDataNode next = (PageDataNode) index.getPage(parentPageId, -1);
+        return next.readAhead(keys[entryCount - 1], count);
+    }
+
     @Override
     PageDataLeaf getFirstLeaf() {
         return this;
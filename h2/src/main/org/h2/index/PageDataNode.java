@@ -233,6 +233,25 @@ public class PageDataNode extends PageData {
         return page.getFirstLeaf();
     }
 
+    /**
+     * Read the child pages after the given key in the background.
+     *
+     * @param key the last key of the current child page
+     * @param count the maximum number of pages
+     * @return the number of pages that are read
+     */
+    int readAhead(long key, int count) {
+        int i = find(key) + 1;
+        int len = Math.min(count, entryCount + 1 - i);
+        if (len <= 0) {
+            return 0;
+        }
+        int[] pageIds = new int[len];
+        System.arraycopy(childPageIds, i, pageIds, 0, len);
+        index.getPageStore().readAhead(pageIds);
+        return len;
+    }
+
     @Override
     PageDataLeaf getFirstLeaf() {
         int child = childPageIds[0];
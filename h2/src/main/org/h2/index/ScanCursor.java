@@ -14,12 +14,13 @@ import org.h2.result.SearchRow;
 /**
  * The cursor implementation for the scan index.
  */
-public class ScanCursor implements Cursor {
+public class ScanCursor implements BatchCursor {
     private final ScanIndex scan;
     private Row row;
     private final Session session;
     private final boolean multiVersion;
     private Iterator<Row> delta;
+    private boolean afterLast;
 
     ScanCursor(Session session, ScanIndex scan, boolean multiVersion) {
         this.session = session;
@@ -70,6 +71,20 @@ public class ScanCursor implements Cursor {
         return row != null;
     }
 
+    @Override
+    public int nextBatch(Row[] rows) {
+        int count = 0;
+        while (count < rows.length && !afterLast) {
+            if (!next()) {
+                // next() would start again at the first row
+                afterLast = true;
+                break;
+            }
+            rows[count++] = row;
+        }
+        return count;
+    }
+
     @Override
     public boolean previous() {
         throw DbException.throwInternalError();
@@ -7,6 +7,7 @@ package org.h2.index;
 
 import org.h2.result.SearchRow;
 import org.h2.table.TableFilter;
+import org.h2.value.Value;
 
 /**
  * A spatial index. Spatial indexes are used to speed up searching
@@ -26,4 +27,15 @@ public interface SpatialIndex extends Index {
      */
     Cursor findByGeometry(TableFilter filter, SearchRow intersection);
 
+    /**
+     * Create a cursor that returns the rows nearest first, that is in the
+     * order of the distance between the bounding box of the indexed geometry
+     * and the bounding box of the given geometry.
+     *
+     * @param filter the table filter
+     * @param geometry the geometry, or NULL to return the rows in any order
+     * @return the cursor to iterate over the results
+     */
+    Cursor findNearest(TableFilter filter, Value geometry);
+
 }
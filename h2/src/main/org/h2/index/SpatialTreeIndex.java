@@ -5,7 +5,9 @@
  */
 package org.h2.index;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import org.h2.engine.Constants;
 import org.h2.engine.Session;
@@ -21,8 +23,10 @@ import org.h2.table.Column;
 import org.h2.table.IndexColumn;
 import org.h2.table.Table;
 import org.h2.table.TableFilter;
+import org.h2.util.New;
 import org.h2.value.Value;
 import org.h2.value.ValueGeometry;
+import org.h2.value.ValueNull;
 
 import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
@@ -125,14 +129,49 @@ public class SpatialTreeIndex extends BaseIndex implements SpatialIndex {
         if (closed) {
             throw DbException.throwInternalError();
         }
-        treeMap.add(getEnvelope(row), row.getKey());
+        treeMap.add(getKey(row), row.getKey());
     }
 
-    private SpatialKey getEnvelope(SearchRow row) {
-        Value v = row.getValue(columnIds[0]);
+    /**
+     * Add the keys of all rows to the index. If the index is empty, the tree
+     * is built bottom-up, which is faster than adding the rows one at a time.
+     *
+     * @param session the session
+     * @param keys the keys
+     */
+    public void addAll(Session session, List<SpatialKey> keys) {
+        if (closed) {
+            throw DbException.throwInternalError();
+        }
+        ArrayList<Long> values = New.arrayList(keys.size());
+        for (SpatialKey k : keys) {
+            values.add(k.getId());
+        }
+        treeMap.addAll(keys, values);
+    }
+
+    /**
+     * Get the key (the bounding box and the row key) of the given row.
+     *
+     * @param row the row
+     * @return the key
+     */
+    public SpatialKey getKey(SearchRow row) {
+        return getKey(row.getKey(), row.getValue(columnIds[0]));
+    }
+
+    /**
+     * Get the key for a geometry. The bounding box is stored with single
+     * precision.
+     *
+     * @param id the row key
+     * @param v the geometry
+     * @return the key
+     */
+    public static SpatialKey getKey(long id, Value v) {
         Geometry g = ((ValueGeometry) v.convertTo(Value.GEOMETRY)).getGeometryNoCopy();
         Envelope env = g.getEnvelopeInternal();
-        return new SpatialKey(row.getKey(),
+        return new SpatialKey(id,
                 (float) env.getMinX(), (float) env.getMaxX(),
                 (float) env.getMinY(), (float) env.getMaxY());
     }
@@ -142,7 +181,7 @@ public class SpatialTreeIndex extends BaseIndex implements SpatialIndex {
         if (closed) {
             throw DbException.throwInternalError();
         }
-        if (!treeMap.remove(getEnvelope(row), row.getKey())) {
+        if (!treeMap.remove(getKey(row), row.getKey())) {
             throw DbException.throwInternalError("row not found");
         }
     }
@@ -167,7 +206,17 @@ public class SpatialTreeIndex extends BaseIndex implements SpatialIndex {
             return find(filter.getSession());
         }
         return new SpatialCursor(
-                treeMap.findIntersectingKeys(getEnvelope(intersection)), table,
+                treeMap.findIntersectingKeys(getKey(intersection)), table,
+                filter.getSession());
+    }
+
+    @Override
+    public Cursor findNearest(TableFilter filter, Value geometry) {
+        if (geometry == ValueNull.INSTANCE) {
+            return find(filter.getSession());
+        }
+        return new SpatialCursor(
+                treeMap.findNearestKeys(getKey(0, geometry)), table,
                 filter.getSession());
     }
 
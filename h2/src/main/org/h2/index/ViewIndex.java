@@ -182,6 +182,11 @@ public class ViewIndex extends BaseIndex implements SpatialIndex {
         return find(filter.getSession(), null, null, intersection);
     }
 
+    @Override
+    public Cursor findNearest(TableFilter filter, Value geometry) {
+        throw DbException.getUnsupportedException("VIEW");
+    }
+
     private Cursor find(Session session, SearchRow first, SearchRow last,
             SearchRow intersection) {
         if (recursive) {
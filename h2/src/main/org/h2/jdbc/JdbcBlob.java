@@ -89,9 +89,8 @@ public class JdbcBlob extends TraceObject implements Blob {
             }
             checkClosed();
             ByteArrayOutputStream out = new ByteArrayOutputStream();
-            InputStream in = value.getInputStream();
+            InputStream in = value.getInputStream(pos - 1, length);
             try {
-                IOUtils.skipFully(in, pos - 1);
                 IOUtils.copy(in, out, length);
             } finally {
                 in.close();
@@ -308,15 +307,30 @@ public class JdbcBlob extends TraceObject implements Blob {
     }
 
     /**
-     * [Not supported] Returns the input stream, starting from an offset.
+     * Returns the input stream, starting from an offset. The data before the
+     * offset is not read.
      *
-     * @param pos where to start reading
+     * @param pos where to start reading (the first byte is at position 1)
      * @param length the number of bytes that will be read
      * @return the input stream to read
      */
     @Override
     public InputStream getBinaryStream(long pos, long length) throws SQLException {
-        throw unsupported("LOB update");
+        try {
+            if (isDebugEnabled()) {
+                debugCode("getBinaryStream(" + pos + ", " + length + ");");
+            }
+            checkClosed();
+            if (pos < 1) {
+                throw DbException.getInvalidValueException("pos", pos);
+            }
+            if (length < 0 || pos - 1 + length > length()) {
+                throw DbException.getInvalidValueException("length", length);
+            }
+            return value.getInputStream(pos - 1, length);
+        } catch (Exception e) {
+            throw logAndConvert(e);
+        }
     }
 
     private void checkClosed() {
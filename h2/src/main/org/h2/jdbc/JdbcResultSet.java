@@ -3187,6 +3187,18 @@ public class JdbcResultSet extends TraceObject implements ResultSet {
         }
     }
 
+    /**
+     * INTERNAL
+     */
+    public Value getValue(int columnIndex) throws SQLException {
+        try {
+            checkClosed();
+            return get(columnIndex);
+        } catch (Exception e) {
+            throw logAndConvert(e);
+        }
+    }
+
     private Value get(int columnIndex) {
         checkColumnIndex(columnIndex);
         checkOnValidRow();
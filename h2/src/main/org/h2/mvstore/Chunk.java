@@ -107,6 +107,12 @@ public class Chunk {
      */
     public long next;
 
+    /**
+     * The version of the store when the chunk was last moved to another
+     * position in the file, or 0 if it was never moved.
+     */
+    public long moved;
+
     Chunk(int id) {
         this.id = id;
     }
@@ -150,7 +156,7 @@ public class Chunk {
      */
     void writeChunkHeader(WriteBuffer buff, int minLength) {
         long pos = buff.position();
-        buff.put(asString().getBytes(DataUtils.LATIN));
+        buff.put(asString(false).getBytes(DataUtils.LATIN));
         while (buff.position() - pos < minLength - 1) {
             buff.put((byte) ' ');
         }
@@ -194,6 +200,7 @@ public class Chunk {
         c.unused = DataUtils.readHexLong(map, "unused", 0);
         c.version = DataUtils.readHexLong(map, "version", id);
         c.next = DataUtils.readHexLong(map, "next", 0);
+        c.moved = DataUtils.readHexLong(map, "moved", 0);
         return c;
     }
 
@@ -227,6 +234,18 @@ public class Chunk {
      * @return the string
      */
     public String asString() {
+        return asString(true);
+    }
+
+    /**
+     * Get the chunk data as a string. The version of the last move is only
+     * stored in the metadata, and not in the chunk header, as the header is
+     * re-written with the same length when the chunk is moved.
+     *
+     * @param withMoved whether to include the version of the last move
+     * @return the string
+     */
+    private String asString(boolean withMoved) {
         StringBuilder buff = new StringBuilder();
         DataUtils.appendMap(buff, "chunk", id);
         DataUtils.appendMap(buff, "block", block);
@@ -239,6 +258,9 @@ public class Chunk {
         }
         DataUtils.appendMap(buff, "map", mapId);
         DataUtils.appendMap(buff, "max", maxLen);
+        if (withMoved && moved != 0) {
+            DataUtils.appendMap(buff, "moved", moved);
+        }
         if (next != 0) {
             DataUtils.appendMap(buff, "next", next);
         }
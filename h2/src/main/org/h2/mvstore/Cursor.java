@@ -5,6 +5,7 @@
  */
 package org.h2.mvstore;
 
+import java.util.Arrays;
 import java.util.Iterator;
 
 /**
@@ -23,6 +24,9 @@ public class Cursor<K, V> implements Iterator<K> {
     private Page lastPage;
     private final Page root;
     private boolean initialized;
+    private int childCount;
+    private Page readAheadPage;
+    private int readAheadIndex;
 
     Cursor(MVMap<K, ?> map, Page root, K from) {
         this.map = map;
@@ -147,10 +151,43 @@ public class Cursor<K, V> implements Iterator<K> {
                 break;
             }
             if (pos.index < map.getChildPageCount(pos.page)) {
+                readAhead(pos.page, pos.index);
                 min(pos.page.getChildPage(pos.index++), null);
             }
         }
         current = null;
     }
 
+    /**
+     * Read the next child pages in the background if the cursor already
+     * iterated over a few pages, as it will then probably continue.
+     *
+     * @param p the parent page
+     * @param index the index of the child page that is read next
+     */
+    private void readAhead(Page p, int index) {
+        int pages = map.store.getReadAheadPages();
+        if (pages <= 0 || ++childCount < 2) {
+            return;
+        }
+        if (p == readAheadPage && index + pages / 2 < readAheadIndex) {
+            return;
+        }
+        int end = Math.min(index + 1 + pages, map.getChildPageCount(p));
+        readAheadPage = p;
+        readAheadIndex = end;
+        long[] positions = new long[end - index - 1];
+        int len = 0;
+        for (int i = index + 1; i < end; i++) {
+            long childPos = p.getChildPagePos(i);
+            // pages that were not stored yet have position 0
+            if (childPos != 0) {
+                positions[len++] = childPos;
+            }
+        }
+        if (len > 0) {
+            map.store.readAhead(map, Arrays.copyOf(positions, len));
+        }
+    }
+
 }
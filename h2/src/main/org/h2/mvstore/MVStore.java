@@ -27,6 +27,7 @@ import org.h2.mvstore.type.StringDataType;
 import org.h2.mvstore.Page.PageChildren;
 import org.h2.util.MathUtils;
 import org.h2.util.New;
+import org.h2.util.ReadAheadThread;
 
 /*
 
@@ -133,7 +134,7 @@ public class MVStore {
      * The block size (physical sector size) of the disk. The store header is
      * written twice, one copy in each block, to ensure it survives a crash.
      */
-    static final int BLOCK_SIZE = 4 * 1024;
+    public static final int BLOCK_SIZE = 4 * 1024;
 
     private static final int FORMAT_WRITE = 1;
     private static final int FORMAT_READ = 1;
@@ -269,6 +270,12 @@ public class MVStore {
 
     private Object compactSync = new Object();
 
+    /**
+     * The number of pages to read ahead when iterating over a map, or 0.
+     */
+    private int readAheadPages;
+    private ReadAheadThread readAheadThread;
+
     private IllegalStateException panicException;
 
     /**
@@ -332,6 +339,13 @@ public class MVStore {
         o = config.get("autoCompactFillRate");
         autoCompactFillRate = o == null ? 50 : (Integer) o;
 
+        o = config.get("readAheadPages");
+        readAheadPages = o == null || cache == null ? 0 : (Integer) o;
+        if (readAheadPages > 0) {
+            readAheadThread = new ReadAheadThread(
+                    "MVStore read ahead " + fileName, 4);
+        }
+
         char[] encryptionKey = (char[]) config.get("encryptionKey");
         try {
             if (!fileStoreIsProvided) {
@@ -691,6 +705,10 @@ public class MVStore {
             }
             s = meta.get(s);
             Chunk c = Chunk.fromString(s);
+            if (c.id == lastChunk.id) {
+                // the version of the last move is not in the chunk header
+                lastChunk.moved = c.moved;
+            }
             if (!chunks.containsKey(c.id)) {
                 if (c.block == Long.MAX_VALUE) {
                     throw DataUtils.newIllegalStateException(
@@ -747,13 +765,17 @@ public class MVStore {
     }
 
     private void writeStoreHeader() {
-        StringBuilder buff = new StringBuilder();
         if (lastChunk != null) {
             storeHeader.put("block", lastChunk.block);
             storeHeader.put("chunk", lastChunk.id);
             storeHeader.put("version", lastChunk.version);
         }
-        DataUtils.appendMap(buff, storeHeader);
+        write(0, getStoreHeaderBlocks(storeHeader));
+    }
+
+    private static ByteBuffer getStoreHeaderBlocks(HashMap<String, Object> m) {
+        StringBuilder buff = new StringBuilder();
+        DataUtils.appendMap(buff, m);
         byte[] bytes = buff.toString().getBytes(DataUtils.LATIN);
         int checksum = DataUtils.getFletcher32(bytes, bytes.length);
         DataUtils.appendMap(buff, "fletcher", checksum);
@@ -764,7 +786,25 @@ public class MVStore {
         header.position(BLOCK_SIZE);
         header.put(bytes);
         header.rewind();
-        write(0, header);
+        return header;
+    }
+
+    /**
+     * Get the two store header blocks that point to the last stored chunk.
+     * Unlike the header in the file, which is not written for each chunk, it
+     * always matches the current list of chunks.
+     *
+     * @return the header blocks
+     */
+    public synchronized ByteBuffer getStoreHeaderBlocks() {
+        checkOpen();
+        HashMap<String, Object> m = new HashMap<String, Object>(storeHeader);
+        if (lastChunk != null) {
+            m.put("block", lastChunk.block);
+            m.put("chunk", lastChunk.id);
+            m.put("version", lastChunk.version);
+        }
+        return getStoreHeaderBlocks(m);
     }
 
     private void write(long pos, ByteBuffer buffer) {
@@ -1606,6 +1646,7 @@ public class MVStore {
             fileStore.free(start, length);
             c.block = end / BLOCK_SIZE;
             c.next = 0;
+            c.moved = currentVersion + 1;
             buff.position(0);
             c.writeChunkHeader(buff, chunkHeaderLen);
             buff.position(length - Chunk.FOOTER_LENGTH);
@@ -1644,6 +1685,7 @@ public class MVStore {
             fileStore.free(start, length);
             buff.position(0);
             c.block = pos / BLOCK_SIZE;
+            c.moved = currentVersion + 1;
             c.writeChunkHeader(buff, chunkHeaderLen);
             buff.position(length - Chunk.FOOTER_LENGTH);
             buff.put(lastChunk.getFooterBytes());
@@ -1847,6 +1889,41 @@ public class MVStore {
         return p;
     }
 
+    /**
+     * Get the number of pages to read ahead when iterating over a map.
+     *
+     * @return the number of pages, or 0 if read-ahead is disabled
+     */
+    int getReadAheadPages() {
+        return readAheadPages;
+    }
+
+    /**
+     * Read the given pages in the background, so that they are in the cache
+     * when they are needed.
+     *
+     * @param map the map the pages belong to
+     * @param positions the page positions
+     */
+    void readAhead(final MVMap<?, ?> map, final long[] positions) {
+        if (readAheadThread == null) {
+            return;
+        }
+        readAheadThread.submit(new Runnable() {
+            @Override
+            public void run() {
+                for (long pos : positions) {
+                    if (closed) {
+                        return;
+                    }
+                    if (!cache.containsKey(pos)) {
+                        readPage(map, pos);
+                    }
+                }
+            }
+        });
+    }
+
     /**
      * Remove a page.
      *
@@ -2266,6 +2343,33 @@ public class MVStore {
         return currentVersion;
     }
 
+    /**
+     * Get the chunks that were written or moved after the given version,
+     * sorted by position in the file. Together with the store header, those
+     * chunks are needed to bring a copy of the file of the given version up
+     * to date. Space must not be re-used while the chunks are copied (see
+     * setReuseSpace).
+     *
+     * @param version the version of the copy
+     * @return the list of chunks
+     */
+    public synchronized ArrayList<Chunk> getChunksSince(long version) {
+        checkOpen();
+        ArrayList<Chunk> list = New.arrayList();
+        for (Chunk c : chunks.values()) {
+            if (c.version > version || c.moved > version) {
+                list.add(c);
+            }
+        }
+        Collections.sort(list, new Comparator<Chunk>() {
+            @Override
+            public int compare(Chunk o1, Chunk o2) {
+                return Long.signum(o1.block - o2.block);
+            }
+        });
+        return list;
+    }
+
     /**
      * Get the file store.
      *
@@ -2701,6 +2805,17 @@ public class MVStore {
             return set("cacheSize", mb);
         }
 
+        /**
+         * Set the number of pages to read in the background when iterating
+         * over a map. The default is 0 (no read-ahead).
+         *
+         * @param pages the number of pages
+         * @return this
+         */
+        public Builder readAheadPages(int pages) {
+            return set("readAheadPages", pages);
+        }
+
         /**
          * Compress data before writing using the LZF algorithm. This will save
          * about 50% of the disk space, but will slow down read and write
@@ -16,6 +16,7 @@ import org.h2.engine.Constants;
 import org.h2.engine.Database;
 import org.h2.engine.Session;
 import org.h2.index.BaseIndex;
+import org.h2.index.BatchCursor;
 import org.h2.index.Cursor;
 import org.h2.index.IndexType;
 import org.h2.message.DbException;
@@ -374,7 +375,7 @@ public class MVPrimaryIndex extends BaseIndex {
     /**
      * A cursor.
      */
-    class MVStoreCursor implements Cursor {
+    class MVStoreCursor implements BatchCursor {
 
         private final Iterator<Entry<Value, Value>> it;
         private final ValueLong last;
@@ -413,6 +414,15 @@ public class MVPrimaryIndex extends BaseIndex {
             return current != null;
         }
 
+        @Override
+        public int nextBatch(Row[] rows) {
+            int count = 0;
+            while (count < rows.length && next()) {
+                rows[count++] = get();
+            }
+            return count;
+        }
+
         @Override
         public boolean previous() {
             throw DbException.getUnsupportedException("previous");
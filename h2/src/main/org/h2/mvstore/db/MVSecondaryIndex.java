@@ -8,6 +8,7 @@ package org.h2.mvstore.db;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.TreeSet;
@@ -337,7 +338,8 @@ public class MVSecondaryIndex extends BaseIndex implements MVIndex {
     SearchRow convertToSearchRow(ValueArray key) {
         Value[] array = key.getList();
         SearchRow searchRow = mvTable.getTemplateRow();
-        searchRow.setKey((array[array.length - 1]).getLong());
+        long k = array[array.length - 1].getLong();
+        searchRow.setKey(k);
         Column[] cols = getColumns();
         for (int i = 0; i < array.length - 1; i++) {
             Column c = cols[i];
@@ -345,9 +347,47 @@ public class MVSecondaryIndex extends BaseIndex implements MVIndex {
             Value v = array[i];
             searchRow.setValue(idx, v);
         }
+        int mainIndexColumn = getMainIndexColumn();
+        if (mainIndexColumn >= 0 && searchRow.getValue(mainIndexColumn) == null) {
+            // the primary key column is the row key
+            Column c = table.getColumn(mainIndexColumn);
+            searchRow.setValue(mainIndexColumn,
+                    ValueLong.get(k).convertTo(c.getType()));
+        }
         return searchRow;
     }
 
+    private int getMainIndexColumn() {
+        return ((MVPrimaryIndex) mvTable.getScanIndex(null)).getMainIndexColumn();
+    }
+
+    /**
+     * Check whether this index contains all columns of the table that are used
+     * by the query. In this case the rows don't need to be read from the
+     * primary index (index-only scan), as the table filter only reads the row
+     * if a column is missing in the search row.
+     *
+     * @param filter the table filter
+     * @return true if the index covers the query
+     */
+    private boolean isCovering(TableFilter filter) {
+        if (filter == null || filter.getSelect() == null) {
+            return false;
+        }
+        HashSet<Column> used = filter.getSelect().getUsedColumns();
+        if (used == null) {
+            return false;
+        }
+        int mainIndexColumn = getMainIndexColumn();
+        for (Column c : table.getColumns()) {
+            if (used.contains(c) && getColumnIndex(c) < 0 &&
+                    c.getColumnId() != mainIndexColumn) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public MVTable getTable() {
         return mvTable;
@@ -357,8 +397,16 @@ public class MVSecondaryIndex extends BaseIndex implements MVIndex {
     public double getCost(Session session, int[] masks, TableFilter filter,
             SortOrder sortOrder) {
         try {
-            return 10 * getCostRangeIndex(masks,
+            double cost = getCostRangeIndex(masks,
                     dataMap.sizeAsLongMax(), filter, sortOrder);
+            if (masks != null && masks[columns[0].getColumnId()] != 0 &&
+                    isCovering(filter)) {
+                // index-only lookup: no need to read the rows
+                // (full index scans are not preferred, to keep the plans
+                // of queries without conditions stable)
+                return 5 * cost;
+            }
+            return 10 * cost;
         } catch (IllegalStateException e) {
             throw DbException.get(ErrorCode.OBJECT_CLOSED, e);
         }
@@ -5,6 +5,7 @@
  */
 package org.h2.mvstore.db;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -29,12 +30,10 @@ import org.h2.result.SearchRow;
 import org.h2.result.SortOrder;
 import org.h2.table.IndexColumn;
 import org.h2.table.TableFilter;
+import org.h2.util.New;
 import org.h2.value.Value;
-import org.h2.value.ValueGeometry;
 import org.h2.value.ValueLong;
-
-import com.vividsolutions.jts.geom.Envelope;
-import com.vividsolutions.jts.geom.Geometry;
+import org.h2.value.ValueNull;
 
 /**
  * This is an index based on a MVRTreeMap.
@@ -161,16 +160,43 @@ public class MVSpatialIndex extends BaseIndex implements SpatialIndex, MVIndex {
         }
     }
 
-    private SpatialKey getKey(SearchRow r) {
+    /**
+     * Get the key (the bounding box and the row key) of the given row.
+     *
+     * @param r the row
+     * @return the key
+     */
+    public SpatialKey getKey(SearchRow r) {
         if (r == null) {
             return null;
         }
-        Value v = r.getValue(columnIds[0]);
-        Geometry g = ((ValueGeometry) v.convertTo(Value.GEOMETRY)).getGeometryNoCopy();
-        Envelope env = g.getEnvelopeInternal();
-        return new SpatialKey(r.getKey(),
-                (float) env.getMinX(), (float) env.getMaxX(),
-                (float) env.getMinY(), (float) env.getMaxY());
+        return SpatialTreeIndex.getKey(r.getKey(), r.getValue(columnIds[0]));
+    }
+
+    /**
+     * Add the keys of all rows to the index. If the index is empty, the tree
+     * is built bottom-up, which is faster than adding the rows one at a time.
+     *
+     * @param session the session
+     * @param keys the keys
+     */
+    public void addAll(Session session, List<SpatialKey> keys) {
+        if (!spatialMap.isEmpty()) {
+            TransactionMap<SpatialKey, Value> map = getMap(session);
+            for (SpatialKey k : keys) {
+                map.put(k, ValueLong.get(0));
+            }
+            return;
+        }
+        // the index is new and not visible to other sessions yet,
+        // so the entries are added as committed entries
+        ArrayList<VersionedValue> values = New.arrayList(keys.size());
+        VersionedValue v = new VersionedValue();
+        v.value = ValueLong.get(0);
+        for (int i = 0, size = keys.size(); i < size; i++) {
+            values.add(v);
+        }
+        spatialMap.addAll(keys, values);
     }
 
     @Override
@@ -213,22 +239,25 @@ public class MVSpatialIndex extends BaseIndex implements SpatialIndex, MVIndex {
             return find(session);
         }
         Iterator<SpatialKey> cursor =
-                spatialMap.findIntersectingKeys(getEnvelope(intersection));
+                spatialMap.findIntersectingKeys(getKey(intersection));
         TransactionMap<SpatialKey, Value> map = getMap(session);
         Iterator<SpatialKey> it = map.wrapIterator(cursor, false);
         return new MVStoreCursor(session, it);
     }
 
-    private SpatialKey getEnvelope(SearchRow row) {
-        Value v = row.getValue(columnIds[0]);
-        Geometry g = ((ValueGeometry) v.convertTo(Value.GEOMETRY)).getGeometryNoCopy();
-        Envelope env = g.getEnvelopeInternal();
-        return new SpatialKey(row.getKey(),
-                (float) env.getMinX(), (float) env.getMaxX(),
-                (float) env.getMinY(), (float) env.getMaxY());
+    @Override
+    public Cursor findNearest(TableFilter filter, Value geometry) {
+        Session session = filter.getSession();
+        if (geometry == ValueNull.INSTANCE) {
+            return find(session);
+        }
+        Iterator<SpatialKey> cursor = spatialMap.findNearestKeys(
+                SpatialTreeIndex.getKey(0, geometry));
+        TransactionMap<SpatialKey, Value> map = getMap(session);
+        Iterator<SpatialKey> it = map.wrapIterator(cursor, false);
+        return new MVStoreCursor(session, it);
     }
 
-
     /**
      * Get the row with the given index key.
      *
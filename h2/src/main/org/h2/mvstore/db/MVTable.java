@@ -29,6 +29,7 @@ import org.h2.message.DbException;
 import org.h2.message.Trace;
 import org.h2.mvstore.db.MVTableEngine.Store;
 import org.h2.mvstore.db.TransactionStore.Transaction;
+import org.h2.mvstore.rtree.SpatialKey;
 import org.h2.result.Row;
 import org.h2.result.SortOrder;
 import org.h2.schema.SchemaObject;
@@ -38,6 +39,7 @@ import org.h2.table.Table;
 import org.h2.table.TableBase;
 import org.h2.util.MathUtils;
 import org.h2.util.New;
+import org.h2.util.Task;
 import org.h2.value.DataType;
 import org.h2.value.Value;
 
@@ -455,7 +457,10 @@ public class MVTable extends TableBase {
 
     private void rebuildIndex(Session session, MVIndex index, String indexName) {
         try {
-            if (session.getDatabase().getMvStore() == null ||
+            if (index instanceof MVSpatialIndex &&
+                    !index.getIndexType().isUnique()) {
+                rebuildSpatialIndex(session, (MVSpatialIndex) index);
+            } else if (session.getDatabase().getMvStore() == null ||
                     index instanceof MVSpatialIndex) {
                 // in-memory
                 rebuildIndexBuffered(session, index);
@@ -497,9 +502,16 @@ public class MVTable extends TableBase {
         Store store = session.getDatabase().getMvStore();
 
         int bufferSize = database.getMaxMemoryRows() / 2;
-        ArrayList<Row> buffer = New.arrayList(bufferSize);
         String n = getName() + ":" + index.getName();
         int t = MathUtils.convertLongToInt(total);
+        int threads = database.getSettings().createIndexThreads;
+        if (threads > 1 && total > bufferSize) {
+            ArrayList<String> bufferNames = sortRowsParallel(cursor, index,
+                    threads, Math.max(1, bufferSize / threads), n, total);
+            index.addBufferedRows(bufferNames);
+            return;
+        }
+        ArrayList<Row> buffer = New.arrayList(bufferSize);
         ArrayList<String> bufferNames = New.arrayList();
         while (cursor.next()) {
             Row row = cursor.get();
@@ -531,6 +543,121 @@ public class MVTable extends TableBase {
         }
     }
 
+    /**
+     * Read the rows of the table, and write them to sorted temporary maps,
+     * using multiple threads. The rows are read by the calling thread, as the
+     * transaction of the session must not be used concurrently. Each block of
+     * rows is then sorted and written by a separate thread, with at most the
+     * given number of blocks in progress at any time.
+     *
+     * @param cursor the cursor over all rows of the table
+     * @param index the index to build
+     * @param threads the number of threads
+     * @param bufferSize the number of rows to sort at once per thread
+     * @param progressName the name used for progress reporting
+     * @param total the number of rows
+     * @return the names of the temporary maps
+     */
+    private ArrayList<String> sortRowsParallel(Cursor cursor,
+            MVIndex index, int threads, int bufferSize,
+            String progressName, long total) {
+        Store store = database.getMvStore();
+        ArrayList<String> bufferNames = New.arrayList();
+        ArrayList<Task> tasks = New.arrayList();
+        ArrayList<Row> buffer = New.arrayList(bufferSize);
+        int t = MathUtils.convertLongToInt(total);
+        long i = 0;
+        boolean success = false;
+        try {
+            while (true) {
+                boolean hasNext = cursor.next();
+                if (hasNext) {
+                    buffer.add(cursor.get());
+                    database.setProgress(DatabaseEventListener.STATE_CREATE_INDEX,
+                            progressName, MathUtils.convertLongToInt(i++), t);
+                }
+                if (buffer.size() >= bufferSize ||
+                        (!hasNext && !buffer.isEmpty())) {
+                    if (tasks.size() >= threads) {
+                        checkTask(tasks.remove(0));
+                    }
+                    String mapName = store.nextTemporaryMapName();
+                    bufferNames.add(mapName);
+                    Task task = sortRowsTask(buffer, index, mapName);
+                    task.execute(progressName + ":" + bufferNames.size());
+                    tasks.add(task);
+                    buffer = New.arrayList(bufferSize);
+                }
+                if (!hasNext) {
+                    break;
+                }
+            }
+            while (!tasks.isEmpty()) {
+                checkTask(tasks.remove(0));
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                // the threads must not write to the index any longer
+                for (Task task : tasks) {
+                    task.getException();
+                }
+            }
+        }
+        if (SysProperties.CHECK && i != total) {
+            DbException.throwInternalError("rowcount remaining=" +
+                    (total - i) + " " + getName());
+        }
+        return bufferNames;
+    }
+
+    private static Task sortRowsTask(final ArrayList<Row> rows,
+            final MVIndex index, final String mapName) {
+        return new Task() {
+            @Override
+            public void call() {
+                sortRows(rows, index);
+                index.addRowsToBuffer(rows, mapName);
+            }
+        };
+    }
+
+    private static void checkTask(Task task) {
+        Exception e = task.getException();
+        if (e != null) {
+            throw DbException.convert(e);
+        }
+    }
+
+    /**
+     * Read the keys of all rows, and then build the r-tree bottom-up.
+     *
+     * @param session the session
+     * @param index the index to build
+     */
+    private void rebuildSpatialIndex(Session session, MVSpatialIndex index) {
+        Index scan = getScanIndex(session);
+        long remaining = scan.getRowCount(session);
+        long total = remaining;
+        Cursor cursor = scan.find(session, null, null);
+        long i = 0;
+        ArrayList<SpatialKey> keys = New.arrayList(
+                MathUtils.convertLongToInt(total));
+        String n = getName() + ":" + index.getName();
+        int t = MathUtils.convertLongToInt(total);
+        while (cursor.next()) {
+            keys.add(index.getKey(cursor.get()));
+            database.setProgress(DatabaseEventListener.STATE_CREATE_INDEX, n,
+                    MathUtils.convertLongToInt(i++), t);
+            remaining--;
+        }
+        index.addAll(session, keys);
+        if (SysProperties.CHECK && remaining != 0) {
+            DbException.throwInternalError("rowcount remaining=" + remaining +
+                    " " + getName());
+        }
+    }
+
     private void rebuildIndexBuffered(Session session, Index index) {
         Index scan = getScanIndex(session);
         long remaining = scan.getRowCount(session);
@@ -86,6 +86,7 @@ public class MVTableEngine implements TableEngine {
                 // use a larger page split size to improve the compression ratio
                 builder.pageSplitSize(64 * 1024);
             }
+            builder.readAheadPages(db.getSettings().readAheadPages);
             builder.backgroundExceptionHandler(new UncaughtExceptionHandler() {
 
                 @Override
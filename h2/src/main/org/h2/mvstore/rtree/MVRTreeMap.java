@@ -6,7 +6,11 @@
 package org.h2.mvstore.rtree;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
 
 import org.h2.mvstore.CursorPos;
 import org.h2.mvstore.DataUtils;
@@ -28,11 +32,13 @@ public class MVRTreeMap<V> extends MVMap<SpatialKey, V> {
      */
     final SpatialDataType keyType;
 
+    private final int dimensions;
     private boolean quadraticSplit;
 
     public MVRTreeMap(int dimensions, DataType valueType) {
         super(new SpatialDataType(dimensions), valueType);
         this.keyType = (SpatialDataType) getKeyType();
+        this.dimensions = dimensions;
     }
 
     /**
@@ -89,6 +95,19 @@ public class MVRTreeMap<V> extends MVMap<SpatialKey, V> {
         };
     }
 
+    /**
+     * Iterate over all keys, nearest first. The keys are returned in the
+     * order of the minimum distance between their bounding box and the given
+     * rectangle. A best-first search is used, so that only the pages that
+     * are closer than the last returned key are read.
+     *
+     * @param x the rectangle
+     * @return the iterator
+     */
+    public Iterator<SpatialKey> findNearestKeys(SpatialKey x) {
+        return new NearestCursor(root, x);
+    }
+
     private boolean contains(Page p, int index, Object key) {
         return keyType.contains(p.getKey(index), key);
     }
@@ -224,6 +243,109 @@ public class MVRTreeMap<V> extends MVMap<SpatialKey, V> {
         return result;
     }
 
+    /**
+     * Add a number of entries. The keys should not exist. If the map is
+     * empty, the tree is built bottom-up using the Sort-Tile-Recursive
+     * algorithm: the entries are sorted by the center of each dimension in
+     * turn, and cut into tiles that fill one page each. This is much faster
+     * than adding the entries one at a time, and the pages overlap less.
+     * Otherwise, the entries are added one at a time.
+     *
+     * @param keys the keys
+     * @param values the values (in the same order as the keys)
+     */
+    public synchronized void addAll(List<SpatialKey> keys, List<V> values) {
+        int size = keys.size();
+        if (size == 0) {
+            return;
+        }
+        if (!isEmpty()) {
+            for (int i = 0; i < size; i++) {
+                add(keys.get(i), values.get(i));
+            }
+            return;
+        }
+        beforeWrite();
+        long v = writeVersion;
+        BulkEntry[] list = new BulkEntry[size];
+        for (int i = 0; i < size; i++) {
+            list[i] = new BulkEntry(keys.get(i), values.get(i));
+        }
+        int entryMemory = keyType.getMemory(keys.get(0)) +
+                getValueType().getMemory(values.get(0));
+        boolean leaf = true;
+        while (true) {
+            int capacity = Math.max(4, (store.getPageSplitSize() -
+                    DataUtils.PAGE_MEMORY) / entryMemory);
+            sortTileRecursive(list, 0, list.length, 0, capacity);
+            int pageCount = (list.length + capacity - 1) / capacity;
+            BulkEntry[] parents = new BulkEntry[pageCount];
+            for (int i = 0; i < pageCount; i++) {
+                int from = i * capacity;
+                int to = Math.min(list.length, from + capacity);
+                Page p = createPage(list, from, to, leaf, v);
+                parents[i] = new BulkEntry((SpatialKey) getBounds(p), p);
+            }
+            if (pageCount == 1) {
+                root.removePage();
+                newRoot((Page) parents[0].value);
+                return;
+            }
+            list = parents;
+            leaf = false;
+            entryMemory = keyType.getMemory(list[0].key) +
+                    DataUtils.PAGE_MEMORY_CHILD;
+        }
+    }
+
+    private void sortTileRecursive(BulkEntry[] list, int from, int to,
+            final int dim, int capacity) {
+        Arrays.sort(list, from, to, new Comparator<BulkEntry>() {
+            @Override
+            public int compare(BulkEntry a, BulkEntry b) {
+                float ca = a.key.min(dim) + a.key.max(dim);
+                float cb = b.key.min(dim) + b.key.max(dim);
+                return Float.compare(ca, cb);
+            }
+        });
+        if (dim + 1 >= dimensions) {
+            return;
+        }
+        int pages = (to - from + capacity - 1) / capacity;
+        int slices = (int) Math.ceil(Math.pow(pages, 1.0 / (dimensions - dim)));
+        int sliceSize = (pages + slices - 1) / slices * capacity;
+        for (int i = from; i < to; i += sliceSize) {
+            sortTileRecursive(list, i, Math.min(to, i + sliceSize),
+                    dim + 1, capacity);
+        }
+    }
+
+    private Page createPage(BulkEntry[] list, int from, int to, boolean leaf,
+            long writeVersion) {
+        int len = to - from;
+        Object[] keys = new Object[len];
+        if (leaf) {
+            Object[] values = new Object[len];
+            for (int i = 0; i < len; i++) {
+                keys[i] = list[from + i].key;
+                values[i] = list[from + i].value;
+            }
+            return Page.create(this, writeVersion, keys, values, null, len, 0);
+        }
+        Page.PageReference[] children = new Page.PageReference[len + 1];
+        long totalCount = 0;
+        for (int i = 0; i < len; i++) {
+            Page c = (Page) list[from + i].value;
+            keys[i] = list[from + i].key;
+            children[i] = new Page.PageReference(c, c.getPos(),
+                    c.getTotalCount());
+            totalCount += c.getTotalCount();
+        }
+        children[len] = new Page.PageReference(null, 0, 0);
+        return Page.create(this, writeVersion, keys, null, children,
+                totalCount, 0);
+    }
+
     /**
      * Update the value for the given key. The key must exist.
      *
@@ -560,6 +682,117 @@ public class MVRTreeMap<V> extends MVMap<SpatialKey, V> {
 
     }
 
+    /**
+     * An entry used when bulk loading: the key and value of a leaf entry, or
+     * the bounds and page of a child.
+     */
+    private static class BulkEntry {
+
+        final SpatialKey key;
+        final Object value;
+
+        BulkEntry(SpatialKey key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+
+    }
+
+    /**
+     * A key, or the bounds of a child page, with the minimum distance to the
+     * search rectangle.
+     */
+    private static class NearestEntry implements Comparable<NearestEntry> {
+
+        final double distance;
+        final SpatialKey key;
+
+        /**
+         * The parent page of the child, or null if this is a key of a leaf.
+         */
+        final Page parent;
+        final int index;
+
+        NearestEntry(double distance, SpatialKey key, Page parent, int index) {
+            this.distance = distance;
+            this.key = key;
+            this.parent = parent;
+            this.index = index;
+        }
+
+        @Override
+        public int compareTo(NearestEntry o) {
+            return Double.compare(distance, o.distance);
+        }
+
+    }
+
+    /**
+     * A cursor that returns the keys nearest first. The child pages and keys
+     * that were not visited yet are kept in a priority queue, sorted by the
+     * minimum distance of their bounding box. A key is returned once it is
+     * the first entry in the queue, as all other keys are at least as far
+     * away. Child pages are only read when they are taken from the queue.
+     */
+    private class NearestCursor implements Iterator<SpatialKey> {
+
+        private final SpatialKey filter;
+        private final PriorityQueue<NearestEntry> queue =
+                new PriorityQueue<NearestEntry>();
+        private SpatialKey current;
+
+        NearestCursor(Page root, SpatialKey filter) {
+            this.filter = filter;
+            addEntries(root);
+            fetchNext();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return current != null;
+        }
+
+        @Override
+        public SpatialKey next() {
+            SpatialKey c = current;
+            if (c != null) {
+                fetchNext();
+            }
+            return c;
+        }
+
+        @Override
+        public void remove() {
+            throw DataUtils.newUnsupportedOperationException(
+                    "Removing is not supported");
+        }
+
+        private void addEntries(Page p) {
+            boolean leaf = p.isLeaf();
+            for (int i = 0, size = p.getKeyCount(); i < size; i++) {
+                SpatialKey k = (SpatialKey) p.getKey(i);
+                double d = keyType.getMinDistance(k, filter);
+                queue.add(new NearestEntry(d, k, leaf ? null : p, i));
+            }
+        }
+
+        private void fetchNext() {
+            while (true) {
+                NearestEntry e = queue.poll();
+                if (e == null) {
+                    current = null;
+                    return;
+                }
+                if (e.parent == null) {
+                    current = e.key;
+                    return;
+                }
+                addEntries(e.parent.getChildPage(e.index));
+            }
+        }
+
+    }
+
     @Override
     public String getType() {
         return "rtree";
@@ -125,6 +125,30 @@ public class SpatialDataType implements DataType {
         return true;
     }
 
+    /**
+     * Get the minimum distance between two bounding boxes (0 if they
+     * overlap). The distance to a box is never smaller than the distance to
+     * a box that contains it, so that this can be used as a lower bound when
+     * searching the tree.
+     *
+     * @param objA the first object
+     * @param objB the second object
+     * @return the distance
+     */
+    public double getMinDistance(Object objA, Object objB) {
+        SpatialKey a = (SpatialKey) objA;
+        SpatialKey b = (SpatialKey) objB;
+        double sum = 0;
+        for (int i = 0; i < dimensions; i++) {
+            double d = Math.max((double) a.min(i) - b.max(i),
+                    (double) b.min(i) - a.max(i));
+            if (d > 0) {
+                sum += d * d;
+            }
+        }
+        return Math.sqrt(sum);
+    }
+
     /**
      * Increase the bounds in the given spatial object.
      *
@@ -10,13 +10,13 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import org.h2.engine.Database;
 import org.h2.engine.Session;
+import org.h2.engine.StatementMetrics;
 import org.h2.expression.Expression;
 import org.h2.message.DbException;
 import org.h2.util.New;
-import org.h2.util.ValueHashMap;
+import org.h2.util.ValueArrayHashMap;
 import org.h2.value.DataType;
 import org.h2.value.Value;
-import org.h2.value.ValueArray;
 
 /**
  * A local result set contains all row data of a result set.
@@ -33,7 +33,7 @@ public class LocalResult implements ResultInterface, ResultTarget {
     private int rowId, rowCount;
     private ArrayList<Value[]> rows;
     private SortOrder sort;
-    private ValueHashMap<Value[]> distinctRows;
+    private ValueArrayHashMap<Value[]> distinctRows;
     private Value[] currentRow;
     private int offset;
     private int limit = -1;
@@ -161,7 +161,7 @@ public class LocalResult implements ResultInterface, ResultTarget {
      */
     public void setDistinct() {
         distinct = true;
-        distinctRows = ValueHashMap.newInstance();
+        distinctRows = ValueArrayHashMap.newInstance();
     }
 
     /**
@@ -181,8 +181,7 @@ public class LocalResult implements ResultInterface, ResultTarget {
             DbException.throwInternalError();
         }
         if (distinctRows != null) {
-            ValueArray array = ValueArray.get(values);
-            distinctRows.remove(array);
+            distinctRows.remove(values);
             rowCount = distinctRows.size();
         } else {
             rowCount = external.removeRow(values);
@@ -200,19 +199,17 @@ public class LocalResult implements ResultInterface, ResultTarget {
             return external.contains(values);
         }
         if (distinctRows == null) {
-            distinctRows = ValueHashMap.newInstance();
+            distinctRows = ValueArrayHashMap.newInstance();
             for (Value[] row : rows) {
                 if (row.length > visibleColumnCount) {
                     Value[] r2 = new Value[visibleColumnCount];
                     System.arraycopy(row, 0, r2, 0, visibleColumnCount);
                     row = r2;
                 }
-                ValueArray array = ValueArray.get(row);
-                distinctRows.put(array, row);
+                distinctRows.put(row, row);
             }
         }
-        ValueArray array = ValueArray.get(values);
-        return distinctRows.get(array) != null;
+        return distinctRows.get(values) != null;
     }
 
     @Override
@@ -276,13 +273,17 @@ public class LocalResult implements ResultInterface, ResultTarget {
         cloneLobs(values);
         if (distinct) {
             if (distinctRows != null) {
-                ValueArray array = ValueArray.get(values);
-                distinctRows.put(array, values);
+                distinctRows.put(values, values);
                 rowCount = distinctRows.size();
                 if (rowCount > maxMemoryRows) {
+                    StatementMetrics metrics = getStatementMetrics();
+                    long start = metrics == null ? 0 : System.nanoTime();
                     external = new ResultTempTable(session, expressions, true, sort);
                     rowCount = external.addRows(distinctRows.values());
                     distinctRows = null;
+                    if (metrics != null) {
+                        metrics.addSpillTime(System.nanoTime() - start);
+                    }
                 }
             } else {
                 rowCount = external.addRow(values);
@@ -300,8 +301,17 @@ public class LocalResult implements ResultInterface, ResultTarget {
     }
 
     private void addRowsToDisk() {
+        StatementMetrics metrics = getStatementMetrics();
+        long start = metrics == null ? 0 : System.nanoTime();
         rowCount = external.addRows(rows);
         rows.clear();
+        if (metrics != null) {
+            metrics.addSpillTime(System.nanoTime() - start);
+        }
+    }
+
+    private StatementMetrics getStatementMetrics() {
+        return session == null ? null : session.getStatementMetrics();
     }
 
     @Override
@@ -313,6 +323,8 @@ public class LocalResult implements ResultInterface, ResultTarget {
      * This method is called after all rows have been added.
      */
     public void done() {
+        StatementMetrics metrics = getStatementMetrics();
+        long start = metrics == null ? 0 : System.nanoTime();
         if (distinct) {
             if (distinctRows != null) {
                 rows = distinctRows.values();
@@ -345,8 +357,16 @@ public class LocalResult implements ResultInterface, ResultTarget {
             }
         }
         if (external != null) {
+            if (metrics != null) {
+                // re-reading the external result for distinct sorting
+                metrics.addSpillTime(System.nanoTime() - start);
+            }
             addRowsToDisk();
+            start = metrics == null ? 0 : System.nanoTime();
             external.done();
+            if (metrics != null) {
+                metrics.addSpillTime(System.nanoTime() - start);
+            }
         } else {
             if (sort != null) {
                 if (offset > 0 || limit > 0) {
@@ -354,6 +374,9 @@ public class LocalResult implements ResultInterface, ResultTarget {
                 } else {
                     sort.sort(rows);
                 }
+                if (metrics != null) {
+                    metrics.addSortTime(System.nanoTime() - start);
+                }
             }
         }
         applyOffset();
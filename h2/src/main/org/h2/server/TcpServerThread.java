@@ -451,10 +451,10 @@ public class TcpServerThread implements Runnable {
                 LobStorageInterface lobStorage = session.getDataHandler().getLobStorage();
                 // only the lob id is used
                 ValueLobDb lob = ValueLobDb.create(Value.BLOB, null, -1, lobId, hmac, -1);
-                InputStream lobIn = lobStorage.getInputStream(lob, hmac, -1);
-                in = new CachedInputStream(lobIn);
+                InputStream lobIn = lobStorage.getInputStream(lob, hmac,
+                        offset, -1);
+                in = new CachedInputStream(lobIn, offset);
                 lobs.put(lobId, in);
-                lobIn.skip(offset);
             }
             // limit the buffer size
             length = Math.min(16 * Constants.IO_BUFFER_SIZE, length);
@@ -540,10 +540,12 @@ public class TcpServerThread implements Runnable {
         private long pos;
 
         CachedInputStream(InputStream in) {
+            this(in, 0);
+        }
+
+        CachedInputStream(InputStream in, long pos) {
             super(in == null ? DUMMY : in);
-            if (in == null) {
-                pos = -1;
-            }
+            this.pos = in == null ? -1 : pos;
         }
 
         @Override
@@ -0,0 +1,653 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.server.pg;
+
+import java.util.ArrayList;
+import org.h2.message.DbException;
+import org.h2.util.New;
+import org.h2.util.StringUtils;
+
+/**
+ * A PostgreSQL COPY statement, and the text and CSV formats used to transfer
+ * the rows. Only COPY FROM STDIN and COPY TO STDOUT are supported. Both the
+ * current syntax (options in parentheses) and the old syntax (WITH CSV
+ * HEADER) are supported.
+ */
+class PgCopy {
+
+    /**
+     * The table name, as in the statement, or null if a query is used.
+     */
+    String table;
+
+    /**
+     * The column names, as in the statement, or null for all columns.
+     */
+    ArrayList<String> columns;
+
+    /**
+     * The query (COPY TO only), or null if a table is used.
+     */
+    String query;
+
+    /**
+     * Whether this is COPY FROM STDIN (otherwise COPY TO STDOUT).
+     */
+    boolean in;
+
+    /**
+     * Whether the CSV format is used (otherwise the text format).
+     */
+    boolean csv;
+
+    /**
+     * Whether the data contains a header line (CSV only).
+     */
+    boolean header;
+
+    private char delimiter;
+    private String nullString;
+    private char quote = '"';
+    private char escape;
+    private boolean escapeSet;
+
+    private final String sql;
+    private int pos;
+
+    /**
+     * The received characters. The characters before the offset are already
+     * parsed.
+     */
+    private final StringBuilder pending = new StringBuilder();
+    private int offset;
+    private final ArrayList<String> fields = New.arrayList();
+    private boolean headerSkipped;
+    private boolean endOfData;
+
+    private PgCopy(String sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * Check whether the given statement is a COPY statement.
+     *
+     * @param sql the statement
+     * @return true if it is
+     */
+    static boolean isCopy(String sql) {
+        return new PgCopy(sql).readIf("COPY");
+    }
+
+    /**
+     * Parse a COPY statement.
+     *
+     * @param sql the statement
+     * @return the parsed statement
+     * @throws DbException if the statement is not valid or not supported
+     */
+    static PgCopy parse(String sql) {
+        PgCopy copy = new PgCopy(sql);
+        copy.read("COPY");
+        copy.parse();
+        return copy;
+    }
+
+    private void parse() {
+        skipWhitespace();
+        if (pos < sql.length() && sql.charAt(pos) == '(') {
+            query = readParenthesized();
+        } else {
+            table = readName();
+            skipWhitespace();
+            if (pos < sql.length() && sql.charAt(pos) == '(') {
+                pos++;
+                columns = New.arrayList();
+                do {
+                    columns.add(readName());
+                } while (readIf(","));
+                read(")");
+            }
+        }
+        if (readIf("FROM")) {
+            in = true;
+            if (query != null) {
+                throw getSyntaxError("TO");
+            }
+            if (!readIf("STDIN")) {
+                throw DbException.getUnsupportedException(
+                        "COPY FROM file, use COPY FROM STDIN");
+            }
+        } else if (readIf("TO")) {
+            if (!readIf("STDOUT")) {
+                throw DbException.getUnsupportedException(
+                        "COPY TO file, use COPY TO STDOUT");
+            }
+        } else {
+            throw getSyntaxError("FROM, TO");
+        }
+        readIf("WITH");
+        skipWhitespace();
+        if (pos < sql.length() && sql.charAt(pos) == '(') {
+            pos++;
+            do {
+                readOption(true);
+            } while (readIf(","));
+            read(")");
+        } else {
+            while (readOption(false)) {
+                // old syntax: options are separated by spaces
+            }
+        }
+        skipWhitespace();
+        if (pos < sql.length() && sql.charAt(pos) == ';') {
+            pos++;
+            skipWhitespace();
+        }
+        if (pos < sql.length()) {
+            throw getSyntaxError("end of statement");
+        }
+        if (delimiter == 0) {
+            delimiter = csv ? ',' : '\t';
+        }
+        if (nullString == null) {
+            nullString = csv ? "" : "\\N";
+        }
+        if (!escapeSet) {
+            escape = quote;
+        }
+        if (header && !csv) {
+            throw DbException.getUnsupportedException(
+                    "COPY HEADER is only available in CSV mode");
+        }
+    }
+
+    private boolean readOption(boolean required) {
+        if (readIf("FORMAT")) {
+            String format = readName();
+            if ("csv".equalsIgnoreCase(format)) {
+                csv = true;
+            } else if (!"text".equalsIgnoreCase(format)) {
+                throw DbException.getUnsupportedException(
+                        "COPY FORMAT " + format);
+            }
+        } else if (readIf("CSV")) {
+            csv = true;
+        } else if (readIf("BINARY")) {
+            throw DbException.getUnsupportedException("COPY BINARY");
+        } else if (readIf("HEADER")) {
+            header = required ? readBooleanIf() : true;
+        } else if (readIf("DELIMITER")) {
+            readIf("AS");
+            delimiter = readChar();
+        } else if (readIf("NULL")) {
+            readIf("AS");
+            nullString = readString();
+        } else if (readIf("QUOTE")) {
+            readIf("AS");
+            quote = readChar();
+        } else if (readIf("ESCAPE")) {
+            readIf("AS");
+            escape = readChar();
+            escapeSet = true;
+        } else if (readIf("ENCODING")) {
+            // the client encoding is used
+            readString();
+        } else if (required) {
+            throw getSyntaxError("FORMAT, HEADER, DELIMITER, NULL, " +
+                    "QUOTE, ESCAPE");
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private boolean readBooleanIf() {
+        if (readIf("TRUE") || readIf("ON") || readIf("1")) {
+            return true;
+        } else if (readIf("FALSE") || readIf("OFF") || readIf("0")) {
+            return false;
+        }
+        return true;
+    }
+
+    private char readChar() {
+        String s = readString();
+        if (s.length() != 1) {
+            throw DbException.getInvalidValueException("COPY character", s);
+        }
+        return s.charAt(0);
+    }
+
+    private String readString() {
+        skipWhitespace();
+        boolean escaped = false;
+        if (pos + 1 < sql.length() &&
+                Character.toUpperCase(sql.charAt(pos)) == 'E' &&
+                sql.charAt(pos + 1) == '\'') {
+            escaped = true;
+            pos++;
+        }
+        if (pos >= sql.length() || sql.charAt(pos) != '\'') {
+            throw getSyntaxError("string");
+        }
+        StringBuilder buff = new StringBuilder();
+        for (pos++; pos < sql.length(); pos++) {
+            char c = sql.charAt(pos);
+            if (c == '\'') {
+                if (pos + 1 < sql.length() && sql.charAt(pos + 1) == '\'') {
+                    buff.append(c);
+                    pos++;
+                } else {
+                    pos++;
+                    return buff.toString();
+                }
+            } else if (c == '\\' && escaped && pos + 1 < sql.length()) {
+                char next = sql.charAt(++pos);
+                buff.append(unescape(next));
+            } else {
+                buff.append(c);
+            }
+        }
+        throw getSyntaxError("'");
+    }
+
+    private String readName() {
+        skipWhitespace();
+        int start = pos;
+        while (pos < sql.length()) {
+            char c = sql.charAt(pos);
+            if (c == '"') {
+                int end = sql.indexOf('"', pos + 1);
+                while (end >= 0 && end + 1 < sql.length() &&
+                        sql.charAt(end + 1) == '"') {
+                    end = sql.indexOf('"', end + 2);
+                }
+                if (end < 0) {
+                    throw getSyntaxError("\"");
+                }
+                pos = end + 1;
+            } else if (Character.isLetterOrDigit(c) || c == '_' ||
+                    c == '$' || c == '.') {
+                pos++;
+            } else {
+                break;
+            }
+        }
+        if (start == pos) {
+            throw getSyntaxError("identifier");
+        }
+        return sql.substring(start, pos);
+    }
+
+    private String readParenthesized() {
+        int start = ++pos;
+        int level = 1;
+        char inQuote = 0;
+        for (; pos < sql.length(); pos++) {
+            char c = sql.charAt(pos);
+            if (inQuote != 0) {
+                if (c == inQuote) {
+                    inQuote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                inQuote = c;
+            } else if (c == '(') {
+                level++;
+            } else if (c == ')') {
+                if (--level == 0) {
+                    return sql.substring(start, pos++);
+                }
+            }
+        }
+        throw getSyntaxError(")");
+    }
+
+    private void read(String token) {
+        if (!readIf(token)) {
+            throw getSyntaxError(token);
+        }
+    }
+
+    private boolean readIf(String token) {
+        skipWhitespace();
+        int len = token.length();
+        if (!sql.regionMatches(true, pos, token, 0, len)) {
+            return false;
+        }
+        if (Character.isLetterOrDigit(token.charAt(len - 1)) &&
+                pos + len < sql.length()) {
+            char next = sql.charAt(pos + len);
+            if (Character.isLetterOrDigit(next) || next == '_') {
+                return false;
+            }
+        }
+        pos += len;
+        return true;
+    }
+
+    private void skipWhitespace() {
+        while (pos < sql.length() && Character.isWhitespace(sql.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private DbException getSyntaxError(String expected) {
+        return DbException.getSyntaxError(sql, pos, expected);
+    }
+
+    private static char unescape(char c) {
+        switch (c) {
+        case 'b':
+            return '\b';
+        case 'f':
+            return '\f';
+        case 'n':
+            return '\n';
+        case 'r':
+            return '\r';
+        case 't':
+            return '\t';
+        case 'v':
+            return 11;
+        default:
+            return c;
+        }
+    }
+
+    /**
+     * Add received data. Only complete lines may be added, except for the
+     * last call.
+     *
+     * @param data the data
+     */
+    void addData(String data) {
+        if (offset > 0) {
+            pending.delete(0, offset);
+            offset = 0;
+        }
+        pending.append(data);
+    }
+
+    /**
+     * Read the next row from the data added so far.
+     *
+     * @param last whether all data was added
+     * @return the row (null elements are NULL), or null if more data is
+     *         needed or there are no more rows
+     */
+    String[] readRow(boolean last) {
+        while (!endOfData) {
+            int end = csv ? readCsvRecord(last) : readTextRecord(last);
+            if (end < 0) {
+                return null;
+            }
+            offset = end;
+            if (endOfData) {
+                return null;
+            }
+            if (header && !headerSkipped) {
+                headerSkipped = true;
+                continue;
+            }
+            return fields.toArray(new String[fields.size()]);
+        }
+        return null;
+    }
+
+    /**
+     * Parse a record in the text format.
+     *
+     * @param last whether this is the last data
+     * @return the end of the record, or -1 if more data is needed
+     */
+    private int readTextRecord(boolean last) {
+        fields.clear();
+        int len = pending.length();
+        if (offset >= len) {
+            return -1;
+        }
+        if (isEndOfDataMarker()) {
+            endOfData = true;
+            return len;
+        }
+        StringBuilder buff = new StringBuilder();
+        int start = offset;
+        for (int i = offset; i < len; i++) {
+            char c = pending.charAt(i);
+            if (c == '\\') {
+                if (++i >= len) {
+                    return -1;
+                }
+                c = pending.charAt(i);
+                if (c >= '0' && c <= '7') {
+                    int x = c - '0';
+                    for (int j = 0; j < 2 && i + 1 < len; j++) {
+                        char d = pending.charAt(i + 1);
+                        if (d < '0' || d > '7') {
+                            break;
+                        }
+                        x = x * 8 + d - '0';
+                        i++;
+                    }
+                    buff.append((char) x);
+                } else if (c == 'x' && i + 1 < len &&
+                        Character.digit(pending.charAt(i + 1), 16) >= 0) {
+                    int x = Character.digit(pending.charAt(++i), 16);
+                    if (i + 1 < len &&
+                            Character.digit(pending.charAt(i + 1), 16) >= 0) {
+                        x = x * 16 + Character.digit(pending.charAt(++i), 16);
+                    }
+                    buff.append((char) x);
+                } else {
+                    buff.append(unescape(c));
+                }
+            } else if (c == delimiter || c == '\n') {
+                addField(buff, start, i, false);
+                start = i + 1;
+                if (c == '\n') {
+                    return i + 1;
+                }
+            } else if (c == '\r' && i + 1 < len &&
+                    pending.charAt(i + 1) == '\n') {
+                // CR LF line ending
+            } else {
+                buff.append(c);
+            }
+        }
+        if (!last) {
+            return -1;
+        }
+        addField(buff, start, len, false);
+        return len;
+    }
+
+    /**
+     * Parse a record in the CSV format.
+     *
+     * @param last whether this is the last data
+     * @return the end of the record, or -1 if more data is needed
+     */
+    private int readCsvRecord(boolean last) {
+        fields.clear();
+        int len = pending.length();
+        if (offset >= len) {
+            return -1;
+        }
+        if (isEndOfDataMarker()) {
+            endOfData = true;
+            return len;
+        }
+        StringBuilder buff = new StringBuilder();
+        int start = offset;
+        boolean quoted = false;
+        for (int i = offset; i < len; i++) {
+            char c = pending.charAt(i);
+            if (c == quote) {
+                quoted = true;
+                while (true) {
+                    if (++i >= len) {
+                        return -1;
+                    }
+                    c = pending.charAt(i);
+                    if (c == escape && escape != quote) {
+                        if (i + 1 >= len) {
+                            return -1;
+                        }
+                        char next = pending.charAt(i + 1);
+                        if (next == quote || next == escape) {
+                            i++;
+                        }
+                        buff.append(pending.charAt(i));
+                    } else if (c == quote) {
+                        if (escape != quote) {
+                            break;
+                        } else if (i + 1 < len) {
+                            if (pending.charAt(i + 1) != quote) {
+                                break;
+                            }
+                            // a doubled quote
+                            buff.append(quote);
+                            i++;
+                        } else if (last) {
+                            break;
+                        } else {
+                            // could be a doubled quote
+                            return -1;
+                        }
+                    } else {
+                        buff.append(c);
+                    }
+                }
+            } else if (c == delimiter || c == '\n') {
+                addField(buff, start, i, quoted);
+                quoted = false;
+                start = i + 1;
+                if (c == '\n') {
+                    return i + 1;
+                }
+            } else if (c == '\r' && i + 1 < len &&
+                    pending.charAt(i + 1) == '\n') {
+                // CR LF line ending
+            } else {
+                buff.append(c);
+            }
+        }
+        if (!last) {
+            return -1;
+        }
+        addField(buff, start, len, quoted);
+        return len;
+    }
+
+    private boolean isEndOfDataMarker() {
+        int len = pending.length() - offset;
+        if (len < 2 || pending.charAt(offset) != '\\' ||
+                pending.charAt(offset + 1) != '.') {
+            return false;
+        }
+        return len == 2 || pending.charAt(offset + 2) == '\n' ||
+                pending.charAt(offset + 2) == '\r';
+    }
+
+    private void addField(StringBuilder buff, int start, int end,
+            boolean quoted) {
+        if (end > start && pending.charAt(end - 1) == '\r' &&
+                end < pending.length() && pending.charAt(end) == '\n') {
+            end--;
+        }
+        // NULL is compared with the raw (not yet unescaped) data,
+        // and a quoted value is never NULL
+        if (!quoted && end - start == nullString.length() &&
+                pending.substring(start, end).equals(nullString)) {
+            fields.add(null);
+        } else {
+            fields.add(buff.toString());
+        }
+        buff.setLength(0);
+    }
+
+    /**
+     * Append a field of a row in the text or CSV format.
+     *
+     * @param buff the target buffer
+     * @param first whether this is the first field of the row
+     * @param s the field value, or null for NULL
+     */
+    void appendField(StringBuilder buff, boolean first, String s) {
+        if (!first) {
+            buff.append(delimiter);
+        }
+        if (s == null) {
+            buff.append(nullString);
+        } else if (csv) {
+            boolean needQuote = s.length() == 0 || s.equals(nullString) ||
+                    s.indexOf(delimiter) >= 0 || s.indexOf(quote) >= 0 ||
+                    s.indexOf('\n') >= 0 || s.indexOf('\r') >= 0 ||
+                    s.startsWith("\\.");
+            if (!needQuote) {
+                buff.append(s);
+                return;
+            }
+            buff.append(quote);
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == quote || c == escape) {
+                    buff.append(escape);
+                }
+                buff.append(c);
+            }
+            buff.append(quote);
+        } else {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                case '\\':
+                    buff.append("\\\\");
+                    break;
+                case '\n':
+                    buff.append("\\n");
+                    break;
+                case '\r':
+                    buff.append("\\r");
+                    break;
+                case '\t':
+                    buff.append("\\t");
+                    break;
+                default:
+                    if (c == delimiter) {
+                        buff.append('\\');
+                    }
+                    buff.append(c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the text representation of binary data, as used by PostgreSQL.
+     *
+     * @param data the data
+     * @return the text
+     */
+    static String formatBytes(byte[] data) {
+        return "\\x" + StringUtils.convertBytesToHex(data);
+    }
+
+    /**
+     * Parse the text representation of binary data, if it uses the hex
+     * format.
+     *
+     * @param s the text
+     * @return the data, or null if the text is not in the hex format
+     */
+    static byte[] parseBytes(String s) {
+        if (s.startsWith("\\x")) {
+            return StringUtils.convertHexToBytes(s.substring(2));
+        }
+        return null;
+    }
+
+}
@@ -71,6 +71,7 @@ public class PgServer implements Service {
     public static final int PG_TYPE_TIME = 1083;
     public static final int PG_TYPE_TIMESTAMP_NO_TMZONE = 1114;
     public static final int PG_TYPE_NUMERIC = 1700;
+    public static final int PG_TYPE_UUID = 2950;
 
     private final HashSet<Integer> typeSet = New.hashSet();
 
@@ -5,6 +5,7 @@
  */
 package org.h2.server.pg;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
@@ -16,6 +17,7 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.StringReader;
+import java.math.BigDecimal;
 import java.net.Socket;
 import java.sql.Connection;
 import java.sql.ParameterMetaData;
@@ -27,28 +29,56 @@ import java.sql.Statement;
 import java.sql.Types;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Properties;
 
+import org.h2.api.ErrorCode;
 import org.h2.command.CommandInterface;
 import org.h2.engine.ConnectionInfo;
+import org.h2.engine.Constants;
+import org.h2.engine.SessionInterface;
 import org.h2.engine.SysProperties;
 import org.h2.jdbc.JdbcConnection;
 import org.h2.jdbc.JdbcPreparedStatement;
+import org.h2.jdbc.JdbcResultSet;
 import org.h2.jdbc.JdbcStatement;
 import org.h2.message.DbException;
 import org.h2.mvstore.DataUtils;
+import org.h2.result.ResultInterface;
+import org.h2.util.DateTimeUtils;
 import org.h2.util.IOUtils;
 import org.h2.util.JdbcUtils;
 import org.h2.util.MathUtils;
 import org.h2.util.ScriptReader;
+import org.h2.util.StatementBuilder;
 import org.h2.util.StringUtils;
 import org.h2.util.Utils;
 import org.h2.value.CaseInsensitiveMap;
+import org.h2.value.Value;
+import org.h2.value.ValueDate;
+import org.h2.value.ValueNull;
+import org.h2.value.ValueTime;
+import org.h2.value.ValueTimestamp;
+import org.h2.value.ValueUuid;
 
 /**
  * One server thread is opened for each client.
  */
 public class PgServerThread implements Runnable {
+
+    /**
+     * The number of rows inserted using one batch in COPY FROM STDIN.
+     */
+    private static final int COPY_BATCH_SIZE = 1000;
+
+    /**
+     * The number of days from 1970-01-01 to 2000-01-01, the epoch of the
+     * binary date and time formats.
+     */
+    private static final long PG_EPOCH_DAYS = 10957;
+
+    private static final long MICROS_PER_DAY = 24L * 60 * 60 * 1000 * 1000;
+
     private final PgServer server;
     private Socket socket;
     private Connection conn;
@@ -257,7 +287,7 @@ public class PgServerThread implements Runnable {
                 break;
             }
             portal.prep = prep;
-            portals.put(portal.name, portal);
+            closeResult(portals.put(portal.name, portal));
             int formatCodeCount = readShort();
             int[] formatCodes = new int[formatCodeCount];
             for (int i = 0; i < formatCodeCount; i++) {
@@ -290,7 +320,7 @@ public class PgServerThread implements Runnable {
                     JdbcUtils.closeSilently(p.prep);
                 }
             } else if (type == 'P') {
-                portals.remove(name);
+                closeResult(portals.remove(name));
             } else {
                 server.trace("expected S or P, got " + type);
                 sendErrorResponse("expected S or P");
@@ -318,7 +348,7 @@ public class PgServerThread implements Runnable {
                     PreparedStatement prep = p.prep.prep;
                     try {
                         ResultSetMetaData meta = prep.getMetaData();
-                        sendRowDescription(meta);
+                        sendRowDescription(meta, p.resultColumnFormat);
                     } catch (Exception e) {
                         sendErrorResponse(e);
                     }
@@ -337,23 +367,47 @@ public class PgServerThread implements Runnable {
                 sendErrorResponse("Portal not found: " + name);
                 break;
             }
-            int maxRows = readShort();
+            int maxRows = readInt();
             Prepared prepared = p.prep;
             JdbcPreparedStatement prep = prepared.prep;
             server.trace(prepared.sql);
             try {
-                prep.setMaxRows(maxRows);
                 setActiveRequest(prep);
-                boolean result = prep.execute();
+                ResultSet rs = p.result;
+                p.result = null;
+                boolean result = true;
+                if (rs == null) {
+                    // executing the statement again closes the result
+                    // sets, so suspended portals that use it are removed
+                    removeSuspendedPortals(prepared);
+                    result = prep.execute();
+                    if (result) {
+                        rs = prep.getResultSet();
+                    }
+                }
                 if (result) {
                     try {
-                        ResultSet rs = prep.getResultSet();
                         // the meta-data is sent in the prior 'Describe'
-                        while (rs.next()) {
-                            sendDataRow(rs);
+                        int[] pgTypes = getPgTypes(rs.getMetaData());
+                        int count = 0;
+                        while (maxRows <= 0 || count < maxRows) {
+                            if (!rs.next()) {
+                                break;
+                            }
+                            sendDataRow(rs, pgTypes, p.resultColumnFormat);
+                            count++;
+                        }
+                        if (maxRows > 0 && count >= maxRows) {
+                            // the remaining rows are sent
+                            // by the next 'Execute'
+                            p.result = rs;
+                            sendPortalSuspended();
+                        } else {
+                            rs.close();
+                            sendCommandComplete(prep, 0);
                         }
-                        sendCommandComplete(prep, 0);
                     } catch (Exception e) {
+                        JdbcUtils.closeSilently(rs);
                         sendErrorResponse(e);
                     }
                 } else {
@@ -372,6 +426,15 @@ public class PgServerThread implements Runnable {
         }
         case 'S': {
             server.trace("Sync");
+            try {
+                if (conn.getAutoCommit()) {
+                    // the implicit transaction ends,
+                    // which removes the suspended portals
+                    removeSuspendedPortals(null);
+                }
+            } catch (SQLException e) {
+                server.traceError(e);
+            }
             sendReadyForQuery();
             break;
         }
@@ -387,6 +450,12 @@ public class PgServerThread implements Runnable {
                         break;
                     }
                     s = getSQL(s);
+                    if (PgCopy.isCopy(s)) {
+                        if (!processCopy(s)) {
+                            break;
+                        }
+                        continue;
+                    }
                     stat = (JdbcStatement) conn.createStatement();
                     setActiveRequest(stat);
                     boolean result = stat.execute(s);
@@ -394,9 +463,10 @@ public class PgServerThread implements Runnable {
                         ResultSet rs = stat.getResultSet();
                         ResultSetMetaData meta = rs.getMetaData();
                         try {
-                            sendRowDescription(meta);
+                            sendRowDescription(meta, null);
+                            int[] pgTypes = getPgTypes(meta);
                             while (rs.next()) {
-                                sendDataRow(rs);
+                                sendDataRow(rs, pgTypes, null);
                             }
                             sendCommandComplete(stat, 0);
                         } catch (Exception e) {
@@ -432,6 +502,322 @@ public class PgServerThread implements Runnable {
         }
     }
 
+    /**
+     * Process a COPY FROM STDIN or COPY TO STDOUT statement.
+     *
+     * @param sql the statement
+     * @return true if successful, false if an error was sent
+     */
+    private boolean processCopy(String sql) throws IOException {
+        PgCopy copy;
+        try {
+            copy = PgCopy.parse(sql);
+        } catch (DbException e) {
+            sendErrorResponse(e);
+            return false;
+        }
+        server.trace(copy.in ? "CopyIn" : "CopyOut");
+        if (copy.in) {
+            return copyIn(copy);
+        }
+        try {
+            copyOut(copy);
+            return true;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            sendErrorResponse(e);
+            return false;
+        }
+    }
+
+    private boolean copyIn(PgCopy copy) throws IOException {
+        Exception error = null;
+        PreparedStatement prep = null;
+        int[] types = null;
+        boolean autoCommit = true;
+        int rowCount = 0, batchSize = 0;
+        try {
+            autoCommit = conn.getAutoCommit();
+            StatementBuilder buff = new StatementBuilder("SELECT ");
+            if (copy.columns == null) {
+                buff.append('*');
+            } else {
+                for (String c : copy.columns) {
+                    buff.appendExceptFirst(", ");
+                    buff.append(c);
+                }
+            }
+            buff.append(" FROM ").append(copy.table);
+            prep = conn.prepareStatement(buff.toString());
+            ResultSetMetaData meta = prep.getMetaData();
+            int columnCount = meta.getColumnCount();
+            types = new int[columnCount];
+            buff = new StatementBuilder("INSERT INTO ");
+            buff.append(copy.table).append('(');
+            for (int i = 0; i < columnCount; i++) {
+                types[i] = meta.getColumnType(i + 1);
+                buff.appendExceptFirst(", ");
+                buff.append(StringUtils.quoteIdentifier(
+                        meta.getColumnName(i + 1)));
+            }
+            prep.close();
+            buff.append(") VALUES(");
+            buff.resetCount();
+            for (int i = 0; i < columnCount; i++) {
+                buff.appendExceptFirst(", ");
+                buff.append('?');
+            }
+            buff.append(')');
+            prep = conn.prepareStatement(buff.toString());
+            if (autoCommit) {
+                // all rows are inserted in one transaction
+                conn.setAutoCommit(false);
+            }
+        } catch (Exception e) {
+            JdbcUtils.closeSilently(prep);
+            sendErrorResponse(e);
+            return false;
+        }
+        startMessage('G');
+        // text format
+        write(0);
+        writeShort(types.length);
+        for (int i = 0; i < types.length; i++) {
+            writeShort(0);
+        }
+        sendMessage();
+        out.flush();
+        String encoding = getEncoding();
+        ByteArrayOutputStream pendingBytes = new ByteArrayOutputStream();
+        while (true) {
+            int x = dataInRaw.read();
+            if (x < 0) {
+                stop = true;
+                throw new EOFException();
+            }
+            int len = dataInRaw.readInt() - 4;
+            byte[] data = DataUtils.newBytes(len);
+            dataInRaw.readFully(data, 0, len);
+            boolean last;
+            if (x == 'd') {
+                last = false;
+            } else if (x == 'c') {
+                last = true;
+            } else if (x == 'f') {
+                if (error == null) {
+                    dataIn = new DataInputStream(
+                            new ByteArrayInputStream(data, 0, len));
+                    error = DbException.get(ErrorCode.GENERAL_ERROR_1,
+                            "COPY from stdin failed: " + readString());
+                }
+                break;
+            } else if (x == 'H' || x == 'S') {
+                // flush and sync are ignored while copying
+                continue;
+            } else {
+                if (error == null) {
+                    error = DbException.get(ErrorCode.GENERAL_ERROR_1,
+                            "unexpected message type " + x +
+                            " during COPY from stdin");
+                }
+                break;
+            }
+            if (error != null) {
+                if (last) {
+                    break;
+                }
+                continue;
+            }
+            try {
+                // only complete lines are decoded,
+                // so that no character is split
+                int end = len;
+                if (!last) {
+                    while (end > 0 && data[end - 1] != '\n') {
+                        end--;
+                    }
+                }
+                pendingBytes.write(data, 0, end);
+                copy.addData(new String(pendingBytes.toByteArray(), encoding));
+                pendingBytes.reset();
+                pendingBytes.write(data, end, len - end);
+                while (true) {
+                    String[] row = copy.readRow(last);
+                    if (row == null) {
+                        break;
+                    }
+                    setCopyRow(prep, types, row);
+                    prep.addBatch();
+                    rowCount++;
+                    if (++batchSize >= COPY_BATCH_SIZE) {
+                        prep.executeBatch();
+                        batchSize = 0;
+                    }
+                }
+                if (last && batchSize > 0) {
+                    prep.executeBatch();
+                }
+            } catch (Exception e) {
+                error = e;
+            }
+            if (last) {
+                break;
+            }
+        }
+        JdbcUtils.closeSilently(prep);
+        try {
+            if (autoCommit) {
+                if (error == null) {
+                    conn.commit();
+                } else {
+                    conn.rollback();
+                }
+                conn.setAutoCommit(true);
+            }
+        } catch (Exception e) {
+            if (error == null) {
+                error = e;
+            }
+        }
+        if (error != null) {
+            sendErrorResponse(error);
+            return false;
+        }
+        sendCopyComplete(rowCount);
+        return true;
+    }
+
+    private void setCopyRow(PreparedStatement prep, int[] types, String[] row)
+            throws SQLException {
+        if (row.length != types.length) {
+            throw DbException.get(ErrorCode.COLUMN_COUNT_DOES_NOT_MATCH);
+        }
+        for (int i = 0; i < row.length; i++) {
+            String s = row[i];
+            if (s != null) {
+                switch (types[i]) {
+                case Types.BINARY:
+                case Types.VARBINARY:
+                case Types.LONGVARBINARY:
+                case Types.BLOB:
+                    byte[] data = PgCopy.parseBytes(s);
+                    if (data != null) {
+                        prep.setBytes(i + 1, data);
+                        continue;
+                    }
+                    break;
+                default:
+                }
+            }
+            prep.setString(i + 1, s);
+        }
+    }
+
+    private void copyOut(PgCopy copy) throws IOException {
+        String sql = copy.query;
+        if (sql == null) {
+            StatementBuilder buff = new StatementBuilder("SELECT ");
+            if (copy.columns == null) {
+                buff.append('*');
+            } else {
+                for (String c : copy.columns) {
+                    buff.appendExceptFirst(", ");
+                    buff.append(c);
+                }
+            }
+            buff.append(" FROM ").append(copy.table);
+            sql = buff.toString();
+        }
+        // the rows are read directly from the result,
+        // without creating a JDBC result set
+        SessionInterface session = ((JdbcConnection) conn).getSession();
+        CommandInterface command = session.prepareCommand(sql,
+                Integer.MAX_VALUE);
+        try {
+            ResultInterface result = command.executeQuery(0, false);
+            try {
+                int columnCount = result.getVisibleColumnCount();
+                startMessage('H');
+                // text format
+                write(0);
+                writeShort(columnCount);
+                for (int i = 0; i < columnCount; i++) {
+                    writeShort(0);
+                }
+                sendMessage();
+                String encoding = getEncoding();
+                OutputStream rawOut = out;
+                out = new BufferedOutputStream(rawOut, Constants.IO_BUFFER_SIZE);
+                try {
+                    StringBuilder buff = new StringBuilder();
+                    if (copy.header) {
+                        for (int i = 0; i < columnCount; i++) {
+                            copy.appendField(buff, i == 0,
+                                    result.getColumnName(i));
+                        }
+                        sendCopyData(buff, encoding);
+                    }
+                    int rowCount = 0;
+                    while (result.next()) {
+                        Value[] row = result.currentRow();
+                        for (int i = 0; i < columnCount; i++) {
+                            copy.appendField(buff, i == 0, getCopyText(row[i]));
+                        }
+                        sendCopyData(buff, encoding);
+                        rowCount++;
+                    }
+                    startMessage('c');
+                    sendMessage();
+                    sendCopyComplete(rowCount);
+                    out.flush();
+                } finally {
+                    out = rawOut;
+                }
+            } finally {
+                result.close();
+            }
+        } finally {
+            command.close();
+        }
+    }
+
+    private static String getCopyText(Value v) {
+        switch (v.getType()) {
+        case Value.NULL:
+            return null;
+        case Value.BOOLEAN:
+            return v.getBoolean().booleanValue() ? "t" : "f";
+        case Value.BYTES:
+            return PgCopy.formatBytes(v.getBytesNoCopy());
+        default:
+            return v.getString();
+        }
+    }
+
+    private void sendCopyData(StringBuilder buff, String encoding)
+            throws IOException {
+        buff.append('\n');
+        byte[] data = buff.toString().getBytes(encoding);
+        buff.setLength(0);
+        out.write('d');
+        writeIntDirect(data.length + 4);
+        out.write(data);
+    }
+
+    private void writeIntDirect(int x) throws IOException {
+        out.write(x >>> 24);
+        out.write(x >>> 16);
+        out.write(x >>> 8);
+        out.write(x);
+    }
+
+    private void sendCopyComplete(int rowCount) throws IOException {
+        startMessage('C');
+        writeString("COPY " + rowCount);
+        sendMessage();
+    }
+
     private String getSQL(String s) {
         String lower = StringUtils.toLowerEnglish(s);
         if (lower.startsWith("show max_identifier_length")) {
@@ -477,74 +863,169 @@ public class PgServerThread implements Runnable {
         sendMessage();
     }
 
-    private void sendDataRow(ResultSet rs) throws Exception {
-        ResultSetMetaData metaData = rs.getMetaData();
-        int columns = metaData.getColumnCount();
+    private void sendDataRow(ResultSet rs, int[] pgTypes, int[] formatCodes)
+            throws Exception {
+        JdbcResultSet result = (JdbcResultSet) rs;
+        int columns = pgTypes.length;
         startMessage('D');
         writeShort(columns);
-        for (int i = 1; i <= columns; i++) {
-            writeDataColumn(rs, i, PgServer.convertType(metaData.getColumnType(i)));
+        for (int i = 0; i < columns; i++) {
+            int pgType = pgTypes[i];
+            writeDataColumn(result.getValue(i + 1), pgType,
+                    formatAsText(pgType, formatCodes, i));
         }
         sendMessage();
     }
 
-    private void writeDataColumn(ResultSet rs, int column, int pgType)
+    private void writeDataColumn(Value v, int pgType, boolean text)
             throws Exception {
-        if (formatAsText(pgType)) {
+        if (v == ValueNull.INSTANCE) {
+            writeInt(-1);
+            return;
+        }
+        if (text) {
             // plain text
             switch (pgType) {
             case PgServer.PG_TYPE_BOOL:
                 writeInt(1);
-                dataOut.writeByte(rs.getBoolean(column) ? 't' : 'f');
+                dataOut.writeByte(v.getBoolean() ? 't' : 'f');
                 break;
             default:
-                String s = rs.getString(column);
-                if (s == null) {
-                    writeInt(-1);
-                } else {
-                    byte[] data = s.getBytes(getEncoding());
-                    writeInt(data.length);
-                    write(data);
-                }
+                byte[] data = v.getString().getBytes(getEncoding());
+                writeInt(data.length);
+                write(data);
             }
         } else {
             // binary
             switch (pgType) {
             case PgServer.PG_TYPE_INT2:
                 writeInt(2);
-                writeShort(rs.getShort(column));
+                writeShort(v.getShort());
                 break;
             case PgServer.PG_TYPE_INT4:
                 writeInt(4);
-                writeInt(rs.getInt(column));
+                writeInt(v.getInt());
                 break;
             case PgServer.PG_TYPE_INT8:
                 writeInt(8);
-                dataOut.writeLong(rs.getLong(column));
+                dataOut.writeLong(v.getLong());
                 break;
             case PgServer.PG_TYPE_FLOAT4:
                 writeInt(4);
-                dataOut.writeFloat(rs.getFloat(column));
+                dataOut.writeFloat(v.getFloat());
                 break;
             case PgServer.PG_TYPE_FLOAT8:
                 writeInt(8);
-                dataOut.writeDouble(rs.getDouble(column));
+                dataOut.writeDouble(v.getDouble());
                 break;
-            case PgServer.PG_TYPE_BYTEA:
-                byte[] data = rs.getBytes(column);
-                if (data == null) {
-                    writeInt(-1);
-                } else {
-                    writeInt(data.length);
-                    write(data);
-                }
+            case PgServer.PG_TYPE_NUMERIC:
+                writeNumeric(v.getBigDecimal());
+                break;
+            case PgServer.PG_TYPE_BOOL:
+                writeInt(1);
+                dataOut.writeByte(v.getBoolean() ? 1 : 0);
+                break;
+            case PgServer.PG_TYPE_BYTEA: {
+                byte[] data = v.getBytesNoCopy();
+                writeInt(data.length);
+                write(data);
+                break;
+            }
+            case PgServer.PG_TYPE_DATE: {
+                ValueDate d = (ValueDate) v.convertTo(Value.DATE);
+                writeInt(4);
+                writeInt((int) (DateTimeUtils.absoluteDayFromDateValue(
+                        d.getDateValue()) - PG_EPOCH_DAYS));
+                break;
+            }
+            case PgServer.PG_TYPE_TIME: {
+                ValueTime t = (ValueTime) v.convertTo(Value.TIME);
+                writeInt(8);
+                dataOut.writeLong(t.getNanos() / 1000);
+                break;
+            }
+            case PgServer.PG_TYPE_TIMESTAMP_NO_TMZONE: {
+                ValueTimestamp ts = (ValueTimestamp) v.convertTo(
+                        Value.TIMESTAMP);
+                long days = DateTimeUtils.absoluteDayFromDateValue(
+                        ts.getDateValue()) - PG_EPOCH_DAYS;
+                writeInt(8);
+                dataOut.writeLong(days * MICROS_PER_DAY +
+                        ts.getTimeNanos() / 1000);
                 break;
-
-            default: throw new IllegalStateException("output binary format is undefined");
+            }
+            case PgServer.PG_TYPE_UUID: {
+                ValueUuid u = (ValueUuid) v.convertTo(Value.UUID);
+                writeInt(16);
+                dataOut.writeLong(u.getHigh());
+                dataOut.writeLong(u.getLow());
+                break;
+            }
+            default:
+                // the binary format of the character types
+                // is the same as the text format
+                byte[] data = v.getString().getBytes(getEncoding());
+                writeInt(data.length);
+                write(data);
             }
         }
     }
 
+    /**
+     * Write a numeric value in the binary format: the number of base 10000
+     * digits, the weight of the first digit, the sign, the display scale,
+     * and the digits.
+     *
+     * @param d the value
+     */
+    private void writeNumeric(BigDecimal d) throws IOException {
+        int scale = d.scale();
+        if (scale < 0) {
+            d = d.setScale(0);
+            scale = 0;
+        }
+        String s = d.unscaledValue().abs().toString();
+        int intLen = s.length() - scale;
+        StringBuilder buff = new StringBuilder();
+        // align the integer and the fraction part to groups of 4 digits
+        for (int i = intLen; i < 0; i++) {
+            buff.append('0');
+        }
+        intLen = Math.max(intLen, 0);
+        int pad = (4 - intLen % 4) % 4;
+        for (int i = 0; i < pad; i++) {
+            buff.append('0');
+        }
+        int weight = (intLen + pad) / 4 - 1;
+        buff.append(s);
+        for (int i = (4 - scale % 4) % 4; i > 0; i--) {
+            buff.append('0');
+        }
+        int start = 0, end = buff.length() / 4;
+        short[] digits = new short[end];
+        for (int i = 0; i < end; i++) {
+            digits[i] = Short.parseShort(buff.substring(i * 4, i * 4 + 4));
+        }
+        while (start < end && digits[start] == 0) {
+            start++;
+            weight--;
+        }
+        while (end > start && digits[end - 1] == 0) {
+            end--;
+        }
+        if (start == end) {
+            weight = 0;
+        }
+        writeInt(8 + 2 * (end - start));
+        writeShort(end - start);
+        writeShort(weight);
+        writeShort(d.signum() < 0 ? 0x4000 : 0);
+        writeShort(scale);
+        for (int i = start; i < end; i++) {
+            writeShort(digits[i]);
+        }
+    }
+
     private String getEncoding() {
         if ("UNICODE".equals(clientEncoding)) {
             return "UTF-8";
@@ -659,12 +1140,41 @@ public class PgServerThread implements Runnable {
         }
     }
 
+    private void sendPortalSuspended() throws IOException {
+        startMessage('s');
+        sendMessage();
+    }
+
+    /**
+     * Remove the suspended portals and close their result sets.
+     *
+     * @param prep the prepared statement of the portals to remove, or null
+     *            for all
+     */
+    private void removeSuspendedPortals(Prepared prep) {
+        for (Iterator<Portal> it = portals.values().iterator(); it.hasNext();) {
+            Portal p = it.next();
+            if (p.result != null && (prep == null || p.prep == prep)) {
+                closeResult(p);
+                it.remove();
+            }
+        }
+    }
+
+    private static void closeResult(Portal portal) {
+        if (portal != null && portal.result != null) {
+            JdbcUtils.closeSilently(portal.result);
+            portal.result = null;
+        }
+    }
+
     private void sendNoData() throws IOException {
         startMessage('n');
         sendMessage();
     }
 
-    private void sendRowDescription(ResultSetMetaData meta) throws Exception {
+    private void sendRowDescription(ResultSetMetaData meta, int[] formatCodes)
+            throws Exception {
         if (meta == null) {
             sendNoData();
         } else {
@@ -676,7 +1186,7 @@ public class PgServerThread implements Runnable {
                 String name = meta.getColumnName(i + 1);
                 names[i] = name;
                 int type = meta.getColumnType(i + 1);
-                int pgType = PgServer.convertType(type);
+                int pgType = getPgType(meta, i + 1);
                 // the ODBC client needs the column pg_catalog.pg_index
                 // to be of type 'int2vector'
                 // if (name.equalsIgnoreCase("indkey") &&
@@ -705,25 +1215,77 @@ public class PgServerThread implements Runnable {
                 // pg_attribute.atttypmod
                 writeInt(-1);
                 // the format type: text = 0, binary = 1
-                writeShort(formatAsText(types[i]) ? 0 : 1);
+                writeShort(formatAsText(types[i], formatCodes, i) ? 0 : 1);
             }
             sendMessage();
         }
     }
 
     /**
-     * Check whether the given type should be formatted as text.
+     * Check whether the given column should be formatted as text.
      *
-     * @return true for binary
+     * @param pgType the PostgreSQL type
+     * @param formatCodes the result format codes of the portal, or null
+     * @param column the column index (0 based)
+     * @return true for text, false for binary
      */
-    private static boolean formatAsText(int pgType) {
+    private static boolean formatAsText(int pgType, int[] formatCodes,
+            int column) {
         switch (pgType) {
-        // TODO: add more types to send as binary once compatibility is
-        // confirmed
         case PgServer.PG_TYPE_BYTEA:
+            // the text format of bytea is not supported
             return false;
+        case PgServer.PG_TYPE_INT2:
+        case PgServer.PG_TYPE_INT4:
+        case PgServer.PG_TYPE_INT8:
+        case PgServer.PG_TYPE_FLOAT4:
+        case PgServer.PG_TYPE_FLOAT8:
+        case PgServer.PG_TYPE_NUMERIC:
+        case PgServer.PG_TYPE_BOOL:
+        case PgServer.PG_TYPE_DATE:
+        case PgServer.PG_TYPE_TIME:
+        case PgServer.PG_TYPE_TIMESTAMP_NO_TMZONE:
+        case PgServer.PG_TYPE_UUID:
+        case PgServer.PG_TYPE_VARCHAR:
+        case PgServer.PG_TYPE_BPCHAR:
+        case PgServer.PG_TYPE_TEXT:
+            break;
+        default:
+            return true;
         }
-        return true;
+        if (formatCodes == null || formatCodes.length == 0) {
+            return true;
+        }
+        // a single format code applies to all columns
+        int format = formatCodes[formatCodes.length == 1 ? 0 :
+                Math.min(column, formatCodes.length - 1)];
+        return format == 0;
+    }
+
+    /**
+     * Get the PostgreSQL type of a column.
+     *
+     * @param meta the result set meta data
+     * @param column the column index (1 based)
+     * @return the type
+     */
+    private static int getPgType(ResultSetMetaData meta, int column)
+            throws SQLException {
+        int type = meta.getColumnType(column);
+        if (type == Types.BINARY &&
+                "UUID".equals(meta.getColumnTypeName(column))) {
+            return PgServer.PG_TYPE_UUID;
+        }
+        return PgServer.convertType(type);
+    }
+
+    private static int[] getPgTypes(ResultSetMetaData meta)
+            throws SQLException {
+        int[] pgTypes = new int[meta.getColumnCount()];
+        for (int i = 0; i < pgTypes.length; i++) {
+            pgTypes[i] = getPgType(meta, i + 1);
+        }
+        return pgTypes;
     }
 
     private static int getTypeSize(int pgType, int precision) {
@@ -747,6 +1309,7 @@ public class PgServerThread implements Runnable {
         writeString("08P01");
         write('M');
         writeString(message);
+        write(0);
         sendMessage();
     }
 
@@ -855,7 +1418,7 @@ public class PgServerThread implements Runnable {
         sendMessage();
         sendParameterStatus("client_encoding", clientEncoding);
         sendParameterStatus("DateStyle", dateStyle);
-        sendParameterStatus("integer_datetimes", "off");
+        sendParameterStatus("integer_datetimes", "on");
         sendParameterStatus("is_superuser", "off");
         sendParameterStatus("server_encoding", "SQL_ASCII");
         sendParameterStatus("server_version", "8.1.4");
@@ -1022,5 +1585,10 @@ public class PgServerThread implements Runnable {
          * The prepared object.
          */
         Prepared prep;
+
+        /**
+         * The result set of a suspended portal, or null.
+         */
+        ResultSet result;
     }
 }
@@ -106,6 +106,17 @@ merge into pg_catalog.pg_type values(
     false,
     null
 );
+merge into pg_catalog.pg_type values(
+    2950,
+    'uuid',
+    (select oid from pg_catalog.pg_namespace where nspname = 'pg_catalog'),
+    16,
+    'b',
+    0,
+    -1,
+    false,
+    null
+);
 
 create domain regproc as varchar_ignorecase;
 
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.store;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.security.SHA256;
+import org.h2.tools.CompressTool;
+
+/**
+ * The block map of the LOB storage, as used by the stream store. Blocks with
+ * the same content are only stored once, and are optionally compressed.
+ * <p>
+ * Each stream store key is mapped to the SHA-256 hash of the block, and the
+ * hash is mapped to the (compressed) data and to the number of keys that
+ * reference it. Blocks that were stored in the "lobData" map by older
+ * versions can still be read and removed.
+ */
+public class LobBlockMap extends AbstractMap<Long, byte[]> {
+
+    /**
+     * The blocks written by older versions.
+     *
+     * Key: stream store block id (long).
+     * Value: data (byte[]).
+     */
+    private final MVMap<Long, byte[]> oldDataMap;
+
+    /**
+     * Key: stream store block id (long).
+     * Value: hash of the data (byte[]).
+     */
+    private final MVMap<Long, byte[]> blockMap;
+
+    /**
+     * Key: hash of the data (byte[]).
+     * Value: the data, in the format of CompressTool.compress (byte[]).
+     */
+    private final MVMap<byte[], byte[]> contentMap;
+
+    /**
+     * Key: hash of the data (byte[]).
+     * Value: the number of blocks with this content (long).
+     */
+    private final MVMap<byte[], Long> refCountMap;
+
+    private volatile String compressionAlgorithm;
+
+    public LobBlockMap(MVStore store) {
+        oldDataMap = store.openMap("lobData");
+        blockMap = store.openMap("lobBlock");
+        contentMap = store.openMap("lobContent");
+        refCountMap = store.openMap("lobContentRef");
+    }
+
+    /**
+     * Set the algorithm used to compress new blocks.
+     *
+     * @param algorithm the algorithm (LZF or DEFLATE), or null for no
+     *            compression
+     */
+    public void setCompressionAlgorithm(String algorithm) {
+        this.compressionAlgorithm = algorithm;
+    }
+
+    /**
+     * Store a block. If a block with the same content already exists, only
+     * its reference count is incremented. The hash and the compressed data
+     * are calculated before locking, so that blocks can be stored
+     * concurrently.
+     *
+     * @param key the key
+     * @param data the data
+     * @return null
+     */
+    @Override
+    public byte[] put(Long key, byte[] data) {
+        byte[] hash = SHA256.getHash(data, false);
+        byte[] compressed = null;
+        if (!refCountMap.containsKey(hash)) {
+            compressed = compress(data);
+        }
+        synchronized (this) {
+            Long count = refCountMap.get(hash);
+            if (count == null) {
+                if (compressed == null) {
+                    // the content was removed in the meantime
+                    compressed = compress(data);
+                }
+                contentMap.put(hash, compressed);
+                count = 0L;
+            }
+            refCountMap.put(hash, count + 1);
+            byte[] old = blockMap.put(key, hash);
+            if (old != null) {
+                release(old);
+            } else if (oldDataMap.containsKey(key)) {
+                oldDataMap.remove(key);
+            }
+        }
+        return null;
+    }
+
+    private byte[] compress(byte[] data) {
+        String algorithm = compressionAlgorithm;
+        return CompressTool.getInstance().compress(data,
+                algorithm == null ? "NO" : algorithm);
+    }
+
+    @Override
+    public byte[] get(Object key) {
+        byte[] hash = blockMap.get(key);
+        if (hash == null) {
+            return oldDataMap.get(key);
+        }
+        byte[] data = contentMap.get(hash);
+        return data == null ? null : CompressTool.getInstance().expand(data);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return blockMap.containsKey(key) || oldDataMap.containsKey(key);
+    }
+
+    /**
+     * Remove a block. The content is removed when it is no longer
+     * referenced.
+     *
+     * @param key the key
+     * @return null
+     */
+    @Override
+    public synchronized byte[] remove(Object key) {
+        byte[] hash = blockMap.remove(key);
+        if (hash == null) {
+            oldDataMap.remove(key);
+        } else {
+            release(hash);
+        }
+        return null;
+    }
+
+    private void release(byte[] hash) {
+        Long count = refCountMap.get(hash);
+        if (count == null || count <= 1) {
+            refCountMap.remove(hash);
+            contentMap.remove(hash);
+        } else {
+            refCountMap.put(hash, count - 1);
+        }
+    }
+
+    /**
+     * Get the largest key.
+     *
+     * @return the key, or null if the map is empty
+     */
+    public Long lastKey() {
+        Long last = blockMap.lastKey();
+        Long lastOld = oldDataMap.lastKey();
+        if (last == null || lastOld != null && lastOld > last) {
+            return lastOld;
+        }
+        return last;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE,
+                blockMap.sizeAsLong() + oldDataMap.sizeAsLong());
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return blockMap.isEmpty() && oldDataMap.isEmpty();
+    }
+
+    /**
+     * Get the number of distinct blocks that are stored.
+     *
+     * @return the number of blocks
+     */
+    public long getContentCount() {
+        return contentMap.sizeAsLong() + oldDataMap.sizeAsLong();
+    }
+
+    /**
+     * Remove all blocks.
+     */
+    @Override
+    public synchronized void clear() {
+        blockMap.clear();
+        contentMap.clear();
+        refCountMap.clear();
+        oldDataMap.clear();
+    }
+
+    @Override
+    public Set<Long> keySet() {
+        return new AbstractSet<Long>() {
+
+            @Override
+            public Iterator<Long> iterator() {
+                return new KeyIterator();
+            }
+
+            @Override
+            public int size() {
+                return LobBlockMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+        };
+    }
+
+    @Override
+    public Set<Entry<Long, byte[]>> entrySet() {
+        return new AbstractSet<Entry<Long, byte[]>>() {
+
+            @Override
+            public Iterator<Entry<Long, byte[]>> iterator() {
+                final KeyIterator it = new KeyIterator();
+                return new Iterator<Entry<Long, byte[]>>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public Entry<Long, byte[]> next() {
+                        Long k = it.next();
+                        return new DataUtils.MapEntry<Long, byte[]>(k, get(k));
+                    }
+
+                    @Override
+                    public void remove() {
+                        it.remove();
+                    }
+
+                };
+            }
+
+            @Override
+            public int size() {
+                return LobBlockMap.this.size();
+            }
+
+        };
+    }
+
+    /**
+     * Iterates over the keys of the blocks, and then over the keys of the
+     * blocks written by older versions.
+     */
+    private class KeyIterator implements Iterator<Long> {
+
+        private Iterator<Long> it = blockMap.keySet().iterator();
+        private boolean old;
+        private Long current;
+
+        @Override
+        public boolean hasNext() {
+            if (!old && !it.hasNext()) {
+                old = true;
+                it = oldDataMap.keySet().iterator();
+            }
+            return it.hasNext();
+        }
+
+        @Override
+        public Long next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            current = it.next();
+            return current;
+        }
+
+        @Override
+        public void remove() {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            LobBlockMap.this.remove(current);
+            current = null;
+        }
+
+    }
+
+}
@@ -346,6 +346,14 @@ public class LobStorageBackend implements LobStorageInterface {
         }
     }
 
+    @Override
+    public InputStream getInputStream(ValueLobDb lob, byte[] hmac,
+            long offset, long length) throws IOException {
+        // LobInputStream.skip only reads the block at the new position
+        return new RangeInputStream(getInputStream(lob, hmac, -1),
+                offset, length);
+    }
+
     private ValueLobDb addLob(InputStream in, long maxLength, int type,
             CountingReaderInputStream countingReaderForClob) {
         try {
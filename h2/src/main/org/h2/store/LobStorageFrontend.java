@@ -62,6 +62,14 @@ public class LobStorageFrontend implements LobStorageInterface {
                 handler, lob, hmac, byteCount));
     }
 
+    @Override
+    public InputStream getInputStream(ValueLobDb lob, byte[] hmac,
+            long offset, long length) throws IOException {
+        // the remote stream skips by changing the position
+        return new RangeInputStream(getInputStream(lob, hmac, -1),
+                offset, length);
+    }
+
     @Override
     public boolean isReadOnly() {
         return false;
@@ -55,6 +55,19 @@ public interface LobStorageInterface {
     InputStream getInputStream(ValueLobDb lob, byte[] hmac, long byteCount)
             throws IOException;
 
+    /**
+     * Get an input stream to read a range of the given lob. Positioning the
+     * stream does not read the data before the offset.
+     *
+     * @param lob the lob id
+     * @param hmac the message authentication code (for remote input streams)
+     * @param offset the offset of the first byte (0 based)
+     * @param length the number of bytes to read, or -1 to read to the end
+     * @return the stream
+     */
+    InputStream getInputStream(ValueLobDb lob, byte[] hmac, long offset,
+            long length) throws IOException;
+
     /**
      * Set the table reference of this lob.
      *
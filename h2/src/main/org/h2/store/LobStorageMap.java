@@ -63,12 +63,10 @@ public class LobStorageMap implements LobStorageInterface {
     private MVMap<Object[], Boolean> refMap;
 
     /**
-     * The stream store data map.
-     *
-     * Key: stream store block id (long).
-     * Value: data (byte[]).
+     * The stream store data map. Blocks with the same content are only
+     * stored once.
      */
-    private MVMap<Long, byte[]> dataMap;
+    private LobBlockMap dataMap;
 
     private StreamStore streamStore;
 
@@ -92,7 +90,7 @@ public class LobStorageMap implements LobStorageInterface {
         }
         lobMap = mvStore.openMap("lobMap");
         refMap = mvStore.openMap("lobRef");
-        dataMap = mvStore.openMap("lobData");
+        dataMap = new LobBlockMap(mvStore);
         streamStore = new StreamStore(dataMap);
         // garbage collection of the last blocks
         if (database.isReadOnly()) {
@@ -197,6 +195,8 @@ public class LobStorageMap implements LobStorageInterface {
     private ValueLobDb createLob(InputStream in, int type) throws IOException {
         byte[] streamStoreId;
         try {
+            dataMap.setCompressionAlgorithm(
+                    database.getLobCompressionAlgorithm(type));
             streamStoreId = streamStore.put(in);
         } catch (Exception e) {
             throw DbException.convertToIOException(e);
@@ -269,6 +269,14 @@ public class LobStorageMap implements LobStorageInterface {
         return streamStore.get(streamStoreId);
     }
 
+    @Override
+    public InputStream getInputStream(ValueLobDb lob, byte[] hmac,
+            long offset, long length) throws IOException {
+        // the stream store only reads the blocks after the offset
+        return new RangeInputStream(getInputStream(lob, hmac, -1),
+                offset, length);
+    }
+
     @Override
     public void setTable(ValueLobDb lob, int tableId) {
         init();
@@ -8,6 +8,7 @@ package org.h2.store;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.zip.CRC32;
@@ -43,12 +44,15 @@ import org.h2.table.RegularTable;
 import org.h2.table.Table;
 import org.h2.util.BitField;
 import org.h2.util.Cache;
+import org.h2.util.CacheLIRS;
 import org.h2.util.CacheLRU;
 import org.h2.util.CacheObject;
 import org.h2.util.CacheWriter;
 import org.h2.util.IntArray;
 import org.h2.util.IntIntHashMap;
 import org.h2.util.New;
+import org.h2.util.ReadAheadThread;
+import org.h2.util.SmallLRUCache;
 import org.h2.util.StatementBuilder;
 import org.h2.util.StringUtils;
 import org.h2.value.CompareMode;
@@ -129,6 +133,12 @@ public class PageStore implements CacheWriter {
     private static final int META_TYPE_BTREE_INDEX = 1;
     private static final int META_TABLE_ID = -1;
     private static final int COMPACT_BLOCK_SIZE = 1536;
+
+    /**
+     * The maximum number of adjacent pages that are written at once when
+     * writing back the changed pages.
+     */
+    private static final int WRITE_BUFFER_PAGES = 64;
     private final Database database;
     private final Trace trace;
     private final String fileName;
@@ -136,9 +146,15 @@ public class PageStore implements CacheWriter {
     private String accessMode;
     private int pageSize = Constants.DEFAULT_PAGE_SIZE;
     private int pageSizeShift;
-    private long writeCountBase, writeCount, readCount;
+    private long writeCountBase, writeCount, readCount, readAheadCount;
+    private long cacheHits, cacheMisses;
     private int logKey, logFirstTrunkPage, logFirstDataPage;
     private final Cache cache;
+
+    /**
+     * Whether the cache supports concurrent reads.
+     */
+    private final boolean concurrentCache;
     private int freeListPagesPerList;
     private boolean recoveryRunning;
     private boolean ignoreBigLog;
@@ -197,6 +213,27 @@ public class PageStore implements CacheWriter {
 
     private Data emptyPage;
     private long logSizeBase;
+
+    /**
+     * The buffer for adjacent pages that are not yet written (only used while
+     * writing back the changed pages).
+     */
+    private byte[] writeBuffer;
+    private int writeBufferFirstPage, writeBufferPageCount;
+    private boolean checkpointInBackground;
+    private boolean checkpointRequested;
+
+    /**
+     * The number of pages to read ahead in sequential scans, or 0.
+     */
+    private final int readAheadPages;
+
+    /**
+     * The pages that were read ahead and are not used yet, with the content
+     * as stored in the file. Pages are removed when they are written.
+     */
+    private final SmallLRUCache<Integer, byte[]> readAheadBuffer;
+    private final ReadAheadThread readAheadThread;
     private HashMap<String, Integer> statistics;
     private int logMode = LOG_MODE_SYNC;
     private boolean lockFile;
@@ -221,6 +258,12 @@ public class PageStore implements CacheWriter {
         // trace.setLevel(TraceSystem.DEBUG);
         String cacheType = database.getCacheType();
         this.cache = CacheLRU.getCache(this, cacheType, cacheSizeDefault);
+        this.concurrentCache = cache instanceof CacheLIRS;
+        readAheadPages = database.getSettings().readAheadPages;
+        readAheadBuffer = SmallLRUCache.newInstance(
+                Math.max(1, readAheadPages * 4));
+        readAheadThread = readAheadPages <= 0 ? null : new ReadAheadThread(
+                "H2 Read Ahead " + database.getShortName(), 4);
         pageStoreSession = new Session(database, null, 0);
     }
 
@@ -414,11 +457,52 @@ public class PageStore implements CacheWriter {
     private void writeBack() {
         ArrayList<CacheObject> list = cache.getAllChanged();
         Collections.sort(list);
-        for (int i = 0, size = list.size(); i < size; i++) {
-            writeBack(list.get(i));
+        // the pages are sorted by position, so that adjacent pages
+        // can be written using one write operation
+        if (writeBuffer == null) {
+            writeBuffer = new byte[pageSize * WRITE_BUFFER_PAGES];
+        }
+        try {
+            for (int i = 0, size = list.size(); i < size; i++) {
+                writeBack(list.get(i));
+            }
+        } finally {
+            flushWriteBuffer();
+            writeBuffer = null;
+        }
+    }
+
+    private void flushWriteBuffer() {
+        int count = writeBufferPageCount;
+        if (count > 0) {
+            writeBufferPageCount = 0;
+            file.seek((long) writeBufferFirstPage << pageSizeShift);
+            file.write(writeBuffer, 0, count << pageSizeShift);
         }
     }
 
+    /**
+     * Write back the changed pages if this was requested when committing a
+     * transaction. This method is called by the writer thread.
+     */
+    public synchronized void checkpointIfRequested() {
+        if (checkpointRequested) {
+            checkpointRequested = false;
+            checkpoint();
+        }
+    }
+
+    /**
+     * Whether writing back the changed pages, when the transaction log gets
+     * large, may be done by the writer thread instead of the committing
+     * session.
+     *
+     * @param checkpointInBackground the new value
+     */
+    public void setCheckpointInBackground(boolean checkpointInBackground) {
+        this.checkpointInBackground = checkpointInBackground;
+    }
+
     /**
      * Flush all pending changes to disk, and switch the new transaction log.
      */
@@ -460,6 +544,7 @@ public class PageStore implements CacheWriter {
                 file.seek((long) i << pageSizeShift);
                 file.readFully(test, 0, 16);
                 if (test[0] != 0) {
+                    readAheadBuffer.remove(i);
                     file.seek((long) i << pageSizeShift);
                     file.write(empty, 0, pageSize);
                     writeCount++;
@@ -645,6 +730,7 @@ public class PageStore implements CacheWriter {
         trace.debug("pageCount: " + pageCount);
         long newLength = (long) pageCount << pageSizeShift;
         if (file.length() != newLength) {
+            readAheadBuffer.clear();
             file.setLength(newLength);
             writeCount++;
         }
@@ -739,11 +825,25 @@ public class PageStore implements CacheWriter {
      * @param pageId the page id
      * @return the page
      */
-    public synchronized Page getPage(int pageId) {
+    public Page getPage(int pageId) {
+        if (concurrentCache) {
+            // cached pages can be read without synchronizing on the store
+            Page p = (Page) cache.get(pageId);
+            if (p != null) {
+                cacheHits++;
+                return p;
+            }
+        }
+        return loadPage(pageId);
+    }
+
+    private synchronized Page loadPage(int pageId) {
         Page p = (Page) cache.get(pageId);
         if (p != null) {
+            cacheHits++;
             return p;
         }
+        cacheMisses++;
 
         Data data = createData();
         readPage(pageId, data);
@@ -1001,6 +1101,7 @@ public class PageStore implements CacheWriter {
      */
     public synchronized void close() {
         trace.debug("close");
+        readAheadBuffer.clear();
         if (log != null) {
             log.close();
             log = null;
@@ -1321,11 +1422,93 @@ public class PageStore implements CacheWriter {
             throw DbException.get(ErrorCode.FILE_CORRUPTED_1, pos +
                     " of " + pageCount);
         }
+        if (writeBufferPageCount > 0) {
+            flushWriteBuffer();
+        }
+        if (!readAheadBuffer.isEmpty()) {
+            byte[] bytes = readAheadBuffer.remove(pos);
+            if (bytes != null) {
+                System.arraycopy(bytes, 0, page.getBytes(), 0, pageSize);
+                readAheadCount++;
+                return;
+            }
+        }
         file.seek((long) pos << pageSizeShift);
         file.readFully(page.getBytes(), 0, pageSize);
         readCount++;
     }
 
+    /**
+     * Get the number of pages to read ahead in sequential scans.
+     *
+     * @return the number of pages, or 0 if read-ahead is disabled
+     */
+    public int getReadAheadPages() {
+        return readAheadPages;
+    }
+
+    /**
+     * Read the given pages in the background, so that they don't need to be
+     * read from the file when they are needed. Pages that are in the cache
+     * are skipped.
+     *
+     * @param pageIds the page ids
+     */
+    public void readAhead(final int[] pageIds) {
+        if (readAheadThread == null) {
+            return;
+        }
+        readAheadThread.submit(new Runnable() {
+            @Override
+            public void run() {
+                readAheadNow(pageIds);
+            }
+        });
+    }
+
+    /**
+     * Read the given pages into the read-ahead buffer. Adjacent pages are
+     * read using one read operation. This method is called by the read-ahead
+     * thread.
+     *
+     * @param pageIds the page ids
+     */
+    synchronized void readAheadNow(int[] pageIds) {
+        int[] ids = pageIds.clone();
+        Arrays.sort(ids);
+        for (int i = 0; i < ids.length; i++) {
+            if (file == null) {
+                return;
+            }
+            int pos = ids[i];
+            if (!isReadAheadNeeded(pos)) {
+                continue;
+            }
+            int count = 1;
+            while (i + count < ids.length &&
+                    count < readAheadPages &&
+                    ids[i + count] == pos + count &&
+                    isReadAheadNeeded(pos + count)) {
+                count++;
+            }
+            byte[] buff = new byte[count << pageSizeShift];
+            file.seek((long) pos << pageSizeShift);
+            file.readFully(buff, 0, buff.length);
+            readCount += count;
+            for (int j = 0; j < count; j++) {
+                byte[] bytes = new byte[pageSize];
+                System.arraycopy(buff, j << pageSizeShift, bytes, 0, pageSize);
+                readAheadBuffer.put(pos + j, bytes);
+            }
+            i += count - 1;
+        }
+    }
+
+    private boolean isReadAheadNeeded(int pos) {
+        return pos >= MIN_PAGE_COUNT && pos < pageCount &&
+                cache.find(pos) == null && !readAheadBuffer.containsKey(pos);
+    }
+
     /**
      * Get the page size.
      *
@@ -1364,9 +1547,25 @@ public class PageStore implements CacheWriter {
             }
         }
         checksumSet(bytes, pageId);
+        writeCount++;
+        if (!readAheadBuffer.isEmpty()) {
+            readAheadBuffer.remove(pageId);
+        }
+        if (writeBuffer != null) {
+            if (writeBufferPageCount == WRITE_BUFFER_PAGES ||
+                    writeBufferPageCount > 0 &&
+                    pageId != writeBufferFirstPage + writeBufferPageCount) {
+                flushWriteBuffer();
+            }
+            if (writeBufferPageCount == 0) {
+                writeBufferFirstPage = pageId;
+            }
+            System.arraycopy(bytes, 0, writeBuffer,
+                    writeBufferPageCount++ << pageSizeShift, pageSize);
+            return;
+        }
         file.seek((long) pageId << pageSizeShift);
         file.write(bytes, 0, pageSize);
-        writeCount++;
     }
 
     /**
@@ -1475,6 +1674,11 @@ public class PageStore implements CacheWriter {
         openForWriting();
         log.commit(session.getId());
         long size = log.getSize();
+        if (checkpointInBackground && size - logSizeBase > maxLogSize / 4) {
+            // the writer thread writes back the changed pages, so that
+            // committing usually doesn't need to wait for that
+            checkpointRequested = true;
+        }
         if (size - logSizeBase > maxLogSize / 2) {
             int firstSection = log.getLogFirstSectionId();
             checkpoint();
@@ -1928,6 +2132,35 @@ public class PageStore implements CacheWriter {
         return readCount;
     }
 
+    /**
+     * Get the number of pages that were read ahead in the background and then
+     * used, since the database was opened.
+     *
+     * @return the number of pages
+     */
+    public long getReadAheadCount() {
+        return readAheadCount;
+    }
+
+    /**
+     * Get the number of pages that were found in the cache. The counter is
+     * not synchronized if a concurrent cache is used, so it is approximate.
+     *
+     * @return the number of cache hits
+     */
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * Get the number of pages that were not found in the cache.
+     *
+     * @return the number of cache misses
+     */
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
     /**
      * A table is truncated.
      *
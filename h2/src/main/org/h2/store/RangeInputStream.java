@@ -0,0 +1,94 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.store;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.h2.util.IOUtils;
+
+/**
+ * An input stream that only reads a range of the source stream. The source
+ * stream is positioned using skip, so it should support skipping without
+ * reading the data.
+ */
+public class RangeInputStream extends FilterInputStream {
+
+    private long remaining;
+
+    /**
+     * Create a new range input stream.
+     *
+     * @param in the source stream
+     * @param offset the offset of the first byte (0 based)
+     * @param length the number of bytes, or -1 to read to the end
+     * @throws java.io.EOFException if the offset is after the end
+     */
+    public RangeInputStream(InputStream in, long offset, long length)
+            throws IOException {
+        super(in);
+        remaining = length < 0 ? Long.MAX_VALUE : length;
+        IOUtils.skipFully(in, offset);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (remaining <= 0) {
+            return -1;
+        }
+        int b = in.read();
+        if (b >= 0) {
+            remaining--;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        } else if (remaining <= 0) {
+            return -1;
+        }
+        len = (int) Math.min(len, remaining);
+        int result = in.read(b, off, len);
+        if (result > 0) {
+            remaining -= result;
+        }
+        return result;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long result = in.skip(Math.min(n, remaining));
+        if (result > 0) {
+            remaining -= result;
+        }
+        return result;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(in.available(), remaining);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        // not supported
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+}
@@ -84,6 +84,7 @@ public class WriterThread implements Runnable {
                     database.checkpointIfRequired();
                 } else {
                     database.flush();
+                    database.checkpointIfRequested();
                 }
             } catch (Exception e) {
                 TraceSystem traceSystem = database.getTraceSystem();
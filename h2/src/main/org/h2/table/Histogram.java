@@ -0,0 +1,229 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.table;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import org.h2.util.StatementBuilder;
+import org.h2.value.CompareMode;
+import org.h2.value.DataType;
+import org.h2.value.Value;
+import org.h2.value.ValueNull;
+import org.h2.value.ValueString;
+
+/**
+ * An equi-depth histogram of the values of a column, as calculated by the
+ * ANALYZE statement. The bounds divide the sorted sample values into buckets
+ * that contain the same number of values. It is used to estimate the number
+ * of rows that match a range condition, and the number of rows that match an
+ * equality condition for values that occur very often.
+ */
+public class Histogram {
+
+    /**
+     * The number of buckets.
+     */
+    public static final int BUCKETS = 32;
+
+    /**
+     * Longer strings are truncated, to keep the column definition small.
+     */
+    private static final int MAX_STRING_LENGTH = 64;
+
+    private final Value[] bounds;
+
+    public Histogram(Value[] bounds) {
+        this.bounds = bounds;
+    }
+
+    /**
+     * Create a histogram from a list of sample values. NULL values are
+     * ignored. The list is sorted.
+     *
+     * @param sample the sample values
+     * @param compareMode the compare mode
+     * @return the histogram, or null if there are too few values
+     */
+    public static Histogram create(ArrayList<Value> sample,
+            final CompareMode compareMode) {
+        ArrayList<Value> list = new ArrayList<Value>(sample.size());
+        for (Value v : sample) {
+            if (v != ValueNull.INSTANCE) {
+                list.add(v);
+            }
+        }
+        int size = list.size();
+        if (size < BUCKETS) {
+            return null;
+        }
+        Collections.sort(list, new Comparator<Value>() {
+            @Override
+            public int compare(Value a, Value b) {
+                return a.compareTo(b, compareMode);
+            }
+        });
+        Value[] bounds = new Value[BUCKETS + 1];
+        for (int i = 0; i <= BUCKETS; i++) {
+            int pos = (int) ((long) (size - 1) * i / BUCKETS);
+            Value v = list.get(pos);
+            if (DataType.isStringType(v.getType())) {
+                String s = v.getString();
+                if (s.length() > MAX_STRING_LENGTH) {
+                    v = ValueString.get(s.substring(0, MAX_STRING_LENGTH)).
+                            convertTo(v.getType());
+                }
+            }
+            bounds[i] = v;
+        }
+        return new Histogram(bounds);
+    }
+
+    /**
+     * Check whether histograms are supported for the given data type.
+     *
+     * @param type the data type
+     * @return true if they are supported
+     */
+    public static boolean isSupported(int type) {
+        switch (type) {
+        case Value.BYTE:
+        case Value.SHORT:
+        case Value.INT:
+        case Value.LONG:
+        case Value.DECIMAL:
+        case Value.DOUBLE:
+        case Value.FLOAT:
+        case Value.TIME:
+        case Value.DATE:
+        case Value.TIMESTAMP:
+        case Value.STRING:
+        case Value.STRING_IGNORECASE:
+        case Value.STRING_FIXED:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    public Value[] getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Estimate the fraction of the rows that contain the given value. This
+     * is only possible for values that occur very often (that is, the value
+     * spans more than one bucket).
+     *
+     * @param v the value
+     * @param compareMode the compare mode
+     * @return the fraction, or -1 if not known
+     */
+    public double getEqualityFraction(Value v, CompareMode compareMode) {
+        int count = 0;
+        for (Value b : bounds) {
+            if (b.compareTo(v, compareMode) == 0) {
+                count++;
+            }
+        }
+        if (count < 2) {
+            return -1;
+        }
+        return (double) (count - 1) / BUCKETS;
+    }
+
+    /**
+     * Estimate the fraction of the rows with a value within the given range.
+     * The result is never zero, as the sample may not contain all values.
+     *
+     * @param start the lower bound, or null if there is none
+     * @param end the upper bound, or null if there is none
+     * @param compareMode the compare mode
+     * @return the fraction
+     */
+    public double getRangeFraction(Value start, Value end,
+            CompareMode compareMode) {
+        double s = start == null ? 0 : getPosition(start, false, compareMode);
+        double e = end == null ? 1 : getPosition(end, true, compareMode);
+        return Math.max(e - s, 0.5 / BUCKETS);
+    }
+
+    /**
+     * Estimate the fraction of the rows with a value smaller than the given
+     * value (or smaller or equal, if inclusive).
+     *
+     * @param v the value
+     * @param inclusive whether to include the rows that match the value
+     * @param compareMode the compare mode
+     * @return the fraction
+     */
+    private double getPosition(Value v, boolean inclusive,
+            CompareMode compareMode) {
+        int first = -1, last = -1;
+        int i = 0;
+        for (; i < bounds.length; i++) {
+            int comp = bounds[i].compareTo(v, compareMode);
+            if (comp == 0) {
+                if (first < 0) {
+                    first = i;
+                }
+                last = i;
+            } else if (comp > 0) {
+                break;
+            }
+        }
+        if (first >= 0) {
+            return (double) (inclusive ? last : first) / BUCKETS;
+        }
+        if (i == 0) {
+            return 0;
+        } else if (i == bounds.length) {
+            return 1;
+        }
+        return (i - 1 + interpolate(bounds[i - 1], bounds[i], v)) / BUCKETS;
+    }
+
+    /**
+     * Estimate the relative position of the value within the bucket. For
+     * numbers, linear interpolation is used; for other data types the value
+     * is assumed to be in the middle.
+     */
+    private static double interpolate(Value low, Value high, Value v) {
+        switch (v.getType()) {
+        case Value.BYTE:
+        case Value.SHORT:
+        case Value.INT:
+        case Value.LONG:
+        case Value.DECIMAL:
+        case Value.DOUBLE:
+        case Value.FLOAT: {
+            double l = low.getDouble(), h = high.getDouble();
+            if (h > l) {
+                return Math.min(1, Math.max(0, (v.getDouble() - l) / (h - l)));
+            }
+            break;
+        }
+        default:
+        }
+        return 0.5;
+    }
+
+    /**
+     * Get the SQL snippet of the histogram, as used in the column
+     * definition.
+     *
+     * @return the SQL snippet
+     */
+    public String getSQL() {
+        StatementBuilder buff = new StatementBuilder("(");
+        for (Value v : bounds) {
+            buff.appendExceptFirst(", ");
+            buff.append(v.getSQL());
+        }
+        return buff.append(')').toString();
+    }
+
+}
@@ -32,6 +32,7 @@ import org.h2.engine.Right;
 import org.h2.engine.Role;
 import org.h2.engine.Session;
 import org.h2.engine.Setting;
+import org.h2.engine.StatementMetrics;
 import org.h2.engine.User;
 import org.h2.engine.UserAggregate;
 import org.h2.engine.UserDataType;
@@ -108,7 +109,8 @@ public class MetaTable extends Table {
     private static final int LOCKS = 26;
     private static final int SESSION_STATE = 27;
     private static final int QUERY_STATISTICS = 28;
-    private static final int META_TABLE_TYPE_COUNT = QUERY_STATISTICS + 1;
+    private static final int RECENT_STATEMENTS = 29;
+    private static final int META_TABLE_TYPE_COUNT = RECENT_STATEMENTS + 1;
 
     private final int type;
     private final int indexColumn;
@@ -533,7 +535,28 @@ public class MetaTable extends Table {
                     "MAX_ROW_COUNT INT",
                     "CUMULATIVE_ROW_COUNT LONG",
                     "AVERAGE_ROW_COUNT DOUBLE",
-                    "STD_DEV_ROW_COUNT DOUBLE"
+                    "STD_DEV_ROW_COUNT DOUBLE",
+                    "MEDIAN_EXECUTION_TIME DOUBLE",
+                    "P90_EXECUTION_TIME DOUBLE",
+                    "P99_EXECUTION_TIME DOUBLE"
+            );
+            break;
+        }
+        case RECENT_STATEMENTS: {
+            setObjectName("RECENT_STATEMENTS");
+            cols = createColumns(
+                    "SQL_STATEMENT",
+                    "SESSION_ID INT",
+                    "START_TIME",
+                    "EXECUTION_TIME DOUBLE",
+                    "ROW_COUNT INT",
+                    "INDEX_LOOKUPS LONG",
+                    "CACHE_HITS LONG",
+                    "CACHE_MISSES LONG",
+                    "BYTES_READ LONG",
+                    "SORT_TIME DOUBLE",
+                    "GROUP_TIME DOUBLE",
+                    "SPILL_TIME DOUBLE"
             );
             break;
         }
@@ -952,6 +975,8 @@ public class MetaTable extends Table {
                             "" + store.getWriteCount());
                     add(rows, "info.FILE_READ",
                             "" + store.getReadCount());
+                    add(rows, "info.FILE_READ_AHEAD",
+                            "" + store.getReadAheadCount());
                     add(rows, "info.PAGE_COUNT",
                             "" + store.getPageCount());
                     add(rows, "info.PAGE_SIZE",
@@ -984,6 +1009,8 @@ public class MetaTable extends Table {
                             mvStore.getStore().getCacheSize());
                     add(rows, "info.CACHE_SIZE", "" +
                             mvStore.getStore().getCacheSizeUsed());
+                    add(rows, "info.STORE_VERSION", "" +
+                            mvStore.getStore().getCurrentVersion());
                 }
             }
             break;
@@ -1783,13 +1810,13 @@ public class MetaTable extends Table {
                             // EXECUTION_COUNT
                             "" + entry.count,
                             // MIN_EXECUTION_TIME
-                            "" + entry.executionTimeMin,
+                            "" + entry.getExecutionTimeMin(),
                             // MAX_EXECUTION_TIME
-                            "" + entry.executionTimeMax,
+                            "" + entry.getExecutionTimeMax(),
                             // CUMULATIVE_EXECUTION_TIME
-                            "" + entry.executionTimeCumulative,
+                            "" + entry.getExecutionTimeCumulative(),
                             // AVERAGE_EXECUTION_TIME
-                            "" + entry.executionTimeMean,
+                            "" + entry.getExecutionTimeMean(),
                             // STD_DEV_EXECUTION_TIME
                             "" + entry.getExecutionTimeStandardDeviation(),
                             // MIN_ROW_COUNT
@@ -1801,7 +1828,47 @@ public class MetaTable extends Table {
                             // AVERAGE_ROW_COUNT
                             "" + entry.rowCountMean,
                             // STD_DEV_ROW_COUNT
-                            "" + entry.getRowCountStandardDeviation()
+                            "" + entry.getRowCountStandardDeviation(),
+                            // MEDIAN_EXECUTION_TIME
+                            "" + entry.getExecutionTimePercentile(50),
+                            // P90_EXECUTION_TIME
+                            "" + entry.getExecutionTimePercentile(90),
+                            // P99_EXECUTION_TIME
+                            "" + entry.getExecutionTimePercentile(99)
+                    );
+                }
+            }
+            break;
+        }
+        case RECENT_STATEMENTS: {
+            QueryStatisticsData control = database.getQueryStatisticsData();
+            if (control != null) {
+                for (StatementMetrics m : control.getRecentStatements()) {
+                    add(rows,
+                            // SQL_STATEMENT
+                            m.getSQL(),
+                            // SESSION_ID
+                            "" + m.getSessionId(),
+                            // START_TIME
+                            new Timestamp(m.getStartTime()).toString(),
+                            // EXECUTION_TIME
+                            "" + m.getExecutionTime() / 1000000.0,
+                            // ROW_COUNT
+                            "" + m.getRowCount(),
+                            // INDEX_LOOKUPS
+                            "" + m.getIndexLookups(),
+                            // CACHE_HITS
+                            "" + m.getCacheHits(),
+                            // CACHE_MISSES
+                            "" + m.getCacheMisses(),
+                            // BYTES_READ
+                            "" + m.getBytesRead(),
+                            // SORT_TIME
+                            "" + m.getSortTime() / 1000000.0,
+                            // GROUP_TIME
+                            "" + m.getGroupTime() / 1000000.0,
+                            // SPILL_TIME
+                            "" + m.getSpillTime() / 1000000.0
                     );
                 }
             }
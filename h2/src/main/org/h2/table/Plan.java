@@ -129,6 +129,54 @@ public class Plan {
         return cost;
     }
 
+    /**
+     * Calculate the factor by which the cost of a partial plan is multiplied
+     * if the given table (and the tables joined to it) is added at the end.
+     * This is the same calculation as in calculateCost, but only for one
+     * table, assuming the tables of the partial plan are already evaluatable.
+     *
+     * @param session the session
+     * @param filter the top level table filter to add
+     * @param before the top level table filters of the partial plan
+     * @param level the level of the first table filter to add
+     * @return the factor, or infinity if the plan is invalid
+     */
+    public double calculateCostFactor(Session session, TableFilter filter,
+            ArrayList<TableFilter> before, int level) {
+        final ArrayList<TableFilter> list = New.arrayList();
+        TableFilterVisitor visitor = new TableFilterVisitor() {
+            @Override
+            public void accept(TableFilter f) {
+                list.add(f);
+            }
+        };
+        for (TableFilter f : before) {
+            f.visit(visitor);
+        }
+        for (TableFilter f : list) {
+            setEvaluatable(f, true);
+        }
+        list.clear();
+        filter.visit(visitor);
+        double factor = 1;
+        for (TableFilter tableFilter : list) {
+            PlanItem item = tableFilter.getBestPlanItem(session, level++);
+            factor += factor * item.cost;
+            setEvaluatable(tableFilter, true);
+            Expression on = tableFilter.getJoinCondition();
+            if (on != null) {
+                if (!on.isEverything(ExpressionVisitor.EVALUATABLE_VISITOR)) {
+                    factor = Double.POSITIVE_INFINITY;
+                    break;
+                }
+            }
+        }
+        for (TableFilter f : allFilters) {
+            setEvaluatable(f, false);
+        }
+        return factor;
+    }
+
     private void setEvaluatable(TableFilter filter, boolean b) {
         filter.setEvaluatable(filter, b);
         for (Expression e : allConditions) {
@@ -35,6 +35,7 @@ import org.h2.index.SpatialTreeIndex;
 import org.h2.index.TreeIndex;
 import org.h2.message.DbException;
 import org.h2.message.Trace;
+import org.h2.mvstore.rtree.SpatialKey;
 import org.h2.result.Row;
 import org.h2.result.SortOrder;
 import org.h2.schema.SchemaObject;
@@ -259,29 +260,11 @@ public class RegularTable extends TableBase {
         }
         if (index.needRebuild() && rowCount > 0) {
             try {
-                Index scan = getScanIndex(session);
-                long remaining = scan.getRowCount(session);
-                long total = remaining;
-                Cursor cursor = scan.find(session, null, null);
-                long i = 0;
-                int bufferSize = (int) Math.min(rowCount, database.getMaxMemoryRows());
-                ArrayList<Row> buffer = New.arrayList(bufferSize);
-                String n = getName() + ":" + index.getName();
-                int t = MathUtils.convertLongToInt(total);
-                while (cursor.next()) {
-                    database.setProgress(DatabaseEventListener.STATE_CREATE_INDEX, n,
-                            MathUtils.convertLongToInt(i++), t);
-                    Row row = cursor.get();
-                    buffer.add(row);
-                    if (buffer.size() >= bufferSize) {
-                        addRowsToIndex(session, buffer, index);
-                    }
-                    remaining--;
-                }
-                addRowsToIndex(session, buffer, index);
-                if (SysProperties.CHECK && remaining != 0) {
-                    DbException.throwInternalError("rowcount remaining=" +
-                            remaining + " " + getName());
+                if (index instanceof SpatialTreeIndex &&
+                        !index.getIndexType().isUnique()) {
+                    rebuildSpatialIndex(session, (SpatialTreeIndex) index);
+                } else {
+                    rebuildIndex(session, index);
                 }
             } catch (DbException e) {
                 getSchema().freeUniqueName(indexName);
@@ -339,6 +322,62 @@ public class RegularTable extends TableBase {
         return true;
     }
 
+    private void rebuildIndex(Session session, Index index) {
+        Index scan = getScanIndex(session);
+        long remaining = scan.getRowCount(session);
+        long total = remaining;
+        Cursor cursor = scan.find(session, null, null);
+        long i = 0;
+        int bufferSize = (int) Math.min(rowCount, database.getMaxMemoryRows());
+        ArrayList<Row> buffer = New.arrayList(bufferSize);
+        String n = getName() + ":" + index.getName();
+        int t = MathUtils.convertLongToInt(total);
+        while (cursor.next()) {
+            database.setProgress(DatabaseEventListener.STATE_CREATE_INDEX, n,
+                    MathUtils.convertLongToInt(i++), t);
+            Row row = cursor.get();
+            buffer.add(row);
+            if (buffer.size() >= bufferSize) {
+                addRowsToIndex(session, buffer, index);
+            }
+            remaining--;
+        }
+        addRowsToIndex(session, buffer, index);
+        if (SysProperties.CHECK && remaining != 0) {
+            DbException.throwInternalError("rowcount remaining=" +
+                    remaining + " " + getName());
+        }
+    }
+
+    /**
+     * Read the keys of all rows, and then build the r-tree bottom-up.
+     *
+     * @param session the session
+     * @param index the index to build
+     */
+    private void rebuildSpatialIndex(Session session, SpatialTreeIndex index) {
+        Index scan = getScanIndex(session);
+        long remaining = scan.getRowCount(session);
+        long total = remaining;
+        Cursor cursor = scan.find(session, null, null);
+        long i = 0;
+        ArrayList<SpatialKey> keys = New.arrayList(
+                MathUtils.convertLongToInt(total));
+        String n = getName() + ":" + index.getName();
+        int t = MathUtils.convertLongToInt(total);
+        while (cursor.next()) {
+            database.setProgress(DatabaseEventListener.STATE_CREATE_INDEX, n,
+                    MathUtils.convertLongToInt(i++), t);
+            keys.add(index.getKey(cursor.get()));
+            remaining--;
+        }
+        index.addAll(session, keys);
+        if (SysProperties.CHECK && remaining != 0) {
+            DbException.throwInternalError("rowcount remaining=" +
+                    remaining + " " + getName());
+        }
+    }
+
     private static void addRowsToIndex(Session session, ArrayList<Row> list,
             Index index) {
         final Index idx = index;
@@ -10,6 +10,7 @@ import org.h2.command.Parser;
 import org.h2.command.dml.Select;
 import org.h2.engine.Right;
 import org.h2.engine.Session;
+import org.h2.engine.StatementMetrics;
 import org.h2.engine.SysProperties;
 import org.h2.engine.UndoLogRecord;
 import org.h2.expression.Comparison;
@@ -52,6 +53,7 @@ public class TableFilter implements ColumnResolver {
     private String alias;
     private Index index;
     private int scanCount;
+    private StatementMetrics.FilterMetrics metrics;
     private boolean evaluatable;
 
     /**
@@ -75,6 +77,12 @@ public class TableFilter implements ColumnResolver {
      */
     private Expression filterCondition;
 
+    /**
+     * The geometry to read the rows nearest first from a spatial index, or
+     * null.
+     */
+    private Expression nearest;
+
     /**
      * The complete join condition.
      */
@@ -295,6 +303,8 @@ public class TableFilter implements ColumnResolver {
     public void startQuery(Session s) {
         this.session = s;
         scanCount = 0;
+        StatementMetrics m = s.getStatementMetrics();
+        metrics = m == null ? null : m.getFilterMetrics(this);
         if (nestedJoin != null) {
             nestedJoin.startQuery(s);
         }
@@ -327,6 +337,9 @@ public class TableFilter implements ColumnResolver {
             return false;
         } else if (state == BEFORE_FIRST) {
             cursor.find(session, indexConditions);
+            if (metrics != null) {
+                metrics.lookups++;
+            }
             if (!cursor.isAlwaysFalse()) {
                 if (nestedJoin != null) {
                     nestedJoin.reset();
@@ -394,6 +407,9 @@ public class TableFilter implements ColumnResolver {
                     continue;
                 }
             }
+            if (metrics != null) {
+                metrics.rows++;
+            }
             if (join != null) {
                 join.reset();
                 if (!join.next()) {
@@ -409,6 +425,52 @@ public class TableFilter implements ColumnResolver {
         return false;
     }
 
+    /**
+     * Check whether rows can be read in blocks using nextBatch. This is
+     * possible for scans of a single table without join conditions.
+     *
+     * @return true if it is possible
+     */
+    public boolean isBatchPossible() {
+        return join == null && nestedJoin == null && !joinOuter &&
+                filterCondition == null && joinCondition == null &&
+                index != null && index.getIndexType().isScan();
+    }
+
+    /**
+     * Read the next block of rows. The current row is not changed. This
+     * method may only be used if isBatchPossible returns true.
+     *
+     * @param rows the array to fill
+     * @return the number of rows read, or 0 if there are no more rows
+     */
+    public int nextBatch(Row[] rows) {
+        if (state == AFTER_LAST) {
+            return 0;
+        } else if (state == BEFORE_FIRST) {
+            cursor.find(session, indexConditions);
+            if (metrics != null) {
+                metrics.lookups++;
+            }
+            if (cursor.isAlwaysFalse()) {
+                state = AFTER_LAST;
+                return 0;
+            }
+            state = FOUND;
+        }
+        checkTimeout();
+        int count = cursor.nextBatch(rows);
+        scanCount += count;
+        if (metrics != null) {
+            metrics.rows += count;
+        }
+        if (count == 0) {
+            scanCount++;
+            state = AFTER_LAST;
+        }
+        return count;
+    }
+
     /**
      * Set the state of this and all nested tables to the NULL row.
      */
@@ -486,6 +548,10 @@ public class TableFilter implements ColumnResolver {
         indexConditions.add(condition);
     }
 
+    public ArrayList<IndexCondition> getIndexConditions() {
+        return indexConditions;
+    }
+
     /**
      * Return a list of index condition filtered by a specific column.
      *
@@ -696,7 +762,10 @@ public class TableFilter implements ColumnResolver {
             buff.append('\n');
             StatementBuilder planBuff = new StatementBuilder();
             planBuff.append(index.getPlanSQL());
-            if (indexConditions.size() > 0) {
+            if (nearest != null) {
+                planBuff.append(": NEAREST ").append(
+                        StringUtils.unEnclose(nearest.getSQL()));
+            } else if (indexConditions.size() > 0) {
                 planBuff.append(": ");
                 for (IndexCondition condition : indexConditions) {
                     planBuff.appendExceptFirst("\n    AND ");
@@ -753,6 +822,17 @@ public class TableFilter implements ColumnResolver {
         cursor.setIndex(index);
     }
 
+    /**
+     * Read the rows from the spatial index nearest first, that is in the
+     * order of the distance to the given geometry.
+     *
+     * @param nearest the geometry
+     */
+    public void setNearest(Expression nearest) {
+        this.nearest = nearest;
+        cursor.setNearest(nearest);
+    }
+
     public void setUsed(boolean used) {
         this.used = used;
     }
@@ -571,7 +571,7 @@ public class TableView extends Table {
         super.addDependencies(dependencies);
         if (tables != null) {
             for (Table t : tables) {
-                if (!Table.VIEW.equals(t.getTableType())) {
+                if (!(t instanceof TableView)) {
                     t.addDependencies(dependencies);
                 }
             }
@@ -23,6 +23,7 @@ import org.h2.compress.CompressNo;
 import org.h2.compress.Compressor;
 import org.h2.compress.LZFInputStream;
 import org.h2.compress.LZFOutputStream;
+import org.h2.compress.ParallelCompressOutputStream;
 import org.h2.engine.Constants;
 import org.h2.message.DbException;
 import org.h2.mvstore.DataUtils;
@@ -286,8 +287,18 @@ public class CompressTool {
      */
     public static OutputStream wrapOutputStream(OutputStream out,
             String compressionAlgorithm, String entryName) {
+        return wrapOutputStream(out, compressionAlgorithm, entryName, 1);
+    }
+
+    /**
+     * INTERNAL
+     */
+    public static OutputStream wrapOutputStream(OutputStream out,
+            String compressionAlgorithm, String entryName, int threads) {
         try {
-            if ("GZIP".equals(compressionAlgorithm)) {
+            if (threads > 1 && "LZF".equals(compressionAlgorithm)) {
+                out = new ParallelCompressOutputStream(out, threads);
+            } else if ("GZIP".equals(compressionAlgorithm)) {
                 out = new GZIPOutputStream(out);
             } else if ("ZIP".equals(compressionAlgorithm)) {
                 ZipOutputStream z = new ZipOutputStream(out);
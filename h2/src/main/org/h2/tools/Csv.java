@@ -6,6 +6,7 @@
 package org.h2.tools;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
@@ -16,6 +17,7 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.charset.Charset;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
@@ -23,6 +25,14 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.h2.api.ErrorCode;
 import org.h2.engine.Constants;
@@ -43,6 +53,16 @@ import org.h2.util.StringUtils;
  */
 public class Csv implements SimpleRowSource {
 
+    /**
+     * The size of the parts a file is split into when reading in parallel.
+     */
+    private static final int PARALLEL_CHUNK_SIZE = 256 * 1024;
+
+    /**
+     * The name of the entry in a ZIP file.
+     */
+    private static final String ZIP_ENTRY = "data.csv";
+
     private String[] columnNames;
 
     private String characterSet = SysProperties.FILE_ENCODING;
@@ -56,6 +76,9 @@ public class Csv implements SimpleRowSource {
     private char lineComment;
     private String lineSeparator = SysProperties.LINE_SEPARATOR;
     private String nullString = "";
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private String compression;
+    private int compressThreads = Runtime.getRuntime().availableProcessors();
 
     private String fileName;
     private Reader input;
@@ -65,6 +88,7 @@ public class Csv implements SimpleRowSource {
     private int inputBufferEnd;
     private Writer output;
     private boolean endOfLine, endOfFile;
+    private ParallelReader parallelReader;
 
     private int writeResultSet(ResultSet rs) throws SQLException {
         try {
@@ -217,6 +241,13 @@ public class Csv implements SimpleRowSource {
     private ResultSet readResultSet(String[] colNames) throws IOException {
         this.columnNames = colNames;
         initRead();
+        if (isParallelReadable()) {
+            // the header was read using the reader, the rows are parsed
+            // in parallel from the file
+            IOUtils.closeSilently(input);
+            input = null;
+            parallelReader = new ParallelReader(colNames == null);
+        }
         SimpleResultSet result = new SimpleResultSet(this);
         makeColumnNamesUnique();
         for (String columnName : columnNames) {
@@ -257,6 +288,8 @@ public class Csv implements SimpleRowSource {
             try {
                 OutputStream out = FileUtils.newOutputStream(fileName, false);
                 out = new BufferedOutputStream(out, Constants.IO_BUFFER_SIZE);
+                out = CompressTool.wrapOutputStream(out, compression,
+                        ZIP_ENTRY, compressThreads);
                 output = new BufferedWriter(new OutputStreamWriter(out, characterSet));
             } catch (Exception e) {
                 close();
@@ -315,10 +348,16 @@ public class Csv implements SimpleRowSource {
             try {
                 InputStream in = FileUtils.newInputStream(fileName);
                 in = new BufferedInputStream(in, Constants.IO_BUFFER_SIZE);
-                input = new InputStreamReader(in, characterSet);
-            } catch (IOException e) {
+                InputStream in2 = CompressTool.wrapInputStream(in,
+                        compression, ZIP_ENTRY);
+                if (in2 == null) {
+                    in.close();
+                    throw new IOException("Entry " + ZIP_ENTRY + " not found");
+                }
+                input = new InputStreamReader(in2, characterSet);
+            } catch (Exception e) {
                 close();
-                throw e;
+                throw DbException.convertToIOException(e);
             }
         }
         if (!input.markSupported()) {
@@ -561,6 +600,9 @@ public class Csv implements SimpleRowSource {
      */
     @Override
     public Object[] readRow() throws SQLException {
+        if (parallelReader != null) {
+            return parallelReader.readRow();
+        }
         if (input == null) {
             return null;
         }
@@ -603,6 +645,10 @@ public class Csv implements SimpleRowSource {
      */
     @Override
     public void close() {
+        if (parallelReader != null) {
+            parallelReader.close();
+            parallelReader = null;
+        }
         IOUtils.closeSilently(input);
         input = null;
         IOUtils.closeSilently(output);
@@ -825,6 +871,65 @@ public class Csv implements SimpleRowSource {
         return writeColumnHeader;
     }
 
+    /**
+     * Set the compression algorithm of the file (GZIP, ZIP, DEFLATE, or LZF).
+     * The default is null, meaning the file is not compressed.
+     *
+     * @param compression the compression algorithm, or null
+     */
+    public void setCompression(String compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Get the compression algorithm of the file.
+     *
+     * @return the compression algorithm, or null
+     */
+    public String getCompression() {
+        return compression;
+    }
+
+    /**
+     * Set the number of threads used to compress the file when writing. This
+     * is only used for LZF; other algorithms are compressed in one thread. The
+     * default is the number of processors; 1 disables parallel compression.
+     *
+     * @param compressThreads the number of threads
+     */
+    public void setCompressThreads(int compressThreads) {
+        this.compressThreads = compressThreads;
+    }
+
+    /**
+     * Get the number of threads used to compress the file when writing.
+     *
+     * @return the number of threads
+     */
+    public int getCompressThreads() {
+        return compressThreads;
+    }
+
+    /**
+     * Set the number of threads used to parse a large file. Files are split
+     * into parts at row boundaries, and the parts are parsed concurrently. The
+     * default is the number of processors; 1 disables parallel reading.
+     *
+     * @param threads the number of threads
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Get the number of threads used to parse a large file.
+     *
+     * @return the number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
     /**
      * INTERNAL.
      * Parse and set the CSV options.
@@ -864,6 +969,21 @@ public class Csv implements SimpleRowSource {
                 setWriteColumnHeader(Boolean.parseBoolean(value));
             } else if (isParam(key, "caseSensitiveColumnNames")) {
                 setCaseSensitiveColumnNames(Boolean.parseBoolean(value));
+            } else if (isParam(key, "compression")) {
+                setCompression(value.length() == 0 ?
+                        null : StringUtils.toUpperEnglish(value));
+            } else if (isParam(key, "compressThreads")) {
+                try {
+                    setCompressThreads(Integer.parseInt(value));
+                } catch (NumberFormatException e) {
+                    throw DbException.getInvalidValueException(key, value);
+                }
+            } else if (isParam(key, "threads")) {
+                try {
+                    setThreads(Integer.parseInt(value));
+                } catch (NumberFormatException e) {
+                    throw DbException.getInvalidValueException(key, value);
+                }
             } else {
                 throw DbException.getUnsupportedException(key);
             }
@@ -880,4 +1000,386 @@ public class Csv implements SimpleRowSource {
         return false;
     }
 
+    private boolean isParallelReadable() {
+        if (threads <= 1 || fileName == null || input == null ||
+                compression != null) {
+            return false;
+        }
+        if (fieldDelimiter >= 128 || escapeCharacter >= 128 ||
+                fieldSeparatorRead >= 128 || lineComment >= 128) {
+            return false;
+        }
+        try {
+            if (!FileUtils.exists(fileName) ||
+                    FileUtils.size(fileName) < 2 * PARALLEL_CHUNK_SIZE) {
+                return false;
+            }
+        } catch (Exception e) {
+            // not a regular file (for example an URL)
+            return false;
+        }
+        return isAsciiCompatible(characterSet);
+    }
+
+    /**
+     * Check whether the file can be split at the bytes of the special
+     * characters. This is the case for UTF-8, and for single-byte character
+     * sets where the first 128 characters are ASCII and no other byte is
+     * decoded to an ASCII character.
+     *
+     * @param charset the character set name
+     * @return true if it is
+     */
+    private static boolean isAsciiCompatible(String charset) {
+        Charset cs;
+        try {
+            cs = Charset.forName(charset);
+        } catch (Exception e) {
+            return false;
+        }
+        if ("UTF-8".equals(cs.name())) {
+            return true;
+        }
+        try {
+            if (cs.newEncoder().maxBytesPerChar() != 1) {
+                return false;
+            }
+        } catch (UnsupportedOperationException e) {
+            // decode only
+            return false;
+        }
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        String s = new String(bytes, cs);
+        if (s.length() != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            char ch = s.charAt(i);
+            if (i < 128 ? ch != i : ch < 128) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create a parser for a part of the file that starts at a row boundary.
+     *
+     * @param data the data
+     * @param offset the start of the part
+     * @param len the length of the part
+     * @return the parser
+     */
+    Csv createPartParser(byte[] data, int offset, int len)
+            throws IOException {
+        Csv csv = new Csv();
+        csv.escapeCharacter = escapeCharacter;
+        csv.fieldDelimiter = fieldDelimiter;
+        csv.fieldSeparatorRead = fieldSeparatorRead;
+        csv.lineComment = lineComment;
+        csv.nullString = nullString;
+        csv.preserveWhitespace = preserveWhitespace;
+        csv.columnNames = columnNames;
+        csv.fileName = fileName;
+        csv.input = new InputStreamReader(
+                new ByteArrayInputStream(data, offset, len), characterSet);
+        csv.inputBuffer = new char[Constants.IO_BUFFER_SIZE * 2];
+        return csv;
+    }
+
+    /**
+     * Reads the rows of a file using multiple threads. The file is read
+     * sequentially and split into parts of about the same size at row
+     * boundaries. Finding the boundaries only requires to look at the bytes of
+     * the special characters, which is much faster than parsing. The parts are
+     * parsed concurrently, and the rows are returned in the original order.
+     * Only a limited number of parts are read ahead, and the threads stop
+     * when they are idle, so that nothing needs to be cleaned up if the result
+     * is not read completely.
+     */
+    private class ParallelReader {
+
+        /**
+         * The state at the start of a field (and of a row).
+         */
+        private static final int FIELD_START = 0;
+
+        /**
+         * The state within a delimited value.
+         */
+        private static final int DELIMITED = 1;
+
+        /**
+         * The state after a field delimiter within a delimited value.
+         */
+        private static final int DELIMITER = 2;
+
+        /**
+         * The state after an escape character within a delimited value.
+         */
+        private static final int ESCAPE = 3;
+
+        /**
+         * The state after the end of a delimited value.
+         */
+        private static final int AFTER_DELIMITED = 4;
+
+        /**
+         * The state within an un-delimited value.
+         */
+        private static final int UNDELIMITED = 5;
+
+        /**
+         * The state within a comment.
+         */
+        private static final int COMMENT = 6;
+
+        private final ThreadPoolExecutor executor;
+        private final LinkedList<Future<Object[][]>> parts =
+                new LinkedList<Future<Object[][]>>();
+        private final int maxParts;
+        private InputStream in;
+        private byte[] buffer = new byte[0];
+        private int start, scanPos, bufferLength;
+        private boolean firstBlock = true, endOfInput;
+        private boolean skipHeader, rowHasData;
+        private int state = FIELD_START;
+        private Object[][] rows = new Object[0][];
+        private int rowPos;
+
+        ParallelReader(boolean skipHeader) throws IOException {
+            this.skipHeader = skipHeader;
+            in = FileUtils.newInputStream(fileName);
+            maxParts = threads * 2;
+            executor = new ThreadPoolExecutor(threads, threads,
+                    1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "H2 CSV reader");
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+            executor.allowCoreThreadTimeOut(true);
+        }
+
+        /**
+         * Read the next row.
+         *
+         * @return the row, or null if there are no more rows
+         */
+        Object[] readRow() throws SQLException {
+            while (rowPos >= rows.length) {
+                try {
+                    while (parts.size() < maxParts && readPart()) {
+                        // read ahead
+                    }
+                    if (parts.isEmpty()) {
+                        close();
+                        return null;
+                    }
+                    rows = parts.removeFirst().get();
+                } catch (IOException e) {
+                    throw convertException("IOException reading " + fileName, e);
+                } catch (InterruptedException e) {
+                    throw convertException("Interrupted reading " + fileName, e);
+                } catch (ExecutionException e) {
+                    Throwable t = e.getCause();
+                    if (t instanceof SQLException) {
+                        throw (SQLException) t;
+                    }
+                    throw convertException("Exception reading " + fileName,
+                            t instanceof Exception ? (Exception) t : e);
+                }
+                rowPos = 0;
+            }
+            Object[] row = rows[rowPos];
+            // allow the data to be garbage collected
+            rows[rowPos++] = null;
+            return row;
+        }
+
+        /**
+         * Read the next part of the file and submit it to be parsed.
+         *
+         * @return false if the end of the file is reached
+         */
+        private boolean readPart() throws IOException {
+            while (true) {
+                int end = -1;
+                for (; scanPos < bufferLength; scanPos++) {
+                    if (isEndOfRow(buffer[scanPos] & 0xff)) {
+                        if (skipHeader) {
+                            // empty rows before the header are skipped
+                            skipHeader = !rowHasData;
+                            start = scanPos + 1;
+                        } else {
+                            end = scanPos + 1;
+                        }
+                        rowHasData = false;
+                    }
+                }
+                if (endOfInput) {
+                    end = skipHeader ? -1 : bufferLength;
+                }
+                if (end > start) {
+                    submit(buffer, start, end - start);
+                    byte[] remaining = new byte[PARALLEL_CHUNK_SIZE +
+                            bufferLength - end];
+                    System.arraycopy(buffer, end, remaining, 0,
+                            bufferLength - end);
+                    buffer = remaining;
+                    bufferLength -= end;
+                    scanPos -= end;
+                    start = 0;
+                    return true;
+                }
+                if (endOfInput) {
+                    return false;
+                }
+                fillBuffer();
+            }
+        }
+
+        private void fillBuffer() throws IOException {
+            int keep = bufferLength - start;
+            if (start > 0 || keep + PARALLEL_CHUNK_SIZE > buffer.length) {
+                byte[] b = new byte[keep + PARALLEL_CHUNK_SIZE];
+                System.arraycopy(buffer, start, b, 0, keep);
+                buffer = b;
+                scanPos -= start;
+                bufferLength = keep;
+                start = 0;
+            }
+            int limit = bufferLength + PARALLEL_CHUNK_SIZE;
+            while (bufferLength < limit) {
+                int len = in.read(buffer, bufferLength, limit - bufferLength);
+                if (len < 0) {
+                    endOfInput = true;
+                    break;
+                }
+                bufferLength += len;
+            }
+            if (firstBlock) {
+                firstBlock = false;
+                // the byte-order-mark in UTF-8
+                if (bufferLength >= 3 && (buffer[0] & 0xff) == 0xef &&
+                        (buffer[1] & 0xff) == 0xbb &&
+                        (buffer[2] & 0xff) == 0xbf) {
+                    start = scanPos = 3;
+                }
+            }
+        }
+
+        private void submit(final byte[] data, final int offset,
+                final int len) {
+            parts.add(executor.submit(new Callable<Object[][]>() {
+                @Override
+                public Object[][] call() throws Exception {
+                    Csv parser = createPartParser(data, offset, len);
+                    ArrayList<Object[]> list = New.arrayList();
+                    while (true) {
+                        Object[] row = parser.readRow();
+                        if (row == null) {
+                            break;
+                        }
+                        list.add(row);
+                    }
+                    parser.close();
+                    return list.toArray(new Object[list.size()][]);
+                }
+            }));
+        }
+
+        /**
+         * Process the next byte, the same way as readValue does.
+         *
+         * @param ch the byte
+         * @return true if the byte is the end of a row
+         */
+        private boolean isEndOfRow(int ch) {
+            switch (state) {
+            case DELIMITED:
+                if (ch == fieldDelimiter) {
+                    state = DELIMITER;
+                } else if (ch == escapeCharacter) {
+                    state = ESCAPE;
+                }
+                return false;
+            case ESCAPE:
+                state = DELIMITED;
+                return false;
+            case DELIMITER:
+                if (ch == fieldDelimiter) {
+                    // two delimiters: an escaped delimiter
+                    state = DELIMITED;
+                    return false;
+                }
+                state = AFTER_DELIMITED;
+                return isEndOfRow(ch);
+            case AFTER_DELIMITED:
+                if (ch == fieldSeparatorRead) {
+                    state = FIELD_START;
+                    return false;
+                } else if (ch == '\n' || ch == '\r') {
+                    state = FIELD_START;
+                    return true;
+                } else if (ch == ' ' || ch == '\t') {
+                    return false;
+                }
+                // the character is pushed back
+                state = FIELD_START;
+                return isEndOfRow(ch);
+            case UNDELIMITED:
+                if (ch == fieldSeparatorRead) {
+                    state = FIELD_START;
+                    return false;
+                } else if (ch == '\n' || ch == '\r') {
+                    state = FIELD_START;
+                    return true;
+                }
+                return false;
+            case COMMENT:
+                if (ch == '\n' || ch == '\r') {
+                    state = FIELD_START;
+                    return true;
+                }
+                return false;
+            default:
+                if (ch == fieldDelimiter) {
+                    state = DELIMITED;
+                    rowHasData = true;
+                } else if (ch == '\n' || ch == '\r') {
+                    return true;
+                } else if (ch == fieldSeparatorRead) {
+                    rowHasData = true;
+                } else if (ch <= ' ') {
+                    // ignore spaces
+                } else if (lineComment != 0 && ch == lineComment) {
+                    state = COMMENT;
+                } else {
+                    state = UNDELIMITED;
+                    rowHasData = true;
+                }
+                return false;
+            }
+        }
+
+        /**
+         * Stop reading.
+         */
+        void close() {
+            for (Future<Object[][]> f : parts) {
+                f.cancel(false);
+            }
+            parts.clear();
+            executor.shutdown();
+            IOUtils.closeSilently(in);
+        }
+    }
+
 }
@@ -51,6 +51,7 @@ import org.h2.store.DataReader;
 import org.h2.store.FileLister;
 import org.h2.store.FileStore;
 import org.h2.store.FileStoreInputStream;
+import org.h2.store.LobBlockMap;
 import org.h2.store.LobStorageBackend;
 import org.h2.store.LobStorageFrontend;
 import org.h2.store.Page;
@@ -675,8 +676,13 @@ public class Recover extends Tool implements DataHandler {
         if (!lobMaps) {
             return;
         }
-        MVMap<Long, byte[]> lobData = mv.openMap("lobData");
-        StreamStore streamStore = new StreamStore(lobData);
+        StreamStore streamStore;
+        if (mv.hasMap("lobBlock")) {
+            streamStore = new StreamStore(new LobBlockMap(mv));
+        } else {
+            MVMap<Long, byte[]> lobData = mv.openMap("lobData");
+            streamStore = new StreamStore(lobData);
+        }
         MVMap<Long, Object[]> lobMap = mv.openMap("lobMap");
         writer.println("-- LOB");
         writer.println("CREATE TABLE IF NOT EXISTS " +
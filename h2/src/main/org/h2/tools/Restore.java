@@ -5,9 +5,12 @@
  */
 package org.h2.tools;
 
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.sql.SQLException;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -21,6 +24,9 @@ import org.h2.util.Tool;
 
 /**
  * Restores a H2 database by extracting the database files from a .zip file.
+ * Incremental backups of a MVStore database are applied to the existing
+ * database file; they need to be restored after the base backup, in the order
+ * they were created.
  * @h2.resource
  */
 public class Restore extends Tool {
@@ -129,6 +135,10 @@ public class Restore extends Tool {
             return fileName.substring(0,
                     fileName.length() - Constants.SUFFIX_MV_FILE.length());
         }
+        if (fileName.endsWith(Constants.SUFFIX_MV_INCREMENT)) {
+            return fileName.substring(0,
+                    fileName.length() - Constants.SUFFIX_MV_INCREMENT.length());
+        }
         return null;
     }
 
@@ -179,7 +189,13 @@ public class Restore extends Tool {
                     fileName = db + fileName.substring(originalDbLen);
                     copy = true;
                 }
-                if (copy) {
+                if (copy && fileName.endsWith(Constants.SUFFIX_MV_INCREMENT)) {
+                    fileName = fileName.substring(0, fileName.length() -
+                            Constants.SUFFIX_MV_INCREMENT.length()) +
+                            Constants.SUFFIX_MV_FILE;
+                    applyIncrement(zipIn,
+                            directory + SysProperties.FILE_SEPARATOR + fileName);
+                } else if (copy) {
                     OutputStream o = null;
                     try {
                         o = FileUtils.newOutputStream(
@@ -201,4 +217,55 @@ public class Restore extends Tool {
         }
     }
 
+    /**
+     * Apply an incremental backup to a MVStore file: write the store header
+     * and the changed chunks, and set the file length.
+     *
+     * @param in the incremental backup
+     * @param fileName the MVStore file
+     */
+    private static void applyIncrement(InputStream in, String fileName)
+            throws IOException {
+        if (!FileUtils.exists(fileName)) {
+            throw new IOException("Base backup not restored: " + fileName);
+        }
+        DataInputStream data = new DataInputStream(in);
+        // the version the increment is based on, and its own version
+        data.readLong();
+        data.readLong();
+        long fileLength = data.readLong();
+        byte[] header = new byte[data.readInt()];
+        data.readFully(header);
+        FileChannel file = FileUtils.open(fileName, "rw");
+        try {
+            byte[] buff = new byte[Constants.IO_BUFFER_SIZE_COMPRESS];
+            while (true) {
+                long pos = data.readLong();
+                if (pos < 0) {
+                    break;
+                }
+                long len = data.readLong();
+                while (len > 0) {
+                    int l = (int) Math.min(buff.length, len);
+                    data.readFully(buff, 0, l);
+                    file.position(pos);
+                    FileUtils.writeFully(file, ByteBuffer.wrap(buff, 0, l));
+                    pos += l;
+                    len -= l;
+                }
+            }
+            file.position(0);
+            FileUtils.writeFully(file, ByteBuffer.wrap(header));
+            if (file.size() > fileLength) {
+                file.truncate(fileLength);
+            } else if (file.size() < fileLength) {
+                file.position(fileLength - 1);
+                FileUtils.writeFully(file, ByteBuffer.allocate(1));
+            }
+            file.force(true);
+        } finally {
+            file.close();
+        }
+    }
+
 }
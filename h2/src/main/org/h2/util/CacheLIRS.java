@@ -0,0 +1,230 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import org.h2.engine.SysProperties;
+import org.h2.message.DbException;
+import org.h2.mvstore.cache.CacheLongKeyLIRS;
+
+/**
+ * A cache implementation based on the LIRS algorithm, which is scan
+ * resistant. The cache is split into segments that are synchronized
+ * independently, so that the methods get and find can be called concurrently
+ * without further synchronization. All other methods must be synchronized
+ * by the caller.
+ * <p>
+ * The LIRS cache may drop any entry, including changed entries that are not
+ * yet written. Because of that, changed entries are also kept in a separate
+ * map until they are written. When the changed entries use more than half of
+ * the cache memory, the ones that can be removed are written.
+ */
+public class CacheLIRS implements Cache {
+
+    static final String TYPE_NAME = "LIRS";
+
+    /**
+     * The minimum memory of a segment, in words. Entries that are larger than
+     * a segment can not be cached, so small caches use fewer segments.
+     */
+    private static final int MIN_SEGMENT_MEMORY = 1024 * 1024 / 4;
+
+    private final CacheWriter writer;
+
+    /**
+     * The cached entries.
+     */
+    private final CacheLongKeyLIRS<CacheObject> cache;
+
+    /**
+     * The changed entries (the value of an entry may no longer be changed,
+     * if it was written in the meantime).
+     */
+    private final ConcurrentHashMap<Integer, CacheObject> changed =
+            new ConcurrentHashMap<Integer, CacheObject>();
+
+    /**
+     * The maximum memory, in words (4 bytes each).
+     */
+    private int maxMemory;
+
+    /**
+     * The estimated memory used by the changed entries, in words.
+     */
+    private int changedMemory;
+
+    CacheLIRS(CacheWriter writer, int maxMemoryKb) {
+        this.writer = writer;
+        this.maxMemory = getWords(maxMemoryKb);
+        int segmentCount = 16;
+        while (segmentCount > 1 &&
+                maxMemory / segmentCount < MIN_SEGMENT_MEMORY) {
+            segmentCount /= 2;
+        }
+        cache = new CacheLongKeyLIRS<CacheObject>(Math.max(1, maxMemory),
+                segmentCount, 8);
+    }
+
+    private static int getWords(int kb) {
+        int words = MathUtils.convertLongToInt(kb * 1024L / 4);
+        return words < 0 ? 0 : words;
+    }
+
+    @Override
+    public void clear() {
+        cache.clear();
+        changed.clear();
+        changedMemory = 0;
+    }
+
+    @Override
+    public CacheObject get(int pos) {
+        CacheObject rec = cache.get(pos);
+        if (rec == null) {
+            rec = changed.get(pos);
+        }
+        return rec;
+    }
+
+    @Override
+    public CacheObject find(int pos) {
+        CacheObject rec = cache.peek(pos);
+        if (rec == null) {
+            rec = changed.get(pos);
+        }
+        return rec;
+    }
+
+    @Override
+    public void put(CacheObject rec) {
+        int pos = rec.getPos();
+        if (SysProperties.CHECK) {
+            CacheObject old = find(pos);
+            if (old != null) {
+                DbException.throwInternalError(
+                        "try to add a record twice at pos " + pos);
+            }
+        }
+        cache.put(pos, rec, rec.getMemory());
+        if (rec.isChanged()) {
+            addChanged(rec);
+        }
+    }
+
+    @Override
+    public CacheObject update(int pos, CacheObject rec) {
+        CacheObject old = find(pos);
+        if (old == null) {
+            put(rec);
+        } else {
+            if (SysProperties.CHECK) {
+                if (old != rec) {
+                    DbException.throwInternalError("old!=record pos:" + pos +
+                            " old:" + old + " new:" + rec);
+                }
+            }
+            if (cache.get(pos) == null) {
+                // the entry was only in the map of changed entries
+                cache.put(pos, rec, rec.getMemory());
+            }
+            if (rec.isChanged()) {
+                addChanged(rec);
+            }
+        }
+        return old;
+    }
+
+    private void addChanged(CacheObject rec) {
+        if (changed.put(rec.getPos(), rec) == null) {
+            changedMemory += rec.getMemory();
+            if (changedMemory > maxMemory / 2) {
+                writeBackChanged();
+            }
+        }
+    }
+
+    /**
+     * Write the changed entries that can be removed, so that the changed
+     * entries use at most half of the cache memory.
+     */
+    private void writeBackChanged() {
+        ArrayList<CacheObject> list = getAllChanged();
+        if (changedMemory <= maxMemory / 2) {
+            return;
+        }
+        // we are not allowed to write a record if the log is not yet written
+        // (because we need to log before writing the data)
+        writer.flushLog();
+        ArrayList<CacheObject> write = New.arrayList();
+        for (CacheObject rec : list) {
+            if (rec.canRemove()) {
+                write.add(rec);
+            }
+        }
+        if (write.size() == 0) {
+            writer.getTrace().info(
+                    "cannot write changed records, cache size too small? " +
+                    "records:" + list.size() + " memory:" + changedMemory);
+            return;
+        }
+        Collections.sort(write);
+        for (CacheObject rec : write) {
+            writer.writeBack(rec);
+            changed.remove(rec.getPos());
+            changedMemory -= rec.getMemory();
+        }
+    }
+
+    @Override
+    public boolean remove(int pos) {
+        boolean removed = cache.remove(pos) != null;
+        CacheObject rec = changed.remove(pos);
+        if (rec != null) {
+            changedMemory -= rec.getMemory();
+            removed = true;
+        }
+        return removed;
+    }
+
+    @Override
+    public ArrayList<CacheObject> getAllChanged() {
+        ArrayList<CacheObject> list = New.arrayList();
+        int memory = 0;
+        for (Iterator<CacheObject> it = changed.values().iterator();
+                it.hasNext();) {
+            CacheObject rec = it.next();
+            if (rec.isChanged()) {
+                list.add(rec);
+                memory += rec.getMemory();
+            } else {
+                // was written in the meantime
+                it.remove();
+            }
+        }
+        changedMemory = memory;
+        return list;
+    }
+
+    @Override
+    public void setMaxMemory(int maxKb) {
+        maxMemory = getWords(maxKb);
+        cache.setMaxMemory(Math.max(1, maxMemory));
+    }
+
+    @Override
+    public int getMaxMemory() {
+        return (int) (maxMemory * 4L / 1024);
+    }
+
+    @Override
+    public int getMemory() {
+        return (int) (cache.getUsedMemory() * 4L / 1024);
+    }
+
+}
@@ -76,6 +76,8 @@ public class CacheLRU implements Cache {
             cache = new CacheLRU(writer, cacheSize, false);
         } else if (CacheTQ.TYPE_NAME.equals(cacheType)) {
             cache = new CacheTQ(writer, cacheSize);
+        } else if (CacheLIRS.TYPE_NAME.equals(cacheType)) {
+            cache = new CacheLIRS(writer, cacheSize);
         } else {
             throw DbException.getInvalidValueException("CACHE_TYPE", cacheType);
         }
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A daemon thread that reads data in the background, so that it is already
+ * in the cache when it is needed. Read-ahead requests are only hints: if too
+ * many requests are pending, new requests are ignored, and exceptions thrown
+ * while processing a request are ignored as well. The thread is started when
+ * needed, and stops when there are no requests for some time.
+ */
+public class ReadAheadThread implements Runnable {
+
+    /**
+     * How long to wait for new requests before the thread stops, in
+     * milliseconds.
+     */
+    private static final int IDLE_MILLIS = 1000;
+
+    private final String name;
+    private final ArrayBlockingQueue<Runnable> queue;
+    private Thread thread;
+
+    public ReadAheadThread(String name, int maxPending) {
+        this.name = name;
+        queue = new ArrayBlockingQueue<Runnable>(maxPending);
+    }
+
+    /**
+     * Add a read-ahead request. The request is ignored if too many requests
+     * are pending.
+     *
+     * @param request the request
+     */
+    public void submit(Runnable request) {
+        if (!queue.offer(request)) {
+            return;
+        }
+        synchronized (this) {
+            if (thread == null) {
+                thread = new Thread(this, name);
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            Runnable request;
+            try {
+                request = queue.poll(IDLE_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                request = null;
+            }
+            if (request == null) {
+                synchronized (this) {
+                    if (queue.isEmpty()) {
+                        thread = null;
+                        return;
+                    }
+                }
+                continue;
+            }
+            try {
+                request.run();
+            } catch (Exception e) {
+                // ignore, the data is read again when it is needed
+            }
+        }
+    }
+
+}
@@ -0,0 +1,467 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.util;
+
+import java.util.ArrayList;
+import org.h2.message.DbException;
+import org.h2.value.Value;
+import org.h2.value.ValueNull;
+
+/**
+ * A hash map with keys of type Value, where all keys are known to be of the
+ * same data type (or NULL). For the data types INT, BIGINT and VARCHAR, the
+ * keys are not stored as Value objects. The hash code of each entry is cached, so
+ * that resizing the map does not need to re-calculate it, and most unequal
+ * keys are rejected without calling equals.
+ *
+ * @param <V> the value type
+ */
+public abstract class TypedValueHashMap<V> extends HashBase {
+
+    /**
+     * The marker for a deleted entry.
+     */
+    private static final Object DELETED = new Object();
+
+    /**
+     * The marker for an entry where the value is null.
+     */
+    private static final Object NULL = new Object();
+
+    /**
+     * The cached hash codes.
+     */
+    int[] hashes;
+
+    /**
+     * The values. An empty slot contains null.
+     */
+    Object[] values;
+
+    /**
+     * The value for the key NULL (if zeroKey is set).
+     */
+    private V nullValue;
+
+    /**
+     * Create a new hash map for keys of the given data type.
+     *
+     * @param type the data type of the keys
+     * @return the hash map
+     */
+    public static <T> TypedValueHashMap<T> newInstance(int type) {
+        switch (type) {
+        case Value.INT:
+            return new IntKeys<T>();
+        case Value.LONG:
+            return new LongKeys<T>();
+        case Value.STRING:
+            return new StringKeys<T>();
+        default:
+            return new ValueKeys<T>();
+        }
+    }
+
+    @Override
+    protected void reset(int newLevel) {
+        super.reset(newLevel);
+        hashes = new int[len];
+        values = new Object[len];
+        resetKeys(len);
+    }
+
+    @Override
+    protected void rehash(int newLevel) {
+        int[] oldHashes = hashes;
+        Object[] oldValues = values;
+        Object oldKeys = getKeys();
+        reset(newLevel);
+        for (int i = 0, oldLen = oldValues.length; i < oldLen; i++) {
+            Object v = oldValues[i];
+            if (v != null && v != DELETED) {
+                int hash = oldHashes[i];
+                int index = hash & mask;
+                int plus = 1;
+                while (values[index] != null) {
+                    index = (index + plus++) & mask;
+                }
+                hashes[index] = hash;
+                values[index] = v;
+                copyKey(oldKeys, i, index);
+                size++;
+            }
+        }
+    }
+
+    /**
+     * Add or update a key value pair.
+     *
+     * @param key the key
+     * @param value the new value
+     */
+    public void put(Value key, V value) {
+        if (key == ValueNull.INSTANCE) {
+            zeroKey = true;
+            nullValue = value;
+            return;
+        }
+        checkSizePut();
+        int hash = hash(key);
+        int index = hash & mask;
+        int plus = 1;
+        int deleted = -1;
+        do {
+            Object v = values[index];
+            if (v == null) {
+                // found an empty record
+                if (deleted >= 0) {
+                    index = deleted;
+                    deletedCount--;
+                }
+                size++;
+                hashes[index] = hash;
+                values[index] = value == null ? NULL : value;
+                setKey(index, key);
+                return;
+            } else if (v == DELETED) {
+                // found a deleted record
+                if (deleted < 0) {
+                    deleted = index;
+                }
+            } else if (hashes[index] == hash && keyEquals(index, key)) {
+                // update existing
+                values[index] = value == null ? NULL : value;
+                return;
+            }
+            index = (index + plus++) & mask;
+        } while (plus <= len);
+        // no space
+        DbException.throwInternalError("hashmap is full");
+    }
+
+    /**
+     * Remove a key value pair.
+     *
+     * @param key the key
+     */
+    public void remove(Value key) {
+        if (key == ValueNull.INSTANCE) {
+            zeroKey = false;
+            nullValue = null;
+            return;
+        }
+        checkSizeRemove();
+        int index = find(key);
+        if (index >= 0) {
+            values[index] = DELETED;
+            clearKey(index);
+            deletedCount++;
+            size--;
+        }
+    }
+
+    /**
+     * Get the value for this key. This method returns null if the key was not
+     * found.
+     *
+     * @param key the key
+     * @return the value for the given key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Value key) {
+        if (key == ValueNull.INSTANCE) {
+            return zeroKey ? nullValue : null;
+        }
+        int index = find(key);
+        if (index < 0) {
+            return null;
+        }
+        Object v = values[index];
+        return v == NULL ? null : (V) v;
+    }
+
+    private int find(Value key) {
+        int hash = hash(key);
+        int index = hash & mask;
+        int plus = 1;
+        do {
+            Object v = values[index];
+            if (v == null) {
+                // found an empty record
+                return -1;
+            } else if (v != DELETED && hashes[index] == hash &&
+                    keyEquals(index, key)) {
+                return index;
+            }
+            index = (index + plus++) & mask;
+        } while (plus <= len);
+        return -1;
+    }
+
+    /**
+     * Get the list of values.
+     *
+     * @return all values
+     */
+    @SuppressWarnings("unchecked")
+    public ArrayList<V> values() {
+        ArrayList<V> list = New.arrayList(size());
+        if (zeroKey) {
+            list.add(nullValue);
+        }
+        for (Object v : values) {
+            if (v != null && v != DELETED) {
+                list.add(v == NULL ? null : (V) v);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Spread the higher bits of the given hash code to the lower bits, so that
+     * keys that only differ in the higher bits do not collide. Consecutive
+     * keys (which are common) still map to different slots.
+     *
+     * @param h the hash code
+     * @return the spread hash code
+     */
+    static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Calculate the hash code of a (non-null) key.
+     *
+     * @param key the key
+     * @return the hash code
+     */
+    abstract int hash(Value key);
+
+    /**
+     * Check whether the key at the given slot is equal to the given key.
+     *
+     * @param index the slot
+     * @param key the key
+     * @return true if they are equal
+     */
+    abstract boolean keyEquals(int index, Value key);
+
+    /**
+     * Store the key in the given slot.
+     *
+     * @param index the slot
+     * @param key the key
+     */
+    abstract void setKey(int index, Value key);
+
+    /**
+     * Clear the key in the given slot, if the key is an object.
+     *
+     * @param index the slot
+     */
+    abstract void clearKey(int index);
+
+    /**
+     * Allocate a new key array.
+     *
+     * @param len the number of slots
+     */
+    abstract void resetKeys(int len);
+
+    /**
+     * Get the current key array.
+     *
+     * @return the key array
+     */
+    abstract Object getKeys();
+
+    /**
+     * Copy a key from an old key array to the current key array.
+     *
+     * @param oldKeys the old key array
+     * @param oldIndex the slot in the old array
+     * @param index the slot in the current array
+     */
+    abstract void copyKey(Object oldKeys, int oldIndex, int index);
+
+    /**
+     * A map with keys of type INT. As spreading the bits is a bijective
+     * function, the cached hash code identifies the key, and the keys don't
+     * need to be stored separately.
+     */
+    static class IntKeys<V> extends TypedValueHashMap<V> {
+
+        @Override
+        int hash(Value key) {
+            return spread(key.getInt());
+        }
+
+        @Override
+        boolean keyEquals(int index, Value key) {
+            return true;
+        }
+
+        @Override
+        void setKey(int index, Value key) {
+            // nothing to do
+        }
+
+        @Override
+        void clearKey(int index) {
+            // nothing to do
+        }
+
+        @Override
+        void resetKeys(int len) {
+            // nothing to do
+        }
+
+        @Override
+        Object getKeys() {
+            return null;
+        }
+
+        @Override
+        void copyKey(Object oldKeys, int oldIndex, int index) {
+            // nothing to do
+        }
+
+    }
+
+    /**
+     * A map with keys of type BIGINT.
+     */
+    static class LongKeys<V> extends TypedValueHashMap<V> {
+
+        private long[] keys;
+
+        @Override
+        int hash(Value key) {
+            long x = key.getLong();
+            return spread((int) (x ^ (x >>> 32)));
+        }
+
+        @Override
+        boolean keyEquals(int index, Value key) {
+            return keys[index] == key.getLong();
+        }
+
+        @Override
+        void setKey(int index, Value key) {
+            keys[index] = key.getLong();
+        }
+
+        @Override
+        void clearKey(int index) {
+            // nothing to do
+        }
+
+        @Override
+        void resetKeys(int len) {
+            keys = new long[len];
+        }
+
+        @Override
+        Object getKeys() {
+            return keys;
+        }
+
+        @Override
+        void copyKey(Object oldKeys, int oldIndex, int index) {
+            keys[index] = ((long[]) oldKeys)[oldIndex];
+        }
+
+    }
+
+    /**
+     * A map with keys of type VARCHAR.
+     */
+    static class StringKeys<V> extends TypedValueHashMap<V> {
+
+        private String[] keys;
+
+        @Override
+        int hash(Value key) {
+            return spread(key.getString().hashCode());
+        }
+
+        @Override
+        boolean keyEquals(int index, Value key) {
+            return keys[index].equals(key.getString());
+        }
+
+        @Override
+        void setKey(int index, Value key) {
+            keys[index] = key.getString();
+        }
+
+        @Override
+        void clearKey(int index) {
+            keys[index] = null;
+        }
+
+        @Override
+        void resetKeys(int len) {
+            keys = new String[len];
+        }
+
+        @Override
+        Object getKeys() {
+            return keys;
+        }
+
+        @Override
+        void copyKey(Object oldKeys, int oldIndex, int index) {
+            keys[index] = ((String[]) oldKeys)[oldIndex];
+        }
+
+    }
+
+    /**
+     * A map with keys of any other data type.
+     */
+    static class ValueKeys<V> extends TypedValueHashMap<V> {
+
+        private Value[] keys;
+
+        @Override
+        int hash(Value key) {
+            return spread(key.hashCode());
+        }
+
+        @Override
+        boolean keyEquals(int index, Value key) {
+            return keys[index].equals(key);
+        }
+
+        @Override
+        void setKey(int index, Value key) {
+            keys[index] = key;
+        }
+
+        @Override
+        void clearKey(int index) {
+            keys[index] = null;
+        }
+
+        @Override
+        void resetKeys(int len) {
+            keys = new Value[len];
+        }
+
+        @Override
+        Object getKeys() {
+            return keys;
+        }
+
+        @Override
+        void copyKey(Object oldKeys, int oldIndex, int index) {
+            keys[index] = ((Value[]) oldKeys)[oldIndex];
+        }
+
+    }
+
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2004-2014 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (http://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.util;
+
+import java.util.ArrayList;
+import org.h2.message.DbException;
+import org.h2.value.Value;
+
+/**
+ * This hash map supports keys of type Value[], for example rows. Two keys are
+ * equal if they have the same length and all elements are equal. Unlike using
+ * a ValueHashMap with ValueArray keys, no wrapper object is needed per key.
+ * The hash code of each entry is cached, so that resizing the map does not
+ * need to re-calculate it.
+ *
+ * @param <V> the value type
+ */
+public class ValueArrayHashMap<V> extends HashBase {
+
+    /**
+     * The marker for a deleted entry (compared by identity).
+     */
+    private static final Value[] DELETED = new Value[0];
+
+    private Value[][] keys;
+    private int[] hashes;
+    private V[] values;
+
+    /**
+     * Create a new value array hash map.
+     *
+     * @return the object
+     */
+    public static <T> ValueArrayHashMap<T> newInstance() {
+        return new ValueArrayHashMap<T>();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void reset(int newLevel) {
+        super.reset(newLevel);
+        keys = new Value[len][];
+        hashes = new int[len];
+        values = (V[]) new Object[len];
+    }
+
+    @Override
+    protected void rehash(int newLevel) {
+        Value[][] oldKeys = keys;
+        int[] oldHashes = hashes;
+        V[] oldValues = values;
+        reset(newLevel);
+        for (int i = 0, oldLen = oldKeys.length; i < oldLen; i++) {
+            Value[] k = oldKeys[i];
+            if (k != null && k != DELETED) {
+                int hash = oldHashes[i];
+                int index = hash & mask;
+                int plus = 1;
+                while (keys[index] != null) {
+                    index = (index + plus++) & mask;
+                }
+                keys[index] = k;
+                hashes[index] = hash;
+                values[index] = oldValues[i];
+                size++;
+            }
+        }
+    }
+
+    /**
+     * Calculate the hash code of a key. This is the same as the hash code of
+     * a ValueArray with the same elements, so that the iteration order is
+     * the same as when using a ValueHashMap.
+     *
+     * @param key the key
+     * @return the hash code
+     */
+    private static int hash(Value[] key) {
+        int h = 1;
+        for (Value v : key) {
+            h = h * 31 + v.hashCode();
+        }
+        return h;
+    }
+
+    private static boolean keyEquals(Value[] a, Value[] b) {
+        if (a == b) {
+            return true;
+        }
+        int len = a.length;
+        if (len != b.length) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (!a[i].equals(b[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Add or update a key value pair.
+     *
+     * @param key the key
+     * @param value the new value
+     */
+    public void put(Value[] key, V value) {
+        checkSizePut();
+        int hash = hash(key);
+        int index = hash & mask;
+        int plus = 1;
+        int deleted = -1;
+        do {
+            Value[] k = keys[index];
+            if (k == null) {
+                // found an empty record
+                if (deleted >= 0) {
+                    index = deleted;
+                    deletedCount--;
+                }
+                size++;
+                keys[index] = key;
+                hashes[index] = hash;
+                values[index] = value;
+                return;
+            } else if (k == DELETED) {
+                // found a deleted record
+                if (deleted < 0) {
+                    deleted = index;
+                }
+            } else if (hashes[index] == hash && keyEquals(k, key)) {
+                // update existing
+                values[index] = value;
+                return;
+            }
+            index = (index + plus++) & mask;
+        } while (plus <= len);
+        // no space
+        DbException.throwInternalError("hashmap is full");
+    }
+
+    /**
+     * Remove a key value pair.
+     *
+     * @param key the key
+     */
+    public void remove(Value[] key) {
+        checkSizeRemove();
+        int index = find(key);
+        if (index >= 0) {
+            keys[index] = DELETED;
+            values[index] = null;
+            deletedCount++;
+            size--;
+        }
+    }
+
+    /**
+     * Get the value for this key. This method returns null if the key was not
+     * found.
+     *
+     * @param key the key
+     * @return the value for the given key
+     */
+    public V get(Value[] key) {
+        int index = find(key);
+        return index < 0 ? null : values[index];
+    }
+
+    private int find(Value[] key) {
+        int hash = hash(key);
+        int index = hash & mask;
+        int plus = 1;
+        do {
+            Value[] k = keys[index];
+            if (k == null) {
+                // found an empty record
+                return -1;
+            } else if (k != DELETED && hashes[index] == hash &&
+                    keyEquals(k, key)) {
+                return index;
+            }
+            index = (index + plus++) & mask;
+        } while (plus <= len);
+        return -1;
+    }
+
+    /**
+     * Get the list of keys.
+     *
+     * @return all keys
+     */
+    public ArrayList<Value[]> keys() {
+        ArrayList<Value[]> list = New.arrayList(size);
+        for (Value[] k : keys) {
+            if (k != null && k != DELETED) {
+                list.add(k);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Get the list of values.
+     *
+     * @return all values
+     */
+    public ArrayList<V> values() {
+        ArrayList<V> list = New.arrayList(size);
+        for (int i = 0, len = keys.length; i < len; i++) {
+            Value[] k = keys[i];
+            if (k != null && k != DELETED) {
+                list.add(values[i]);
+            }
+        }
+        return list;
+    }
+
+}
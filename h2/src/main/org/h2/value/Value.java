@@ -6,6 +6,7 @@
 package org.h2.value;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringReader;
@@ -24,6 +25,7 @@ import org.h2.engine.Constants;
 import org.h2.engine.SysProperties;
 import org.h2.message.DbException;
 import org.h2.store.DataHandler;
+import org.h2.store.RangeInputStream;
 import org.h2.tools.SimpleResultSet;
 import org.h2.util.DateTimeUtils;
 import org.h2.util.JdbcUtils;
@@ -447,6 +449,21 @@ public abstract class Value {
         return new ByteArrayInputStream(getBytesNoCopy());
     }
 
+    /**
+     * Get an input stream to read a range of the data.
+     *
+     * @param offset the offset of the first byte (0 based)
+     * @param length the number of bytes, or -1 to read to the end
+     * @return the input stream
+     */
+    public InputStream getInputStream(long offset, long length) {
+        try {
+            return new RangeInputStream(getInputStream(), offset, length);
+        } catch (IOException e) {
+            throw DbException.convertIOException(e, null);
+        }
+    }
+
     public Reader getReader() {
         return new StringReader(getString());
     }
@@ -395,6 +395,19 @@ public class ValueLobDb extends Value implements Value.ValueClob,
         }
     }
 
+    @Override
+    public InputStream getInputStream(long offset, long length) {
+        if (small != null || fileName != null) {
+            return super.getInputStream(offset, length);
+        }
+        try {
+            return handler.getLobStorage().getInputStream(this, hmac,
+                    offset, length);
+        } catch (IOException e) {
+            throw DbException.convertIOException(e, toString());
+        }
+    }
+
     @Override
     public void set(PreparedStatement prep, int parameterIndex)
             throws SQLException {
@@ -41,6 +41,7 @@ public class TestBackup extends TestBase {
         testBackupRestoreLobStatement();
         testBackupRestoreLob();
         testBackup();
+        testIncrementalBackup();
         deleteDb("backup");
         FileUtils.delete(getBaseDir() + "/backup.zip");
     }
@@ -205,4 +206,49 @@ public class TestBackup extends TestBase {
         deleteDb("restored");
     }
 
+    private void testIncrementalBackup() throws SQLException {
+        if (!config.mvStore) {
+            return;
+        }
+        deleteDb("backup");
+        deleteDb("restored");
+        String base = getBaseDir() + "/backup.zip";
+        String inc1 = getBaseDir() + "/backup1.zip";
+        String inc2 = getBaseDir() + "/backup2.zip";
+        Connection conn = getConnection("backup");
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, data binary)");
+        stat.execute("insert into test select x, secure_rand(100) " +
+                "from system_range(1, 10000)");
+        stat.execute("checkpoint");
+        long v0 = getStoreVersion(stat);
+        stat.execute("backup to '" + base + "'");
+        stat.execute("update test set data = secure_rand(10) where id < 10");
+        stat.execute("delete from test where id > 9990");
+        long v1 = getStoreVersion(stat);
+        stat.execute("backup to '" + inc1 + "' incremental since " + v0);
+        stat.execute("insert into test values(10001, secure_rand(10))");
+        stat.execute("create table test2 as select * from test where id < 100");
+        stat.execute("backup to '" + inc2 + "' incremental since " + v1);
+        assertTrue(FileUtils.size(inc1) < FileUtils.size(base) / 2);
+
+        Restore.execute(base, getBaseDir(), "restored");
+        Restore.execute(inc1, getBaseDir(), "restored");
+        Restore.execute(inc2, getBaseDir(), "restored");
+        Connection conn2 = getConnection("restored");
+        assertEqualDatabases(stat, conn2.createStatement());
+        conn2.close();
+        conn.close();
+        deleteDb("restored");
+        FileUtils.delete(inc1);
+        FileUtils.delete(inc2);
+    }
+
+    private static long getStoreVersion(Statement stat) throws SQLException {
+        ResultSet rs = stat.executeQuery("select value " +
+                "from information_schema.settings where name = 'info.STORE_VERSION'");
+        rs.next();
+        return rs.getLong(1);
+    }
+
 }
@@ -64,6 +64,8 @@ public class TestCsv extends TestBase {
         testSpaceSeparated();
         testNull();
         testRandomData();
+        testParallelRead();
+        testCompression();
         testEmptyFieldDelimiter();
         testFieldDelimiter();
         testAsTable();
@@ -377,6 +379,116 @@ public class TestCsv extends TestBase {
         FileUtils.delete(getBaseDir() + "/test.csv");
     }
 
+    private void testParallelRead() throws Exception {
+        String fileName = getBaseDir() + "/test.csv";
+        Random random = new Random(1);
+        for (String options : new String[] { "charset=UTF-8",
+                "charset=UTF-8 lineComment=# escape=\\\\",
+                "charset=ISO-8859-1 fieldSeparator=; preserveWhitespace=true" }) {
+            FileUtils.delete(fileName);
+            StringBuilder buff = new StringBuilder("\ufeff\n# x\nA,B;C\r\n");
+            while (buff.length() < 1500000) {
+                int columns = random.nextInt(4);
+                for (int i = 0; i < columns; i++) {
+                    if (i > 0) {
+                        buff.append(random.nextBoolean() ? ',' : ';');
+                    }
+                    buff.append(randomParallelData(random));
+                }
+                buff.append(random.nextInt(5) == 0 ? "\r\n" : "\n");
+            }
+            OutputStream out = FileUtils.newOutputStream(fileName, false);
+            String charset = options.indexOf("UTF-8") >= 0 ?
+                    "UTF-8" : "ISO-8859-1";
+            out.write(buff.toString().getBytes(charset));
+            out.close();
+            Csv csv = new Csv();
+            csv.setOptions(options);
+            csv.setThreads(1);
+            ResultSet expected = csv.read(fileName, null, charset);
+            csv = new Csv();
+            csv.setOptions(options + " threads=4");
+            assertEquals(4, csv.getThreads());
+            ResultSet rs = csv.read(fileName, null, charset);
+            int columnCount = expected.getMetaData().getColumnCount();
+            assertEquals(columnCount, rs.getMetaData().getColumnCount());
+            for (int i = 0; i < columnCount; i++) {
+                assertEquals(expected.getMetaData().getColumnLabel(i + 1),
+                        rs.getMetaData().getColumnLabel(i + 1));
+            }
+            int rowCount = 0;
+            while (expected.next()) {
+                assertTrue(rs.next());
+                for (int i = 0; i < columnCount; i++) {
+                    assertEquals(expected.getString(i + 1),
+                            rs.getString(i + 1));
+                }
+                rowCount++;
+            }
+            assertFalse(rs.next());
+            assertTrue(rowCount > 10000);
+            rs.close();
+            expected.close();
+        }
+
+        deleteDb("csv");
+        Connection conn = getConnection("csv");
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, name varchar)");
+        stat.execute("insert into test select x, space(x % 100) || 'name' " +
+                "from system_range(1, 100000)");
+        stat.execute("call csvwrite('" + fileName + "', 'select * from test')");
+        stat.execute("create table test2(id int primary key, name varchar)");
+        assertEquals(100000, stat.executeUpdate("insert into test2 select * " +
+                "from csvread('" + fileName + "', null, 'threads=4')"));
+        ResultSet rs = stat.executeQuery("select count(*) from test t " +
+                "join test2 t2 on t.id = t2.id and t.name = t2.name");
+        rs.next();
+        assertEquals(100000, rs.getInt(1));
+        rs = stat.executeQuery("select * from csvread('" + fileName +
+                "', null, 'threads=4') limit 3");
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+        conn.close();
+        FileUtils.delete(fileName);
+    }
+
+    private void testCompression() throws Exception {
+        String fileName = getBaseDir() + "/test.csv";
+        deleteDb("csv");
+        Connection conn = getConnection("csv");
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, name varchar)");
+        stat.execute("insert into test select x, 'name' || x " +
+                "from system_range(1, 100000)");
+        for (String algorithm : new String[] { "DEFLATE", "LZF", "GZIP",
+                "ZIP" }) {
+            FileUtils.delete(fileName);
+            String options = "compression=" + algorithm + " compressThreads=4";
+            stat.execute("call csvwrite('" + fileName +
+                    "', 'select * from test', '" + options + "')");
+            ResultSet rs = stat.executeQuery("select count(*) from test t " +
+                    "join csvread('" + fileName + "', null, '" + options +
+                    "') t2 on t.id = t2.id and t.name = t2.name");
+            rs.next();
+            assertEquals(100000, rs.getInt(1));
+            assertTrue(FileUtils.size(fileName) < 1000000);
+        }
+        conn.close();
+        FileUtils.delete(fileName);
+    }
+
+    private static String randomParallelData(Random random) {
+        String[] parts = { "", " ", "abc", "12.5", "\u00e4\u00f6", "\"",
+                "\"x\"", "\"a,b\nc\"", "\"\"\"\"", "\"q\" z", "\"\\\"\"",
+                "#c", "\\", "\t", "a\"b", "\"\r\n\"", "\"x\"\"y\"" };
+        StringBuilder buff = new StringBuilder();
+        for (int i = random.nextInt(3); i >= 0; i--) {
+            buff.append(parts[random.nextInt(parts.length)]);
+        }
+        return buff.toString();
+    }
+
     private static String randomData(Random random) {
         if (random.nextInt(10) == 1) {
             return null;
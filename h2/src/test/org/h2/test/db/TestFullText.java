@@ -58,6 +58,7 @@ public class TestFullText extends TestBase {
         testPerformance(false);
         testReopen(false);
         testDropIndex(false);
+        testMVStore();
         if (!config.reopen) {
             try {
                 Class.forName(LUCENE_FULLTEXT_CLASS_NAME);
@@ -623,6 +624,155 @@ public class TestFullText extends TestBase {
         FileUtils.deleteRecursive(getBaseDir() + "/fullTextDropIndex", false);
     }
 
+    private void testMVStore() throws SQLException {
+        deleteDb("fullTextMVStore");
+        FileUtils.delete(getBaseDir() + "/fullTextMVStore.ftm.db");
+        Connection conn = getConnection("fullTextMVStore");
+        Statement stat = conn.createStatement();
+        stat.execute("CREATE ALIAS IF NOT EXISTS FTM_INIT FOR " +
+                "\"org.h2.fulltext.FullTextMVStore.init\"");
+        stat.execute("CALL FTM_INIT()");
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, NAME VARCHAR)");
+        stat.execute("INSERT INTO TEST VALUES(1, 'Hello World')");
+        stat.execute("INSERT INTO TEST VALUES(2, 'Hello Hello Hello')");
+        stat.execute("INSERT INTO TEST VALUES(3, 'Goodbye World')");
+        stat.execute("CALL FTM_CREATE_INDEX('PUBLIC', 'TEST', NULL)");
+        stat.execute("INSERT INTO TEST VALUES(4, 'Something else')");
+
+        // the row with the most occurrences is returned first
+        ResultSet rs = stat.executeQuery(
+                "SELECT * FROM FTM_SEARCH('Hello', 0, 0)");
+        assertTrue(rs.next());
+        assertEquals("\"PUBLIC\".\"TEST\" WHERE \"ID\"=2", rs.getString(1));
+        float score = rs.getFloat(2);
+        assertTrue(rs.next());
+        assertEquals("\"PUBLIC\".\"TEST\" WHERE \"ID\"=1", rs.getString(1));
+        assertTrue(rs.getFloat(2) < score);
+        assertFalse(rs.next());
+
+        // all words need to match
+        rs = stat.executeQuery("SELECT * FROM FTM_SEARCH('world hello', 0, 0)");
+        assertTrue(rs.next());
+        assertEquals("\"PUBLIC\".\"TEST\" WHERE \"ID\"=1", rs.getString(1));
+        assertFalse(rs.next());
+        rs = stat.executeQuery("SELECT * FROM FTM_SEARCH('World', 1, 1)");
+        assertTrue(rs.next());
+        assertFalse(rs.next());
+        rs = stat.executeQuery("SELECT * FROM FTM_SEARCH('Unknown', 0, 0)");
+        assertFalse(rs.next());
+        rs = stat.executeQuery("SELECT * FROM FTM_SEARCH(NULL, 0, 0)");
+        assertFalse(rs.next());
+
+        rs = stat.executeQuery("SELECT * FROM FTM_SEARCH_DATA('else', 0, 0)");
+        assertTrue(rs.next());
+        assertEquals("PUBLIC", rs.getString(1));
+        assertEquals("TEST", rs.getString(2));
+        assertEquals("(ID)", rs.getString(3));
+        assertEquals("(4)", rs.getString(4));
+        assertFalse(rs.next());
+
+        stat.execute("UPDATE TEST SET NAME='Goodbye' WHERE ID=1");
+        stat.execute("DELETE FROM TEST WHERE ID=2");
+        rs = stat.executeQuery("SELECT * FROM FTM_SEARCH('Hello', 0, 0)");
+        assertFalse(rs.next());
+        rs = stat.executeQuery("SELECT COUNT(*) FROM FTM_SEARCH('Goodbye', 0, 0)");
+        rs.next();
+        assertEquals(2, rs.getInt(1));
+
+        conn.setAutoCommit(false);
+        stat.execute("INSERT INTO TEST VALUES(5, 'Transaction')");
+        conn.rollback();
+        conn.setAutoCommit(true);
+        rs = stat.executeQuery("SELECT * FROM FTM_SEARCH('Transaction', 0, 0)");
+        assertFalse(rs.next());
+
+        // updates, also if they shift the primary keys
+        stat.execute("CREATE TABLE TEST2(ID INT PRIMARY KEY, NAME VARCHAR)");
+        stat.execute("INSERT INTO TEST2 VALUES(1, 'apple'), " +
+                "(2, 'banana cherry'), (3, 'cherry date')");
+        stat.execute("CALL FTM_CREATE_INDEX('PUBLIC', 'TEST2', NULL)");
+        stat.execute("UPDATE TEST2 SET ID = ID + 1");
+        stat.execute("UPDATE TEST2 SET NAME = 'cherry cherry' WHERE ID = 4");
+        assertEquals("\"PUBLIC\".\"TEST2\" WHERE \"ID\"=2",
+                getMVStoreSearch(stat, "apple", false));
+        assertEquals("\"PUBLIC\".\"TEST2\" WHERE \"ID\"=3",
+                getMVStoreSearch(stat, "banana", false));
+        assertEquals("", getMVStoreSearch(stat, "date", false));
+        // the statistics are the same as after re-building the index
+        String cherry = getMVStoreSearch(stat, "cherry", true);
+        String world = getMVStoreSearch(stat, "world", true);
+        stat.execute("CALL FTM_REINDEX()");
+        assertEquals(cherry, getMVStoreSearch(stat, "cherry", true));
+        assertEquals(world, getMVStoreSearch(stat, "world", true));
+        stat.execute("CALL FTM_DROP_INDEX('PUBLIC', 'TEST2')");
+        stat.execute("DROP TABLE TEST2");
+        // shifted rows with the same words
+        stat.execute("CREATE TABLE TEST3(ID INT PRIMARY KEY, NAME VARCHAR)");
+        stat.execute("INSERT INTO TEST3 VALUES(1, 'kiwi'), (2, 'kiwi')");
+        stat.execute("CALL FTM_CREATE_INDEX('PUBLIC', 'TEST3', NULL)");
+        stat.execute("UPDATE TEST3 SET ID = ID + 1");
+        assertEquals("\"PUBLIC\".\"TEST3\" WHERE \"ID\"=2, " +
+                "\"PUBLIC\".\"TEST3\" WHERE \"ID\"=3",
+                getMVStoreSearch(stat, "kiwi", false));
+        stat.execute("DELETE FROM TEST3 WHERE ID = 2");
+        assertEquals("\"PUBLIC\".\"TEST3\" WHERE \"ID\"=3",
+                getMVStoreSearch(stat, "kiwi", false));
+        stat.execute("CALL FTM_DROP_INDEX('PUBLIC', 'TEST3')");
+        stat.execute("DROP TABLE TEST3");
+
+        // many rows, so that the posting lists are merged
+        PreparedStatement prep = conn.prepareStatement(
+                "INSERT INTO TEST VALUES(?, ?)");
+        for (int i = 10; i < 1000; i++) {
+            prep.setInt(1, i);
+            prep.setString(2, "Row " + i + (i % 3 == 0 ? " three" : "") +
+                    (i % 5 == 0 ? " five" : ""));
+            prep.execute();
+        }
+        stat.execute("DELETE FROM TEST WHERE ID < 100");
+        rs = stat.executeQuery(
+                "SELECT COUNT(*) FROM FTM_SEARCH('three five', 0, 0)");
+        rs.next();
+        assertEquals(60, rs.getInt(1));
+        rs = stat.executeQuery("SELECT COUNT(*) FROM FTM_SEARCH('Row', 0, 0)");
+        rs.next();
+        assertEquals(900, rs.getInt(1));
+        conn.close();
+
+        if (!config.memory) {
+            conn = getConnection("fullTextMVStore");
+            stat = conn.createStatement();
+            rs = stat.executeQuery(
+                    "SELECT COUNT(*) FROM FTM_SEARCH('five', 0, 0)");
+            rs.next();
+            assertEquals(180, rs.getInt(1));
+            stat.execute("CALL FTM_DROP_INDEX('PUBLIC', 'TEST')");
+            rs = stat.executeQuery("SELECT * FROM FTM_SEARCH('five', 0, 0)");
+            assertFalse(rs.next());
+            stat.execute("CALL FTM_DROP_ALL()");
+            conn.close();
+        }
+        deleteDb("fullTextMVStore");
+        FileUtils.delete(getBaseDir() + "/fullTextMVStore.ftm.db");
+    }
+
+    private static String getMVStoreSearch(Statement stat, String text,
+            boolean withScore) throws SQLException {
+        ResultSet rs = stat.executeQuery(
+                "SELECT * FROM FTM_SEARCH('" + text + "', 0, 0)");
+        StringBuilder buff = new StringBuilder();
+        while (rs.next()) {
+            if (buff.length() > 0) {
+                buff.append(", ");
+            }
+            buff.append(rs.getString(1));
+            if (withScore) {
+                buff.append(' ').append(rs.getFloat(2));
+            }
+        }
+        return buff.toString();
+    }
+
     private static void initFullText(Statement stat, boolean lucene)
             throws SQLException {
         String prefix = lucene ? "FTL" : "FT";
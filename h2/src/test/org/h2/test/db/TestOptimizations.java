@@ -5,6 +5,7 @@
  */
 package org.h2.test.db;
 
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -44,6 +45,7 @@ public class TestOptimizations extends TestBase {
         testIdentityIndexUsage();
         testFastRowIdCondition();
         testExplainRoundTrip();
+        testExplainAnalyzeMetrics();
         testOrderByExpression();
         testGroupSubquery();
         testAnalyzeLob();
@@ -54,6 +56,9 @@ public class TestOptimizations extends TestBase {
         testRowId();
         testSortIndex();
         testAutoAnalyze();
+        testAnalyzeHistogram();
+        testJoinOrderManyTables();
+        testCompiledConditions();
         testInAndBetween();
         testNestedIn();
         testConstantIn1();
@@ -74,6 +79,7 @@ public class TestOptimizations extends TestBase {
         testQueryCacheSpeed();
         testQueryCache(true);
         testQueryCache(false);
+        testSharedQueryCache();
         testIn();
         testMinMaxCountOptimization(true);
         testMinMaxCountOptimization(false);
@@ -128,6 +134,29 @@ public class TestOptimizations extends TestBase {
         assertEquals(plan, sql);
     }
 
+    private void testExplainAnalyzeMetrics() throws Exception {
+        Connection conn = getConnection("optimizations");
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, name varchar)");
+        stat.execute("insert into test select x, 'n' || mod(x, 10) " +
+                "from system_range(1, 100)");
+        ResultSet rs;
+        rs = stat.executeQuery("explain analyze " +
+                "select * from test a, test b " +
+                "where a.id = b.id and a.id <= 10");
+        rs.next();
+        String plan = rs.getString(1);
+        assertContains(plan, "PUBLIC.TEST A rows: 10, lookups: 1\n");
+        assertContains(plan, "PUBLIC.TEST B rows: 10, lookups: 10\n");
+        rs = stat.executeQuery("explain analyze " +
+                "update test set name = 'x' where id = 1");
+        rs.next();
+        plan = rs.getString(1);
+        assertContains(plan, "PUBLIC.TEST rows: 1, lookups: 1\n");
+        stat.execute("drop table test");
+        conn.close();
+    }
+
     private void testOrderByExpression() throws Exception {
         Connection conn = getConnection("optimizations");
         Statement stat = conn.createStatement();
@@ -370,6 +399,236 @@ public class TestOptimizations extends TestBase {
         conn.close();
     }
 
+    private void testAnalyzeHistogram() throws SQLException {
+        deleteDb("optimizations");
+        Connection conn = getConnection("optimizations");
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, a int, b int)");
+        stat.execute("create index idx_a on test(a)");
+        stat.execute("create index idx_b on test(b)");
+        // most rows have b = 0
+        stat.execute("insert into test select x, x, " +
+                "case when mod(x, 10) = 0 then x else 0 end " +
+                "from system_range(1, 10000)");
+        stat.execute("create table test2(x int, y int) as " +
+                "select mod(x, 100), mod(x, 50) from system_range(1, 1000)");
+        stat.execute("create index idx_x_y on test2(x, y)");
+        stat.execute("analyze");
+        String sql = "explain select * from test where a < 100 and b = ";
+        ResultSet rs = stat.executeQuery(sql + "0");
+        rs.next();
+        assertContains(rs.getString(1), "IDX_A:");
+        rs = stat.executeQuery(sql + "20");
+        rs.next();
+        assertContains(rs.getString(1), "IDX_B:");
+        rs = stat.executeQuery("script nodata");
+        StringBuilder buff = new StringBuilder();
+        while (rs.next()) {
+            buff.append(rs.getString(1)).append('\n');
+        }
+        String script = buff.toString();
+        assertContains(script, " HISTOGRAM(");
+        assertContains(script, "(X, Y) SELECTIVITY(10, 10)");
+        if (!config.memory) {
+            conn.close();
+            conn = getConnection("optimizations");
+            stat = conn.createStatement();
+            rs = stat.executeQuery(sql + "0");
+            rs.next();
+            assertContains(rs.getString(1), "IDX_A:");
+        }
+        stat.execute("drop table test, test2");
+        conn.close();
+    }
+
+    private void testCompiledConditions() throws SQLException {
+        deleteDb("compiled");
+        deleteDb("compiled2");
+        Connection conn = getConnection("compiled");
+        Statement stat = conn.createStatement();
+        // the same data, evaluated without compiling
+        Connection conn2 = getConnection(
+                "compiled2;COMPILE_EXPRESSIONS=FALSE");
+        Statement stat2 = conn2.createStatement();
+        for (Statement s : new Statement[] { stat, stat2 }) {
+            s.execute("create table test(id identity, i int, l bigint, " +
+                    "d double, s varchar)");
+            s.execute("insert into test(i, l, d, s) select " +
+                    "casewhen(mod(x, 7) = 0, null, mod(x, 10)), mod(x, 5), " +
+                    "casewhen(mod(x, 11) = 0, null, x / 10.0), " +
+                    "casewhen(mod(x, 13) = 0, null, char(97 + mod(x, 4))) " +
+                    "from system_range(1, 1000)");
+        }
+        String[] conditions = {
+                "i < 5", "i = 3 or l > 2", "d >= 2.5", "s = 'b'",
+                "s <> 'a' and i is not null", "i is null or d < 0",
+                "l <= 2 and not (s = 'c')", "i > 1.5", "s > 'b' or d = 3",
+                "i <> 4 and (l = 1 or s is null)", "id >= 100 and s < 'c'",
+                "i + l > 6", "l * 2 - i <= 3", "d / 2 < 10 or mod(i, 3) = 0",
+                "-i < -4", "i % 3 = 1 and d * i >= 20", "id - l * 100 > 50",
+                "i in (1, 3, 8)", "l in (2, 3, null) or s in ('a', 'c')",
+                "d in (0.5, 2.5, 7.0)", "s like 'b%'", "s like '_' and i > 3",
+                "s regexp '[ac]'", "id in (3, 5, 200, 201, 700) and l < 3",
+                "id in (1, 2, 3) or i + l in (10)"
+        };
+        for (String c : conditions) {
+            ResultSet rs = stat.executeQuery(
+                    "select count(*) from test where " + c);
+            rs.next();
+            int count = rs.getInt(1);
+            rs = stat.executeQuery(
+                    "select count(*) from test where (" + c + ") = true");
+            rs.next();
+            assertEquals(c, rs.getInt(1), count);
+            // the rows are read and filtered in blocks
+            String expected = getResult(stat.executeQuery(
+                    "select rownum(), id from test where (" + c + ") = true"));
+            assertEquals(c, expected, getResult(stat.executeQuery(
+                    "select rownum(), id from test where " + c)));
+            assertEquals(c, expected, getResult(stat.executeQuery(
+                    "select rownum(), id from test where " + c +
+                    " order by id")));
+        }
+        PreparedStatement prep = conn.prepareStatement(
+                "select count(*) from test where i = ? and s < ?");
+        prep.setInt(1, 3);
+        prep.setString(2, "c");
+        ResultSet rs = prep.executeQuery();
+        rs.next();
+        int count = rs.getInt(1);
+        assertTrue(count > 0);
+        prep.setString(1, "3");
+        rs = prep.executeQuery();
+        rs.next();
+        assertEquals(count, rs.getInt(1));
+        prep.setBigDecimal(1, new BigDecimal("3.0"));
+        rs = prep.executeQuery();
+        rs.next();
+        assertEquals(count, rs.getInt(1));
+        prep.setNull(1, Types.INTEGER);
+        rs = prep.executeQuery();
+        rs.next();
+        assertEquals(0, rs.getInt(1));
+        prep = conn.prepareStatement(
+                "select id from test where i in (?, ?) and s in (?, 'd')");
+        PreparedStatement prep2 = conn2.prepareStatement(
+                "select id from test where i in (?, ?) and s in (?, 'd')");
+        Object[][] params = { { 1, 2, "a" }, { "3", null, "b" },
+                { 4.0, 5, null } };
+        for (Object[] p : params) {
+            for (int i = 0; i < p.length; i++) {
+                prep.setObject(i + 1, p[i]);
+                prep2.setObject(i + 1, p[i]);
+            }
+            assertEquals(getResult(prep2.executeQuery()),
+                    getResult(prep.executeQuery()));
+        }
+        // the select list
+        String[] expressions = {
+                "i + l", "i * l - 3", "d * i / 2", "l / (i + 1)", "-d",
+                "i % 3 + l % 2", "id * 2.5", "l - id", "-(i - l) * d"
+        };
+        for (String e : expressions) {
+            String sql = "select " + e + " x from test order by id";
+            assertEquals(e, getResult(stat2.executeQuery(sql)),
+                    getResult(stat.executeQuery(sql)));
+            // the values are calculated in blocks
+            sql = "select rownum(), id, " + e + " x from test where l < 3";
+            assertEquals(e, getResult(stat2.executeQuery(sql)),
+                    getResult(stat.executeQuery(sql)));
+        }
+        prep = conn.prepareStatement("select i * ? + l from test order by id");
+        prep2 = conn2.prepareStatement(
+                "select i * ? + l from test order by id");
+        prep.setInt(1, 3);
+        prep2.setInt(1, 3);
+        assertEquals(getResult(prep2.executeQuery()),
+                getResult(prep.executeQuery()));
+        prep.setString(1, "2");
+        prep2.setString(1, "2");
+        assertEquals(getResult(prep2.executeQuery()),
+                getResult(prep.executeQuery()));
+        // overflow and division by zero
+        assertThrows(ErrorCode.NUMERIC_VALUE_OUT_OF_RANGE_1, stat).
+                executeQuery("select i + 2147483647 from test where i > 0");
+        assertThrows(ErrorCode.NUMERIC_VALUE_OUT_OF_RANGE_1, stat).
+                executeQuery("select id from test where " +
+                "l * 9223372036854775807 > 0");
+        assertThrows(ErrorCode.DIVISION_BY_ZERO_1, stat).
+                executeQuery("select id from test where i / (l - l) > 0");
+        rs = stat.executeQuery("select count(*) from test " +
+                "where l * 2305843009213693951 > 0");
+        rs.next();
+        assertEquals(800, rs.getInt(1));
+        // the last block of a scan is shorter than the others
+        stat.execute("create memory table m(x int) as " +
+                "select x from system_range(1, 1000)");
+        rs = stat.executeQuery("select x from m where x > 0");
+        int rows = 0;
+        while (rs.next()) {
+            rows++;
+        }
+        assertEquals(1000, rows);
+        stat.execute("drop table m");
+        conn2.close();
+        conn.close();
+        deleteDb("compiled");
+        deleteDb("compiled2");
+    }
+
+    private static String getResult(ResultSet rs) throws SQLException {
+        StringBuilder buff = new StringBuilder();
+        int columnCount = rs.getMetaData().getColumnCount();
+        while (rs.next()) {
+            for (int i = 1; i <= columnCount; i++) {
+                buff.append(rs.getString(i)).append(' ');
+            }
+            buff.append('\n');
+        }
+        return buff.toString();
+    }
+
+    private void testJoinOrderManyTables() throws SQLException {
+        deleteDb("optimizations");
+        Connection conn = getConnection("optimizations");
+        Statement stat = conn.createStatement();
+        int count = 12;
+        StringBuilder from = new StringBuilder();
+        StringBuilder where = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            stat.execute("create table t" + i +
+                    "(id int primary key, p int) as " +
+                    "select x, (x + 1) / 2 from system_range(1, 1000)");
+            stat.execute("create index on t" + i + "(p)");
+            if (i > 0) {
+                from.append(", ");
+                where.append(" and t" + i + ".p = t" + (i - 1) + ".id");
+            }
+            from.append("t" + i);
+        }
+        // the only table with a constant condition is in the middle
+        String sql = "explain select count(*) from " + from +
+                " where t6.id = 10" + where;
+        ResultSet rs = stat.executeQuery(sql);
+        rs.next();
+        String plan = rs.getString(1);
+        assertContains(plan.replaceAll("\\s+", " "),
+                "FROM PUBLIC.T6 /* PUBLIC.PRIMARY_KEY");
+        for (int i = 0; i < 3; i++) {
+            rs = stat.executeQuery(sql);
+            rs.next();
+            assertEquals(plan, rs.getString(1));
+        }
+        rs = stat.executeQuery("select count(*) from " + from +
+                " where t6.id = 10" + where);
+        rs.next();
+        assertEquals(32, rs.getInt(1));
+        for (int i = 0; i < count; i++) {
+            stat.execute("drop table t" + i);
+        }
+        conn.close();
+    }
+
     private void testInAndBetween() throws SQLException {
         deleteDb("optimizations");
         Connection conn = getConnection("optimizations");
@@ -824,6 +1083,78 @@ public class TestOptimizations extends TestBase {
         conn.close();
     }
 
+    private void testSharedQueryCache() throws SQLException {
+        deleteDb("optimizations");
+        String url = "optimizations;SHARED_QUERY_CACHE_SIZE=16";
+        Connection conn = getConnection(url);
+        Connection conn2 = getConnection(url);
+        Statement stat = conn.createStatement();
+        Statement stat2 = conn2.createStatement();
+        stat.execute("create table test(id int primary key, name varchar)");
+        stat.execute("insert into test values(1, 'a'), (2, 'b'), (3, 'c')");
+        String sql = "select name from test where id = ?";
+        for (int i = 0; i < 3; i++) {
+            Connection c = i % 2 == 0 ? conn : conn2;
+            PreparedStatement prep = c.prepareStatement(sql);
+            assertThrows(ErrorCode.PARAMETER_NOT_SET_1, prep).executeQuery();
+            prep.setInt(1, i + 1);
+            ResultSet rs = prep.executeQuery();
+            assertTrue(rs.next());
+            assertEquals(String.valueOf((char) ('a' + i)), rs.getString(1));
+            prep.close();
+        }
+        if (config.mvStore) {
+            // uncommitted changes of one session must not be visible
+            conn2.setAutoCommit(false);
+            stat2.execute("insert into test values(4, 'd')");
+            // not count(*), which would read the row count of the table
+            sql = "select name from test where id > ? order by id";
+            for (int i = 0; i < 2; i++) {
+                PreparedStatement prep = conn2.prepareStatement(sql);
+                prep.setInt(1, 0);
+                assertEquals("a b c d ", getNames(prep.executeQuery()));
+                prep.close();
+                prep = conn.prepareStatement(sql);
+                prep.setInt(1, 0);
+                assertEquals("a b c ", getNames(prep.executeQuery()));
+                prep.close();
+            }
+            conn2.rollback();
+            conn2.setAutoCommit(true);
+        }
+        // schema changes invalidate the cache
+        stat.executeQuery("select * from test").close();
+        stat.execute("alter table test add column value int");
+        ResultSet rs = stat2.executeQuery("select * from test");
+        assertEquals(3, rs.getMetaData().getColumnCount());
+        // statements are only shared within the same schema
+        stat.execute("create schema s");
+        stat.execute("create table s.test(x int)");
+        stat2.execute("set schema s");
+        stat.executeQuery("select * from test").close();
+        rs = stat2.executeQuery("select * from test");
+        assertEquals(1, rs.getMetaData().getColumnCount());
+        stat2.executeQuery("select * from test").close();
+        rs = stat.executeQuery("select * from test");
+        assertEquals(3, rs.getMetaData().getColumnCount());
+        // and queries on local temporary tables are not shared
+        stat2.execute("set schema public");
+        stat2.execute("create local temporary table temp(x int)");
+        stat2.executeQuery("select * from temp").close();
+        assertThrows(ErrorCode.TABLE_OR_VIEW_NOT_FOUND_1, stat).
+                executeQuery("select * from temp");
+        conn2.close();
+        conn.close();
+    }
+
+    private static String getNames(ResultSet rs) throws SQLException {
+        StringBuilder buff = new StringBuilder();
+        while (rs.next()) {
+            buff.append(rs.getString(1)).append(' ');
+        }
+        return buff.toString();
+    }
+
     private void testMinMaxCountOptimization(boolean memory)
             throws SQLException {
         deleteDb("optimizations");
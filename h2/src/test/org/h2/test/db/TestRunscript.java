@@ -5,6 +5,8 @@
  */
 package org.h2.test.db;
 
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -51,6 +53,8 @@ public class TestRunscript extends TestBase implements Trigger {
         testCancelScript();
         testEncoding();
         testClobPrimaryKey();
+        testScriptCompression();
+        testParallel();
         deleteDb("runscript");
     }
 
@@ -371,6 +375,121 @@ public class TestRunscript extends TestBase implements Trigger {
         FileUtils.delete(getBaseDir() + "/backup2.sql");
     }
 
+    private void testScriptCompression() throws Exception {
+        deleteDb("runscript");
+        Connection conn = getConnection("runscript");
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, name varchar)");
+        stat.execute("insert into test select x, 'Hello ' || rand() " +
+                "from system_range(1, 100000)");
+        stat.execute("create table copy as select * from test");
+        String fileName = getBaseDir() + "/backup.sql";
+        for (String compression : new String[] { "DEFLATE", "LZF" }) {
+            FileUtils.delete(fileName);
+            stat.execute("script to '" + fileName +
+                    "' compression " + compression);
+            stat.execute("drop all objects");
+            stat.execute("runscript from '" + fileName +
+                    "' compression " + compression);
+            ResultSet rs = stat.executeQuery("select count(*) from test t " +
+                    "join copy c on t.id = c.id and t.name = c.name");
+            rs.next();
+            assertEquals(100000, rs.getInt(1));
+        }
+        FileUtils.delete(fileName);
+        conn.close();
+    }
+
+    private void testParallel() throws Exception {
+        String fileName = getBaseDir() + "/backup.sql";
+        for (String url : new String[] { "runscript",
+                "runscript;MULTI_THREADED=TRUE;RUNSCRIPT_THREADS=4" }) {
+            deleteDb("runscript");
+            Connection conn = getConnection(url);
+            Statement stat = conn.createStatement();
+            stat.execute("create table parent(id int primary key, " +
+                    "name varchar)");
+            stat.execute("create table child(id int not null, parent int, " +
+                    "name varchar, data clob)");
+            stat.execute("alter table child add primary key(id)");
+            stat.execute("create unique index idx_child_name on child(name)");
+            stat.execute("alter table child add foreign key(parent) " +
+                    "references parent(id)");
+            stat.execute("create index idx_parent_name on parent(name)");
+            stat.execute("comment on index idx_parent_name is 'names'");
+            stat.execute("insert into parent select x, 'p' || x " +
+                    "from system_range(1, 20000)");
+            stat.execute("insert into child select x, x % 100 + 1, x, " +
+                    "space(x % 10) || x from system_range(1, 10000)");
+            stat.execute("insert into child values(10001, 1, null, " +
+                    "space(100000))");
+            ResultSet rs = stat.executeQuery("select sum(length(data)) " +
+                    "from child");
+            rs.next();
+            long length = rs.getLong(1);
+            FileUtils.delete(fileName);
+            stat.execute("script simple to '" + fileName + "'");
+            stat.execute("drop all objects");
+            stat.execute("runscript from '" + fileName + "' parallel");
+            rs = stat.executeQuery("select count(*), sum(length(data)) " +
+                    "from child c join parent p on c.parent = p.id");
+            rs.next();
+            assertEquals(10001, rs.getInt(1));
+            assertEquals(length, rs.getLong(2));
+            rs = stat.executeQuery("select remarks " +
+                    "from information_schema.indexes " +
+                    "where index_name = 'IDX_PARENT_NAME'");
+            rs.next();
+            assertEquals("names", rs.getString(1));
+            assertThrows(ErrorCode.DUPLICATE_KEY_1, stat).
+                    execute("insert into child values(20000, 1, '1', null)");
+            assertThrows(
+                    ErrorCode.REFERENTIAL_INTEGRITY_VIOLATED_PARENT_MISSING_1,
+                    stat).execute("insert into child " +
+                    "values(20000, 30000, null, null)");
+
+            // the unique index is only checked after the data is loaded
+            stat.execute("drop all objects");
+            FileUtils.delete(fileName);
+            Writer w = new OutputStreamWriter(
+                    FileUtils.newOutputStream(fileName, false), "UTF-8");
+            w.write("create table test(id int primary key, name varchar);\n" +
+                    "create unique index idx_name on test(name);\n" +
+                    "insert into test values(1, 'a'), (2, 'b');\n" +
+                    "insert into test values(3, 'a');\n");
+            w.close();
+            assertThrows(ErrorCode.DUPLICATE_KEY_1, stat).
+                    execute("runscript from '" + fileName + "' parallel");
+            rs = stat.executeQuery("select count(*) from test");
+            rs.next();
+            assertEquals(3, rs.getInt(1));
+
+            // statements that use the session state are not loaded in
+            // another session, and the table name is resolved
+            stat.execute("drop all objects");
+            FileUtils.delete(fileName);
+            w = new OutputStreamWriter(
+                    FileUtils.newOutputStream(fileName, false), "UTF-8");
+            w.write("create table test(id identity, name int, x int);\n" +
+                    "set @x = 42;\n");
+            String[] names = { "test", "TEST", "PUBLIC.TEST", "\"TEST\"" };
+            for (int i = 1; i <= 1000; i++) {
+                w.write("insert into " + names[i % names.length] +
+                        "(name, x) values(" + i + ", " +
+                        (i % 100 == 0 ? "@x" : "0") + ");\n");
+            }
+            w.close();
+            stat.execute("runscript from '" + fileName + "' parallel");
+            rs = stat.executeQuery("select count(*), sum(x) from test " +
+                    "where id = name");
+            rs.next();
+            assertEquals(1000, rs.getInt(1));
+            assertEquals(420, rs.getInt(2));
+            conn.close();
+        }
+        FileUtils.delete(fileName);
+    }
+
     private void testEncoding() throws SQLException {
         deleteDb("runscript");
         Connection conn;
@@ -6,6 +6,7 @@
 package org.h2.test.db;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Savepoint;
@@ -89,6 +90,7 @@ public class TestSpatial extends TestBase {
         testScanIndexOnNonSpatialQuery();
         testStoreCorruption();
         testExplainSpatialIndexWithPk();
+        testNearest();
     }
 
     private void testHashCode() {
@@ -910,4 +912,74 @@ public class TestSpatial extends TestBase {
         deleteDb("spatial");
     }
 
+    private void testNearest() throws SQLException {
+        deleteDb("spatial");
+        Connection conn = getConnection(url);
+        try {
+            Statement stat = conn.createStatement();
+            ResultSet rs = stat.executeQuery("select " +
+                    "'POINT(1 1)'::geometry <-> 'POINT(4 5)'::geometry, " +
+                    "'POLYGON ((1 1, 1 3, 3 3, 1 1))'::geometry <-> " +
+                    "'POINT(2 2)'::geometry");
+            rs.next();
+            assertEquals(5.0, rs.getDouble(1));
+            assertEquals(0.0, rs.getDouble(2));
+            stat.execute("create table test(id identity, the_geom geometry) as " +
+                    "select null, concat('POINT(', A.X / 3.0, ' ', B.X, ')') " +
+                    "from system_range(0, 300) A, system_range(0, 30) B");
+            stat.execute("create table test2 as select * from test");
+            // the index is built from the existing rows
+            stat.execute("create spatial index on test(the_geom)");
+            stat.execute("insert into test2 values(-1, 'POINT(50 50)')");
+            stat.execute("insert into test values(-1, 'POINT(50 50)')");
+            rs = stat.executeQuery("explain select id from test " +
+                    "order by the_geom <-> 'POINT(50 5)' limit 10");
+            rs.next();
+            String plan = rs.getString(1);
+            assertContains(plan, "NEAREST");
+            assertContains(plan, "index sorted");
+            PreparedStatement prep = conn.prepareStatement(
+                    "select the_geom <-> ? from test " +
+                    "where id <> 100 order by the_geom <-> ? limit 20");
+            PreparedStatement prep2 = conn.prepareStatement(
+                    "select the_geom <-> ? d from test2 " +
+                    "where id <> 100 order by d limit 20");
+            Random random = new Random(1);
+            for (int i = 0; i < 20; i++) {
+                String p = "POINT(" + random.nextInt(120) + "." +
+                        random.nextInt(10) + " " + random.nextInt(40) + ")";
+                prep.setString(1, p);
+                prep.setString(2, p);
+                prep2.setString(1, p);
+                ResultSet rs1 = prep.executeQuery();
+                ResultSet rs2 = prep2.executeQuery();
+                while (rs2.next()) {
+                    assertTrue(rs1.next());
+                    assertEquals(rs2.getDouble(1), rs1.getDouble(1));
+                }
+                assertFalse(rs1.next());
+            }
+            // a window lookup keeps the window condition
+            String window = "where the_geom && " +
+                    "'POLYGON ((10 10, 10 12, 12 12, 12 10, 10 10))' " +
+                    "order by the_geom <-> 'POINT(50 5)' limit 5";
+            rs = stat.executeQuery("explain select id from test " + window);
+            rs.next();
+            assertFalse(rs.getString(1).contains("NEAREST"));
+            ResultSet rs1 = stat.executeQuery("select id, the_geom from test " +
+                    window);
+            ResultSet rs2 = conn.createStatement().executeQuery(
+                    "select id, the_geom from test2 " + window);
+            while (rs2.next()) {
+                assertTrue(rs1.next());
+                assertEquals(rs2.getLong(1), rs1.getLong(1));
+            }
+            assertFalse(rs1.next());
+            stat.execute("drop table test, test2");
+        } finally {
+            conn.close();
+        }
+        deleteDb("spatial");
+    }
+
 }
@@ -26,7 +26,7 @@ public class TestDatabaseEventListener extends TestBase {
      */
     static boolean calledOpened, calledClosingDatabase, calledScan,
             calledCreateIndex, calledStatementStart, calledStatementEnd,
-            calledStatementProgress;
+            calledStatementProgress, calledScript;
 
     /**
      * Run just this test.
@@ -46,6 +46,7 @@ public class TestDatabaseEventListener extends TestBase {
         testCloseLog0(false);
         testCloseLog0(true);
         testCalledForStatement();
+        testCalledForScript();
         deleteDb("databaseEventListener");
     }
 
@@ -244,6 +245,23 @@ public class TestDatabaseEventListener extends TestBase {
         assertTrue(calledStatementProgress);
     }
 
+    private void testCalledForScript() throws SQLException {
+        Properties p = new Properties();
+        p.setProperty("user", "sa");
+        p.setProperty("password", "sa");
+        calledScript = false;
+        p.put("DATABASE_EVENT_LISTENER", MyDatabaseEventListener.class.getName());
+        String url = "jdbc:h2:mem:databaseEventListener";
+        Connection conn = org.h2.Driver.load().connect(url, p);
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, name varchar)");
+        stat.execute("insert into test select x, 'Hello' " +
+                "from system_range(1, 3000)");
+        stat.execute("script");
+        conn.close();
+        assertTrue(calledScript);
+    }
+
     /**
      * The database event listener for this test.
      */
@@ -290,6 +308,11 @@ public class TestDatabaseEventListener extends TestBase {
                     calledStatementEnd = true;
                 }
             }
+            if (state == STATE_SCRIPT) {
+                if (name.equals("PUBLIC.TEST") && x >= 1024 && max == 3000) {
+                    calledScript = true;
+                }
+            }
             if (state == STATE_STATEMENT_PROGRESS) {
                 if (name.equals("select * from test")) {
                     calledStatementProgress = true;
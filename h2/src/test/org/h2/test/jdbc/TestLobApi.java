@@ -103,8 +103,14 @@ public class TestLobApi extends TestBase {
                 position(new byte[1], 0);
         assertThrows(ErrorCode.FEATURE_NOT_SUPPORTED_1, blob).
                 position((Blob) null, 0);
-        assertThrows(ErrorCode.FEATURE_NOT_SUPPORTED_1, blob).
-                getBinaryStream(1, 1);
+        InputStream in = blob.getBinaryStream(1, 1);
+        assertEquals(0, in.read());
+        assertEquals(-1, in.read());
+        in.close();
+        assertThrows(ErrorCode.INVALID_VALUE_2, blob).
+                getBinaryStream(0, 1);
+        assertThrows(ErrorCode.INVALID_VALUE_2, blob).
+                getBinaryStream(1, 2);
         assertTrue(blob.toString().endsWith("X'00'"));
         blob.free();
         assertTrue(blob.toString().endsWith("null"));
@@ -265,6 +271,15 @@ public class TestLobApi extends TestBase {
         assertEquals(length, b2.length());
         bytes2 = b2.getBytes(1, length);
         assertEquals(bytes, bytes2);
+        for (int i = 0; i < 10 && length > 0; i++) {
+            int pos = r.nextInt(length);
+            int len = r.nextInt(length - pos + 1);
+            byte[] expected = new byte[len];
+            System.arraycopy(data, pos, expected, 0, len);
+            InputStream in = b2.getBinaryStream(pos + 1, len);
+            assertEquals(expected, IOUtils.readBytesAndClose(in, -1));
+            assertEquals(expected, b2.getBytes(pos + 1, len));
+        }
         while (rs.next()) {
             bytes2 = rs.getBytes(2);
             assertEquals(bytes, bytes2);
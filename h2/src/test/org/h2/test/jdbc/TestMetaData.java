@@ -18,6 +18,7 @@ import java.sql.Types;
 import org.h2.api.ErrorCode;
 import org.h2.engine.Constants;
 import org.h2.test.TestBase;
+import org.h2.util.Task;
 import org.h2.value.DataType;
 
 /**
@@ -37,7 +38,7 @@ public class TestMetaData extends TestBase {
     }
 
     @Override
-    public void test() throws SQLException {
+    public void test() throws Exception {
         deleteDb("metaData");
         testUnwrap();
         testUnsupportedOperations();
@@ -56,6 +57,8 @@ public class TestMetaData extends TestBase {
         testClientInfo();
         testSessionsUncommitted();
         testQueryStatistics();
+        testQueryStatisticsConcurrent();
+        testRecentStatements();
     }
 
     private void testUnwrap() throws SQLException {
@@ -1068,6 +1071,8 @@ public class TestMetaData extends TestBase {
         rs.next();
         assertEquals("QUERY_STATISTICS", rs.getString("TABLE_NAME"));
         rs.next();
+        assertEquals("RECENT_STATEMENTS", rs.getString("TABLE_NAME"));
+        rs.next();
         assertEquals("RIGHTS", rs.getString("TABLE_NAME"));
         rs.next();
         assertEquals("ROLES", rs.getString("TABLE_NAME"));
@@ -1257,4 +1262,96 @@ public class TestMetaData extends TestBase {
         conn.close();
         deleteDb("metaData");
     }
+
+    private void testQueryStatisticsConcurrent() throws Exception {
+        deleteDb("metaData");
+        Connection conn = getConnection("metaData");
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, name varchar) as " +
+                "select x, space(10) from system_range(1, 100)");
+        stat.execute("SET QUERY_STATISTICS TRUE");
+        final int threadCount = 4, count = 250;
+        Task[] tasks = new Task[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            final Connection c = getConnection("metaData");
+            tasks[i] = new Task() {
+                @Override
+                public void call() throws Exception {
+                    Statement s = c.createStatement();
+                    for (int j = 0; j < count; j++) {
+                        s.execute("select * from test where id = 1");
+                    }
+                    c.close();
+                }
+            };
+            tasks[i].execute();
+        }
+        for (Task t : tasks) {
+            t.get();
+        }
+        // many different statements: the frequent one is not removed
+        for (int i = 0; i < 300; i++) {
+            stat.execute("select * from test where id = " + (i + 2));
+        }
+        ResultSet rs = stat.executeQuery(
+                "select count(*) from INFORMATION_SCHEMA.QUERY_STATISTICS");
+        rs.next();
+        assertTrue(rs.getInt(1) <= 100);
+        rs = stat.executeQuery(
+                "select * from INFORMATION_SCHEMA.QUERY_STATISTICS " +
+                "where SQL_STATEMENT = 'select * from test where id = 1'");
+        assertTrue(rs.next());
+        assertEquals(threadCount * count, rs.getInt("EXECUTION_COUNT"));
+        assertEquals(threadCount * count, rs.getInt("CUMULATIVE_ROW_COUNT"));
+        double median = rs.getDouble("MEDIAN_EXECUTION_TIME");
+        double p90 = rs.getDouble("P90_EXECUTION_TIME");
+        double p99 = rs.getDouble("P99_EXECUTION_TIME");
+        assertTrue(median <= p90 && p90 <= p99);
+        assertTrue(p99 < rs.getLong("MAX_EXECUTION_TIME") + 1);
+        assertTrue(rs.getLong("MIN_EXECUTION_TIME") <= median);
+        stat.execute("SET QUERY_STATISTICS FALSE");
+        conn.close();
+        deleteDb("metaData");
+    }
+
+    private void testRecentStatements() throws SQLException {
+        Connection conn = getConnection("metaData");
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, name varchar) as " +
+                "select x, space(10) from system_range(1, 100)");
+
+        ResultSet rs = stat.executeQuery(
+                "select * from INFORMATION_SCHEMA.RECENT_STATEMENTS");
+        assertFalse(rs.next());
+        rs.close();
+        stat.execute("SET QUERY_STATISTICS TRUE");
+        stat.execute("select * from test where id < 20 order by name");
+        stat.execute("update test set name = 'x' where id = 1");
+        rs = stat.executeQuery(
+                "select * from INFORMATION_SCHEMA.RECENT_STATEMENTS");
+        assertTrue(rs.next());
+        assertEquals("select * from test where id < 20 order by name",
+                rs.getString("SQL_STATEMENT"));
+        assertEquals(19, rs.getInt("ROW_COUNT"));
+        assertEquals(1, rs.getLong("INDEX_LOOKUPS"));
+        assertTrue(rs.getDouble("EXECUTION_TIME") >= 0);
+        assertTrue(rs.getDouble("SORT_TIME") >= 0);
+        assertTrue(rs.next());
+        assertEquals("update test set name = 'x' where id = 1",
+                rs.getString("SQL_STATEMENT"));
+        assertEquals(1, rs.getInt("ROW_COUNT"));
+        assertEquals(1, rs.getLong("INDEX_LOOKUPS"));
+        assertFalse(rs.next());
+        rs.close();
+        for (int i = 0; i < 200; i++) {
+            stat.execute("select * from test where id = " + i);
+        }
+        rs = stat.executeQuery(
+                "select count(*) from INFORMATION_SCHEMA.RECENT_STATEMENTS");
+        rs.next();
+        assertEquals(100, rs.getInt(1));
+        stat.execute("SET QUERY_STATISTICS FALSE");
+        conn.close();
+        deleteDb("metaData");
+    }
 }
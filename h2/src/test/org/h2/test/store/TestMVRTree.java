@@ -55,6 +55,8 @@ public class TestMVRTree extends TestMVStore {
         testSimple();
         testRandom();
         testRandomFind();
+        testBulkLoad();
+        testNearest();
     }
 
     private void testRemoveAll() {
@@ -386,6 +388,109 @@ public class TestMVRTree extends TestMVStore {
         }
     }
 
+    private void testBulkLoad() {
+        String fileName = getBaseDir() + "/testBulkLoad.h3";
+        FileUtils.delete(fileName);
+        MVStore s = openStore(fileName);
+        MVRTreeMap<String> r = s.openMap("data",
+                new MVRTreeMap.Builder<String>().dimensions(3).
+                valueType(StringDataType.INSTANCE));
+        Random rand = new Random(1);
+        int len = 5000;
+        ArrayList<SpatialKey> keys = New.arrayList();
+        ArrayList<String> values = New.arrayList();
+        for (int i = 0; i < len; i++) {
+            float x = rand.nextFloat(), y = rand.nextFloat(), z = rand.nextFloat();
+            float p = rand.nextFloat() * 0.01f;
+            keys.add(new SpatialKey(i, x, x + p, y, y + p, z, z + p));
+            values.add("" + i);
+        }
+        r.addAll(keys, values);
+        assertEquals(len, r.size());
+        // not empty: the entries are added one at a time
+        r.addAll(Collections.singletonList(new SpatialKey(len,
+                2, 3, 2, 3, 2, 3)), Collections.singletonList("" + len));
+        s.close();
+        s = openStore(fileName);
+        r = s.openMap("data",
+                new MVRTreeMap.Builder<String>().dimensions(3).
+                valueType(StringDataType.INSTANCE));
+        assertEquals(len + 1, r.size());
+        for (int i = 0; i < len; i++) {
+            assertEquals("" + i, r.get(keys.get(i)));
+        }
+        for (int i = 0; i < 100; i++) {
+            float x = rand.nextFloat(), y = rand.nextFloat(), z = rand.nextFloat();
+            SpatialKey k = new SpatialKey(0, x, x + 0.1f, y, y + 0.1f, z, z + 0.1f);
+            int expected = 0;
+            for (SpatialKey t : keys) {
+                boolean overlap = true;
+                for (int d = 0; d < 3; d++) {
+                    if (t.max(d) < k.min(d) || t.min(d) > k.max(d)) {
+                        overlap = false;
+                    }
+                }
+                if (overlap) {
+                    expected++;
+                }
+            }
+            int count = 0;
+            for (Iterator<SpatialKey> it = r.findIntersectingKeys(k); it.hasNext();) {
+                it.next();
+                count++;
+            }
+            assertEquals(expected, count);
+        }
+        for (SpatialKey k : keys) {
+            r.remove(k);
+        }
+        assertEquals(1, r.size());
+        s.close();
+    }
+
+    private void testNearest() {
+        MVStore s = openStore(null);
+        MVRTreeMap<Integer> m = s.openMap("data",
+                new MVRTreeMap.Builder<Integer>());
+        Random rand = new Random(1);
+        int len = 2000;
+        ArrayList<SpatialKey> keys = New.arrayList();
+        for (int i = 0; i < len; i++) {
+            float x = rand.nextInt(1000), y = rand.nextInt(1000);
+            SpatialKey k = new SpatialKey(i, x, x + rand.nextInt(10),
+                    y, y + rand.nextInt(10));
+            keys.add(k);
+            m.add(k, i);
+        }
+        for (int i = 0; i < 50; i++) {
+            float x = rand.nextInt(1000), y = rand.nextInt(1000);
+            SpatialKey p = new SpatialKey(0, x, x, y, y);
+            ArrayList<Double> expected = New.arrayList();
+            for (SpatialKey k : keys) {
+                expected.add(getDistance(k, p));
+            }
+            Collections.sort(expected);
+            Iterator<SpatialKey> it = m.findNearestKeys(p);
+            int limit = i % 2 == 0 ? 20 : len;
+            for (int j = 0; j < limit; j++) {
+                assertTrue(it.hasNext());
+                assertEquals(expected.get(j).doubleValue(),
+                        getDistance(it.next(), p));
+            }
+            assertEquals(limit < len, it.hasNext());
+        }
+        assertFalse(m.findNearestKeys(keys.get(0)).next() == null);
+        m.clear();
+        assertFalse(m.findNearestKeys(keys.get(0)).hasNext());
+        s.close();
+    }
+
+    private static double getDistance(SpatialKey a, SpatialKey b) {
+        double dx = Math.max(0, Math.max(a.min(0) - b.max(0), b.min(0) - a.max(0)));
+        double dy = Math.max(0, Math.max(a.min(1) - b.max(1), b.min(1) - a.max(1)));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
     private void testRandom(boolean quadraticSplit) {
         String fileName = getBaseDir() + "/testRandom.h3";
         FileUtils.delete(fileName);
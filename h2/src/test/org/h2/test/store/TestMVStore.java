@@ -8,6 +8,8 @@ package org.h2.test.store;
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -61,6 +63,7 @@ public class TestMVStore extends TestBase {
         testFileFormatExample();
         testMaxChunkLength();
         testCacheInfo();
+        testReadAhead();
         testRollback();
         testVersionsToKeep();
         testVersionsToKeep2();
@@ -69,6 +72,7 @@ public class TestMVStore extends TestBase {
         testOffHeapStorage();
         testNewerWriteVersion();
         testCompactFully();
+        testChunksSince();
         testBackgroundExceptionListener();
         testOldVersion();
         testAtomicOperations();
@@ -499,6 +503,63 @@ public class TestMVStore extends TestBase {
         s.close();
     }
 
+    private void testChunksSince() throws Exception {
+        String fileName = getBaseDir() + "/testChunksSince.h3";
+        FileUtils.delete(fileName);
+        MVStore s = new MVStore.Builder().
+                fileName(fileName).
+                autoCommitDisabled().
+                open();
+        MVMap<Integer, String> m;
+        for (int i = 0; i < 100; i++) {
+            m = s.openMap("data" + i);
+            m.put(0, "Hello World");
+            s.commit();
+        }
+        for (int i = 0; i < 100; i += 2) {
+            m = s.openMap("data" + i);
+            s.removeMap(m);
+            s.commit();
+        }
+        long version = s.getCurrentVersion();
+        assertEquals(0, s.getChunksSince(version).size());
+        HashMap<Integer, Long> blocks = new HashMap<Integer, Long>();
+        for (Chunk c : s.getChunksSince(-1)) {
+            blocks.put(c.id, c.block);
+        }
+        s.compactMoveChunks();
+        HashSet<Integer> changed = new HashSet<Integer>();
+        for (Chunk c : s.getChunksSince(version)) {
+            changed.add(c.id);
+        }
+        int moved = 0;
+        for (Chunk c : s.getChunksSince(-1)) {
+            Long old = blocks.get(c.id);
+            if (old == null || old != c.block) {
+                assertTrue(changed.contains(c.id));
+                if (old != null) {
+                    moved++;
+                }
+            }
+        }
+        assertTrue(moved > 0);
+        s.close();
+        s = new MVStore.Builder().
+                fileName(fileName).
+                autoCommitDisabled().
+                open();
+        HashSet<Integer> changed2 = new HashSet<Integer>();
+        for (Chunk c : s.getChunksSince(version)) {
+            changed2.add(c.id);
+        }
+        for (Chunk c : s.getChunksSince(-1)) {
+            if (changed.contains(c.id)) {
+                assertTrue(changed2.contains(c.id));
+            }
+        }
+        s.close();
+    }
+
     private void testBackgroundExceptionListener() throws Exception {
         String fileName = getBaseDir() + "/testBackgroundExceptionListener.h3";
         FileUtils.delete(fileName);
@@ -817,6 +878,57 @@ public class TestMVStore extends TestBase {
         s.close();
     }
 
+    private void testReadAhead() {
+        String fileName = getBaseDir() + "/testReadAhead.h3";
+        FileUtils.delete(fileName);
+        MVStore s;
+        MVMap<Integer, String> map;
+        s = new MVStore.Builder().
+                fileName(fileName).
+                pageSplitSize(1000).open();
+        map = s.openMap("test");
+        for (int i = 0; i < 10000; i++) {
+            map.put(i, "Hello " + i);
+        }
+        s.close();
+        // count the reads that are not done by the iterating thread
+        final Thread iterating = Thread.currentThread();
+        final AtomicInteger backgroundReads = new AtomicInteger();
+        FileStore fileStore = new FileStore() {
+            @Override
+            public ByteBuffer readFully(long pos, int len) {
+                if (Thread.currentThread() != iterating) {
+                    backgroundReads.incrementAndGet();
+                }
+                return super.readFully(pos, len);
+            }
+        };
+        fileStore.open(fileName, false, null);
+        s = new MVStore.Builder().
+                fileStore(fileStore).
+                autoCommitDisabled().
+                readAheadPages(8).open();
+        map = s.openMap("test");
+        for (int j = 0; j < 3; j++) {
+            int i = 0;
+            for (Iterator<Integer> it = map.keyIterator(null); it.hasNext();) {
+                int k = it.next();
+                assertEquals(i, k);
+                assertEquals("Hello " + i, map.get(k));
+                i++;
+            }
+            assertEquals(10000, i);
+        }
+        assertTrue(backgroundReads.get() > 0);
+        // close while pages may still be read in the background
+        Iterator<Integer> it = map.keyIterator(5000);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(5000 + i, it.next().intValue());
+        }
+        s.close();
+        fileStore.close();
+    }
+
     private void testCacheSize() {
         String fileName = getBaseDir() + "/testCacheSize.h3";
         MVStore s;
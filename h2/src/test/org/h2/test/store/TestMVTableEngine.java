@@ -18,8 +18,12 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Savepoint;
 import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.h2.api.DatabaseEventListener;
 import org.h2.api.ErrorCode;
 import org.h2.engine.Constants;
 import org.h2.engine.Database;
@@ -27,6 +31,7 @@ import org.h2.jdbc.JdbcConnection;
 import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
 import org.h2.mvstore.db.TransactionStore;
+import org.h2.store.LobBlockMap;
 import org.h2.store.fs.FileUtils;
 import org.h2.test.TestBase;
 import org.h2.tools.DeleteDbFiles;
@@ -60,7 +65,10 @@ public class TestMVTableEngine extends TestBase {
         testTemporaryTables();
         testUniqueIndex();
         testSecondaryIndex();
+        testParallelIndexBuild();
+        testCoveringIndex();
         testGarbageCollectionForLOB();
+        testLobDeduplication();
         testSpatial();
         testCount();
         testMinMaxWithNull();
@@ -377,6 +385,94 @@ public class TestMVTableEngine extends TestBase {
         conn.close();
     }
 
+    private void testParallelIndexBuild() throws SQLException {
+        FileUtils.deleteRecursive(getBaseDir(), true);
+        Connection conn;
+        Statement stat;
+        ResultSet rs;
+        String url = "mvstore;MV_STORE=TRUE;CREATE_INDEX_THREADS=4";
+        url = getURL(url, true);
+        url += ";DATABASE_EVENT_LISTENER='" +
+                ProgressListener.class.getName() + "'";
+        conn = getConnection(url);
+        stat = conn.createStatement();
+        stat.execute("set max_memory_rows 1000");
+        stat.execute("create table test(id int primary key, a int, b varchar)");
+        int size = 20000;
+        stat.execute("insert into test select x * 7 - 70000, " +
+                "mod(x * 111, " + size + "), 'b' || mod(x, 100) " +
+                "from system_range(1, " + size + ")");
+        stat.execute("delete from test where mod(id, 3) = 0");
+        rs = stat.executeQuery("select count(*) from test");
+        rs.next();
+        int count = rs.getInt(1);
+        ProgressListener.createIndexCalls.set(0);
+        stat.execute("create unique index idx_a on test(a)");
+        // the progress is reported for each row, not for each thread
+        assertTrue(ProgressListener.createIndexCalls.get() >= count);
+        stat.execute("create index idx_b on test(b, a)");
+        assertThrows(ErrorCode.DUPLICATE_KEY_1, stat).
+                execute("create unique index idx_b_unique on test(b)");
+        rs = stat.executeQuery("select count(*), count(distinct b) " +
+                "from test where a >= 0");
+        rs.next();
+        assertEquals(count, rs.getInt(1));
+        assertEquals(100, rs.getInt(2));
+        rs = stat.executeQuery("select a from test order by a");
+        int last = -1;
+        for (int i = 0; i < count; i++) {
+            assertTrue(rs.next());
+            assertTrue(rs.getInt(1) > last);
+            last = rs.getInt(1);
+        }
+        assertFalse(rs.next());
+        rs = stat.executeQuery("select count(*) from test " +
+                "where concat(b, '') = 'b7'");
+        rs.next();
+        int expected = rs.getInt(1);
+        rs = stat.executeQuery("select count(*) from test where b = 'b7'");
+        rs.next();
+        assertEquals(expected, rs.getInt(1));
+        conn.close();
+    }
+
+    private void testCoveringIndex() throws SQLException {
+        FileUtils.deleteRecursive(getBaseDir(), true);
+        Connection conn;
+        Statement stat;
+        String url = "mvstore;MV_STORE=TRUE";
+        url = getURL(url, true);
+        conn = getConnection(url);
+        stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, " +
+                "a int, b varchar, c varchar)");
+        stat.execute("insert into test select x, mod(x, 10), " +
+                "'b' || x, 'c' || x from system_range(1, 1000)");
+        stat.execute("create index idx_a on test(a)");
+        stat.execute("create index idx_a_b on test(a, b)");
+        ResultSet rs;
+        // the index on (a, b) contains all columns, including the primary key
+        rs = stat.executeQuery("explain select id, b from test where a = 3");
+        rs.next();
+        assertContains(rs.getString(1), "IDX_A_B");
+        // column c is not in any index
+        rs = stat.executeQuery("explain select c from test where a = 3");
+        rs.next();
+        assertContains(rs.getString(1), "IDX_A:");
+        rs = stat.executeQuery("select id, b from test where a = 3 order by id");
+        for (int i = 3; i <= 1000; i += 10) {
+            assertTrue(rs.next());
+            assertEquals(i, rs.getInt(1));
+            assertEquals("b" + i, rs.getString(2));
+        }
+        assertFalse(rs.next());
+        rs = stat.executeQuery("select count(*) from test " +
+                "where a = 3 and b > 'b5'");
+        rs.next();
+        assertEquals(55, rs.getInt(1));
+        conn.close();
+    }
+
     private void testGarbageCollectionForLOB() throws SQLException {
         FileUtils.deleteRecursive(getBaseDir(), true);
         Connection conn;
@@ -410,6 +506,67 @@ public class TestMVTableEngine extends TestBase {
         assertTrue(s.hasMap("lobRef"));
         MVMap<Long, byte[]> lobRef = s.openMap("lobRef");
         assertEquals(0, lobRef.sizeAsLong());
+        assertEquals(0, s.openMap("lobBlock").sizeAsLong());
+        assertEquals(0, s.openMap("lobContent").sizeAsLong());
+        assertEquals(0, s.openMap("lobContentRef").sizeAsLong());
+        s.close();
+    }
+
+    private void testLobDeduplication() throws SQLException {
+        FileUtils.deleteRecursive(getBaseDir(), true);
+        String url = getURL("mvstore;MV_STORE=TRUE", true);
+        Connection conn = getConnection(url);
+        Statement stat = conn.createStatement();
+        stat.execute("set compress_lob lzf");
+        stat.execute("create table test(id int primary key, data clob)");
+        stat.execute("insert into test select x, " +
+                "repeat('{\"id\": 1, \"name\": \"Hello\"}', 20000) " +
+                "from system_range(1, 20)");
+        stat.execute("insert into test values(21, repeat('x', 300000))");
+        stat.execute("create table test2 as select * from test");
+        ResultSet rs = stat.executeQuery("select count(*) from test t " +
+                "join test2 t2 on t.id = t2.id and t.data = t2.data");
+        rs.next();
+        assertEquals(21, rs.getInt(1));
+        conn.close();
+        MVStore s = MVStore.open(getBaseDir() + "/mvstore.mv.db");
+        // 20 identical values of two blocks each, and one other value
+        assertEquals(4, s.openMap("lobContent").sizeAsLong());
+        MVMap<byte[], byte[]> content = s.openMap("lobContent");
+        long size = 0;
+        for (byte[] data : content.values()) {
+            size += data.length;
+        }
+        assertTrue(size < 100000);
+        s.close();
+
+        conn = getConnection(url);
+        stat = conn.createStatement();
+        stat.execute("delete from test where id <= 20");
+        stat.execute("drop table test2");
+        rs = stat.executeQuery("select length(data) from test");
+        rs.next();
+        assertEquals(300000, rs.getLong(1));
+        assertFalse(rs.next());
+        conn.close();
+        s = MVStore.open(getBaseDir() + "/mvstore.mv.db");
+        assertEquals(2, s.openMap("lobContent").sizeAsLong());
+        assertEquals(2, s.openMap("lobContentRef").sizeAsLong());
+        assertEquals(2, s.openMap("lobBlock").sizeAsLong());
+        // the block map can be used as a regular map
+        LobBlockMap blocks = new LobBlockMap(s);
+        HashMap<Long, byte[]> copy = new HashMap<Long, byte[]>();
+        for (Map.Entry<Long, byte[]> e : blocks.entrySet()) {
+            assertEquals(e.getValue(), blocks.get(e.getKey()));
+            copy.put(e.getKey(), e.getValue());
+        }
+        assertEquals(2, copy.size());
+        assertTrue(copy.keySet().equals(blocks.keySet()));
+        assertEquals(2, blocks.values().size());
+        blocks.clear();
+        assertTrue(blocks.isEmpty());
+        assertEquals(0, s.openMap("lobContent").sizeAsLong());
+        assertEquals(0, s.openMap("lobContentRef").sizeAsLong());
         s.close();
     }
 
@@ -570,6 +727,12 @@ public class TestMVTableEngine extends TestBase {
         readCount = readCount.substring("reads: ".length(), readCount.indexOf('\n'));
         int rc = Integer.parseInt(readCount);
         assertTrue(plan, rc >= 1000 && rc <= 1200);
+        assertContains(plan, "PUBLIC.TEST rows: 1000, lookups: 1\n");
+        String bytesRead = plan.substring(plan.indexOf("bytes read: "));
+        bytesRead = bytesRead.substring("bytes read: ".length(),
+                bytesRead.indexOf('\n'));
+        assertTrue(plan, Long.parseLong(bytesRead) > 1000 * 1000);
+        assertContains(plan, "cache hits: ");
         conn.close();
     }
 
@@ -1390,4 +1553,44 @@ public class TestMVTableEngine extends TestBase {
         conn.close();
     }
 
+    /**
+     * A database event listener that counts the progress calls while
+     * creating an index.
+     */
+    public static class ProgressListener implements DatabaseEventListener {
+
+        /**
+         * The number of calls with the state STATE_CREATE_INDEX.
+         */
+        static final AtomicInteger createIndexCalls = new AtomicInteger();
+
+        @Override
+        public void init(String url) {
+            // nothing to do
+        }
+
+        @Override
+        public void opened() {
+            // nothing to do
+        }
+
+        @Override
+        public void closingDatabase() {
+            // nothing to do
+        }
+
+        @Override
+        public void exceptionThrown(SQLException e, String sql) {
+            // nothing to do
+        }
+
+        @Override
+        public void setProgress(int state, String name, int x, int max) {
+            if (state == DatabaseEventListener.STATE_CREATE_INDEX) {
+                createIndexCalls.incrementAndGet();
+            }
+        }
+
+    }
+
 }
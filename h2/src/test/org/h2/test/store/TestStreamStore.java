@@ -50,6 +50,7 @@ public class TestStreamStore extends TestBase {
         testLarge();
         testDetectIllegalId();
         testTreeStructure();
+        testSkip();
         testFormat();
         testWithExistingData();
         testWithFullMap();
@@ -266,6 +267,37 @@ public class TestStreamStore extends TestBase {
         assertEquals(3, reads.get());
     }
 
+    private void testSkip() throws IOException {
+        final AtomicInteger reads = new AtomicInteger();
+        Map<Long, byte[]> map = new HashMap<Long, byte[]>() {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public byte[] get(Object k) {
+                reads.incrementAndGet();
+                return super.get(k);
+            }
+
+        };
+
+        StreamStore store = new StreamStore(map);
+        store.setMinBlockSize(10);
+        store.setMaxBlockSize(100);
+        byte[] data = new byte[1000000];
+        new Random(1).nextBytes(data);
+        byte[] id = store.put(new ByteArrayInputStream(data));
+        for (int pos : new int[] { 0, 1, 99, 100, 12345, 999999 }) {
+            reads.set(0);
+            InputStream in = store.get(id);
+            IOUtils.skipFully(in, pos);
+            assertEquals(data[pos] & 255, in.read());
+            // only the blocks on the path to the position are read
+            assertTrue("reads: " + reads.get(), reads.get() < 10);
+            in.close();
+        }
+    }
+
     private void testFormat() throws IOException {
         Map<Long, byte[]> map = New.hashMap();
         StreamStore store = new StreamStore(map);
@@ -625,8 +625,8 @@ insert into test values(1), (2), (3), (4);
 
 explain analyze select * from test where id is null;
 > PLAN
-> ----------------------------------------------------------------------------------------------------------
-> SELECT TEST.ID FROM PUBLIC.TEST /* PUBLIC.PRIMARY_KEY_2: ID IS NULL */ /* scanCount: 1 */ WHERE ID IS NULL
+> ------------------------------------------------------------------------------------------------------------------------------------------------
+> SELECT TEST.ID FROM PUBLIC.TEST /* PUBLIC.PRIMARY_KEY_2: ID IS NULL */ /* scanCount: 1 */ WHERE ID IS NULL /* PUBLIC.TEST rows: 0, lookups: 1 */
 > rows: 1
 
 drop table test;
@@ -634,8 +634,8 @@ drop table test;
 
 explain analyze select 1;
 > PLAN
-> ----------------------------------------------------------------------------
-> SELECT 1 FROM SYSTEM_RANGE(1, 1) /* PUBLIC.RANGE_INDEX */ /* scanCount: 2 */
+> -------------------------------------------------------------------------------------------------------------------------
+> SELECT 1 FROM SYSTEM_RANGE(1, 1) /* PUBLIC.RANGE_INDEX */ /* scanCount: 2 */ /* SYSTEM_RANGE(1, 1) rows: 1, lookups: 1 */
 > rows: 1
 
 create table folder(id int primary key, name varchar(255), parent int);
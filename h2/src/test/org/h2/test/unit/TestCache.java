@@ -49,6 +49,7 @@ public class TestCache extends TestBase implements CacheWriter {
         }
         testMemoryUsage();
         testCache();
+        testCacheLIRS();
         testCacheDb(false);
         testCacheDb(true);
     }
@@ -84,6 +85,7 @@ public class TestCache extends TestBase implements CacheWriter {
         conn.close();
         testTQ("LRU", false);
         testTQ("TQ", true);
+        testTQ("LIRS", true);
     }
 
     private void testTQ(String cacheType, boolean scanResistant) throws Exception {
@@ -91,6 +93,9 @@ public class TestCache extends TestBase implements CacheWriter {
                 "cache;CACHE_TYPE=" + cacheType + ";CACHE_SIZE=4096");
         Statement stat = conn.createStatement();
         PreparedStatement prep;
+        // LIRS only keeps the data rows once they were read a second time,
+        // as it then knows they are used more frequently than the LOB
+        int firstCached = "LIRS".equals(cacheType) ? 2 : 1;
         for (int k = 0; k < 10; k++) {
             int rc;
             prep = conn.prepareStatement(
@@ -103,8 +108,8 @@ public class TestCache extends TestBase implements CacheWriter {
                 }
             }
             int rcData = getReadCount(stat) - rc;
-            if (scanResistant && k > 0) {
-                // TQ is expected to keep the data rows in the cache
+            if (scanResistant && k >= firstCached) {
+                // TQ and LIRS are expected to keep the data rows in the cache
                 // even if the LOB is read once in a while
                 assertEquals(0, rcData);
             } else {
@@ -203,6 +208,23 @@ public class TestCache extends TestBase implements CacheWriter {
         assertEquals("flush 0 flush 1 flush 2 flush 3 ", out);
     }
 
+    private void testCacheLIRS() {
+        out = "";
+        Cache c = CacheLRU.getCache(this, "LIRS", 16);
+        for (int i = 0; i < 20; i++) {
+            c.put(new Obj(i));
+        }
+        assertEquals("flush 0 1 2 flush 3 4 5 flush 6 7 8 " +
+                "flush 9 10 11 flush 12 13 14 flush 15 16 17 ", out);
+        // changed entries that are not yet written are never lost
+        assertEquals(2, c.getAllChanged().size());
+        assertEquals(18, c.find(18).getPos());
+        assertEquals(19, c.get(19).getPos());
+        assertTrue(c.remove(19));
+        assertNull(c.find(19));
+        assertEquals(1, c.getAllChanged().size());
+    }
+
     /**
      * A simple cache object
      */
@@ -266,6 +266,23 @@ public class TestCompress extends TestBase {
                 IOUtils.copy(in, out);
                 assertEquals(b, out.toByteArray());
             }
+            for (String a : new String[] { "LZF", "DEFLATE" }) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                OutputStream out2 = CompressTool.wrapOutputStream(out, a,
+                        "test", 3);
+                // write in pieces that do not match the block size
+                for (int pos = 0; pos < len;) {
+                    int l = Math.min(len - pos, 1 + r.nextInt(300000));
+                    out2.write(b, pos, l);
+                    pos += l;
+                }
+                out2.close();
+                InputStream in = new ByteArrayInputStream(out.toByteArray());
+                in = CompressTool.wrapInputStream(in, a, "test");
+                out.reset();
+                IOUtils.copy(in, out);
+                assertEquals(b, out.toByteArray());
+            }
         }
     }
 
@@ -17,11 +17,15 @@ import java.util.ArrayList;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.h2.api.DatabaseEventListener;
 import org.h2.api.ErrorCode;
+import org.h2.engine.Constants;
 import org.h2.result.Row;
 import org.h2.store.Page;
+import org.h2.store.fs.FilePathRec;
 import org.h2.store.fs.FileUtils;
+import org.h2.store.fs.Recorder;
 import org.h2.test.TestBase;
 import org.h2.util.IOUtils;
 import org.h2.util.JdbcUtils;
@@ -59,6 +63,8 @@ public class TestPageStore extends TestBase {
         testInsertReverse();
         testInsertDelete();
         testCheckpoint();
+        testCheckpointInBackground();
+        testReadAhead();
         testDropRecreate();
         testDropAll();
         testCloseTempTable();
@@ -317,6 +323,120 @@ public class TestPageStore extends TestBase {
         conn.close();
     }
 
+    private void testReadAhead() throws Exception {
+        if (config.memory || config.mvStore) {
+            return;
+        }
+        deleteDb("pageStoreReadAhead");
+        Connection conn;
+        conn = getConnection("pageStoreReadAhead");
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, data varchar)");
+        stat.execute("insert into test select x, space(100) " +
+                "from system_range(1, 20000)");
+        conn.close();
+        conn = getConnection(
+                "pageStoreReadAhead;READ_AHEAD_PAGES=16;CACHE_SIZE=256");
+        stat = conn.createStatement();
+        long length = 20000 * 100;
+        for (int i = 0; i < 10; i++) {
+            ResultSet rs = stat.executeQuery(
+                    "select count(*), sum(length(data)) from test");
+            rs.next();
+            assertEquals(20000, rs.getInt(1));
+            assertEquals(length, rs.getLong(2));
+            // scan and change pages at the same time
+            stat.execute("update test set data = data || 'x' " +
+                    "where mod(id, 7) = " + (i % 7));
+            for (int id = 1; id <= 20000; id++) {
+                if (id % 7 == i % 7) {
+                    length++;
+                }
+            }
+        }
+        // some pages were read in the background before they were needed
+        ResultSet rs = stat.executeQuery("select value from " +
+                "information_schema.settings " +
+                "where name = 'info.FILE_READ_AHEAD'");
+        rs.next();
+        assertTrue(rs.getLong(1) > 0);
+        conn.close();
+        conn = getConnection("pageStoreReadAhead");
+        stat = conn.createStatement();
+        rs = stat.executeQuery("select sum(length(data)) from test");
+        rs.next();
+        assertEquals(length, rs.getLong(1));
+        conn.close();
+        deleteDb("pageStoreReadAhead");
+    }
+
+    private void testCheckpointInBackground() throws Exception {
+        if (config.memory || config.mvStore || config.reopen) {
+            return;
+        }
+        deleteDb("pageStoreCheckpointInBackground");
+        // the largest write of the writer thread to the database file
+        final AtomicInteger maxBackgroundWrite = new AtomicInteger();
+        FilePathRec.register();
+        FilePathRec.setRecorder(new Recorder() {
+            @Override
+            public void log(int op, String fileName, byte[] data, long x) {
+                if (op == Recorder.WRITE &&
+                        fileName.endsWith(Constants.SUFFIX_PAGE_FILE) &&
+                        Thread.currentThread().getName().
+                        startsWith("H2 Log Writer")) {
+                    // there is only one writer thread
+                    if (data.length > maxBackgroundWrite.get()) {
+                        maxBackgroundWrite.set(data.length);
+                    }
+                }
+            }
+        });
+        Connection conn;
+        conn = getConnection("rec:" + getBaseDir() +
+                "/pageStoreCheckpointInBackground");
+        Statement stat = conn.createStatement();
+        ResultSet rs = stat.executeQuery("select value from " +
+                "information_schema.settings where name = 'info.PAGE_SIZE'");
+        rs.next();
+        int pageSize = rs.getInt(1);
+        stat.execute("create table test(id int primary key, data varchar)");
+        stat.execute("set max_log_size 1");
+        stat.execute("set write_delay 10");
+        PreparedStatement prep = conn.prepareStatement(
+                "insert into test values(?, space(500))");
+        for (int i = 0; i < 5000; i++) {
+            prep.setInt(1, i);
+            prep.execute();
+            if (i % 100 == 0) {
+                // give the writer thread a chance to write back the pages
+                Thread.sleep(20);
+            }
+        }
+        // the writer thread wrote back the changed pages,
+        // and wrote adjacent pages at once
+        assertTrue(maxBackgroundWrite.get() > pageSize);
+        // the last commit must be durable before the process is stopped
+        stat.execute("set write_delay 0");
+        stat.execute("update test set data = 'x' where mod(id, 3) = 0");
+        stat.execute("shutdown immediately");
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            // ignore
+        }
+        FilePathRec.setRecorder(null);
+        conn = getConnection("pageStoreCheckpointInBackground");
+        stat = conn.createStatement();
+        rs = stat.executeQuery("select count(*), " +
+                "sum(length(data)) from test");
+        rs.next();
+        assertEquals(5000, rs.getInt(1));
+        assertEquals(1667 + 3333 * 500, rs.getInt(2));
+        conn.close();
+        deleteDb("pageStoreCheckpointInBackground");
+    }
+
     private void testDropRecreate() throws SQLException {
         if (config.memory) {
             return;
@@ -5,6 +5,13 @@
  */
 package org.h2.test.unit;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.DriverManager;
@@ -15,6 +22,8 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -46,6 +55,9 @@ public class TestPgServer extends TestBase {
         testKeyAlias();
         testCancelQuery();
         testBinaryTypes();
+        testCopy();
+        testPortalSuspended();
+        testBinaryResultFormat();
     }
 
     private void testLowerCaseIdentifiers() throws SQLException {
@@ -407,4 +419,608 @@ public class TestPgServer extends TestBase {
             server.stop();
         }
     }
+
+    private void testCopy() throws Exception {
+        // the PostgreSQL JDBC driver is not needed, the protocol is used
+        // directly
+        Server server = Server.createPgServer(
+                "-pgPort", "5535", "-pgDaemon", "-key", "test", "mem:test");
+        server.start();
+        Connection conn = getConnection("mem:test");
+        try {
+            Statement stat = conn.createStatement();
+            stat.execute("create table test(id int primary key, " +
+                    "name varchar, flag boolean, data binary)");
+            PgClient client = new PgClient(5535, "test", getUser(), getPassword());
+
+            assertEquals("COPY 3", client.copyIn(
+                    "copy test from stdin",
+                    "1\tHello\tt\t\\\\x0102\n2\tTab\\tNew\\nLine",
+                    "\tf\t\\N\n", "3\t\\N\t\\N\t\\N\n\\.\n"));
+            ResultSet rs = stat.executeQuery("select * from test order by id");
+            rs.next();
+            assertEquals("Hello", rs.getString(2));
+            assertTrue(rs.getBoolean(3));
+            assertEquals(new byte[] { 1, 2 }, rs.getBytes(4));
+            rs.next();
+            assertEquals("Tab\tNew\nLine", rs.getString(2));
+            assertFalse(rs.getBoolean(3));
+            assertNull(rs.getBytes(4));
+            rs.next();
+            assertNull(rs.getString(2));
+            assertFalse(rs.next());
+
+            assertEquals("1\tHello\tt\t\\\\x0102\n" +
+                    "2\tTab\\tNew\\nLine\tf\t\\N\n" +
+                    "3\t\\N\t\\N\t\\N\n" +
+                    "COPY 3",
+                    client.copyOut("copy test to stdout"));
+
+            // CSV, a column list, a header, and a quoted line break
+            // split across messages
+            assertEquals("COPY 2", client.copyIn(
+                    "copy test (name, id) from stdin with (format csv, header)",
+                    "name,id\n\"a,\"\"b\"\"\r",
+                    "\nc\",10\n,11\n"));
+            assertEquals("a,\"b\"\r\nc", querySingle(stat,
+                    "select name from test where id = 10"));
+            assertNull(querySingle(stat, "select name from test where id = 11"));
+            assertEquals("ID;NAME\n10;\"a,\"\"b\"\"\r\nc\"\n11;\n" +
+                    "COPY 2", client.copyOut(
+                    "copy (select id, name from test where id >= 10 " +
+                    "order by id) to stdout csv header delimiter ';'"));
+
+            // a failed copy is rolled back
+            assertStartsWith(client.copyIn("copy test from stdin",
+                    "20\ta\tt\t\\N\n", "20\tb\tt\t\\N\n"), "ERROR");
+            assertEquals("5", querySingle(stat, "select count(*) from test"));
+            assertStartsWith(client.copyIn("copy test from stdin binary"),
+                    "ERROR");
+            assertStartsWith(client.copyIn("copy test from '/tmp/x'"),
+                    "ERROR");
+
+            // many rows
+            StringBuilder buff = new StringBuilder();
+            for (int i = 100; i < 5100; i++) {
+                buff.append(i).append("\tn").append(i).append("\tt\t\\N\n");
+            }
+            assertEquals("COPY 5000", client.copyIn("copy test from stdin",
+                    buff.toString()));
+            assertEquals("5005", querySingle(stat, "select count(*) from test"));
+            String out = client.copyOut("copy test to stdout");
+            assertTrue(out.endsWith("COPY 5005"));
+            client.close();
+        } finally {
+            conn.close();
+            server.stop();
+        }
+    }
+
+    private void testPortalSuspended() throws Exception {
+        Server server = Server.createPgServer(
+                "-pgPort", "5536", "-pgDaemon", "-key", "test", "mem:test");
+        server.start();
+        Connection conn = getConnection("mem:test");
+        try {
+            PgClient client = new PgClient(5536, "test", getUser(),
+                    getPassword());
+            client.parse("s1", "select x from system_range(1, 10)");
+            client.bind("p1", "s1");
+            assertEquals("1,2,3,4 suspended", client.execute("p1", 4));
+            assertEquals("5,6,7,8 suspended", client.execute("p1", 4));
+            assertEquals("9,10 SELECT", client.execute("p1", 4));
+            client.sync();
+
+            // the row count matches exactly
+            client.bind("p1", "s1");
+            assertEquals("1,2,3,4,5,6,7,8,9,10 suspended",
+                    client.execute("p1", 10));
+            assertEquals(" SELECT", client.execute("p1", 10));
+            client.sync();
+
+            // no limit
+            client.bind("", "s1");
+            assertEquals("1,2,3,4,5,6,7,8,9,10 SELECT",
+                    client.execute("", 0));
+            client.sync();
+
+            // two portals of the same statement, within a transaction
+            client.parse("s2", "select x from system_range(1, ?)", 0);
+            client.parse("begin", "begin");
+            client.bind("", "begin");
+            assertEquals(" BEGIN", client.execute("", 0));
+            client.bind("a", "s2", "3");
+            assertEquals("1 suspended", client.execute("a", 1));
+            client.sync();
+            assertEquals("2 suspended", client.execute("a", 1));
+            client.bind("b", "s1");
+            assertEquals("1,2 suspended", client.execute("b", 2));
+            assertEquals("3 SELECT", client.execute("a", 5));
+            client.closePortal("b");
+            assertStartsWith(client.execute("b", 2), "ERROR");
+            // executing the statement again removes the suspended portal
+            client.bind("d", "s1");
+            assertEquals("1 suspended", client.execute("d", 1));
+            client.bind("e", "s1");
+            assertEquals("1 suspended", client.execute("e", 1));
+            assertStartsWith(client.execute("d", 1), "ERROR");
+            assertEquals("2 suspended", client.execute("e", 1));
+            client.sync();
+
+            // in auto-commit mode, sync closes the portals
+            client.parse("commit", "commit");
+            client.bind("", "commit");
+            client.execute("", 0);
+            client.bind("c", "s1");
+            assertEquals("1 suspended", client.execute("c", 1));
+            client.sync();
+            assertStartsWith(client.execute("c", 1), "ERROR");
+            client.sync();
+            client.close();
+        } finally {
+            conn.close();
+            server.stop();
+        }
+    }
+
+    private void testBinaryResultFormat() throws Exception {
+        Server server = Server.createPgServer(
+                "-pgPort", "5537", "-pgDaemon", "-key", "test", "mem:test");
+        server.start();
+        Connection conn = getConnection("mem:test");
+        try {
+            Statement stat = conn.createStatement();
+            stat.execute("create table test(id int, s smallint, l bigint, " +
+                    "r real, d double, n decimal(30, 5), b boolean, " +
+                    "x binary, dt date, t time, ts timestamp, u uuid, " +
+                    "v varchar)");
+            stat.execute("insert into test values(1, -2, 3000000000, 1.5, " +
+                    "-2.25, -12345678.0901, true, X'0102', '2001-02-03', " +
+                    "'01:02:03', '1999-12-31 23:59:59.123456', " +
+                    "'01234567-89ab-cdef-0123-456789abcdef', 'Hello')");
+            stat.execute("insert into test(id, n) values(2, 0)");
+            stat.execute("insert into test(id, n) values(3, 0.0005)");
+            stat.execute("insert into test(id, n) values(4, 10000)");
+            PgClient client = new PgClient(5537, "test", getUser(),
+                    getPassword());
+            client.parse("s", "select * from test order by id");
+            client.bind("p", "s", new int[] { 1 });
+            ArrayList<byte[]> rows = client.executeRows("p");
+            client.sync();
+            assertEquals(4, rows.size());
+
+            DataInputStream in = new DataInputStream(
+                    new ByteArrayInputStream(rows.get(0)));
+            assertEquals(13, in.readShort());
+            assertEquals(4, in.readInt());
+            assertEquals(1, in.readInt());
+            assertEquals(2, in.readInt());
+            assertEquals(-2, in.readShort());
+            assertEquals(8, in.readInt());
+            assertEquals(3000000000L, in.readLong());
+            assertEquals(4, in.readInt());
+            assertEquals(1.5f, in.readFloat());
+            assertEquals(8, in.readInt());
+            assertEquals(-2.25, in.readDouble());
+            // -12345678.09010: 3 digits, weight 1, negative, scale 5
+            assertEquals(8 + 2 * 3, in.readInt());
+            assertEquals(3, in.readShort());
+            assertEquals(1, in.readShort());
+            assertEquals(0x4000, in.readShort());
+            assertEquals(5, in.readShort());
+            assertEquals(1234, in.readShort());
+            assertEquals(5678, in.readShort());
+            assertEquals(901, in.readShort());
+            assertEquals(1, in.readInt());
+            assertEquals(1, in.readByte());
+            assertEquals(2, in.readInt());
+            assertEquals(1, in.readByte());
+            assertEquals(2, in.readByte());
+            // days since 2000-01-01
+            assertEquals(4, in.readInt());
+            assertEquals(366 + 31 + 2, in.readInt());
+            // decode the time values the way a client does, using the
+            // representation announced in integer_datetimes
+            boolean integerDatetimes = "on".equals(
+                    client.getParameter("integer_datetimes"));
+            // microseconds since midnight
+            assertEquals(8, in.readInt());
+            assertEquals(3723000000L, readMicros(in, integerDatetimes));
+            // microseconds since 2000-01-01
+            assertEquals(8, in.readInt());
+            assertEquals(-876544L, readMicros(in, integerDatetimes));
+            assertEquals(16, in.readInt());
+            assertEquals(0x0123456789abcdefL, in.readLong());
+            assertEquals(0x0123456789abcdefL, in.readLong());
+            assertEquals(5, in.readInt());
+            byte[] data = new byte[5];
+            in.readFully(data);
+            assertEquals("Hello", new String(data, "UTF-8"));
+            assertEquals(-1, in.read());
+
+            // NULL values, zero, a fraction, and trailing zero digits
+            in = new DataInputStream(new ByteArrayInputStream(rows.get(1)));
+            in.readShort();
+            in.readInt();
+            in.readInt();
+            assertEquals(-1, in.readInt());
+            assertEquals(-1, in.readInt());
+            assertEquals(-1, in.readInt());
+            assertEquals(-1, in.readInt());
+            assertEquals(8, in.readInt());
+            assertEquals(0, in.readShort());
+            assertEquals(0, in.readShort());
+            assertEquals(0, in.readShort());
+            assertEquals(5, in.readShort());
+            in = new DataInputStream(new ByteArrayInputStream(rows.get(2)));
+            in.skipBytes(2 + 8 + 4 * 4);
+            assertEquals(10, in.readInt());
+            assertEquals(1, in.readShort());
+            assertEquals(-1, in.readShort());
+            assertEquals(0, in.readShort());
+            assertEquals(5, in.readShort());
+            assertEquals(5, in.readShort());
+            in = new DataInputStream(new ByteArrayInputStream(rows.get(3)));
+            in.skipBytes(2 + 8 + 4 * 4);
+            assertEquals(10, in.readInt());
+            assertEquals(1, in.readShort());
+            assertEquals(1, in.readShort());
+            assertEquals(0, in.readShort());
+            assertEquals(5, in.readShort());
+            assertEquals(1, in.readShort());
+
+            // without format codes, the text format is used
+            client.bind("p", "s");
+            rows = client.executeRows("p");
+            client.sync();
+            in = new DataInputStream(new ByteArrayInputStream(rows.get(0)));
+            in.readShort();
+            assertEquals(1, in.readInt());
+            assertEquals('1', in.readByte());
+            client.close();
+        } finally {
+            conn.close();
+            server.stop();
+        }
+    }
+
+    private static long readMicros(DataInputStream in,
+            boolean integerDatetimes) throws IOException {
+        if (integerDatetimes) {
+            return in.readLong();
+        }
+        // seconds, as a double
+        return Math.round(in.readDouble() * 1000000);
+    }
+
+    private static String querySingle(Statement stat, String sql)
+            throws SQLException {
+        ResultSet rs = stat.executeQuery(sql);
+        rs.next();
+        return rs.getString(1);
+    }
+
+    /**
+     * A minimal client for the PostgreSQL protocol, to test COPY.
+     */
+    private static class PgClient {
+
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final HashMap<String, String> parameters =
+                new HashMap<String, String>();
+        private byte[] message;
+
+        PgClient(int port, String database, String user, String password)
+                throws IOException {
+            socket = new Socket("localhost", port);
+            in = new DataInputStream(socket.getInputStream());
+            out = new DataOutputStream(new BufferedOutputStream(
+                    socket.getOutputStream()));
+            ByteArrayOutputStream buff = new ByteArrayOutputStream();
+            DataOutputStream d = new DataOutputStream(buff);
+            d.writeInt(196608);
+            writeString(d, "user");
+            writeString(d, user);
+            writeString(d, "database");
+            writeString(d, database);
+            d.write(0);
+            out.writeInt(buff.size() + 4);
+            out.write(buff.toByteArray());
+            out.flush();
+            readMessage();
+            sendMessage('p', password);
+            while (true) {
+                int x = readMessage();
+                if (x == 'S') {
+                    String name = readString();
+                    parameters.put(name, new String(message,
+                            name.length() + 1,
+                            message.length - name.length() - 2, "UTF-8"));
+                } else if (x == 'Z') {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Get a run-time parameter that the server reported when connecting.
+         *
+         * @param name the parameter name
+         * @return the value, or null if not reported
+         */
+        String getParameter(String name) {
+            return parameters.get(name);
+        }
+
+        /**
+         * Execute a COPY FROM STDIN statement.
+         *
+         * @param sql the statement
+         * @param data the data messages
+         * @return the command tag, or the error
+         */
+        String copyIn(String sql, String... data) throws IOException {
+            sendMessage('Q', sql);
+            String result = null;
+            while (true) {
+                int x = readMessage();
+                if (x == 'G') {
+                    for (String s : data) {
+                        byte[] b = s.getBytes("UTF-8");
+                        out.write('d');
+                        out.writeInt(b.length + 4);
+                        out.write(b);
+                    }
+                    out.write('c');
+                    out.writeInt(4);
+                    out.flush();
+                } else if (x == 'C') {
+                    result = readString();
+                } else if (x == 'E') {
+                    result = readError();
+                } else if (x == 'Z') {
+                    return result;
+                }
+            }
+        }
+
+        /**
+         * Execute a COPY TO STDOUT statement.
+         *
+         * @param sql the statement
+         * @return the received data followed by the command tag, or the
+         *         error
+         */
+        String copyOut(String sql) throws IOException {
+            sendMessage('Q', sql);
+            StringBuilder result = new StringBuilder();
+            while (true) {
+                int x = readMessage();
+                if (x == 'd') {
+                    result.append(new String(message, "UTF-8"));
+                } else if (x == 'C') {
+                    result.append(readString());
+                } else if (x == 'E') {
+                    result.setLength(0);
+                    result.append(readError());
+                } else if (x == 'Z') {
+                    return result.toString();
+                }
+            }
+        }
+
+        /**
+         * Parse a statement.
+         *
+         * @param statement the statement name
+         * @param sql the SQL statement
+         * @param paramTypes the parameter types (0 for unspecified)
+         */
+        void parse(String statement, String sql, int... paramTypes)
+                throws IOException {
+            ByteArrayOutputStream buff = new ByteArrayOutputStream();
+            DataOutputStream d = new DataOutputStream(buff);
+            writeString(d, statement);
+            writeString(d, sql);
+            d.writeShort(paramTypes.length);
+            for (int t : paramTypes) {
+                d.writeInt(t);
+            }
+            sendMessage('P', buff.toByteArray());
+            expect('1');
+        }
+
+        /**
+         * Bind the parameters of a statement to a portal.
+         *
+         * @param portal the portal name
+         * @param statement the statement name
+         * @param params the parameter values, in text format
+         */
+        void bind(String portal, String statement, String... params)
+                throws IOException {
+            bind(portal, statement, new int[0], params);
+        }
+
+        /**
+         * Bind the parameters of a statement to a portal.
+         *
+         * @param portal the portal name
+         * @param statement the statement name
+         * @param resultFormats the result column format codes
+         * @param params the parameter values, in text format
+         */
+        void bind(String portal, String statement, int[] resultFormats,
+                String... params) throws IOException {
+            ByteArrayOutputStream buff = new ByteArrayOutputStream();
+            DataOutputStream d = new DataOutputStream(buff);
+            writeString(d, portal);
+            writeString(d, statement);
+            d.writeShort(0);
+            d.writeShort(params.length);
+            for (String p : params) {
+                byte[] b = p.getBytes("UTF-8");
+                d.writeInt(b.length);
+                d.write(b);
+            }
+            d.writeShort(resultFormats.length);
+            for (int f : resultFormats) {
+                d.writeShort(f);
+            }
+            sendMessage('B', buff.toByteArray());
+            expect('2');
+        }
+
+        /**
+         * Execute a portal.
+         *
+         * @param portal the portal name
+         * @param maxRows the maximum number of rows, 0 for all
+         * @return the values of the first column, followed by the command
+         *         tag or "suspended"
+         */
+        String execute(String portal, int maxRows) throws IOException {
+            ByteArrayOutputStream buff = new ByteArrayOutputStream();
+            DataOutputStream d = new DataOutputStream(buff);
+            writeString(d, portal);
+            d.writeInt(maxRows);
+            sendMessage('E', buff.toByteArray());
+            StringBuilder result = new StringBuilder();
+            while (true) {
+                int x = readMessage();
+                if (x == 'D') {
+                    if (result.length() > 0) {
+                        result.append(',');
+                    }
+                    int len = ((message[2] & 0xff) << 24) |
+                            ((message[3] & 0xff) << 16) |
+                            ((message[4] & 0xff) << 8) | (message[5] & 0xff);
+                    result.append(new String(message, 6, len, "UTF-8"));
+                } else if (x == 's') {
+                    return result.append(" suspended").toString();
+                } else if (x == 'C') {
+                    return result.append(' ').append(readString()).toString();
+                } else if (x == 'E') {
+                    return readError();
+                }
+            }
+        }
+
+        /**
+         * Execute a portal and return all data rows.
+         *
+         * @param portal the portal name
+         * @return the data row messages
+         */
+        ArrayList<byte[]> executeRows(String portal) throws IOException {
+            ByteArrayOutputStream buff = new ByteArrayOutputStream();
+            DataOutputStream d = new DataOutputStream(buff);
+            writeString(d, portal);
+            d.writeInt(0);
+            sendMessage('E', buff.toByteArray());
+            ArrayList<byte[]> rows = new ArrayList<byte[]>();
+            while (true) {
+                int x = readMessage();
+                if (x == 'D') {
+                    rows.add(message);
+                } else if (x == 'C') {
+                    return rows;
+                } else if (x == 'E') {
+                    throw new IOException(readError());
+                }
+            }
+        }
+
+        /**
+         * Close a portal.
+         *
+         * @param portal the portal name
+         */
+        void closePortal(String portal) throws IOException {
+            ByteArrayOutputStream buff = new ByteArrayOutputStream();
+            buff.write('P');
+            writeString(new DataOutputStream(buff), portal);
+            sendMessage('C', buff.toByteArray());
+            expect('3');
+        }
+
+        /**
+         * Send a sync message and wait until the server is ready.
+         */
+        void sync() throws IOException {
+            sendMessage('S', new byte[0]);
+            while (readMessage() != 'Z') {
+                // wait until ready
+            }
+        }
+
+        void close() throws IOException {
+            out.write('X');
+            out.writeInt(4);
+            out.flush();
+            socket.close();
+        }
+
+        private int readMessage() throws IOException {
+            int x = in.read();
+            message = new byte[in.readInt() - 4];
+            in.readFully(message);
+            return x;
+        }
+
+        private String readString() throws IOException {
+            int len = 0;
+            while (message[len] != 0) {
+                len++;
+            }
+            return new String(message, 0, len, "UTF-8");
+        }
+
+        private String readError() throws IOException {
+            String text = "";
+            for (int i = 0; message[i] != 0;) {
+                int type = message[i++];
+                int end = i;
+                while (message[end] != 0) {
+                    end++;
+                }
+                if (type == 'M') {
+                    text = new String(message, i, end - i, "UTF-8");
+                }
+                i = end + 1;
+            }
+            return "ERROR: " + text;
+        }
+
+        private void expect(int type) throws IOException {
+            int x = readMessage();
+            if (x != type) {
+                throw new IOException("Expected " + (char) type + " got " +
+                        (char) x + (x == 'E' ? " " + readError() : ""));
+            }
+        }
+
+        private void sendMessage(char type, String s) throws IOException {
+            ByteArrayOutputStream buff = new ByteArrayOutputStream();
+            writeString(new DataOutputStream(buff), s);
+            sendMessage(type, buff.toByteArray());
+        }
+
+        private void sendMessage(char type, byte[] data) throws IOException {
+            out.write(type);
+            out.writeInt(data.length + 4);
+            out.write(data);
+            out.flush();
+        }
+
+        private static void writeString(DataOutputStream d, String s)
+                throws IOException {
+            d.write(s.getBytes("UTF-8"));
+            d.write(0);
+        }
+
+    }
+
 }
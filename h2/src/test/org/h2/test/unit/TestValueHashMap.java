@@ -19,11 +19,16 @@ import org.h2.test.TestBase;
 import org.h2.util.New;
 import org.h2.util.SmallLRUCache;
 import org.h2.util.TempFileDeleter;
+import org.h2.util.TypedValueHashMap;
+import org.h2.util.ValueArrayHashMap;
 import org.h2.util.ValueHashMap;
 import org.h2.value.CompareMode;
 import org.h2.value.Value;
+import org.h2.value.ValueArray;
 import org.h2.value.ValueDouble;
 import org.h2.value.ValueInt;
+import org.h2.value.ValueNull;
+import org.h2.value.ValueString;
 
 /**
  * Tests the value hash map.
@@ -45,6 +50,11 @@ public class TestValueHashMap extends TestBase implements DataHandler {
     public void test() {
         testNotANumber();
         testRandomized();
+        testTypedRandomized(Value.INT);
+        testTypedRandomized(Value.LONG);
+        testTypedRandomized(Value.STRING);
+        testTypedRandomized(Value.DECIMAL);
+        testValueArrayRandomized();
     }
 
     private void testNotANumber() {
@@ -111,6 +121,76 @@ public class TestValueHashMap extends TestBase implements DataHandler {
         }
     }
 
+    private void testTypedRandomized(int type) {
+        TypedValueHashMap<Integer> map = TypedValueHashMap.newInstance(type);
+        HashMap<Value, Integer> hash = New.hashMap();
+        Random random = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            int op = random.nextInt(10);
+            int x = random.nextInt(100);
+            Value key = x == 0 ? ValueNull.INSTANCE :
+                ValueInt.get(x - 50).convertTo(type);
+            switch (op) {
+            case 0:
+                map.put(key, i);
+                hash.put(key, i);
+                break;
+            case 1:
+                map.remove(key);
+                hash.remove(key);
+                break;
+            case 2:
+                assertEquals(hash.get(key), map.get(key));
+                break;
+            case 3: {
+                ArrayList<Integer> a1 = map.values();
+                ArrayList<Integer> a2 = New.arrayList(hash.values());
+                Collections.sort(a1);
+                Collections.sort(a2);
+                assertEquals(a2.toString(), a1.toString());
+                break;
+            }
+            default:
+            }
+            assertEquals(hash.size(), map.size());
+        }
+    }
+
+    private void testValueArrayRandomized() {
+        ValueArrayHashMap<Integer> map = ValueArrayHashMap.newInstance();
+        HashMap<Value, Integer> hash = New.hashMap();
+        Random random = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            int op = random.nextInt(10);
+            Value[] key = random.nextInt(50) == 0 ? new Value[0] :
+                new Value[] { ValueInt.get(random.nextInt(10)),
+                ValueString.get("" + random.nextInt(10)) };
+            switch (op) {
+            case 0:
+                map.put(key, i);
+                hash.put(ValueArray.get(key), i);
+                break;
+            case 1:
+                map.remove(key);
+                hash.remove(ValueArray.get(key));
+                break;
+            case 2:
+                assertEquals(hash.get(ValueArray.get(key)), map.get(key));
+                break;
+            case 3: {
+                ArrayList<Value[]> keys = map.keys();
+                assertEquals(hash.size(), keys.size());
+                for (Value[] k : keys) {
+                    assertTrue(hash.containsKey(ValueArray.get(k)));
+                }
+                break;
+            }
+            default:
+            }
+            assertEquals(hash.size(), map.size());
+        }
+    }
+
     @Override
     public String getDatabasePath() {
         return null;
@@ -590,6 +590,48 @@ public class Build extends BuildBase {
         copy("docs/javadocImpl", files("src/docsrc/javadoc"), "src/docsrc/javadoc");
     }
 
+    /**
+     * Compile and run the JMH microbenchmarks (src/jmh). The results are
+     * written to docs/jmh.json. To only run some of the benchmarks, set the
+     * system property "jmh" to a regular expression, for example
+     * -Djmh=MVMap.*
+     */
+    public void jmh() {
+        downloadUsingMaven("ext/jmh-core-1.3.4.jar",
+                "org/openjdk/jmh", "jmh-core", "1.3.4",
+                "fe7f6b8d97d565f9f77d6d592484d813f2af9fd4");
+        downloadUsingMaven("ext/jmh-generator-annprocess-1.3.4.jar",
+                "org/openjdk/jmh", "jmh-generator-annprocess", "1.3.4",
+                "d37393728f97659791e6bd581f41b0f33cf2a750");
+        downloadUsingMaven("ext/jopt-simple-4.6.jar",
+                "net/sf/jopt-simple", "jopt-simple", "4.6",
+                "306816fb57cf94f108a43c95731b08934dcae15c");
+        downloadUsingMaven("ext/commons-math3-3.2.jar",
+                "org/apache/commons", "commons-math3", "3.2",
+                "ec2544ab27e110d2d431bdad7d538ed509b21e62");
+        compile();
+        delete("temp-jmh");
+        mkdir("temp-jmh");
+        String cp = "temp-jmh" +
+                File.pathSeparator + "temp" +
+                File.pathSeparator + "ext/jmh-core-1.3.4.jar" +
+                File.pathSeparator + "ext/jmh-generator-annprocess-1.3.4.jar" +
+                File.pathSeparator + "ext/jopt-simple-4.6.jar" +
+                File.pathSeparator + "ext/commons-math3-3.2.jar";
+        // the annotation processor generates the benchmark classes
+        // and the list of benchmarks (META-INF/BenchmarkList)
+        javac(args("-d", "temp-jmh", "-sourcepath", "src/jmh",
+                "-classpath", cp), files("src/jmh"));
+        mkdir("docs");
+        StringList args = args("-cp", cp, "org.openjdk.jmh.Main",
+                "-rf", "json", "-rff", "docs/jmh.json");
+        String filter = System.getProperty("jmh");
+        if (filter != null) {
+            args = args.plus(filter);
+        }
+        exec("java", args);
+    }
+
     private static void manifest(String title, String mainClassName) {
         String manifest = new String(readFile(new File(
                 "src/main/META-INF/MANIFEST.MF")));